@@ -0,0 +1,94 @@
+package org.nokia.vocabulary.benchmark;
+
+import org.nokia.vocabulary.file.DictionaryConverter;
+import org.nokia.vocabulary.store.CachingVocabularyStore;
+import org.nokia.vocabulary.store.MappedVocabularyStore;
+import org.nokia.vocabulary.store.VocabularyStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of lookups in the memory-mapped store, with and without a {@link CachingVocabularyStore} in front of it.
+ * <p>
+ * Skewed lookups follow a Zipf-like distribution in which word {@code k} is about {@code 1/k} as likely as the first
+ * word, as searches of natural language words do. Uniform lookups spread evenly over all words and show what the cache
+ * costs when it rarely hits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CachedLookupBenchmark {
+	private static final int LOOKUPS = 1 << 20;
+	
+	@Param({"1000000"})
+	int size;
+	
+	@Param({"0", "65536"})
+	int cacheSize;
+	
+	private VocabularyStore store;
+	private Path directory;
+	private final String[] skewed = new String[LOOKUPS];
+	private final String[] uniform = new String[LOOKUPS];
+	// Cursor into the lookups; benchmarks run single-threaded, so a plain field suffices
+	private int next;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("vocabulary-benchmark");
+		TreeMap<String, String> words = new TreeMap<>();
+		for (int i = 0; i < size; i++) {
+			words.put(Datasets.word(i), Datasets.meaning(i));
+		}
+		Path dictionary = directory.resolve("vocabulary.dict");
+		DictionaryConverter converter = new DictionaryConverter(Datasets.fileHandler(directory.resolve("missing.json")));
+		converter.writeDictionary(dictionary, words);
+		store = new MappedVocabularyStore(dictionary, converter);
+		if (cacheSize > 0) {
+			store = new CachingVocabularyStore(store, cacheSize);
+		}
+		Random random = new Random(7);
+		for (int i = 0; i < LOOKUPS; i++) {
+			// size^u for uniform u in [0, 1) has the density 1/k of a Zipf distribution with exponent 1
+			skewed[i] = Datasets.word((long) Math.pow(size, random.nextDouble()));
+			uniform[i] = Datasets.word(random.nextInt(size));
+		}
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(directory.resolve("vocabulary.dict"));
+		Files.deleteIfExists(directory);
+	}
+	
+	@Benchmark
+	public String skewedLookup() {
+		return store.get(skewed[next++ & (LOOKUPS - 1)]);
+	}
+	
+	@Benchmark
+	public String uniformLookup() {
+		return store.get(uniform[next++ & (LOOKUPS - 1)]);
+	}
+}
@@ -0,0 +1,111 @@
+package org.nokia.vocabulary.benchmark;
+
+import org.nokia.vocabulary.store.ConcurrentVocabularyStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups per microsecond in the in-memory store from 1, 2, 4 and 8 reader threads, while another thread keeps
+ * rewriting meanings. Reads take no lock, so on a machine with at least as many cores as readers the total should grow
+ * about linearly with the number of readers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrentReadBenchmark {
+	private static final int LOOKUPS = 1 << 20;
+	
+	@Param({"1000000"})
+	int size;
+	
+	private ConcurrentVocabularyStore store;
+	private Thread writer;
+	private volatile boolean writing;
+	
+	@State(Scope.Thread)
+	public static class Reader {
+		final String[] words = new String[LOOKUPS];
+		int next;
+		
+		@Setup(Level.Trial)
+		public void setUp(ConcurrentReadBenchmark benchmark) {
+			for (int i = 0; i < LOOKUPS; i++) {
+				words[i] = Datasets.word(ThreadLocalRandom.current().nextInt(benchmark.size));
+			}
+		}
+	}
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		store = new ConcurrentVocabularyStore();
+		TreeMap<String, String> words = new TreeMap<>();
+		for (int i = 0; i < size; i++) {
+			words.put(Datasets.word(i), Datasets.meaning(i));
+		}
+		store.putAll(words);
+	}
+	
+	@Setup(Level.Iteration)
+	public void startWriter() {
+		writing = true;
+		writer = new Thread(() -> {
+			for (long i = 0; writing; i++) {
+				store.put(Datasets.word(i % size), Datasets.meaning(i));
+			}
+		}, "benchmark-writer");
+		writer.start();
+	}
+	
+	@TearDown(Level.Iteration)
+	public void stopWriter() throws InterruptedException {
+		writing = false;
+		writer.join();
+	}
+	
+	@Benchmark
+	@Threads(1)
+	public String lookup1Thread(Reader reader) {
+		return lookup(reader);
+	}
+	
+	@Benchmark
+	@Threads(2)
+	public String lookup2Threads(Reader reader) {
+		return lookup(reader);
+	}
+	
+	@Benchmark
+	@Threads(4)
+	public String lookup4Threads(Reader reader) {
+		return lookup(reader);
+	}
+	
+	@Benchmark
+	@Threads(8)
+	public String lookup8Threads(Reader reader) {
+		return lookup(reader);
+	}
+	
+	private String lookup(Reader reader) {
+		return store.get(reader.words[reader.next++ & (LOOKUPS - 1)]);
+	}
+}
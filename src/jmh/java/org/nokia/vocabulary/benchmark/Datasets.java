@@ -0,0 +1,64 @@
+package org.nokia.vocabulary.benchmark;
+
+import org.nokia.vocabulary.file.FileHandler;
+import org.nokia.vocabulary.file.WriteAheadLog;
+import org.nokia.vocabulary.services.ConflictPolicy;
+import org.nokia.vocabulary.services.VocabularyServiceImpl;
+import org.nokia.vocabulary.store.ConcurrentVocabularyStore;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deterministic generated vocabularies for the benchmarks.
+ * <p>
+ * Word {@code i} is {@code i} scrambled by multiplication with an odd constant modulo 2^40 and written in base 36, so
+ * words are distinct, spread evenly over the key space, and not inserted in sorted order. Words with an index at or
+ * above the size of a vocabulary are guaranteed not to be in it.
+ */
+final class Datasets {
+	private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+	private static final long MASK = (1L << 40) - 1;
+	private static final int BATCH_SIZE = 10_000;
+	
+	private Datasets() {
+	}
+	
+	static String word(long i) {
+		return Long.toString((i * MULTIPLIER) & MASK, 36);
+	}
+	
+	static String meaning(long i) {
+		return "Generated meaning number " + i + " of a benchmark word";
+	}
+	
+	/**
+	 * @return A file handler for the given JSON file.
+	 */
+	static FileHandler fileHandler(Path file) {
+		FileHandler fileHandler = new FileHandler();
+		ReflectionTestUtils.setField(fileHandler, "FILE_PATH", file.toString());
+		return fileHandler;
+	}
+	
+	/**
+	 * @return A service over an in-memory store holding words {@code 0} to {@code size - 1}, without write-ahead log.
+	 */
+	static VocabularyServiceImpl service(int size, Path directory) {
+		FileHandler fileHandler = fileHandler(directory.resolve("missing.json"));
+		WriteAheadLog writeAheadLog = new WriteAheadLog(false, directory.resolve("vocabulary.wal"), 64, 100, Long.MAX_VALUE);
+		VocabularyServiceImpl service = new VocabularyServiceImpl(fileHandler, writeAheadLog, new ConcurrentVocabularyStore());
+		List<Map.Entry<String, String>> batch = new ArrayList<>(BATCH_SIZE);
+		for (int i = 0; i < size; i++) {
+			batch.add(Map.entry(word(i), meaning(i)));
+			if (batch.size() == BATCH_SIZE || i == size - 1) {
+				service.addOrUpdateWords(batch, ConflictPolicy.OVERWRITE);
+				batch.clear();
+			}
+		}
+		return service;
+	}
+}
@@ -0,0 +1,69 @@
+package org.nokia.vocabulary.benchmark;
+
+import org.nokia.vocabulary.file.FileHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of loading and saving the JSON vocabulary file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class FileHandlerBenchmark {
+	
+	@Param({"10000", "1000000", "10000000"})
+	int size;
+	
+	private Path directory;
+	private Map<String, String> vocabulary;
+	private FileHandler loadHandler;
+	private FileHandler saveHandler;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("vocabulary-benchmark");
+		vocabulary = Datasets.service(size, directory).getAllWords();
+		loadHandler = Datasets.fileHandler(directory.resolve("load.json"));
+		loadHandler.saveVocabulary(vocabulary);
+		saveHandler = Datasets.fileHandler(directory.resolve("save.json"));
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(directory.resolve("load.json"));
+		Files.deleteIfExists(directory.resolve("save.json"));
+		Files.deleteIfExists(directory);
+	}
+	
+	@Benchmark
+	public long loadVocabulary(Blackhole blackhole) throws IOException {
+		return loadHandler.loadVocabulary((word, meaning) -> blackhole.consume(meaning));
+	}
+	
+	@Benchmark
+	public void saveVocabulary() throws IOException {
+		saveHandler.saveVocabulary(vocabulary);
+	}
+}
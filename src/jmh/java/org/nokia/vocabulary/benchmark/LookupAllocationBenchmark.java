@@ -0,0 +1,75 @@
+package org.nokia.vocabulary.benchmark;
+
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.nokia.vocabulary.services.MeteredVocabularyService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups through the metered service as the shell makes them, including metrics and the logging of misses. Run with
+ * the GC profiler to see the allocation per lookup, which should be zero bytes:
+ * <pre>
+ * mvn -P benchmark verify -Djmh.args="-prof gc LookupAllocationBenchmark"
+ * </pre>
+ * The words are created up front, so that the benchmark itself does not allocate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LookupAllocationBenchmark {
+	private static final int WORDS = 1 << 12;
+	
+	@Param({"1000000"})
+	int size;
+	
+	private MeteredVocabularyService service;
+	private Path directory;
+	private final String[] hits = new String[WORDS];
+	private final String[] misses = new String[WORDS];
+	private int next;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("vocabulary-benchmark");
+		service = new MeteredVocabularyService(Datasets.service(size, directory), new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+		for (int i = 0; i < WORDS; i++) {
+			hits[i] = Datasets.word((long) i * size / WORDS);
+			misses[i] = Datasets.word(size + i);
+		}
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(directory);
+	}
+	
+	@Benchmark
+	public String searchWordHit() {
+		return service.searchWord(hits[next++ & (WORDS - 1)]);
+	}
+	
+	@Benchmark
+	public String searchWordMiss() {
+		return service.searchWord(misses[next++ & (WORDS - 1)]);
+	}
+}
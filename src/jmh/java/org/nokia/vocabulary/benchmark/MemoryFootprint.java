@@ -0,0 +1,94 @@
+package org.nokia.vocabulary.benchmark;
+
+import org.nokia.vocabulary.store.ArenaVocabularyStore;
+import org.nokia.vocabulary.store.ConcurrentVocabularyStore;
+import org.nokia.vocabulary.store.VocabularyStore;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Compares the memory taken by a generated vocabulary in a plain {@link TreeMap}, the in-memory store, and the arena
+ * store on and off the heap. Memory is measured as the heap and direct buffers in use after full collections, before
+ * and after building each structure.
+ * <p>
+ * Run with: {@code java -cp <test classpath> org.nokia.vocabulary.benchmark.MemoryFootprint [size]}
+ */
+public final class MemoryFootprint {
+	private static final int BATCH_SIZE = 10_000;
+	
+	private MemoryFootprint() {
+	}
+	
+	public static void main(String[] args) {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		System.out.printf("%,d words%n", size);
+		System.out.printf("%-26s %14s %14s %14s %14s%n", "Structure", "Heap", "Off-heap", "Per word", "Estimated");
+		measure("TreeMap", () -> {
+			TreeMap<String, String> map = new TreeMap<>();
+			for (int i = 0; i < size; i++) {
+				map.put(Datasets.word(i), Datasets.meaning(i));
+			}
+			return map;
+		}, size);
+		measure("ConcurrentVocabularyStore", () -> fill(new ConcurrentVocabularyStore(), size), size);
+		measure("Arena (heap)", () -> fill(new ArenaVocabularyStore(false), size), size);
+		measure("Arena (off-heap)", () -> fill(new ArenaVocabularyStore(true), size), size);
+	}
+	
+	private static VocabularyStore fill(VocabularyStore store, int size) {
+		TreeMap<String, String> batch = new TreeMap<>();
+		for (int i = 0; i < size; i++) {
+			batch.put(Datasets.word(i), Datasets.meaning(i));
+			if (batch.size() == BATCH_SIZE || i == size - 1) {
+				store.putAll(batch);
+				batch.clear();
+			}
+		}
+		if (store instanceof ArenaVocabularyStore arena) {
+			arena.compact();
+		}
+		return store;
+	}
+	
+	private static void measure(String name, Supplier<Object> build, int size) {
+		long heapBefore = usedHeap();
+		long directBefore = usedDirect();
+		Object structure = build.get();
+		long heap = usedHeap() - heapBefore;
+		long direct = usedDirect() - directBefore;
+		String estimated = structure instanceof VocabularyStore store ? String.format("%,d", store.estimatedMemoryUsage()) : "-";
+		System.out.printf("%-26s %,14d %,14d %,14.1f %14s%n", name, heap, direct, (double) (heap + direct) / size, estimated);
+		// Keeps the structure reachable until it has been measured
+		if (structure instanceof Map<?, ?> map && map.isEmpty() || structure instanceof VocabularyStore store && store.size() < 0) {
+			System.out.println();
+		}
+	}
+	
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		try {
+			// Lets the cleaner free the direct buffers of collected arenas
+			Thread.sleep(200);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+	
+	private static long usedDirect() {
+		long used = 0;
+		for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+			if (pool.getName().equals("direct")) {
+				used += pool.getMemoryUsed();
+			}
+		}
+		return used;
+	}
+}
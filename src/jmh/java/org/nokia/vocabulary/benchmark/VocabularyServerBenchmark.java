@@ -0,0 +1,96 @@
+package org.nokia.vocabulary.benchmark;
+
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.nokia.vocabulary.server.VocabularyHttpServer;
+import org.nokia.vocabulary.services.MeteredVocabularyService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.StringJoiner;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requests per second to the HTTP server on localhost, from 32 client threads with one keep-alive connection each,
+ * against the in-memory store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+@Threads(32)
+public class VocabularyServerBenchmark {
+	private static final int LOOKUP_BATCH_SIZE = 100;
+	
+	@Param({"1000000"})
+	int size;
+	
+	private Path directory;
+	private VocabularyHttpServer server;
+	private String base;
+	
+	@State(Scope.Thread)
+	public static class Client {
+		final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+	}
+	
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("vocabulary-benchmark");
+		MeteredVocabularyService service = new MeteredVocabularyService(Datasets.service(size, directory), new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+		server = new VocabularyHttpServer(service, "127.0.0.1", 0, 1024, 64);
+		server.start();
+		base = "http://127.0.0.1:" + server.port();
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		server.stop();
+		Files.deleteIfExists(directory.resolve("vocabulary.wal"));
+		Files.deleteIfExists(directory);
+	}
+	
+	@Benchmark
+	public String lookup(Client client) throws IOException, InterruptedException {
+		String word = Datasets.word(ThreadLocalRandom.current().nextInt(size));
+		HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/words/" + word)).build();
+		return client.client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+	}
+	
+	/**
+	 * One request looking up {@value #LOOKUP_BATCH_SIZE} words.
+	 */
+	@Benchmark
+	public String lookupBatch(Client client) throws IOException, InterruptedException {
+		StringJoiner words = new StringJoiner("\",\"", "[\"", "\"]");
+		for (int i = 0; i < LOOKUP_BATCH_SIZE; i++) {
+			words.add(Datasets.word(ThreadLocalRandom.current().nextInt(size)));
+		}
+		HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/lookup"))
+				.POST(HttpRequest.BodyPublishers.ofString(words.toString()))
+				.build();
+		return client.client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+	}
+}
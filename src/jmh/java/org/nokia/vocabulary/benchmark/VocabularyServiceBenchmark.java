@@ -0,0 +1,103 @@
+package org.nokia.vocabulary.benchmark;
+
+import org.nokia.vocabulary.services.VocabularyServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the in-memory vocabulary operations behind the shell commands.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class VocabularyServiceBenchmark {
+	
+	@Param({"10000", "1000000", "10000000"})
+	int size;
+	
+	private VocabularyServiceImpl service;
+	private Path directory;
+	// Cursors into the generated words; benchmarks run single-threaded, so plain fields suffice
+	private long next;
+	private long added;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("vocabulary-benchmark");
+		service = Datasets.service(size, directory);
+	}
+	
+	@TearDown(Level.Iteration)
+	public void removeAddedWords() {
+		for (long i = 0; i < added; i++) {
+			service.removeWord(Datasets.word(size + i));
+		}
+		added = 0;
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(directory);
+	}
+	
+	@Benchmark
+	public String searchWordHit() {
+		return service.searchWord(Datasets.word(next++ % size));
+	}
+	
+	@Benchmark
+	public String searchWordMiss() {
+		return service.searchWord(Datasets.word(size + (next++ % size)));
+	}
+	
+	/**
+	 * Adds words that are not in the vocabulary yet; they are removed again after each iteration.
+	 */
+	@Benchmark
+	public String addOrUpdateWord() {
+		long i = size + added++;
+		return service.addOrUpdateWord(Datasets.word(i), Datasets.meaning(i));
+	}
+	
+	/**
+	 * Removes an existing word and adds it back, so that every invocation removes a word that is present. Subtract
+	 * {@link #addOrUpdateWord} for the cost of the removal alone.
+	 */
+	@Benchmark
+	public boolean removeWord() {
+		long i = next++ % size;
+		String word = Datasets.word(i);
+		boolean removed = service.removeWord(word);
+		service.addOrUpdateWord(word, Datasets.meaning(i));
+		return removed;
+	}
+	
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void getAllWords(Blackhole blackhole) {
+		for (Map.Entry<String, String> entry : service.getAllWords().entrySet()) {
+			blackhole.consume(entry.getValue());
+		}
+	}
+}
@@ -3,6 +3,7 @@ package org.nokia.vocabulary;
 import org.jline.reader.LineReader;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.shell.Shell;
 import org.springframework.shell.context.ShellContext;
 import org.springframework.shell.jline.InteractiveShellRunner;
@@ -13,6 +14,7 @@ import org.springframework.shell.jline.PromptProvider;
  * Extends the InteractiveShellRunner to provide an interactive Spring Shell environment.
  */
 @SpringBootApplication
+@EnableScheduling
 public class VocabularyApplication extends InteractiveShellRunner {
 	
 	/**
@@ -23,10 +25,11 @@ public class VocabularyApplication extends InteractiveShellRunner {
 	}
 	
 	/**
-	 * Main method that starts the Spring Boot application.
+	 * Main method that starts the Spring Boot application, and closes it once the shell is done, e.g. at the end of a
+	 * batch run.
 	 */
 	public static void main(String[] args) {
-		SpringApplication.run(VocabularyApplication.class, args);
+		System.exit(SpringApplication.exit(SpringApplication.run(VocabularyApplication.class, args)));
 	}
 	
 }
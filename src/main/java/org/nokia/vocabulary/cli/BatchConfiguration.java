@@ -0,0 +1,52 @@
+package org.nokia.vocabulary.cli;
+
+import org.jline.reader.Parser;
+import org.jline.terminal.Terminal;
+import org.nokia.vocabulary.services.VocabularyService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.shell.Shell;
+import org.springframework.shell.boot.TerminalCustomizer;
+import org.springframework.shell.command.CommandCatalog;
+import org.springframework.shell.context.ShellContext;
+
+import java.io.InputStream;
+
+/**
+ * Runs the shell in batch mode when {@code vocabulary.batch.input} names a command file, or {@code -} for standard
+ * input. The terminal then writes to a {@link BatchOutput} instead of the console, and a {@link BatchShellRunner} takes
+ * precedence over the interactive shell.
+ */
+@Configuration
+@ConditionalOnProperty("vocabulary.batch.input")
+public class BatchConfiguration {
+	
+	/**
+	 * @return The buffered standard output, flushed once more when the application closes.
+	 */
+	@Bean(destroyMethod = "flushBatch")
+	public BatchOutput batchOutput() {
+		return new BatchOutput(System.out);
+	}
+	
+	/**
+	 * @return A customizer connecting the terminal to the batch output, with no input of its own.
+	 */
+	@Bean
+	public TerminalCustomizer batchTerminalCustomizer(BatchOutput batchOutput) {
+		return builder -> builder.system(false).dumb(true).type(Terminal.TYPE_DUMB).streams(InputStream.nullInputStream(), batchOutput);
+	}
+	
+	/**
+	 * @return The runner of the batch.
+	 */
+	@Bean
+	public BatchShellRunner batchShellRunner(Shell shell, ShellContext shellContext, Parser parser,
+											 CommandCatalog commandCatalog, Terminal terminal,
+											 BatchOutput batchOutput, VocabularyCommands vocabularyCommands,
+											 VocabularyService vocabularyService, @Value("${vocabulary.batch.input}") String input) {
+		return new BatchShellRunner(shell, shellContext, parser, commandCatalog, terminal, batchOutput, vocabularyCommands, vocabularyService, input);
+	}
+}
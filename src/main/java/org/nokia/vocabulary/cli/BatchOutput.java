@@ -0,0 +1,36 @@
+package org.nokia.vocabulary.cli;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Buffered output of a batch run. The shell flushes the terminal after every command; those flushes are ignored here,
+ * so that the output of a whole batch of commands is written at once by {@link #flushBatch()}.
+ */
+public class BatchOutput extends BufferedOutputStream {
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	/**
+	 * @param out The stream to write the output to.
+	 */
+	public BatchOutput(OutputStream out) {
+		super(out, BUFFER_SIZE);
+	}
+	
+	/**
+	 * Ignored; see {@link #flushBatch()}.
+	 */
+	@Override
+	public void flush() {
+	}
+	
+	/**
+	 * Writes the buffered output to the underlying stream.
+	 *
+	 * @throws IOException If the output cannot be written.
+	 */
+	public synchronized void flushBatch() throws IOException {
+		super.flush();
+	}
+}
@@ -0,0 +1,244 @@
+package org.nokia.vocabulary.cli;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jline.reader.ParsedLine;
+import org.jline.reader.Parser;
+import org.jline.reader.SyntaxError;
+import org.jline.terminal.Terminal;
+import org.nokia.vocabulary.services.VocabularyService;
+import org.springframework.core.Ordered;
+import org.springframework.shell.Input;
+import org.springframework.shell.Shell;
+import org.springframework.shell.ShellRunner;
+import org.springframework.shell.command.CommandCatalog;
+import org.springframework.shell.command.parser.Ast;
+import org.springframework.shell.command.parser.CommandModel;
+import org.springframework.shell.command.parser.Lexer;
+import org.springframework.shell.command.parser.Parser.DefaultParser;
+import org.springframework.shell.command.parser.Parser.ParseResult;
+import org.springframework.shell.command.parser.Parser.ParseResult.ArgumentResult;
+import org.springframework.shell.command.parser.Parser.ParseResult.OptionResult;
+import org.springframework.shell.command.parser.ParserConfig;
+import org.springframework.shell.context.InteractionMode;
+import org.springframework.shell.context.ShellContext;
+import org.springframework.shell.jline.ScriptShellRunner;
+import org.springframework.shell.standard.ShellOption;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Runs the shell commands of a file, or of standard input, without a terminal user.
+ * <p>
+ * A reader thread reads and parses the commands into batches of up to {@value #BATCH_SIZE}, while the main thread
+ * runs them. A batch ends early when no more input is available yet, so commands piped in one by one are still
+ * answered promptly. The output of a batch is written at once after its last command instead of after every command.
+ * <p>
+ * Commands run non-interactively: {@code add} applies {@code vocabulary.batch.on-conflict} instead of asking whether
+ * to replace a word, and the run stops at the first command the shell rejects. The vocabulary is saved when all
+ * commands ran.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class BatchShellRunner implements ShellRunner, Ordered {
+	private static final int BATCH_SIZE = 1024;
+	// Parsed batches waiting for the main thread
+	private static final int QUEUED_BATCHES = 16;
+	private static final String STANDARD_INPUT = "-";
+	// Names and aliases of the commands run directly
+	private static final Set<String> DIRECT_COMMANDS = Set.of("a", "add", "s", "search", "r", "remove");
+	private final Shell shell;
+	private final ShellContext shellContext;
+	private final Parser parser;
+	private final CommandCatalog commandCatalog;
+	private final Terminal terminal;
+	private final BatchOutput output;
+	private final VocabularyCommands vocabularyCommands;
+	private final VocabularyService vocabularyService;
+	private final String input;
+	
+	/**
+	 * @return An order ahead of the script, non-interactive and interactive runners, which would otherwise take the
+	 * command line arguments for commands.
+	 */
+	@Override
+	public int getOrder() {
+		return ScriptShellRunner.PRECEDENCE - 100;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean run(String[] args) throws Exception {
+		shellContext.setInteractionMode(InteractionMode.NONINTERACTIVE);
+		BlockingQueue<List<Input>> batches = new ArrayBlockingQueue<>(QUEUED_BATCHES);
+		Thread reader = new Thread(() -> read(batches), "batch-reader");
+		reader.setDaemon(true);
+		reader.start();
+		// Bypasses the terminal, which filters every byte written through it
+		PrintWriter writer = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+		DefaultParser commandParser = commandParser(commandCatalog);
+		long start = System.nanoTime();
+		long count = 0;
+		try {
+			for (List<Input> batch = batches.take(); !batch.isEmpty(); batch = batches.take()) {
+				for (Input command : batch) {
+					if (!runDirectly(commandParser, command.words(), writer)) {
+						writer.flush();
+						Iterator<Input> once = List.of(command).iterator();
+						shell.run(() -> once.hasNext() ? once.next() : null);
+					}
+				}
+				count += batch.size();
+				writer.flush();
+				flush();
+			}
+		} finally {
+			writer.flush();
+			flush();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		log.info("Ran {} commands from {} in {} s ({} commands/s).", count, input, String.format("%.2f", seconds),
+				String.format("%,.0f", count / Math.max(seconds, 1e-9)));
+		vocabularyService.saveVocabularyToFile();
+		return true;
+	}
+	
+	/**
+	 * Runs the commands that make up most batches by calling them directly, since the shell's method resolution,
+	 * conversion and reflective invocation for each command cost far more than the commands themselves. The arguments
+	 * are bound by the shell's own parser from the registered command definitions, so names, aliases, positions and
+	 * defaults stay those of the interactive commands.
+	 *
+	 * @return True if the command was run; false to leave it to the shell, e.g. because it is another command or the
+	 * parser reported a problem with it.
+	 */
+	private boolean runDirectly(DefaultParser commandParser, List<String> words, PrintWriter writer) {
+		if (!DIRECT_COMMANDS.contains(words.get(0))) {
+			return false;
+		}
+		ParseResult parsed = commandParser.parse(words);
+		if (parsed.commandRegistration() == null || !parsed.messageResults().isEmpty()
+				|| !parsed.directiveResults().isEmpty()) {
+			return false;
+		}
+		Map<String, Object> options = new HashMap<>();
+		for (OptionResult option : parsed.optionResults()) {
+			options.put(option.option().getLongNames()[0], option.value());
+		}
+		// Arguments left over, or joined into one option value, are left to the shell to handle as it would interactively
+		for (ArgumentResult argument : parsed.argumentResults()) {
+			if (!options.containsValue(argument.value())) {
+				return false;
+			}
+		}
+		String word = value(options, "word");
+		if (word == null) {
+			return false;
+		}
+		String result = switch (parsed.commandRegistration().getCommand()) {
+			case "a" -> {
+				String meaning = value(options, "meaning");
+				yield meaning == null ? null : vocabularyCommands.addWord(word, meaning, value(options, "on-conflict"));
+			}
+			case "s" -> vocabularyCommands.searchWord(word, Boolean.parseBoolean(value(options, "ignore-case")));
+			case "r" -> vocabularyCommands.removeWord(word);
+			default -> null;
+		};
+		if (result == null) {
+			return false;
+		}
+		writer.println(result);
+		return true;
+	}
+	
+	/**
+	 * @return The value of an option as text, or null if it has none or defaults to {@link ShellOption#NULL}.
+	 */
+	private static String value(Map<String, Object> options, String name) {
+		Object value = options.get(name);
+		return value == null || ShellOption.NULL.equals(value) ? null : value.toString();
+	}
+	
+	/**
+	 * @return A parser of the commands registered with the shell.
+	 */
+	private static DefaultParser commandParser(CommandCatalog commandCatalog) {
+		ParserConfig config = new ParserConfig();
+		CommandModel model = new CommandModel(commandCatalog.getRegistrations(), config);
+		return new DefaultParser(model, new Lexer.DefaultLexer(model, config), new Ast.DefaultAst(), config);
+	}
+	
+	/**
+	 * Reads and parses the commands, skipping blank lines and comments starting with #. An empty batch marks the end.
+	 */
+	private void read(BlockingQueue<List<Input>> batches) {
+		try (BufferedReader reader = STANDARD_INPUT.equals(input)
+				? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+				: Files.newBufferedReader(Path.of(input), StandardCharsets.UTF_8)) {
+			List<Input> batch = new ArrayList<>(BATCH_SIZE);
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String text = line.strip();
+				if (!text.isEmpty() && text.charAt(0) != '#') {
+					batch.add(parse(text));
+				}
+				if (batch.size() == BATCH_SIZE || !batch.isEmpty() && !reader.ready()) {
+					batches.put(batch);
+					batch = new ArrayList<>(BATCH_SIZE);
+				}
+			}
+			if (!batch.isEmpty()) {
+				batches.put(batch);
+			}
+		} catch (IOException e) {
+			log.error("Error reading commands from {}: {}", input, e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		try {
+			batches.put(Collections.emptyList());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	private Input parse(String text) {
+		try {
+			ParsedLine line = parser.parse(text, text.length() + 1);
+			return new BatchInput(text, line.words());
+		} catch (SyntaxError e) {
+			// Left to the shell to report as an unknown command
+			return new BatchInput(text, List.of(text));
+		}
+	}
+	
+	private void flush() throws IOException {
+		terminal.writer().flush();
+		output.flushBatch();
+	}
+	
+	/**
+	 * One parsed command.
+	 */
+	private record BatchInput(String rawText, List<String> words) implements Input {
+	}
+}
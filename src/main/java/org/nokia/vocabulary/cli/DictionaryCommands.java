@@ -0,0 +1,46 @@
+package org.nokia.vocabulary.cli;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nokia.vocabulary.file.DictionaryConverter;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Command-line interface for converting vocabulary files between the JSON and the binary dictionary format.
+ */
+@ShellComponent
+@Slf4j
+@RequiredArgsConstructor
+public class DictionaryCommands {
+	private final DictionaryConverter dictionaryConverter;
+	
+	/**
+	 * Converts a vocabulary file. A {@code .json} source is converted to a dictionary, anything else is read as a
+	 * dictionary and converted to JSON.
+	 *
+	 * @param from The file to read.
+	 * @param to   The file to write.
+	 * @return A confirmation message or the reason the conversion failed.
+	 */
+	@ShellMethod(value = "Convert a vocabulary between JSON and the binary dictionary format.", key = "convert")
+	public String convert(@ShellOption(help = "The file to read, .json or .dict") String from,
+						  @ShellOption(help = "The file to write") String to) {
+		if (from == null || from.isEmpty() || to == null || to.isEmpty()) {
+			return "Please enter the file to convert and the file to write.\nconvert '[from]' '[to]'";
+		}
+		try {
+			long count = from.endsWith(".json")
+					? dictionaryConverter.jsonToDictionary(Path.of(from), Path.of(to))
+					: dictionaryConverter.dictionaryToJson(Path.of(from), Path.of(to));
+			return "Converted " + count + " words to " + to;
+		} catch (IOException | IllegalArgumentException e) {
+			log.error("Error converting {} to {}: {}", from, to, e.getMessage());
+			return "Conversion failed: " + e.getMessage();
+		}
+	}
+}
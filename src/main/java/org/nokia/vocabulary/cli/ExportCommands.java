@@ -0,0 +1,82 @@
+package org.nokia.vocabulary.cli;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nokia.vocabulary.services.ExportJob;
+import org.nokia.vocabulary.services.ExportService;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Command-line interface for exporting the vocabulary to files in the background.
+ */
+@ShellComponent
+@Slf4j
+@RequiredArgsConstructor
+public class ExportCommands {
+	private final ExportService exportService;
+	
+	/**
+	 * Starts exporting the vocabulary without waiting for the export to finish.
+	 *
+	 * @param file The file to write; .json, .ndjson, .csv or .tsv, optionally followed by .gz.
+	 * @return A message identifying the export, or the reason it could not be started.
+	 */
+	@ShellMethod(value = "Export the vocabulary to a JSON, NDJSON, CSV or TSV file, optionally gzipped.", key = "export")
+	public String export(@ShellOption(help = "The file to write, e.g. words.csv or words.ndjson.gz") String file) {
+		if (file == null || file.isEmpty()) {
+			return "Please enter the file to export to.\nexport '[file]'";
+		}
+		try {
+			ExportJob job = exportService.startExport(Path.of(file));
+			return "Export " + job.id() + " of " + job.total() + " words to " + file + " started.\n"
+					+ "Use export-status to follow it and export-cancel " + job.id() + " to stop it.";
+		} catch (IllegalArgumentException e) {
+			log.error("Error exporting to {}: {}", file, e.getMessage());
+			return "Export failed: " + e.getMessage();
+		}
+	}
+	
+	/**
+	 * Shows the progress of the exports started in this session.
+	 *
+	 * @return One line per export.
+	 */
+	@ShellMethod(value = "Show the progress of exports.", key = "export-status")
+	public String exportStatus() {
+		List<ExportJob> exports = exportService.getExports();
+		if (exports.isEmpty()) {
+			return "No exports started.";
+		}
+		StringBuilder builder = new StringBuilder();
+		for (ExportJob job : exports) {
+			long percent = job.total() == 0 ? 100 : job.written() * 100 / job.total();
+			builder.append(String.format("Export %d to %s: %s, %d%% (%,d of %,d words) in %.1f s", job.id(), job.file(),
+					job.state().name().toLowerCase(), percent, job.written(), job.total(), job.elapsedSeconds()));
+			if (job.error() != null) {
+				builder.append(": ").append(job.error());
+			}
+			builder.append("\n");
+		}
+		return builder.toString();
+	}
+	
+	/**
+	 * Cancels an export. Nothing is left behind of a cancelled export; an existing file at its path is kept.
+	 *
+	 * @param id The number of the export.
+	 * @return A confirmation message, or a message if the export cannot be cancelled.
+	 */
+	@ShellMethod(value = "Cancel an export.", key = "export-cancel")
+	public String exportCancel(@ShellOption(help = "The number of the export") int id) {
+		ExportJob job = exportService.getExport(id);
+		if (job == null) {
+			return "No export with number " + id + ".";
+		}
+		return job.cancel() ? "Export " + id + " cancelled." : "Export " + id + " has already finished.";
+	}
+}
@@ -0,0 +1,57 @@
+package org.nokia.vocabulary.cli;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nokia.vocabulary.services.ConflictPolicy;
+import org.nokia.vocabulary.services.ImportResult;
+import org.nokia.vocabulary.services.VocabularyService;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Command-line interface for adding many words at once from a file.
+ */
+@ShellComponent
+@Slf4j
+@RequiredArgsConstructor
+public class ImportCommands {
+	private final VocabularyService vocabularyService;
+	
+	/**
+	 * Imports the words of a JSON, NDJSON, CSV or TSV file without asking about words that already exist.
+	 *
+	 * @param file       The file to import.
+	 * @param onConflict What to do with existing words: overwrite, skip or fail.
+	 * @return A summary with the import throughput, or the reason the import failed.
+	 */
+	@ShellMethod(value = "Import words from a JSON, NDJSON, CSV or TSV file, optionally gzipped.", key = "import")
+	public String importWords(@ShellOption(help = "The file to import, .json, .ndjson, .csv or .tsv, optionally followed by .gz") String file,
+							  @ShellOption(value = "--on-conflict", help = "What to do with existing words: overwrite, skip or fail", defaultValue = "skip") String onConflict) {
+		if (file == null || file.isEmpty()) {
+			return "Please enter the file to import.\nimport '[file]' --on-conflict [overwrite|skip|fail]";
+		}
+		ConflictPolicy policy;
+		try {
+			policy = ConflictPolicy.valueOf(onConflict.toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			return "Unknown conflict policy: " + onConflict + ". Use overwrite, skip or fail.";
+		}
+		long start = System.nanoTime();
+		ImportResult result;
+		try {
+			result = vocabularyService.importWords(Path.of(file), policy);
+		} catch (IOException | IllegalArgumentException e) {
+			log.error("Error importing {}: {}", file, e.getMessage());
+			return "Import failed: " + e.getMessage();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		String summary = String.format("Imported %,d words from %s in %.2f s (%,.0f words/s): %,d added, %,d updated, %,d skipped.",
+				result.total(), file, seconds, result.total() / Math.max(seconds, 1e-9), result.added(), result.updated(), result.skipped());
+		return result.conflict() == null ? summary : summary + "\nStopped at existing word: " + result.conflict();
+	}
+}
@@ -0,0 +1,111 @@
+package org.nokia.vocabulary.cli;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nokia.vocabulary.services.NamespacedVocabularyService;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Command-line interface for keeping several named vocabularies, such as one per language or domain, and switching
+ * between them. All other commands work on the current vocabulary.
+ */
+@ShellComponent
+@Slf4j
+@RequiredArgsConstructor
+public class NamespaceCommands {
+	private final NamespacedVocabularyService vocabularies;
+	
+	/**
+	 * Lists the vocabularies with their number of words, marking the current one.
+	 *
+	 * @return One line per vocabulary.
+	 */
+	@ShellMethod(value = "List the vocabularies.", key = {"vl", "vocab-list"})
+	public String listVocabularies() {
+		StringBuilder builder = new StringBuilder();
+		for (NamespacedVocabularyService.VocabularyInfo vocabulary : vocabularies.listVocabularies()) {
+			builder.append(vocabulary.current() ? "* " : "  ").append(vocabulary.name())
+					.append(String.format(": %,d words", vocabulary.words()))
+					.append(vocabulary.loaded() ? "" : " (loading)").append("\n");
+		}
+		return builder.toString();
+	}
+	
+	/**
+	 * Creates an empty vocabulary and switches to it.
+	 *
+	 * @param name The name of the vocabulary.
+	 * @return A confirmation message or the reason the vocabulary was not created.
+	 */
+	@ShellMethod(value = "Create a vocabulary and switch to it.", key = {"vc", "vocab-create"})
+	public String createVocabulary(@ShellOption(help = "The name of the vocabulary: letters, digits, '-' and '_'") String name) {
+		try {
+			if (!vocabularies.createVocabulary(name)) {
+				return "Vocabulary '" + name + "' already exists.";
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			log.error("Error creating vocabulary {}: {}", name, e.getMessage());
+			return "Vocabulary not created: " + e.getMessage();
+		}
+		vocabularies.useVocabulary(name);
+		return "Vocabulary created: " + name;
+	}
+	
+	/**
+	 * Switches to another vocabulary.
+	 *
+	 * @param name The name of the vocabulary.
+	 * @return A confirmation message, or a message if there is no such vocabulary.
+	 */
+	@ShellMethod(value = "Switch to another vocabulary.", key = {"vu", "vocab-use"})
+	public String useVocabulary(@ShellOption(help = "The name of the vocabulary") String name) {
+		if (!vocabularies.useVocabulary(name)) {
+			return "Vocabulary not found: " + name + ". Create it with: vc '" + name + "'";
+		}
+		return "Using vocabulary: " + name;
+	}
+	
+	/**
+	 * Drops a vocabulary and deletes its files.
+	 *
+	 * @param name The name of the vocabulary.
+	 * @return A confirmation message or the reason the vocabulary was not dropped.
+	 */
+	@ShellMethod(value = "Drop a vocabulary and delete its files.", key = {"vd", "vocab-drop"})
+	public String dropVocabulary(@ShellOption(help = "The name of the vocabulary") String name) {
+		try {
+			if (!vocabularies.dropVocabulary(name)) {
+				return "Vocabulary not found: " + name;
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			log.error("Error dropping vocabulary {}: {}", name, e.getMessage());
+			return "Vocabulary not dropped: " + e.getMessage();
+		}
+		return "Vocabulary dropped: " + name + ". Using vocabulary: " + vocabularies.currentVocabulary();
+	}
+	
+	/**
+	 * Searches for a word in every vocabulary.
+	 *
+	 * @param word The word to search for.
+	 * @return The meaning of the word in each vocabulary having it, or a message if none has it.
+	 */
+	@ShellMethod(value = "Search for a word in every vocabulary.", key = {"sa", "search-all"})
+	public String searchAllVocabularies(@ShellOption(help = "The word to search for") String word) {
+		if (word == null || word.isEmpty()) {
+			return "Please enter a word to search for.\nsa '[word]'";
+		}
+		Map<String, String> meanings = vocabularies.searchAllVocabularies(word);
+		if (meanings.isEmpty()) {
+			return "Word not found in any vocabulary.";
+		}
+		StringBuilder builder = new StringBuilder();
+		meanings.forEach((vocabulary, meaning) -> builder.append(vocabulary).append(": ").append(word).append(": ").append(meaning).append("\n"));
+		return builder.toString();
+	}
+}
@@ -0,0 +1,42 @@
+package org.nokia.vocabulary.cli;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nokia.vocabulary.metrics.MetricsReport;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Command-line interface for the metrics recorded while the shell is running.
+ */
+@ShellComponent
+@Slf4j
+@RequiredArgsConstructor
+public class StatsCommands {
+	private final MetricsReport metricsReport;
+	
+	/**
+	 * Shows the latencies of the vocabulary operations, the lookup counters and the size of the vocabulary, or writes
+	 * them to a file in the Prometheus text format.
+	 *
+	 * @param prometheus The file to write the metrics to instead of showing them, or null to show them.
+	 * @return The metrics, or a confirmation that they were written.
+	 */
+	@ShellMethod(value = "Show latencies, lookup counts and the size of the vocabulary.", key = "stats")
+	public String stats(@ShellOption(help = "Write the metrics to this file in the Prometheus text format", defaultValue = ShellOption.NULL) String prometheus) {
+		if (prometheus == null) {
+			return metricsReport.format();
+		}
+		try {
+			metricsReport.writePrometheus(Path.of(prometheus));
+			return "Metrics written to " + prometheus;
+		} catch (IOException e) {
+			log.error("Error writing metrics to {}: {}", prometheus, e.getMessage());
+			return "Writing metrics failed: " + e.getMessage();
+		}
+	}
+}
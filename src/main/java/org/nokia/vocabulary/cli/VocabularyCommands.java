@@ -2,12 +2,29 @@ package org.nokia.vocabulary.cli;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.jline.terminal.Terminal;
+import org.nokia.vocabulary.search.FuzzyMatcher;
+import org.nokia.vocabulary.search.MeaningIndex;
+import org.nokia.vocabulary.services.ConflictPolicy;
+import org.nokia.vocabulary.services.ImportResult;
+import org.nokia.vocabulary.services.RemovalResult;
 import org.nokia.vocabulary.services.VocabularyService;
+import org.nokia.vocabulary.store.VersionHistory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.shell.context.InteractionMode;
+import org.springframework.shell.context.ShellContext;
 import org.springframework.shell.standard.ShellComponent;
 import org.springframework.shell.standard.ShellMethod;
 import org.springframework.shell.standard.ShellOption;
 
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Command-line interface for managing vocabulary through Spring Shell.
@@ -17,59 +34,204 @@ import java.util.Map;
 @Slf4j
 @RequiredArgsConstructor
 public class VocabularyCommands {
+	// Near matches offered when a searched word is not found
+	private static final int SUGGESTION_DISTANCE = 2;
+	private static final int SUGGESTION_LIMIT = 5;
+	// Number of listed words written to the terminal between flushes
+	private static final int FLUSH_INTERVAL = 256;
 	private final VocabularyService vocabularyService;
+	private final Terminal terminal;
+	private final ShellContext shellContext;
+	
+	// Used by add when not running interactively, where nobody can answer whether to replace a word
+	@Value("${vocabulary.batch.on-conflict:overwrite}")
+	private String batchOnConflict = "overwrite";
 	
 	/**
-	 * Lists all stored words with their meanings.
+	 * Lists the stored words with their meanings, one page at a time. The words are written to the terminal as they are
+	 * read from a snapshot of the vocabulary, so listing a large vocabulary needs no more memory than listing a few words.
 	 *
-	 * @return A string containing all words and their meanings.
+	 * @param from     The word to start from; the first word listed is the first one not less than it.
+	 * @param limit    The maximum number of words to list, or 0 to list all of them.
+	 * @param collated True to list the words in the collation order of the configured locale instead of by code point.
+	 * @return A message if there is nothing to list, or null once the words have been written to the terminal.
 	 */
-	@ShellMethod(value = "List all stored words with their meanings.", key = {"l", "list"})
-	public String listAllWords() {
-		Map<String, String> vocabularyMap = vocabularyService.getAllWords();
-		if (vocabularyMap.isEmpty()) {
-			return "No words stored.";
+	@ShellMethod(value = "List the stored words with their meanings.", key = {"l", "list"})
+	public String listAllWords(@ShellOption(help = "The word to start listing from", defaultValue = ShellOption.NULL) String from,
+							   @ShellOption(help = "The maximum number of words to list, 0 for all", defaultValue = "0") int limit,
+							   @ShellOption(help = "List in dictionary order, ignoring case and accents, instead of by code point", defaultValue = "false") boolean collated) {
+		if (limit < 0) {
+			return "Please enter a non-negative limit.\nl --from '[word]' --limit [limit] --collated";
 		}
-		StringBuilder builder = new StringBuilder();
-		vocabularyMap.forEach((word, meaning) -> builder.append(word).append(": ").append(meaning).append("\n"));
-		return builder.toString();
+		// The word after the last one listed is the cursor of the next page
+		Map<String, String> words = collated ? vocabularyService.getWordsInCollationOrder(from, limit > 0 ? limit + 1 : 0)
+				: vocabularyService.getWordsInRange(from, null);
+		Iterator<Map.Entry<String, String>> entries = words.entrySet().iterator();
+		if (!entries.hasNext()) {
+			return from == null ? "No words stored." : "No words stored from: " + from;
+		}
+		PrintWriter writer = terminal.writer();
+		int count = 0;
+		while (entries.hasNext()) {
+			Map.Entry<String, String> entry = entries.next();
+			if (count == limit && limit > 0) {
+				// The next word is the cursor of the next page
+				String quote = entry.getKey().indexOf('\'') < 0 ? "'" : "\"";
+				writer.println("Next page: l --from " + quote + entry.getKey() + quote + " --limit " + limit + (collated ? " --collated" : ""));
+				break;
+			}
+			writer.append(entry.getKey()).append(": ").append(entry.getValue()).println();
+			if (++count % FLUSH_INTERVAL == 0) {
+				writer.flush();
+			}
+		}
+		writer.flush();
+		return null;
 	}
 	
 	/**
-	 * Adds a new word with its meaning to the vocabulary.
+	 * Adds a new word with its meaning to the vocabulary. If the word already exists, the user is asked whether to
+	 * replace it, unless a conflict policy is given or the shell is not running interactively.
 	 *
-	 * @param word    The word to add.
-	 * @param meaning The meaning of the word.
+	 * @param word       The word to add.
+	 * @param meaning    The meaning of the word.
+	 * @param onConflict What to do if the word exists: overwrite, skip or fail; null to ask, or to apply
+	 *                   {@code vocabulary.batch.on-conflict} when not running interactively.
 	 * @return A confirmation message or error if inputs are invalid.
 	 */
 	@ShellMethod(value = "Add a new word with its meaning.", key = {"a", "add"})
-	public String addWord(@ShellOption(help = "The word to add") String word,
-						  @ShellOption(help = "The meaning of the word") String meaning) {
+	public String addWord(@ShellOption(help = "The word to add", valueProvider = WordValueProvider.class) String word,
+						  @ShellOption(help = "The meaning of the word") String meaning,
+						  @ShellOption(value = "--on-conflict", help = "What to do if the word exists: overwrite, skip or fail; asks if not given", defaultValue = ShellOption.NULL) String onConflict) {
 		if (word == null || word.isEmpty() || meaning == null || meaning.isEmpty()) {
-			return "Please enter a word and its meaning to add.\na '[word]' '[meaning]'";
+			return "Please enter a word and its meaning to add.\na '[word]' '[meaning]' --on-conflict [overwrite|skip|fail]";
+		}
+		if (onConflict == null && shellContext.getInteractionMode() == InteractionMode.NONINTERACTIVE) {
+			onConflict = batchOnConflict;
+		}
+		if (onConflict == null) {
+			return vocabularyService.addOrUpdateWord(word, meaning);
+		}
+		ConflictPolicy policy;
+		try {
+			policy = ConflictPolicy.valueOf(onConflict.toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			return "Unknown conflict policy: " + onConflict + ". Use overwrite, skip or fail.";
+		}
+		ImportResult result = vocabularyService.addOrUpdateWords(List.of(Map.entry(word, meaning)), policy);
+		if (result.added() > 0) {
+			return "Word added: " + word;
+		} else if (result.updated() > 0) {
+			return "Word '" + word + "' has been updated.";
+		} else if (result.conflict() != null) {
+			return "Word '" + word + "' already exists.";
 		}
-		return vocabularyService.addOrUpdateWord(word, meaning);
+		return "Word '" + word + "' was not updated.";
 	}
 	
 	/**
 	 * Searches for a word in the vocabulary and displays its meaning.
 	 *
-	 * @param word The word to search for.
+	 * @param word       The word to search for.
+	 * @param ignoreCase True to find the stored words that differ from the word only in case, or in accents if so
+	 *                   configured.
 	 * @return The word and its meaning, or a message if the word is not found.
 	 */
 	@ShellMethod(value = "Search for a word and display its meaning.", key = {"s", "search"})
-	public String searchWord(@ShellOption(help = "The word to search for") String word) {
+	public String searchWord(@ShellOption(help = "The word to search for", valueProvider = WordValueProvider.class) String word,
+							 @ShellOption(value = "--ignore-case", help = "Also find the word written in another case", defaultValue = "false") boolean ignoreCase) {
 		if (word == null || word.isEmpty()) {
-			return "Please enter a word to search for its meaning.\ns '[word]'";
+			return "Please enter a word to search for its meaning.\ns '[word]' --ignore-case";
 		}
-		String meaning = vocabularyService.searchWord(word);
-		if (meaning != null) {
-			log.debug("Found word: {}", word);
-			return word + ": " + meaning;
+		if (ignoreCase) {
+			Map<String, String> matches = vocabularyService.searchWordIgnoringCase(word);
+			if (!matches.isEmpty()) {
+				log.debug("Found {} words matching: {}", matches.size(), word);
+				return matches.entrySet().stream().map(match -> match.getKey() + ": " + match.getValue()).collect(Collectors.joining("\n"));
+			}
 		} else {
-			log.warn("Word not found: {}", word);
+			String meaning = vocabularyService.searchWord(word);
+			if (meaning != null) {
+				log.debug("Found word: {}", word);
+				return word + ": " + meaning;
+			}
+		}
+		// The service already logs misses, rate limited
+		log.debug("Word not found: {}", word);
+		List<FuzzyMatcher.Match> suggestions = vocabularyService.findSimilarWords(word, SUGGESTION_DISTANCE, SUGGESTION_LIMIT);
+		if (suggestions.isEmpty()) {
 			return "Word not found.";
 		}
+		return suggestions.stream().map(FuzzyMatcher.Match::word).collect(Collectors.joining(", ", "Word not found. Did you mean: ", "?"));
+	}
+	
+	/**
+	 * Searches for the words closest to a possibly misspelled word.
+	 *
+	 * @param word     The word to search for.
+	 * @param distance The largest number of inserted, deleted or replaced characters a match may differ by.
+	 * @param limit    The maximum number of words to show.
+	 * @return The matching words with their distance and meaning, or a message if no word is close enough.
+	 */
+	@ShellMethod(value = "Search for the words closest to a possibly misspelled word.", key = {"f", "fuzzy"})
+	public String findSimilarWords(@ShellOption(help = "The word to search for") String word,
+								   @ShellOption(help = "The maximum edit distance", defaultValue = "2") int distance,
+								   @ShellOption(help = "The maximum number of words to list", defaultValue = "10") int limit) {
+		if (word == null || word.isEmpty() || distance < 0 || limit < 1) {
+			return "Please enter a word, a non-negative distance and a positive limit.\nf '[word]' --distance [distance] --limit [limit]";
+		}
+		StringBuilder builder = new StringBuilder();
+		for (FuzzyMatcher.Match match : vocabularyService.findSimilarWords(word, distance, limit)) {
+			builder.append(match.word()).append(" (").append(match.distance()).append("): ").append(match.meaning()).append("\n");
+		}
+		return builder.isEmpty() ? "No words found close to: " + word : builder.toString();
+	}
+	
+	/**
+	 * Lists the words starting with a prefix, with their meanings.
+	 *
+	 * @param prefix The prefix to look for.
+	 * @param limit  The maximum number of words to show.
+	 * @return The matching words and their meanings, or a message if no word matches.
+	 */
+	@ShellMethod(value = "List the words starting with a prefix.", key = {"p", "prefix"})
+	public String findWordsByPrefix(@ShellOption(help = "The beginning of the words to list", valueProvider = WordValueProvider.class) String prefix,
+									@ShellOption(help = "The maximum number of words to list", defaultValue = "20") int limit) {
+		if (prefix == null || prefix.isEmpty() || limit < 1) {
+			return "Please enter a prefix and a positive limit.\np '[prefix]' --limit [limit]";
+		}
+		StringBuilder builder = new StringBuilder();
+		int count = 0;
+		for (Map.Entry<String, String> entry : vocabularyService.findWordsByPrefix(prefix).entrySet()) {
+			if (count++ == limit) {
+				builder.append("...\n");
+				break;
+			}
+			builder.append(entry.getKey()).append(": ").append(entry.getValue()).append("\n");
+		}
+		return count == 0 ? "No words found starting with: " + prefix : builder.toString();
+	}
+	
+	/**
+	 * Finds words by the terms their meaning contains.
+	 *
+	 * @param terms The terms to look for.
+	 * @param any   Whether a meaning containing any of the terms matches, instead of only one containing all of them.
+	 * @param limit The maximum number of words to show.
+	 * @return The matching words and their meanings, most relevant first, or a message if no word matches.
+	 */
+	@ShellMethod(value = "Find words whose meaning contains the given terms.", key = "find")
+	public String findWordsByMeaning(@ShellOption(help = "The terms to look for") String terms,
+									 @ShellOption(help = "Match meanings containing any of the terms") boolean any,
+									 @ShellOption(help = "The maximum number of words to list", defaultValue = "20") int limit) {
+		if (terms == null || terms.isBlank() || limit < 1) {
+			return "Please enter the terms to look for and a positive limit.\nfind '[terms]' --any --limit [limit]";
+		}
+		StringBuilder builder = new StringBuilder();
+		for (MeaningIndex.Hit hit : vocabularyService.findWordsByMeaning(terms, !any, limit)) {
+			builder.append(hit.word()).append(": ").append(hit.meaning()).append("\n");
+		}
+		return builder.isEmpty() ? "No words found with a meaning containing: " + terms : builder.toString();
 	}
 	
 	/**
@@ -79,7 +241,7 @@ public class VocabularyCommands {
 	 * @return A confirmation message or an error if the word is not found.
 	 */
 	@ShellMethod(value = "Remove a word from the vocabulary.", key = {"r", "remove"})
-	public String removeWord(@ShellOption(help = "The word to remove") String word) {
+	public String removeWord(@ShellOption(help = "The word to remove", valueProvider = WordValueProvider.class) String word) {
 		if (word == null || word.isEmpty()) {
 			return "Please enter a word to remove.\nr '[word]'";
 		}
@@ -88,11 +250,110 @@ public class VocabularyCommands {
 			log.debug("Removed word: {}", word);
 			return "Word removed: " + word;
 		} else {
-			log.warn("Word not found: {}", word);
+			log.debug("Word not found: {}", word);
 			return "Word not found.";
 		}
 	}
 	
+	/**
+	 * Shows the meanings a word had in the kept versions of the vocabulary, or its meaning at one version.
+	 *
+	 * @param word The word to show the history of.
+	 * @param asOf The version to show the meaning at, or null to list every kept change.
+	 * @return The changes of the word, newest first, or its meaning at the version.
+	 */
+	@ShellMethod(value = "Show the earlier meanings of a word, or its meaning at a version.", key = {"hist", "history"})
+	public String showHistory(@ShellOption(help = "The word to show the history of", valueProvider = WordValueProvider.class) String word,
+							  @ShellOption(value = "--as-of", help = "The version to show the meaning at", defaultValue = ShellOption.NULL) Long asOf) {
+		if (word == null || word.isEmpty()) {
+			return "Please enter a word to show the history of.\nhist '[word]' --as-of [version]";
+		}
+		if (asOf != null) {
+			try {
+				String meaning = vocabularyService.searchWordAsOf(word, asOf);
+				return meaning != null ? word + ": " + meaning : "Word not found at version " + asOf + ".";
+			} catch (IllegalArgumentException e) {
+				log.debug("Version not available: {}", e.getMessage());
+				return e.getMessage() + ".";
+			}
+		}
+		long version = vocabularyService.currentVersion();
+		List<VersionHistory.Version> versions = vocabularyService.getHistory(word);
+		if (versions.isEmpty()) {
+			return "Word not found in the kept versions. Current version: " + version;
+		}
+		StringBuilder builder = new StringBuilder("Current version: ").append(version).append("\n");
+		for (VersionHistory.Version change : versions) {
+			builder.append("v").append(change.version()).append(": ").append(change.meaning() != null ? change.meaning() : "(removed)").append("\n");
+		}
+		return builder.toString();
+	}
+	
+	/**
+	 * Adds several words with their meanings in one change, without asking about words that already exist.
+	 *
+	 * @param wordsAndMeanings The words to add, each followed by its meaning.
+	 * @param onConflict       What to do with existing words: overwrite, skip or fail.
+	 * @return How many words were added, updated and skipped.
+	 */
+	@ShellMethod(value = "Add several words, each followed by its meaning.", key = {"ma", "add-many"})
+	public String addWords(@ShellOption(help = "The words to add, each followed by its meaning", arity = Integer.MAX_VALUE) String[] wordsAndMeanings,
+						   @ShellOption(value = "--on-conflict", help = "What to do with existing words: overwrite, skip or fail", defaultValue = "skip") String onConflict) {
+		if (wordsAndMeanings == null || wordsAndMeanings.length == 0 || wordsAndMeanings.length % 2 != 0) {
+			return "Please enter pairs of words and meanings to add.\nma '[word]' '[meaning]' '[word]' '[meaning]' ... --on-conflict [overwrite|skip|fail]";
+		}
+		ConflictPolicy policy;
+		try {
+			policy = ConflictPolicy.valueOf(onConflict.toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			return "Unknown conflict policy: " + onConflict + ". Use overwrite, skip or fail.";
+		}
+		Map<String, String> words = new LinkedHashMap<>();
+		for (int i = 0; i < wordsAndMeanings.length; i += 2) {
+			if (wordsAndMeanings[i].isEmpty() || wordsAndMeanings[i + 1].isEmpty()) {
+				return "Please enter a non-empty word and meaning for every pair.";
+			}
+			words.put(wordsAndMeanings[i], wordsAndMeanings[i + 1]);
+		}
+		ImportResult result = vocabularyService.addOrUpdateWords(words, policy);
+		String summary = String.format("%,d added, %,d updated, %,d skipped.", result.added(), result.updated(), result.skipped());
+		return result.conflict() == null ? summary : summary + "\nStopped at existing word: " + result.conflict();
+	}
+	
+	/**
+	 * Searches for several words at once and displays their meanings.
+	 *
+	 * @param words The words to search for.
+	 * @return Each word with its meaning, or marked as not found.
+	 */
+	@ShellMethod(value = "Search for several words and display their meanings.", key = {"ms", "search-many"})
+	public String searchWords(@ShellOption(help = "The words to search for", arity = Integer.MAX_VALUE) String[] words) {
+		if (words == null || words.length == 0) {
+			return "Please enter the words to search for.\nms '[word]' '[word]' ...";
+		}
+		StringBuilder builder = new StringBuilder();
+		for (Map.Entry<String, String> entry : vocabularyService.searchWords(Arrays.asList(words)).entrySet()) {
+			builder.append(entry.getKey()).append(": ").append(entry.getValue() != null ? entry.getValue() : "(not found)").append("\n");
+		}
+		return builder.toString();
+	}
+	
+	/**
+	 * Removes several words from the vocabulary in one change.
+	 *
+	 * @param words The words to remove.
+	 * @return How many words were removed, and the words that were not found.
+	 */
+	@ShellMethod(value = "Remove several words from the vocabulary.", key = {"mr", "remove-many"})
+	public String removeWords(@ShellOption(help = "The words to remove", arity = Integer.MAX_VALUE) String[] words) {
+		if (words == null || words.length == 0) {
+			return "Please enter the words to remove.\nmr '[word]' '[word]' ...";
+		}
+		RemovalResult result = vocabularyService.removeWords(Arrays.asList(words));
+		String summary = String.format("%,d removed.", result.removed());
+		return result.notFound().isEmpty() ? summary : summary + "\nNot found: " + String.join(", ", result.notFound());
+	}
+	
 	/**
 	 * Saves the vocabulary to a file and quits the application.
 	 *
@@ -0,0 +1,47 @@
+package org.nokia.vocabulary.cli;
+
+import org.nokia.vocabulary.services.VocabularyService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.shell.CompletionContext;
+import org.springframework.shell.CompletionProposal;
+import org.springframework.shell.standard.ValueProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Completes word arguments from the stored words that start with what has been typed so far.
+ */
+@Component
+public class WordValueProvider implements ValueProvider {
+	private final VocabularyService vocabularyService;
+	private final int limit;
+	
+	/**
+	 * Constructs a WordValueProvider.
+	 *
+	 * @param vocabularyService The vocabulary to complete from.
+	 * @param limit             The maximum number of proposals offered at once.
+	 */
+	public WordValueProvider(VocabularyService vocabularyService, @Value("${vocabulary.completion.limit:50}") int limit) {
+		this.vocabularyService = vocabularyService;
+		this.limit = limit;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<CompletionProposal> complete(CompletionContext completionContext) {
+		String prefix = completionContext.currentWordUpToCursor();
+		List<CompletionProposal> proposals = new ArrayList<>();
+		for (String word : vocabularyService.findWordsByPrefix(prefix == null ? "" : prefix).keySet()) {
+			if (proposals.size() == limit) {
+				break;
+			}
+			proposals.add(new CompletionProposal(word));
+		}
+		return proposals;
+	}
+}
@@ -0,0 +1,147 @@
+package org.nokia.vocabulary.file;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.function.BiConsumer;
+
+/**
+ * Streaming reader for word/meaning pairs in delimiter-separated text, one pair per line.
+ * <p>
+ * With quoting enabled the input is read as CSV (RFC 4180): a field may be enclosed in double quotes, in which case it
+ * may contain the delimiter and line breaks, and a double quote inside it is written twice. Without quoting, as in TSV,
+ * fields are taken literally. Blank lines are skipped; {@code \n} and {@code \r\n} line endings are accepted.
+ */
+final class DelimitedReader {
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	private final Reader reader;
+	private final char delimiter;
+	private final boolean quoted;
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private final StringBuilder field = new StringBuilder();
+	private int position;
+	private int limit;
+	private long line = 1;
+	
+	private DelimitedReader(Reader reader, char delimiter, boolean quoted) {
+		this.reader = reader;
+		this.delimiter = delimiter;
+		this.quoted = quoted;
+	}
+	
+	/**
+	 * Reads all pairs from the reader.
+	 *
+	 * @param reader    The text to read; it is not closed.
+	 * @param delimiter The character separating the word from the meaning.
+	 * @param quoted    Whether fields may be enclosed in double quotes.
+	 * @param consumer  Receives each word and its meaning in input order.
+	 * @return The number of pairs read.
+	 * @throws IOException If the text cannot be read or a line does not hold exactly a non-empty word and a meaning.
+	 */
+	static long read(Reader reader, char delimiter, boolean quoted, BiConsumer<String, String> consumer) throws IOException {
+		return new DelimitedReader(reader, delimiter, quoted).read(consumer);
+	}
+	
+	private long read(BiConsumer<String, String> consumer) throws IOException {
+		long count = 0;
+		if (peek() == '\uFEFF') {
+			position++;
+		}
+		int c;
+		while ((c = peek()) >= 0) {
+			if (c == '\n' || c == '\r') {
+				skipLineEnd();
+				continue;
+			}
+			long start = line;
+			String word = readField();
+			if (peek() != delimiter) {
+				throw new IOException("Expected a word and a meaning separated by '" + delimiter + "' on line " + start);
+			}
+			position++;
+			String meaning = readField();
+			if (peek() >= 0 && peek() != '\n' && peek() != '\r') {
+				throw new IOException("Expected only a word and a meaning on line " + start);
+			}
+			if (word.isEmpty()) {
+				throw new IOException("Empty word on line " + start);
+			}
+			consumer.accept(word, meaning);
+			count++;
+			skipLineEnd();
+		}
+		return count;
+	}
+	
+	/**
+	 * Reads one field, leaving the position at the delimiter or line end that follows it.
+	 */
+	private String readField() throws IOException {
+		field.setLength(0);
+		int c = peek();
+		if (quoted && c == '"') {
+			position++;
+			while (true) {
+				c = peek();
+				if (c < 0) {
+					throw new IOException("Unterminated quoted field on line " + line);
+				}
+				position++;
+				if (c == '"') {
+					if (peek() != '"') {
+						return field.toString();
+					}
+					position++;
+				} else if (c == '\n') {
+					line++;
+				}
+				field.append((char) c);
+			}
+		}
+		while (true) {
+			int start = position;
+			while (position < limit) {
+				char ch = buffer[position];
+				if (ch == delimiter || ch == '\n' || ch == '\r') {
+					break;
+				}
+				position++;
+			}
+			field.append(buffer, start, position - start);
+			if (position < limit || fill() < 0) {
+				return field.toString();
+			}
+		}
+	}
+	
+	private void skipLineEnd() throws IOException {
+		if (peek() == '\r') {
+			position++;
+		}
+		if (peek() == '\n') {
+			position++;
+			line++;
+		}
+	}
+	
+	private int peek() throws IOException {
+		if (position == limit && fill() < 0) {
+			return -1;
+		}
+		return buffer[position];
+	}
+	
+	private int fill() throws IOException {
+		int read;
+		do {
+			read = reader.read(buffer, 0, buffer.length);
+		} while (read == 0);
+		if (read < 0) {
+			return -1;
+		}
+		position = 0;
+		limit = read;
+		return read;
+	}
+}
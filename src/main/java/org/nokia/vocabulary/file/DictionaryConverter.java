@@ -0,0 +1,93 @@
+package org.nokia.vocabulary.file;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Converts vocabularies between the JSON file format and the binary {@link MappedDictionary} format.
+ */
+@Component
+public class DictionaryConverter {
+	private static final Logger logger = LogManager.getLogger(DictionaryConverter.class);
+	private final FileHandler fileHandler;
+	
+	/**
+	 * Constructs a DictionaryConverter that reads and writes JSON through the given FileHandler.
+	 *
+	 * @param fileHandler The file handler providing the JSON streaming.
+	 */
+	public DictionaryConverter(FileHandler fileHandler) {
+		this.fileHandler = fileHandler;
+	}
+	
+	/**
+	 * Converts a JSON vocabulary file to a dictionary file. The JSON entries have to be sorted before they can be
+	 * written, so they are held in memory during the conversion.
+	 *
+	 * @param json       The JSON file to read.
+	 * @param dictionary The dictionary file to write; it is replaced atomically.
+	 * @return The number of entries converted.
+	 * @throws IOException If either file cannot be read or written.
+	 */
+	public long jsonToDictionary(Path json, Path dictionary) throws IOException {
+		Map<String, String> sorted = new TreeMap<>();
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(json), 1 << 16)) {
+			fileHandler.readEntries(in, sorted::put);
+		}
+		return writeDictionary(dictionary, sorted);
+	}
+	
+	/**
+	 * Converts a dictionary file to a pretty-printed JSON vocabulary file, streaming one entry at a time.
+	 *
+	 * @param dictionary The dictionary file to read.
+	 * @param json       The JSON file to write; it is replaced atomically.
+	 * @return The number of entries converted.
+	 * @throws IOException If either file cannot be read or written.
+	 */
+	public long dictionaryToJson(Path dictionary, Path json) throws IOException {
+		MappedDictionary source = MappedDictionary.open(dictionary);
+		Path target = json.toAbsolutePath();
+		Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+		try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16)) {
+			fileHandler.writeEntries(out, source.view(), true);
+		}
+		FileHandler.replace(temp, target);
+		logger.debug("Converted {} entries from {} to {}.", source.size(), dictionary, json);
+		return source.size();
+	}
+	
+	/**
+	 * Writes sorted entries to a dictionary file through a temporary file that is then moved over the target.
+	 *
+	 * @param dictionary The dictionary file to write.
+	 * @param sorted     The entries in ascending word order.
+	 * @return The number of entries written.
+	 * @throws IOException If the file cannot be written.
+	 */
+	public long writeDictionary(Path dictionary, Map<String, String> sorted) throws IOException {
+		Path target = dictionary.toAbsolutePath();
+		Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+		long count;
+		try {
+			count = MappedDictionary.write(temp, sorted.entrySet().iterator());
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+		FileHandler.replace(temp, target);
+		logger.debug("Wrote {} entries to dictionary {}.", count, dictionary);
+		return count;
+	}
+}
@@ -0,0 +1,62 @@
+package org.nokia.vocabulary.file;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * File formats words and meanings can be imported from and exported to, identified by the file extension.
+ */
+public enum EntryFormat {
+	/**
+	 * A single JSON object mapping words to meanings ({@code .json}).
+	 */
+	JSON,
+	/**
+	 * One JSON object {@code {"word": ..., "meaning": ...}} per line ({@code .ndjson}, {@code .jsonl}).
+	 */
+	NDJSON,
+	/**
+	 * Comma-separated values with RFC 4180 quoting ({@code .csv}).
+	 */
+	CSV,
+	/**
+	 * Tab-separated values without quoting ({@code .tsv}, {@code .tab}).
+	 */
+	TSV;
+	
+	private static final String GZIP_EXTENSION = ".gz";
+	
+	/**
+	 * Determines the format of a file from its extension, ignoring a trailing {@code .gz}.
+	 *
+	 * @param file The file.
+	 * @return The format.
+	 * @throws IllegalArgumentException If the extension is not one of a known format.
+	 */
+	public static EntryFormat of(Path file) {
+		String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+		if (name.endsWith(GZIP_EXTENSION)) {
+			name = name.substring(0, name.length() - GZIP_EXTENSION.length());
+		}
+		int dot = name.lastIndexOf('.');
+		switch (dot < 0 ? "" : name.substring(dot + 1)) {
+			case "json":
+				return JSON;
+			case "ndjson", "jsonl":
+				return NDJSON;
+			case "csv":
+				return CSV;
+			case "tsv", "tab":
+				return TSV;
+			default:
+				throw new IllegalArgumentException("Unsupported file format, expected .json, .ndjson, .csv or .tsv, optionally with .gz: " + file);
+		}
+	}
+	
+	/**
+	 * @return True if the file is gzip compressed, as indicated by a {@code .gz} extension.
+	 */
+	public static boolean isCompressed(Path file) {
+		return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(GZIP_EXTENSION);
+	}
+}
@@ -1,26 +1,94 @@
 package org.nokia.vocabulary.file;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.nokia.vocabulary.metrics.VocabularyMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
- * Handles loading and saving of the vocabulary to and from a JSON file.
+ * Handles loading and saving of the vocabulary to and from a JSON file, and importing and exporting words in the
+ * other {@link EntryFormat}s.
+ * <p>
+ * By default the file is read and written incrementally with Jackson's streaming API, so no intermediate tree or map
+ * of the whole file is built. Setting {@code vocabulary.file.streaming=false} restores the original whole-map
+ * data binding.
  */
 @Component
 public class FileHandler {
+	/**
+	 * Suffix of the file next to the JSON file that holds the version of the vocabulary the last snapshot was taken at.
+	 */
+	public static final String VERSION_SUFFIX = ".version";
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int PROGRESS_INTERVAL = 4096;
+	// Field names of the objects in NDJSON files
+	private static final String WORD_FIELD = "word";
+	private static final String MEANING_FIELD = "meaning";
+	private static final Timer LOAD_TIMER = VocabularyMetrics.timer(Metrics.globalRegistry, VocabularyMetrics.FILE_OPERATIONS, "operation", "load");
+	private static final Timer SAVE_TIMER = VocabularyMetrics.timer(Metrics.globalRegistry, VocabularyMetrics.FILE_OPERATIONS, "operation", "save");
+	
 	@Value("${output.file.path}")
 	private String FILE_PATH;
 	
+	@Value("${vocabulary.file.streaming:true}")
+	private boolean streaming = true;
+	
 	private static final Logger logger = LogManager.getLogger(FileHandler.class);
 	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final JsonFactory jsonFactory = objectMapper.getFactory();
+	// Words are field names that rarely repeat, so canonicalizing them only fills the symbol table; without it, large
+	// files are parsed several times faster
+	private final JsonFactory readFactory = JsonFactory.builder().disable(JsonFactory.Feature.CANONICALIZE_FIELD_NAMES).build();
+	
+	/**
+	 * Returns a file handler for the JSON file of another vocabulary, with the same settings as this one.
+	 *
+	 * @param path The JSON file the vocabulary is loaded from and saved to.
+	 * @return The new file handler.
+	 */
+	public FileHandler forFile(Path path) {
+		FileHandler handler = new FileHandler();
+		handler.FILE_PATH = path.toString();
+		handler.streaming = streaming;
+		return handler;
+	}
 	
 	/**
 	 * Loads the vocabulary from the JSON file.
@@ -31,7 +99,7 @@ public class FileHandler {
 	public Map<String, String> loadVocabulary() throws IOException {
 		File file = new File(FILE_PATH);
 		if (file.exists()) {
-			logger.debug("Loading vocabulary from file: " + FILE_PATH);
+			logger.debug("Loading vocabulary from file: {}", FILE_PATH);
 			return objectMapper.readValue(file, new TypeReference<Map<String, String>>() {
 			});
 		} else {
@@ -40,15 +108,375 @@ public class FileHandler {
 		}
 	}
 	
+	/**
+	 * Loads the vocabulary from the JSON file, handing every entry to the given consumer as soon as it is read.
+	 *
+	 * @param consumer Receives each word and its meaning in file order.
+	 * @return The number of entries read, or 0 if the file does not exist.
+	 * @throws IOException If an I/O error occurs during file reading or the file is not a JSON object of strings.
+	 */
+	public long loadVocabulary(BiConsumer<String, String> consumer) throws IOException {
+		File file = new File(FILE_PATH);
+		if (!file.exists()) {
+			logger.warn("Vocabulary file not found. Starting with empty vocabulary.");
+			return 0;
+		}
+		Timer.Sample sample = Timer.start();
+		try {
+			if (!streaming) {
+				Map<String, String> vocabulary = loadVocabulary();
+				vocabulary.forEach(consumer);
+				return vocabulary.size();
+			}
+			logger.debug("Streaming vocabulary from file: {}", FILE_PATH);
+			try (InputStream in = new BufferedInputStream(Channels.newInputStream(FileChannel.open(file.toPath(), StandardOpenOption.READ)), BUFFER_SIZE)) {
+				return readEntries(in, consumer);
+			}
+		} finally {
+			sample.stop(LOAD_TIMER);
+		}
+	}
+	
+	/**
+	 * Reads word/meaning pairs from a file in one streaming pass. The {@link EntryFormat} is given by the file
+	 * extension, and a trailing {@code .gz} marks gzip compressed files.
+	 *
+	 * @param file     The file to read.
+	 * @param consumer Receives each word and its meaning in file order.
+	 * @return The number of entries read.
+	 * @throws IOException              If the file cannot be read or is not valid in its format.
+	 * @throws IllegalArgumentException If the extension is not one of the supported formats.
+	 */
+	public long readEntries(Path file, BiConsumer<String, String> consumer) throws IOException {
+		EntryFormat format = EntryFormat.of(file);
+		try (InputStream in = openInput(file)) {
+			return switch (format) {
+				case JSON -> readEntries(in, consumer);
+				case NDJSON -> readNdjsonEntries(in, consumer);
+				case CSV -> DelimitedReader.read(new InputStreamReader(in, StandardCharsets.UTF_8), ',', true, consumer);
+				case TSV -> DelimitedReader.read(new InputStreamReader(in, StandardCharsets.UTF_8), '\t', false, consumer);
+			};
+		}
+	}
+	
+	/**
+	 * Writes entries to a file in the {@link EntryFormat} given by its extension, gzip compressed if it ends in
+	 * {@code .gz}. JSON is written without indentation. The entries are written one at a time as they are iterated,
+	 * into a temporary file that replaces the target only once complete, so a failed or cancelled export leaves any
+	 * existing file untouched.
+	 * <p>
+	 * The export can be cancelled by interrupting the writing thread.
+	 *
+	 * @param file     The file to write.
+	 * @param entries  The words and meanings to write, typically an immutable snapshot.
+	 * @param progress Receives the number of entries written so far, periodically and once at the end.
+	 * @return The number of entries written.
+	 * @throws IOException              If the file cannot be written, an entry cannot be represented in the format, or
+	 *                                  the export was interrupted.
+	 * @throws IllegalArgumentException If the extension is not one of the supported formats.
+	 */
+	public long exportEntries(Path file, Map<String, String> entries, LongConsumer progress) throws IOException {
+		EntryFormat format = EntryFormat.of(file);
+		Path target = file.toAbsolutePath();
+		Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+		long count;
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+			GZIPOutputStream gzip = null;
+			if (EntryFormat.isCompressed(file)) {
+				gzip = new GZIPOutputStream(out, BUFFER_SIZE);
+				out = gzip;
+			}
+			Iterator<Map.Entry<String, String>> iterator = entries.entrySet().iterator();
+			count = switch (format) {
+				case JSON, NDJSON -> writeJsonEntries(out, iterator, format == EntryFormat.NDJSON, progress);
+				case CSV, TSV -> writeDelimitedEntries(out, iterator, format == EntryFormat.CSV, progress);
+			};
+			if (gzip != null) {
+				gzip.finish();
+			}
+			out.flush();
+			channel.force(true);
+		} catch (IOException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+		replace(temp, target);
+		progress.accept(count);
+		logger.debug("Exported {} entries to {}.", count, file);
+		return count;
+	}
+	
+	/**
+	 * Reads a JSON object of string values from the stream, one field at a time.
+	 *
+	 * @param in       The stream to read from; it is not closed.
+	 * @param consumer Receives each word and its meaning.
+	 * @return The number of entries read.
+	 * @throws IOException If the stream cannot be read or does not contain a JSON object of strings.
+	 */
+	public long readEntries(InputStream in, BiConsumer<String, String> consumer) throws IOException {
+		try (JsonParser parser = readFactory.createParser(in)) {
+			parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+			if (parser.nextToken() == null) {
+				return 0;
+			}
+			if (parser.currentToken() != JsonToken.START_OBJECT) {
+				throw new JsonParseException(parser, "Expected a JSON object of words and meanings");
+			}
+			long count = 0;
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String word = parser.currentName();
+				if (parser.nextToken() != JsonToken.VALUE_STRING) {
+					throw new JsonParseException(parser, "Expected a string meaning for word: " + word);
+				}
+				consumer.accept(word, parser.getText());
+				count++;
+			}
+			return count;
+		}
+	}
+	
 	/**
 	 * Saves the given vocabulary to the JSON file.
+	 * <p>
+	 * The vocabulary is written to a temporary file next to the target, synced, and then moved over the target in one
+	 * atomic step, so a crash during the save never leaves a truncated vocabulary file behind.
 	 *
 	 * @param vocabularyMap The map containing words and their meanings to save.
 	 * @throws IOException If an I/O error occurs during file writing.
 	 */
 	public void saveVocabulary(Map<String, String> vocabularyMap) throws IOException {
 		logger.debug("Saving vocabulary to file: {}", FILE_PATH);
-		objectMapper.writerWithDefaultPrettyPrinter().writeValue(new File(FILE_PATH), vocabularyMap);
+		Timer.Sample sample = Timer.start();
+		Path target = Path.of(FILE_PATH).toAbsolutePath();
+		Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+				if (streaming) {
+					writeEntries(out, vocabularyMap, true);
+				} else {
+					objectMapper.writerWithDefaultPrettyPrinter().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(out, vocabularyMap);
+				}
+				out.flush();
+				channel.force(true);
+			} catch (IOException e) {
+				Files.deleteIfExists(temp);
+				throw e;
+			}
+			replace(temp, target);
+		} finally {
+			sample.stop(SAVE_TIMER);
+		}
 		logger.debug("Vocabulary saved successfully.");
 	}
+	
+	/**
+	 * Loads the version of the vocabulary the last snapshot was taken at, so that versions continue from it instead of
+	 * starting over.
+	 *
+	 * @return The version, or 0 if no snapshot has recorded one yet.
+	 * @throws IOException If the version file cannot be read or does not hold a version.
+	 */
+	public long loadVersion() throws IOException {
+		Path file = Path.of(FILE_PATH + VERSION_SUFFIX);
+		if (!Files.exists(file)) {
+			return 0;
+		}
+		String text = Files.readString(file, StandardCharsets.UTF_8).strip();
+		try {
+			return Long.parseLong(text);
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid version in " + file + ": " + text);
+		}
+	}
+	
+	/**
+	 * Records the version of the vocabulary a snapshot was taken at. Like the vocabulary, it is written to a temporary
+	 * file that is synced and then moved over the version file.
+	 *
+	 * @param version The version.
+	 * @throws IOException If an I/O error occurs during file writing.
+	 */
+	public void saveVersion(long version) throws IOException {
+		Path target = Path.of(FILE_PATH + VERSION_SUFFIX).toAbsolutePath();
+		Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			channel.write(StandardCharsets.UTF_8.encode(version + "\n"));
+			channel.force(true);
+		} catch (IOException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+		replace(temp, target);
+	}
+	
+	/**
+	 * Saves a text file in UTF-8. Like the vocabulary, the text is written to a temporary file next to the target that
+	 * is then moved over it, so readers of the file never see it half-written.
+	 *
+	 * @param file The file to write.
+	 * @param text The content of the file.
+	 * @throws IOException If an I/O error occurs during file writing.
+	 */
+	public void saveText(Path file, String text) throws IOException {
+		Path target = file.toAbsolutePath();
+		Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+		try {
+			Files.writeString(temp, text, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+		replace(temp, target);
+	}
+	
+	/**
+	 * Writes the given vocabulary as a JSON object, one field at a time.
+	 *
+	 * @param out           The stream to write to; it is flushed but not closed.
+	 * @param vocabularyMap The words and meanings to write.
+	 * @param pretty        Whether to indent the output like the original pretty-printed file.
+	 * @throws IOException If an I/O error occurs during writing.
+	 */
+	public void writeEntries(OutputStream out, Map<String, String> vocabularyMap, boolean pretty) throws IOException {
+		try (JsonGenerator generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			if (pretty) {
+				generator.useDefaultPrettyPrinter();
+			}
+			generator.writeStartObject();
+			for (Map.Entry<String, String> entry : vocabularyMap.entrySet()) {
+				generator.writeStringField(entry.getKey(), entry.getValue());
+			}
+			generator.writeEndObject();
+		}
+	}
+	
+	private InputStream openInput(Path file) throws IOException {
+		InputStream in = new BufferedInputStream(Channels.newInputStream(FileChannel.open(file, StandardOpenOption.READ)), BUFFER_SIZE);
+		return EntryFormat.isCompressed(file) ? new GZIPInputStream(in, BUFFER_SIZE) : in;
+	}
+	
+	private long readNdjsonEntries(InputStream in, BiConsumer<String, String> consumer) throws IOException {
+		try (JsonParser parser = readFactory.createParser(in)) {
+			parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+			long count = 0;
+			while (parser.nextToken() == JsonToken.START_OBJECT) {
+				String word = null;
+				String meaning = null;
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					String field = parser.currentName();
+					if (parser.nextToken() != JsonToken.VALUE_STRING) {
+						throw new JsonParseException(parser, "Expected a string value for field: " + field);
+					}
+					if (field.equals(WORD_FIELD)) {
+						word = parser.getText();
+					} else if (field.equals(MEANING_FIELD)) {
+						meaning = parser.getText();
+					}
+				}
+				if (word == null || word.isEmpty() || meaning == null) {
+					throw new JsonParseException(parser, "Expected an object with a word and a meaning");
+				}
+				consumer.accept(word, meaning);
+				count++;
+			}
+			if (parser.currentToken() != null) {
+				throw new JsonParseException(parser, "Expected one JSON object per line");
+			}
+			return count;
+		}
+	}
+	
+	private long writeJsonEntries(OutputStream out, Iterator<Map.Entry<String, String>> entries, boolean ndjson, LongConsumer progress) throws IOException {
+		try (JsonGenerator generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			generator.setRootValueSeparator(new SerializedString("\n"));
+			if (!ndjson) {
+				generator.writeStartObject();
+			}
+			long count = 0;
+			while (entries.hasNext()) {
+				Map.Entry<String, String> entry = entries.next();
+				if (ndjson) {
+					generator.writeStartObject();
+					generator.writeStringField(WORD_FIELD, entry.getKey());
+					generator.writeStringField(MEANING_FIELD, entry.getValue());
+					generator.writeEndObject();
+				} else {
+					generator.writeStringField(entry.getKey(), entry.getValue());
+				}
+				reportProgress(++count, progress);
+			}
+			if (!ndjson) {
+				generator.writeEndObject();
+			}
+			generator.writeRaw('\n');
+			return count;
+		}
+	}
+	
+	private long writeDelimitedEntries(OutputStream out, Iterator<Map.Entry<String, String>> entries, boolean csv, LongConsumer progress) throws IOException {
+		Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+		long count = 0;
+		while (entries.hasNext()) {
+			Map.Entry<String, String> entry = entries.next();
+			if (csv) {
+				writeCsvField(writer, entry.getKey());
+				writer.write(',');
+				writeCsvField(writer, entry.getValue());
+			} else {
+				writeTsvField(writer, entry.getKey());
+				writer.write('\t');
+				writeTsvField(writer, entry.getValue());
+			}
+			writer.write('\n');
+			reportProgress(++count, progress);
+		}
+		writer.flush();
+		return count;
+	}
+	
+	private static void writeCsvField(Writer writer, String value) throws IOException {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+			writer.write(value);
+			return;
+		}
+		writer.write('"');
+		writer.write(value.replace("\"", "\"\""));
+		writer.write('"');
+	}
+	
+	private static void writeTsvField(Writer writer, String value) throws IOException {
+		if (value.indexOf('\t') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+			throw new IOException("Tabs and line breaks cannot be written as TSV: " + value);
+		}
+		writer.write(value);
+	}
+	
+	/**
+	 * Reports progress every few thousand entries and stops the export if the thread was interrupted.
+	 */
+	private static void reportProgress(long count, LongConsumer progress) throws IOException {
+		if (count % PROGRESS_INTERVAL == 0) {
+			if (Thread.currentThread().isInterrupted()) {
+				throw new InterruptedIOException("Export interrupted after " + count + " entries");
+			}
+			progress.accept(count);
+		}
+	}
+	
+	/**
+	 * Moves the temporary file over the target, atomically where the file system supports it.
+	 */
+	static void replace(Path temp, Path target) throws IOException {
+		try {
+			Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			logger.warn("Atomic move not supported for {}, replacing non-atomically.", target);
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
 }
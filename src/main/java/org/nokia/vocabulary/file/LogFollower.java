@@ -0,0 +1,90 @@
+package org.nokia.vocabulary.file;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a shared write-ahead log for changes made by other processes and reports them on a daemon thread. The
+ * directory of the log is watched through a {@link WatchService}, so appends are usually noticed at once; since some
+ * file systems report changes late or not at all, the log is also checked at a fixed interval.
+ */
+public final class LogFollower implements Closeable {
+	private static final Logger logger = LogManager.getLogger(LogFollower.class);
+	private final Path fileName;
+	private final long intervalMillis;
+	private final Runnable onChange;
+	private final WatchService watchService;
+	private final Thread thread;
+	private volatile boolean closed;
+	
+	/**
+	 * Constructs a LogFollower and starts watching.
+	 *
+	 * @param file           The log to watch.
+	 * @param intervalMillis How often to report a change if none was noticed.
+	 * @param onChange       Called whenever the log may have changed.
+	 * @throws IOException If the directory of the log cannot be watched.
+	 */
+	LogFollower(Path file, long intervalMillis, Runnable onChange) throws IOException {
+		Path directory = file.toAbsolutePath().getParent();
+		this.fileName = file.getFileName();
+		this.intervalMillis = intervalMillis > 0 ? intervalMillis : Long.MAX_VALUE;
+		this.onChange = onChange;
+		this.watchService = directory.getFileSystem().newWatchService();
+		// A rotation moves the log away and creates it anew, so creations are watched as well as modifications
+		directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		this.thread = new Thread(this::run, "wal-follower-" + fileName);
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Stops watching.
+	 */
+	@Override
+	public void close() {
+		// Not interrupted: that would close the channel of a log being followed at the time
+		closed = true;
+		try {
+			watchService.close();
+		} catch (IOException e) {
+			logger.error("Error closing watch service of {}: {}", fileName, e.getMessage());
+		}
+	}
+	
+	private void run() {
+		while (!closed) {
+			WatchKey key;
+			try {
+				key = watchService.poll(intervalMillis, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException | ClosedWatchServiceException e) {
+				return;
+			}
+			// Changes to the other files of the directory, such as the JSON snapshot, are of no interest
+			boolean changed = key == null;
+			if (key != null) {
+				for (WatchEvent<?> event : key.pollEvents()) {
+					changed |= event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context());
+				}
+				key.reset();
+			}
+			if (changed) {
+				try {
+					onChange.run();
+				} catch (RuntimeException e) {
+					logger.error("Error following {}: {}", fileName, e.toString());
+				}
+			}
+		}
+	}
+}
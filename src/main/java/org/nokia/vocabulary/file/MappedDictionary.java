@@ -0,0 +1,226 @@
+package org.nokia.vocabulary.file;
+
+import org.nokia.vocabulary.store.SortedDictionary;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Read-only vocabulary in a sorted binary file that is memory-mapped instead of loaded.
+ * <p>
+ * Opening a dictionary only reads its header, so it is usable immediately regardless of size, and the entries stay in
+ * the page cache rather than on the heap. Lookups binary-search the offset index and compare the UTF-8 keys in the
+ * mapped file directly against the searched word, without decoding them.
+ * <p>
+ * File layout, big-endian:
+ * <pre>
+ * header:  int magic "VOCB", int version, long entryCount, long indexOffset, long reserved
+ * entries: int wordLength, word (UTF-8), int meaningLength, meaning (UTF-8), in String order of the words
+ * index:   long entryOffset[entryCount], 8-byte aligned
+ * </pre>
+ * The file is mapped in segments of 1 GiB. Entries never straddle a segment boundary; the writer pads up to the next
+ * boundary instead.
+ */
+public final class MappedDictionary extends SortedDictionary {
+	private static final int MAGIC = 0x564F4342;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 32;
+	private static final int SEGMENT_SHIFT = 30;
+	private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+	private static final MappedDictionary EMPTY = new MappedDictionary(new ByteBuffer[0], 0, 0);
+	
+	private final ByteBuffer[] segments;
+	private final int size;
+	private final long indexOffset;
+	
+	private MappedDictionary(ByteBuffer[] segments, int size, long indexOffset) {
+		this.segments = segments;
+		this.size = size;
+		this.indexOffset = indexOffset;
+	}
+	
+	/**
+	 * @return A dictionary without entries.
+	 */
+	public static MappedDictionary empty() {
+		return EMPTY;
+	}
+	
+	/**
+	 * Maps a dictionary file into memory.
+	 *
+	 * @param path The dictionary file.
+	 * @return The dictionary.
+	 * @throws IOException If the file cannot be mapped or is not a dictionary file.
+	 */
+	public static MappedDictionary open(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long fileSize = channel.size();
+			ByteBuffer[] segments = new ByteBuffer[(int) ((fileSize + SEGMENT_SIZE - 1) >> SEGMENT_SHIFT)];
+			for (int i = 0; i < segments.length; i++) {
+				long position = (long) i << SEGMENT_SHIFT;
+				MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(SEGMENT_SIZE, fileSize - position));
+				segments[i] = segment;
+			}
+			if (fileSize < HEADER_SIZE || segments[0].getInt(0) != MAGIC) {
+				throw new IOException("Not a vocabulary dictionary file: " + path);
+			}
+			if (segments[0].getInt(4) != VERSION) {
+				throw new IOException("Unsupported dictionary version " + segments[0].getInt(4) + " in " + path);
+			}
+			long count = segments[0].getLong(8);
+			long indexOffset = segments[0].getLong(16);
+			if (count > Integer.MAX_VALUE || indexOffset + count * Long.BYTES > fileSize) {
+				throw new IOException("Corrupt dictionary header in " + path);
+			}
+			return new MappedDictionary(segments, (int) count, indexOffset);
+		}
+	}
+	
+	/**
+	 * Writes entries as a dictionary file.
+	 *
+	 * @param path    The file to write; an existing file is overwritten.
+	 * @param entries The entries, strictly ascending by word.
+	 * @return The number of entries written.
+	 * @throws IOException              If the file cannot be written.
+	 * @throws IllegalArgumentException If the entries are not strictly ascending.
+	 */
+	public static long write(Path path, Iterator<? extends Map.Entry<String, String>> entries) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+			out.write(new byte[HEADER_SIZE]);
+			long position = HEADER_SIZE;
+			long[] offsets = new long[1024];
+			int count = 0;
+			String previous = null;
+			while (entries.hasNext()) {
+				Map.Entry<String, String> entry = entries.next();
+				if (previous != null && previous.compareTo(entry.getKey()) >= 0) {
+					throw new IllegalArgumentException("Entries not in ascending order at: " + entry.getKey());
+				}
+				previous = entry.getKey();
+				byte[] word = entry.getKey().getBytes(StandardCharsets.UTF_8);
+				byte[] meaning = entry.getValue().getBytes(StandardCharsets.UTF_8);
+				long length = 2L * Integer.BYTES + word.length + meaning.length;
+				if (length > SEGMENT_SIZE) {
+					throw new IOException("Entry too large for dictionary: " + entry.getKey());
+				}
+				if ((position >> SEGMENT_SHIFT) != ((position + length - 1) >> SEGMENT_SHIFT)) {
+					long padding = SEGMENT_SIZE - (position & (SEGMENT_SIZE - 1));
+					pad(out, padding);
+					position += padding;
+				}
+				if (count == offsets.length) {
+					offsets = Arrays.copyOf(offsets, count * 2);
+				}
+				offsets[count++] = position;
+				out.writeInt(word.length);
+				out.write(word);
+				out.writeInt(meaning.length);
+				out.write(meaning);
+				position += length;
+			}
+			long indexOffset = (position + Long.BYTES - 1) & -Long.BYTES;
+			pad(out, indexOffset - position);
+			for (int i = 0; i < count; i++) {
+				out.writeLong(offsets[i]);
+			}
+			out.flush();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).putInt(VERSION).putLong(count).putLong(indexOffset).putLong(0).flip();
+			while (header.hasRemaining()) {
+				channel.write(header, header.position());
+			}
+			channel.force(true);
+			return count;
+		}
+	}
+	
+	private static void pad(DataOutputStream out, long length) throws IOException {
+		byte[] zeros = new byte[(int) Math.min(length, 1 << 16)];
+		for (long remaining = length; remaining > 0; remaining -= zeros.length) {
+			out.write(zeros, 0, (int) Math.min(remaining, zeros.length));
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The entries are mapped from the file, outside of the heap, so only the dictionary object itself counts.
+	 */
+	@Override
+	public long estimatedMemoryUsage() {
+		return 0;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected int compareWord(String word, int index) {
+		long offset = offset(index);
+		ByteBuffer segment = segment(offset);
+		int position = position(offset);
+		return compare(word, segment, position + Integer.BYTES, segment.getInt(position));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected String word(int index) {
+		long offset = offset(index);
+		return readString(segment(offset), position(offset));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected String meaning(int index) {
+		long offset = offset(index);
+		ByteBuffer segment = segment(offset);
+		int position = position(offset);
+		return readString(segment, position + Integer.BYTES + segment.getInt(position));
+	}
+	
+	private long offset(int index) {
+		long position = indexOffset + (long) index * Long.BYTES;
+		return segment(position).getLong(position(position));
+	}
+	
+	private ByteBuffer segment(long offset) {
+		return segments[(int) (offset >> SEGMENT_SHIFT)];
+	}
+	
+	private static int position(long offset) {
+		return (int) (offset & (SEGMENT_SIZE - 1));
+	}
+	
+	private static String readString(ByteBuffer segment, int position) {
+		int length = segment.getInt(position);
+		byte[] bytes = new byte[length];
+		segment.get(position + Integer.BYTES, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,935 @@
+package org.nokia.vocabulary.file;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of vocabulary mutations, replayed on top of the last JSON snapshot at startup.
+ * <p>
+ * Each record is written to the file as soon as it is appended, so it survives the process being killed. Forcing the
+ * records to the storage device is batched: the log is synced once {@code vocabulary.wal.sync-batch-size} records are
+ * pending, or at the latest after {@code vocabulary.wal.sync-interval-ms}.
+ * <p>
+ * Record layout: {@code int payloadLength, int crc32c(payload), payload}, where the payload is
+ * {@code byte op, int wordLength, word, [int meaningLength, meaning]} with UTF-8 strings. A torn or corrupt tail left
+ * by a crash is detected through the length and checksum and cut off during replay.
+ * <p>
+ * When a snapshot is taken the log is rotated: the current segment is renamed to {@code <path>.old} and deleted once
+ * the snapshot is on disk. Replaying that segment on top of the snapshot that covers it is harmless, since it only
+ * re-applies values the snapshot already holds.
+ * <p>
+ * With {@code vocabulary.wal.shared} several processes may use the same log. Every append then takes an exclusive
+ * lock on the file and goes to its end, and every process {@link #follow}s the records the others appended. A
+ * process that finds the log rotated by another one reads the rest of the old segment, which it still has open, and
+ * continues with the new one. Snapshots are serialized across processes by a lock on {@code <path>.lock}, see
+ * {@link #lockSnapshots()}.
+ * <p>
+ * No process may miss a segment: {@code <path>.lock} also holds the number of rotations so far, and every process
+ * registers with a reader file, {@code <path>.<pid>-<n>.reader}, holding the rotation it has followed the log into.
+ * The log is only rotated once every other process has, so each of them has the open segment open as well and reads
+ * it to its end even after it was set aside and deleted. The log is never truncated while shared: a segment set aside
+ * by a failed snapshot is kept as it is, and a record torn by a process killed while appending is cut off by the next
+ * append, before any record can follow it. A reader file stays locked while its process has the log open, so files
+ * left behind by processes that are gone are recognized and deleted.
+ */
+@Component
+public class WriteAheadLog {
+	private static final Logger logger = LogManager.getLogger(WriteAheadLog.class);
+	private static final byte OP_PUT = 1;
+	private static final byte OP_REMOVE = 2;
+	private static final int HEADER_SIZE = 2 * Integer.BYTES;
+	// How long to wait before trying again for a file lock held through another channel of this JVM
+	private static final long LOCK_RETRY_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+	// Layout of the lock file: a byte locked while a snapshot is loaded or written, then the number of rotations
+	private static final long SNAPSHOT_LOCK_POSITION = 0;
+	private static final long ROTATIONS_POSITION = Long.BYTES;
+	// Layout of a reader file: the rotation its process has followed the log into, then a byte locked while it runs
+	private static final long READER_LOCK_POSITION = Long.BYTES;
+	private static final String READER_SUFFIX = ".reader";
+	// Numbers the reader files of the logs of this process
+	private static final AtomicInteger READERS = new AtomicInteger();
+	
+	private final boolean enabled;
+	private final Path path;
+	private final Path rotatedPath;
+	private final int syncBatchSize;
+	private final long syncIntervalMillis;
+	private final long compactionThresholdBytes;
+	private final boolean shared;
+	private final long followIntervalMillis;
+	private final Path lockPath;
+	
+	private FileChannel channel;
+	// Shared log only: what has been read of the open segment, and the segments other processes rotated away
+	private Segment following;
+	private final ArrayDeque<Segment> retired = new ArrayDeque<>();
+	// Shared log only: the lock file holding the number of rotations, and the reader file of this process
+	private FileChannel lockFile;
+	private FileChannel readerFile;
+	private Path readerPath;
+	// Set by close, after which the files are never opened again, so that they can be deleted
+	private boolean closed;
+	private ScheduledExecutorService flusher;
+	private ByteBuffer buffer = ByteBuffer.allocate(4096);
+	private final CRC32C crc = new CRC32C();
+	private int pendingRecords;
+	
+	/**
+	 * Records of a segment of a shared log: the rotation that started it, how far it has been read and checked, and
+	 * which ranges this process wrote itself.
+	 */
+	private static final class Segment {
+		private final FileChannel channel;
+		private final long rotation;
+		private final ArrayDeque<long[]> ownWrites = new ArrayDeque<>();
+		private long followed;
+		// The end of the records known to be complete
+		private long intact;
+		private boolean stuck;
+		
+		Segment(FileChannel channel, long rotation) {
+			this.channel = channel;
+			this.rotation = rotation;
+		}
+	}
+	
+	/**
+	 * Constructs a WriteAheadLog used by this process only.
+	 *
+	 * @param enabled                  Whether mutations are logged at all.
+	 * @param path                     The log file.
+	 * @param syncBatchSize            The number of pending records that triggers a sync; 1 syncs every record.
+	 * @param syncIntervalMillis       The longest time a record may stay unsynced.
+	 * @param compactionThresholdBytes The log size above which the next save writes a full snapshot.
+	 */
+	public WriteAheadLog(boolean enabled, Path path, int syncBatchSize, long syncIntervalMillis, long compactionThresholdBytes) {
+		this(enabled, path, syncBatchSize, syncIntervalMillis, compactionThresholdBytes, false, 0);
+	}
+	
+	/**
+	 * Constructs a WriteAheadLog.
+	 *
+	 * @param enabled                  Whether mutations are logged at all.
+	 * @param path                     The log file.
+	 * @param syncBatchSize            The number of pending records that triggers a sync; 1 syncs every record.
+	 * @param syncIntervalMillis       The longest time a record may stay unsynced.
+	 * @param compactionThresholdBytes The log size above which the next save writes a full snapshot.
+	 * @param shared                   Whether other processes may append to the same log.
+	 * @param followIntervalMillis     How often a {@link #follower} checks a shared log if no change is reported.
+	 */
+	@Autowired
+	public WriteAheadLog(@Value("${vocabulary.wal.enabled:true}") boolean enabled,
+						 @Value("${vocabulary.wal.path:${output.file.path}.wal}") Path path,
+						 @Value("${vocabulary.wal.sync-batch-size:64}") int syncBatchSize,
+						 @Value("${vocabulary.wal.sync-interval-ms:100}") long syncIntervalMillis,
+						 @Value("${vocabulary.wal.compaction-threshold-bytes:67108864}") long compactionThresholdBytes,
+						 @Value("${vocabulary.wal.shared:false}") boolean shared,
+						 @Value("${vocabulary.wal.follow-interval-ms:1000}") long followIntervalMillis) {
+		this.enabled = enabled;
+		this.path = path;
+		this.rotatedPath = path.resolveSibling(path.getFileName() + ".old");
+		this.lockPath = path.resolveSibling(path.getFileName() + ".lock");
+		this.syncBatchSize = Math.max(1, syncBatchSize);
+		this.syncIntervalMillis = syncIntervalMillis;
+		this.compactionThresholdBytes = compactionThresholdBytes;
+		this.shared = enabled && shared;
+		this.followIntervalMillis = followIntervalMillis;
+	}
+	
+	/**
+	 * Returns a log for another vocabulary, with the same settings as this one.
+	 *
+	 * @param path The log file.
+	 * @return The new log, not yet opened.
+	 */
+	public WriteAheadLog forFile(Path path) {
+		return new WriteAheadLog(enabled, path, syncBatchSize, syncIntervalMillis, compactionThresholdBytes, shared, followIntervalMillis);
+	}
+	
+	/**
+	 * @return True if mutations are being logged.
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+	
+	/**
+	 * @return True if other processes may append to the log, so that it has to be followed.
+	 */
+	public boolean isShared() {
+		return shared;
+	}
+	
+	/**
+	 * Starts watching a shared log for records appended by other processes.
+	 *
+	 * @param onChange Called, on the follower's thread, whenever the log may have grown or been rotated. It is
+	 *                 expected to call {@link #follow}.
+	 * @return The running follower.
+	 * @throws IOException If the directory of the log cannot be watched.
+	 */
+	public LogFollower follower(Runnable onChange) throws IOException {
+		return new LogFollower(path, followIntervalMillis, onChange);
+	}
+	
+	/**
+	 * Replays every intact record of the log, then keeps the log open for appending. A segment left behind by a
+	 * snapshot that did not complete is replayed first.
+	 *
+	 * @param put    Receives each logged addition or update.
+	 * @param remove Receives each logged removal.
+	 * @return The number of records replayed.
+	 * @throws IOException If the log cannot be opened or read.
+	 */
+	public synchronized long replay(BiConsumer<String, String> put, Consumer<String> remove) throws IOException {
+		if (!enabled) {
+			return 0;
+		}
+		long records = 0;
+		if (Files.exists(rotatedPath)) {
+			try (FileChannel rotated = FileChannel.open(rotatedPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				records += replay(rotated, rotatedPath, put, remove);
+			}
+		}
+		FileChannel log = open();
+		if (shared) {
+			// No other process appends meanwhile, so a torn tail is really torn and may be cut off
+			FileLock lock = lockSegment(false);
+			try {
+				// Everything up to the end of the open segment is applied here, including any segment retired meanwhile
+				retired.forEach(segment -> closeQuietly(segment.channel));
+				retired.clear();
+				records += replay(channel, path, put, remove);
+				following.followed = channel.position();
+				following.intact = following.followed;
+			} finally {
+				lock.release();
+			}
+		} else {
+			records += replay(log, path, put, remove);
+		}
+		logger.debug("Replayed {} write-ahead log records from {}.", records, path);
+		return records;
+	}
+	
+	/**
+	 * Applies the records other processes appended to a shared log since it was last followed, in log order. Records
+	 * this process wrote itself are skipped.
+	 *
+	 * @param put    Receives each addition or update made by another process.
+	 * @param remove Receives each removal made by another process.
+	 * @return The number of records applied.
+	 * @throws IOException If the log cannot be read.
+	 */
+	public synchronized long follow(BiConsumer<String, String> put, Consumer<String> remove) throws IOException {
+		if (!shared) {
+			return 0;
+		}
+		open();
+		FileLock lock = lockSegment(true);
+		try {
+			return followLocked(put, remove);
+		} finally {
+			lock.release();
+		}
+	}
+	
+	/**
+	 * Logs that a word was added or its meaning replaced.
+	 *
+	 * @param word    The word.
+	 * @param meaning The new meaning.
+	 * @throws IOException If the record cannot be written.
+	 */
+	public synchronized void logPut(String word, String meaning) throws IOException {
+		if (enabled) {
+			append(OP_PUT, word, meaning);
+		}
+	}
+	
+	/**
+	 * Logs that words were added or their meanings replaced, as if by {@link #logPut} for each of them in order, but
+	 * with a single write to the log.
+	 *
+	 * @param words The words and their new meanings.
+	 * @throws IOException If the records cannot be written.
+	 */
+	public synchronized void logPuts(Collection<Map.Entry<String, String>> words) throws IOException {
+		if (enabled && !words.isEmpty()) {
+			buffer.clear();
+			for (Map.Entry<String, String> entry : words) {
+				encode(OP_PUT, entry.getKey(), entry.getValue());
+			}
+			write(words.size());
+		}
+	}
+	
+	/**
+	 * Logs that a word was removed.
+	 *
+	 * @param word The word.
+	 * @throws IOException If the record cannot be written.
+	 */
+	public synchronized void logRemove(String word) throws IOException {
+		if (enabled) {
+			append(OP_REMOVE, word, null);
+		}
+	}
+	
+	/**
+	 * Logs that words were removed, as if by {@link #logRemove} for each of them in order, but with a single write to
+	 * the log.
+	 *
+	 * @param words The words.
+	 * @throws IOException If the records cannot be written.
+	 */
+	public synchronized void logRemoves(Collection<String> words) throws IOException {
+		if (enabled && !words.isEmpty()) {
+			buffer.clear();
+			for (String word : words) {
+				encode(OP_REMOVE, word, null);
+			}
+			write(words.size());
+		}
+	}
+	
+	/**
+	 * Forces every pending record to the storage device.
+	 *
+	 * @throws IOException If the log cannot be synced.
+	 */
+	public synchronized void sync() throws IOException {
+		if (channel != null && pendingRecords > 0) {
+			channel.force(false);
+			pendingRecords = 0;
+		}
+	}
+	
+	/**
+	 * @return True if the log has grown past the compaction threshold and should be folded into a snapshot.
+	 * @throws IOException If the log size cannot be read.
+	 */
+	public synchronized boolean needsCompaction() throws IOException {
+		return channel != null && channel.size() >= compactionThresholdBytes;
+	}
+	
+	/**
+	 * Starts a new, empty log segment like {@link #rotate()}. A shared log is first followed up to its end, while no
+	 * other process may append to it, so that a snapshot taken right after covers every record of the segment set
+	 * aside. It is only rotated if every other process has followed it into its open segment, and if no segment set
+	 * aside by a failed snapshot is left; otherwise it is kept as it is, which is harmless since the snapshot covers it
+	 * too.
+	 *
+	 * @param put    Receives each addition or update made by another process.
+	 * @param remove Receives each removal made by another process.
+	 * @return True if the log was rotated.
+	 * @throws IOException If the log cannot be followed or rotated.
+	 */
+	public synchronized boolean rotate(BiConsumer<String, String> put, Consumer<String> remove) throws IOException {
+		if (!shared) {
+			rotate();
+			return enabled;
+		}
+		open();
+		FileLock lock = lockSegment(false);
+		FileChannel log = channel;
+		try {
+			followLocked(put, remove);
+			sync();
+			if (Files.exists(rotatedPath)) {
+				// Appending the open segment to that one would truncate it under the processes still reading it
+				logger.debug("Not rotating shared write-ahead log {}: the segment set aside last time is still there.", path);
+				return false;
+			}
+			long rotation = following.rotation;
+			if (!othersFollowed(rotation)) {
+				logger.debug("Not rotating shared write-ahead log {}: another process has not followed it into its open segment yet.", path);
+				return false;
+			}
+			// No process opens the log meanwhile, so each one reads the number of the segment it opens
+			FileLock rotationLock = lock(lockFile, ROTATIONS_POSITION, Long.BYTES, false);
+			try {
+				writeLong(lockFile, ROTATIONS_POSITION, rotation + 1);
+				try {
+					// Moved while still locked, so that no other process appends to it after it was followed
+					Files.move(path, rotatedPath);
+				} catch (IOException e) {
+					writeLong(lockFile, ROTATIONS_POSITION, rotation);
+					throw e;
+				}
+				channel = null;
+				openSegment();
+			} finally {
+				rotationLock.release();
+			}
+		} finally {
+			lock.release();
+			if (channel != log) {
+				log.close();
+			}
+		}
+		logger.debug("Shared write-ahead log {} rotated.", path);
+		return true;
+	}
+	
+	/**
+	 * Keeps other processes sharing the log from writing a snapshot until the returned lock is closed. Loading and
+	 * snapshotting hold it, so that no process loads a snapshot while another replaces it, and no segment set aside is
+	 * deleted before every process has read it. For a log used by this process only, the lock does nothing.
+	 *
+	 * @return The lock, to be closed once the snapshot is loaded or written.
+	 * @throws IOException If the lock file cannot be opened.
+	 */
+	public Closeable lockSnapshots() throws IOException {
+		if (!shared) {
+			return () -> {
+			};
+		}
+		FileChannel file;
+		synchronized (this) {
+			checkOpen();
+			if (lockFile == null) {
+				openShared();
+			}
+			file = lockFile;
+		}
+		// Through the channel kept open, as closing any channel of the file may release every lock this process holds on it
+		FileLock lock = lock(file, SNAPSHOT_LOCK_POSITION, 1, false);
+		return () -> {
+			if (lock.isValid()) {
+				lock.release();
+			}
+		};
+	}
+	
+	/**
+	 * Starts a new, empty log segment. The current segment is kept aside until the snapshot that covers its records
+	 * has been written, so it has to be called while no changes are being logged.
+	 *
+	 * @throws IOException If the segment cannot be rotated.
+	 */
+	public synchronized void rotate() throws IOException {
+		if (!enabled) {
+			return;
+		}
+		FileChannel log = open();
+		sync();
+		if (Files.exists(rotatedPath)) {
+			// A previous snapshot did not complete, so its segment must keep preceding the current records
+			try (FileChannel rotated = FileChannel.open(rotatedPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+				long size = log.size();
+				for (long position = 0; position < size; ) {
+					position += log.transferTo(position, size - position, rotated);
+				}
+				rotated.force(true);
+			}
+			log.truncate(0);
+			log.position(0);
+			log.force(true);
+		} else {
+			log.close();
+			channel = null;
+			Files.move(path, rotatedPath);
+			open();
+		}
+		logger.debug("Write-ahead log {} rotated.", path);
+	}
+	
+	/**
+	 * Deletes the segment set aside by {@link #rotate()} once a snapshot covering its records is safely on disk.
+	 *
+	 * @throws IOException If the segment cannot be deleted.
+	 */
+	public synchronized void discardRotated() throws IOException {
+		if (enabled) {
+			Files.deleteIfExists(rotatedPath);
+		}
+	}
+	
+	/**
+	 * Syncs outstanding records and releases the log file. The log is not opened again afterwards, so that nothing
+	 * creates the file anew once it was deleted; appending then fails.
+	 */
+	@PreDestroy
+	public synchronized void close() {
+		closed = true;
+		if (flusher != null) {
+			flusher.shutdownNow();
+			flusher = null;
+		}
+		for (Segment segment : retired) {
+			closeQuietly(segment.channel);
+		}
+		retired.clear();
+		following = null;
+		if (channel != null) {
+			try {
+				sync();
+				channel.close();
+			} catch (IOException e) {
+				logger.error("Error closing write-ahead log: {}", e.getMessage());
+			}
+			channel = null;
+		}
+		if (readerFile != null) {
+			closeQuietly(readerFile);
+			readerFile = null;
+			try {
+				Files.deleteIfExists(readerPath);
+			} catch (IOException e) {
+				logger.error("Error deleting write-ahead log reader file: {}", e.getMessage());
+			}
+		}
+		if (lockFile != null) {
+			closeQuietly(lockFile);
+			lockFile = null;
+		}
+	}
+	
+	private long replay(FileChannel log, Path file, BiConsumer<String, String> put, Consumer<String> remove) throws IOException {
+		long size = log.size();
+		long position = 0;
+		long records = 0;
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		for (ByteBuffer payload; (payload = readRecord(log, position, size, header)) != null; records++) {
+			position += HEADER_SIZE + payload.limit();
+			apply(payload, put, remove);
+		}
+		if (position < size) {
+			logger.warn("Discarding {} bytes of incomplete write-ahead log records at offset {} of {}.", size - position, position, file);
+			log.truncate(position);
+			log.force(true);
+		}
+		log.position(position);
+		return records;
+	}
+	
+	/**
+	 * Reads the record at a position of a log.
+	 *
+	 * @return The payload of the record, or null if there is none or it is incomplete or corrupt.
+	 */
+	private ByteBuffer readRecord(FileChannel log, long position, long size, ByteBuffer header) throws IOException {
+		if (position + HEADER_SIZE > size) {
+			return null;
+		}
+		header.clear();
+		readFully(log, header, position);
+		int length = header.getInt(0);
+		int checksum = header.getInt(Integer.BYTES);
+		if (length <= 0 || position + HEADER_SIZE + length > size) {
+			return null;
+		}
+		ByteBuffer payload = ByteBuffer.allocate(length);
+		readFully(log, payload, position + HEADER_SIZE);
+		crc.reset();
+		crc.update(payload.array(), 0, length);
+		return (int) crc.getValue() == checksum ? payload.flip() : null;
+	}
+	
+	/**
+	 * Applies the records of the retired segments and then those of the open one. Must be called with the open segment
+	 * locked.
+	 */
+	private long followLocked(BiConsumer<String, String> put, Consumer<String> remove) throws IOException {
+		long records = 0;
+		while (!retired.isEmpty()) {
+			// Nothing is appended to a retired segment any more, and it can still be read if it was deleted
+			Segment segment = retired.peek();
+			records += follow(segment, put, remove);
+			retired.poll();
+			closeQuietly(segment.channel);
+		}
+		records += follow(following, put, remove);
+		if (records > 0 && logger.isDebugEnabled()) {
+			logger.debug("Followed {} write-ahead log records of other processes in {}.", records, path);
+		}
+		return records;
+	}
+	
+	private long follow(Segment segment, BiConsumer<String, String> put, Consumer<String> remove) throws IOException {
+		FileChannel log = segment.channel;
+		long size = log.size();
+		long position = segment.followed;
+		long records = 0;
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		while (position < size) {
+			long[] own = segment.ownWrites.peek();
+			if (own != null && own[0] <= position) {
+				segment.ownWrites.poll();
+				position = Math.max(position, own[1]);
+				continue;
+			}
+			ByteBuffer payload = readRecord(log, position, size, header);
+			if (payload == null) {
+				break;
+			}
+			apply(payload, put, remove);
+			position += HEADER_SIZE + payload.limit();
+			records++;
+		}
+		if (position < size && !segment.stuck) {
+			// A record torn by a process killed while appending; the next append cuts it off
+			logger.warn("Cannot follow write-ahead log {} past an incomplete record at offset {} yet.", path, position);
+		}
+		segment.stuck = position < size;
+		segment.followed = position;
+		return records;
+	}
+	
+	/**
+	 * Cuts off a record torn by a process killed while appending to a shared log, so that the records appended after
+	 * it can be read. Only the records appended since the segment was last checked are read. Must be called with the
+	 * segment locked exclusively, so that no record is being appended.
+	 *
+	 * @return The end of the complete records, where the next record goes.
+	 */
+	private long repairTail(Segment segment) throws IOException {
+		FileChannel log = segment.channel;
+		long size = log.size();
+		long position = Math.max(segment.intact, segment.followed);
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		for (ByteBuffer payload; (payload = readRecord(log, position, size, header)) != null; ) {
+			position += HEADER_SIZE + payload.limit();
+		}
+		if (position < size) {
+			logger.warn("Discarding {} bytes of an incomplete write-ahead log record at offset {} of {}.", size - position, position, path);
+			log.truncate(position);
+		}
+		segment.intact = position;
+		return position;
+	}
+	
+	/**
+	 * Locks the open segment of a shared log. If another process rotated the log meanwhile, the segment is retired
+	 * and the new one is opened and locked instead.
+	 *
+	 * @param sharedLock True for a lock that allows other readers, false for an exclusive one.
+	 */
+	private FileLock lockSegment(boolean sharedLock) throws IOException {
+		while (true) {
+			FileLock lock = lock(channel, 0, Long.MAX_VALUE, sharedLock);
+			// Only changes under the lock of the segment being rotated
+			if (readLong(lockFile, ROTATIONS_POSITION, 0) == following.rotation) {
+				return lock;
+			}
+			lock.release();
+			if (pendingRecords > 0) {
+				channel.force(false);
+				pendingRecords = 0;
+			}
+			retired.add(following);
+			channel = null;
+			open();
+			logger.debug("Write-ahead log {} was rotated by another process.", path);
+		}
+	}
+	
+	/**
+	 * @return True if every other process reading the log has followed it into the given rotation, so that it has the
+	 * open segment open and cannot miss it. Reader files left behind by processes that are gone are deleted.
+	 */
+	private boolean othersFollowed(long rotation) throws IOException {
+		String prefix = path.getFileName() + ".";
+		List<Path> readers = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(path.toAbsolutePath().getParent(), file -> {
+			String name = file.getFileName().toString();
+			return name.startsWith(prefix) && name.endsWith(READER_SUFFIX);
+		})) {
+			files.forEach(readers::add);
+		}
+		for (Path reader : readers) {
+			if (!reader.getFileName().equals(readerPath.getFileName()) && followedRotation(reader) < rotation) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @return The rotation the process of a reader file has followed the log into, or {@link Long#MAX_VALUE} if the
+	 * process is gone.
+	 */
+	private static long followedRotation(Path reader) throws IOException {
+		boolean gone;
+		long rotation;
+		try (FileChannel file = FileChannel.open(reader, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			gone = tryLock(file, READER_LOCK_POSITION) != null;
+			rotation = readLong(file, 0, -1);
+		} catch (NoSuchFileException e) {
+			return Long.MAX_VALUE;
+		}
+		if (gone) {
+			// Closing the file released the lock
+			Files.deleteIfExists(reader);
+			logger.debug("Deleted write-ahead log reader file {} of a process that is gone.", reader);
+			return Long.MAX_VALUE;
+		}
+		return rotation;
+	}
+	
+	/**
+	 * Opens the lock file of a shared log and registers this process as a reader, with a reader file locked as long as
+	 * the log is open.
+	 */
+	private void openShared() throws IOException {
+		lockFile = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		String prefix = path.getFileName() + "." + ProcessHandle.current().pid() + "-";
+		while (readerFile == null) {
+			// A file of the same name may be left behind by a process that is gone, or in use by another with the same pid
+			Path reader = path.resolveSibling(prefix + READERS.incrementAndGet() + READER_SUFFIX);
+			FileChannel file = FileChannel.open(reader, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			if (tryLock(file, READER_LOCK_POSITION) == null) {
+				file.close();
+				continue;
+			}
+			writeLong(file, 0, -1);
+			readerFile = file;
+			readerPath = reader;
+		}
+	}
+	
+	/**
+	 * Locks a region of a file for this process. A lock held through another channel of this JVM makes
+	 * {@link FileChannel#lock} fail instead of wait, so that case is retried.
+	 */
+	private static FileLock lock(FileChannel file, long position, long size, boolean sharedLock) throws IOException {
+		while (true) {
+			try {
+				return file.lock(position, size, sharedLock);
+			} catch (OverlappingFileLockException e) {
+				LockSupport.parkNanos(LOCK_RETRY_NANOS);
+			}
+		}
+	}
+	
+	/**
+	 * @return An exclusive lock of one byte of a file, or null if another process or another channel of this JVM
+	 * holds it.
+	 */
+	private static FileLock tryLock(FileChannel file, long position) throws IOException {
+		try {
+			return file.tryLock(position, 1, false);
+		} catch (OverlappingFileLockException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * @return The number at a position of a file, or the given value if the file ends before it.
+	 */
+	private static long readLong(FileChannel file, long position, long missing) throws IOException {
+		ByteBuffer value = ByteBuffer.allocate(Long.BYTES);
+		while (value.hasRemaining()) {
+			if (file.read(value, position + value.position()) < 0) {
+				return missing;
+			}
+		}
+		return value.getLong(0);
+	}
+	
+	private static void writeLong(FileChannel file, long position, long value) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(0, value);
+		while (buffer.hasRemaining()) {
+			buffer.position(buffer.position() + file.write(buffer, position + buffer.position()));
+		}
+	}
+	
+	private void checkOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Write-ahead log " + path + " has been closed");
+		}
+	}
+	
+	private static void closeQuietly(FileChannel file) {
+		try {
+			file.close();
+		} catch (IOException e) {
+			logger.error("Error closing write-ahead log segment: {}", e.getMessage());
+		}
+	}
+	
+	private void append(byte op, String word, String meaning) throws IOException {
+		buffer.clear();
+		encode(op, word, meaning);
+		write(1);
+	}
+	
+	/**
+	 * Adds a record to the buffer after the records already in it.
+	 */
+	private void encode(byte op, String word, String meaning) {
+		byte[] wordBytes = word.getBytes(StandardCharsets.UTF_8);
+		byte[] meaningBytes = meaning == null ? null : meaning.getBytes(StandardCharsets.UTF_8);
+		int length = 1 + Integer.BYTES + wordBytes.length + (meaningBytes == null ? 0 : Integer.BYTES + meaningBytes.length);
+		if (buffer.remaining() < HEADER_SIZE + length) {
+			ByteBuffer grown = ByteBuffer.allocate(Integer.highestOneBit(buffer.position() + HEADER_SIZE + length) << 1);
+			buffer = grown.put(buffer.flip());
+		}
+		int start = buffer.position();
+		buffer.position(start + HEADER_SIZE);
+		buffer.put(op).putInt(wordBytes.length).put(wordBytes);
+		if (meaningBytes != null) {
+			buffer.putInt(meaningBytes.length).put(meaningBytes);
+		}
+		crc.reset();
+		crc.update(buffer.array(), start + HEADER_SIZE, length);
+		buffer.putInt(start, length).putInt(start + Integer.BYTES, (int) crc.getValue());
+	}
+	
+	/**
+	 * Writes the buffered records to the log and syncs it if enough records are pending. If either fails, the log is cut
+	 * back to where the records began, so that a change that is reported as failed is never replayed, and a torn
+	 * record does not hide the records appended after it.
+	 */
+	private void write(int records) throws IOException {
+		buffer.flip();
+		FileChannel log = open();
+		if (shared) {
+			FileLock lock = lockSegment(false);
+			try {
+				// Other processes may have appended since, so the records go to the end of the complete records
+				long start = repairTail(following);
+				long end = start + buffer.remaining();
+				writeAt(channel, start, records);
+				following.intact = end;
+				if (following.followed == start) {
+					following.followed = end;
+				} else {
+					following.ownWrites.add(new long[]{start, end});
+				}
+			} finally {
+				lock.release();
+			}
+		} else {
+			writeAt(log, log.position(), records);
+		}
+	}
+	
+	private void writeAt(FileChannel log, long start, int records) throws IOException {
+		try {
+			log.position(start);
+			while (buffer.hasRemaining()) {
+				log.write(buffer);
+			}
+			pendingRecords += records;
+			if (pendingRecords >= syncBatchSize) {
+				sync();
+			}
+		} catch (IOException e) {
+			try {
+				log.truncate(start);
+				log.position(start);
+			} catch (IOException truncateError) {
+				logger.error("Error removing failed write-ahead log records from {}: {}", path, truncateError.getMessage());
+			}
+			throw e;
+		}
+	}
+	
+	private void apply(ByteBuffer payload, BiConsumer<String, String> put, Consumer<String> remove) throws IOException {
+		byte op = payload.get();
+		String word = readString(payload);
+		if (op == OP_PUT) {
+			put.accept(word, readString(payload));
+		} else if (op == OP_REMOVE) {
+			remove.accept(word);
+		} else {
+			throw new IOException("Unknown write-ahead log operation: " + op);
+		}
+	}
+	
+	private static String readString(ByteBuffer payload) {
+		int length = payload.getInt();
+		String value = new String(payload.array(), payload.position(), length, StandardCharsets.UTF_8);
+		payload.position(payload.position() + length);
+		return value;
+	}
+	
+	private static void readFully(FileChannel log, ByteBuffer target, long position) throws IOException {
+		while (target.hasRemaining()) {
+			if (log.read(target, position + target.position()) < 0) {
+				throw new IOException("Unexpected end of write-ahead log");
+			}
+		}
+	}
+	
+	/**
+	 * Opens the open segment of a shared log, and records in the reader file that this process has followed the log
+	 * into it. Must be called with the rotations locked.
+	 */
+	private void openSegment() throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		channel.position(channel.size());
+		following = new Segment(channel, readLong(lockFile, ROTATIONS_POSITION, 0));
+		writeLong(readerFile, 0, following.rotation);
+	}
+	
+	private FileChannel open() throws IOException {
+		if (channel == null) {
+			checkOpen();
+			if (shared) {
+				if (lockFile == null) {
+					openShared();
+				}
+				// Not rotated meanwhile, so the number read is that of the segment opened
+				FileLock rotationLock = lock(lockFile, ROTATIONS_POSITION, Long.BYTES, true);
+				try {
+					openSegment();
+				} finally {
+					rotationLock.release();
+				}
+			} else {
+				channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+				channel.position(channel.size());
+			}
+			if (flusher == null && syncBatchSize > 1 && syncIntervalMillis > 0) {
+				flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+					Thread thread = new Thread(runnable, "wal-flusher");
+					thread.setDaemon(true);
+					return thread;
+				});
+				flusher.scheduleWithFixedDelay(this::syncQuietly, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+			}
+		}
+		return channel;
+	}
+	
+	private void syncQuietly() {
+		try {
+			sync();
+		} catch (IOException e) {
+			logger.error("Error syncing write-ahead log: {}", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package org.nokia.vocabulary.metrics;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.nokia.vocabulary.services.NamespacedVocabularyService;
+import org.nokia.vocabulary.store.VocabularyStore;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Provides the registry all metrics are recorded in, with the gauges of the store of the default vocabulary and the
+ * statistics of its cache, if it has one.
+ * <p>
+ * The registry is also added to Micrometer's global registry, which classes that are created outside of Spring, such
+ * as the {@link org.nokia.vocabulary.file.FileHandler} in tests, record to. Without a registry added, recording to the
+ * global registry does nothing.
+ */
+@Configuration
+public class MetricsConfiguration {
+	private PrometheusMeterRegistry registry;
+	
+	/**
+	 * @return The registry, which can render its meters in the Prometheus text format.
+	 */
+	@Bean
+	public PrometheusMeterRegistry meterRegistry(VocabularyStore vocabularyStore) {
+		registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+		// The stores of named vocabularies are registered by the service holding them, with the same tag
+		VocabularyMetrics.registerStore(registry, vocabularyStore, NamespacedVocabularyService.DEFAULT_NAME);
+		Metrics.addRegistry(registry);
+		return registry;
+	}
+	
+	/**
+	 * Stops recording to the registry through the global registry when the application shuts down.
+	 */
+	@PreDestroy
+	public void close() {
+		if (registry != null) {
+			Metrics.removeRegistry(registry);
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package org.nokia.vocabulary.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nokia.vocabulary.file.FileHandler;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Renders the recorded metrics, either as a table for the shell or in the Prometheus text format.
+ */
+@Component
+public class MetricsReport {
+	private static final Logger logger = LogManager.getLogger(MetricsReport.class);
+	private static final Comparator<Meter> ORDER = Comparator.comparing((Meter meter) -> meter.getId().getName())
+			.thenComparing(MetricsReport::label);
+	private final PrometheusMeterRegistry registry;
+	private final FileHandler fileHandler;
+	
+	/**
+	 * Constructs a MetricsReport.
+	 *
+	 * @param registry    The registry holding the metrics.
+	 * @param fileHandler Writes the Prometheus files.
+	 */
+	public MetricsReport(PrometheusMeterRegistry registry, FileHandler fileHandler) {
+		this.registry = registry;
+		this.fileHandler = fileHandler;
+	}
+	
+	/**
+	 * Formats the metrics as a table. Timers that have not recorded anything yet are left out; their percentiles
+	 * cover the last two minutes, their count and mean the whole session.
+	 *
+	 * @return One line per meter, grouped into latencies, counters and gauges.
+	 */
+	public String format() {
+		List<Meter> meters = registry.getMeters().stream().sorted(ORDER).toList();
+		int width = meters.stream().mapToInt(meter -> label(meter).length()).max().orElse(0) + 2;
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format("%-" + width + "s%10s%10s%10s%10s%10s%10s%n", "Latency (ms)", "count", "mean", "p50", "p95", "p99", "max"));
+		for (Meter meter : meters) {
+			if (meter instanceof Timer timer && timer.count() > 0) {
+				HistogramSnapshot snapshot = timer.takeSnapshot();
+				builder.append(String.format("%-" + width + "s%10d%10.3f", label(meter), snapshot.count(), snapshot.mean(TimeUnit.MILLISECONDS)));
+				for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+					builder.append(String.format("%10.3f", percentile.value(TimeUnit.MILLISECONDS)));
+				}
+				builder.append(String.format("%10.3f%n", snapshot.max(TimeUnit.MILLISECONDS)));
+			}
+		}
+		builder.append(String.format("%nCounters%n"));
+		for (Meter meter : meters) {
+			if (meter instanceof Counter counter) {
+				builder.append(String.format("%-" + width + "s%,10.0f%n", label(meter), counter.count()));
+			} else if (meter instanceof FunctionCounter counter) {
+				builder.append(String.format("%-" + width + "s%,10.0f%n", label(meter), counter.count()));
+			}
+		}
+		builder.append(String.format("%nGauges%n"));
+		for (Meter meter : meters) {
+			if (meter instanceof Gauge gauge) {
+				String unit = meter.getId().getBaseUnit() == null ? "" : " " + meter.getId().getBaseUnit();
+				builder.append(String.format("%-" + width + "s%,10.0f%s%n", label(meter), gauge.value(), unit));
+			}
+		}
+		return builder.toString();
+	}
+	
+	/**
+	 * Writes the metrics in the Prometheus text exposition format, e.g. for the textfile collector of the node exporter.
+	 * The file is replaced atomically, so a collector never reads it half-written.
+	 *
+	 * @param file The file to write.
+	 * @throws IOException If the file cannot be written.
+	 */
+	public void writePrometheus(Path file) throws IOException {
+		fileHandler.saveText(file, registry.scrape());
+		logger.debug("Metrics written to {}.", file);
+	}
+	
+	private static String label(Meter meter) {
+		List<Tag> tags = meter.getId().getTags();
+		if (tags.isEmpty()) {
+			return meter.getId().getName();
+		}
+		return meter.getId().getName() + tags.stream().map(tag -> tag.getKey() + "=" + tag.getValue())
+				.collect(Collectors.joining(",", "{", "}"));
+	}
+}
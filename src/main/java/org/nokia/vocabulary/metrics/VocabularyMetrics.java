@@ -0,0 +1,128 @@
+package org.nokia.vocabulary.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import org.nokia.vocabulary.store.CachingVocabularyStore;
+import org.nokia.vocabulary.store.VocabularyStore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Names of the meters the application records, and the common configuration of its timers.
+ */
+public final class VocabularyMetrics {
+	/**
+	 * Timer of every {@link org.nokia.vocabulary.services.VocabularyService} call, tagged with the method.
+	 */
+	public static final String SERVICE_CALLS = "vocabulary.service.calls";
+	/**
+	 * Timer of loading and saving the vocabulary file, tagged with the operation.
+	 */
+	public static final String FILE_OPERATIONS = "vocabulary.file.operations";
+	/**
+	 * Counter of word lookups, tagged with whether the word was found.
+	 */
+	public static final String LOOKUPS = "vocabulary.lookups";
+	/**
+	 * Gauge of the number of stored words.
+	 */
+	public static final String WORDS = "vocabulary.words";
+	/**
+	 * Gauge of the estimated heap taken by the stored words and meanings.
+	 */
+	public static final String MEMORY = "vocabulary.memory.estimated";
+	/**
+	 * Counter of lookups made through the cache of the store, tagged with whether the word was cached.
+	 */
+	public static final String CACHE_REQUESTS = "vocabulary.cache.requests";
+	/**
+	 * Counter of words evicted from the cache of the store.
+	 */
+	public static final String CACHE_EVICTIONS = "vocabulary.cache.evictions";
+	/**
+	 * Gauge of the number of words in the cache of the store.
+	 */
+	public static final String CACHE_SIZE = "vocabulary.cache.size";
+	/**
+	 * Gauge of the share of lookups answered by the cache of the store.
+	 */
+	public static final String CACHE_HIT_RATIO = "vocabulary.cache.hit.ratio";
+	/**
+	 * Tag of the store meters naming the vocabulary the store holds.
+	 */
+	public static final String VOCABULARY_TAG = "vocabulary";
+	
+	private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+	
+	private VocabularyMetrics() {
+	}
+	
+	/**
+	 * Registers a timer that publishes its median, 95th and 99th percentile. The percentiles are computed from an HDR
+	 * histogram of the latencies recorded in the last two minutes.
+	 *
+	 * @param registry The registry to register the timer in.
+	 * @param name     The name of the timer.
+	 * @param tag      The key of its one tag.
+	 * @param value    The value of the tag.
+	 * @return The timer, or the already registered timer with the same name and tag.
+	 */
+	public static Timer timer(MeterRegistry registry, String name, String tag, String value) {
+		return Timer.builder(name)
+				.tag(tag, value)
+				.publishPercentiles(PERCENTILES)
+				.percentilePrecision(2)
+				.register(registry);
+	}
+	
+	/**
+	 * Registers the gauges of a vocabulary store and the statistics of its cache, if it has one, tagged with the name
+	 * of the vocabulary. They read the store whenever the metrics are rendered.
+	 *
+	 * @param registry   The registry to register the meters in.
+	 * @param store      The store.
+	 * @param vocabulary The name of the vocabulary the store holds.
+	 * @return The meters, to be removed from the registry once the store is no longer used.
+	 */
+	public static List<Meter> registerStore(MeterRegistry registry, VocabularyStore store, String vocabulary) {
+		List<Meter> meters = new ArrayList<>();
+		meters.add(Gauge.builder(WORDS, store, VocabularyStore::size)
+				.tag(VOCABULARY_TAG, vocabulary)
+				.description("Number of stored words")
+				.register(registry));
+		meters.add(Gauge.builder(MEMORY, store, VocabularyStore::estimatedMemoryUsage)
+				.tag(VOCABULARY_TAG, vocabulary)
+				.description("Estimated heap taken by the stored words and meanings")
+				.baseUnit(BaseUnits.BYTES)
+				.register(registry));
+		if (store instanceof CachingVocabularyStore cache) {
+			meters.add(FunctionCounter.builder(CACHE_REQUESTS, cache, CachingVocabularyStore::hitCount)
+					.tags(VOCABULARY_TAG, vocabulary, "result", "hit")
+					.description("Lookups answered by the cache")
+					.register(registry));
+			meters.add(FunctionCounter.builder(CACHE_REQUESTS, cache, CachingVocabularyStore::missCount)
+					.tags(VOCABULARY_TAG, vocabulary, "result", "miss")
+					.description("Lookups that read the store")
+					.register(registry));
+			meters.add(FunctionCounter.builder(CACHE_EVICTIONS, cache, CachingVocabularyStore::evictionCount)
+					.tag(VOCABULARY_TAG, vocabulary)
+					.description("Words evicted from the cache")
+					.register(registry));
+			meters.add(Gauge.builder(CACHE_SIZE, cache, CachingVocabularyStore::cachedWords)
+					.tag(VOCABULARY_TAG, vocabulary)
+					.description("Words in the cache, out of at most " + cache.maximumSize())
+					.register(registry));
+			meters.add(Gauge.builder(CACHE_HIT_RATIO, cache, CachingVocabularyStore::hitRatio)
+					.tag(VOCABULARY_TAG, vocabulary)
+					.description("Share of lookups answered by the cache")
+					.baseUnit(BaseUnits.PERCENT)
+					.register(registry));
+		}
+		return meters;
+	}
+}
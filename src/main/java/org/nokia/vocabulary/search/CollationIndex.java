@@ -0,0 +1,260 @@
+package org.nokia.vocabulary.search;
+
+import java.text.Collator;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Index of words by a normalized key and in the collation order of a locale.
+ * <p>
+ * Both keys of a word are computed once, when it is indexed. The normalized key is the word in Unicode NFC, case-folded
+ * and, if enabled, stripped of accents; words are found by it in a hash map, so a search ignoring case costs no more
+ * than an exact one. The collation key is the byte array of the word's {@link java.text.CollationKey}; the words are
+ * kept in a sorted set ordered by these bytes, so listing them in collation order never runs the collator.
+ * <p>
+ * The index is safe for concurrent queries while it is being changed.
+ */
+public final class CollationIndex {
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+	// Words with equal collation keys, such as the same word in NFC and NFD, are ordered by code point
+	private static final Comparator<Entry> COLLATION_ORDER = ((Comparator<Entry>) (a, b) -> Arrays.compareUnsigned(a.collationKey, b.collationKey))
+			.thenComparing(Entry::word);
+	private static final Entry[] NONE = new Entry[0];
+	
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Collator collator;
+	private final boolean stripAccents;
+	// Words with the same normalized key, in collation order; almost always a single word
+	private final Map<String, Entry[]> byKey = new HashMap<>();
+	private final NavigableSet<Entry> collated = new TreeSet<>(COLLATION_ORDER);
+	private int size;
+	
+	/**
+	 * A word with its precomputed keys.
+	 *
+	 * @param word         The word as stored.
+	 * @param key          The normalized key.
+	 * @param collationKey The collation key bytes, compared unsigned.
+	 */
+	private record Entry(String word, String key, byte[] collationKey) {
+	}
+	
+	/**
+	 * @param locale       The locale whose collation orders the words.
+	 * @param stripAccents True to also ignore accents when finding words, so that "cafe" finds "Café".
+	 */
+	public CollationIndex(Locale locale, boolean stripAccents) {
+		this.collator = Collator.getInstance(locale);
+		// Canonically equivalent words, such as NFC and NFD forms, collate alike
+		this.collator.setDecomposition(Collator.CANONICAL_DECOMPOSITION);
+		this.stripAccents = stripAccents;
+	}
+	
+	/**
+	 * Indexes a word; indexing a word that is already indexed does nothing.
+	 *
+	 * @param word The word.
+	 */
+	public void add(String word) {
+		String key = key(word);
+		lock.readLock().lock();
+		try {
+			if (indexOf(byKey.get(key), word) >= 0) {
+				return;
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		// The collation key is computed before taking the write lock, so queries wait only for the maps to change
+		Entry entry = new Entry(word, key, collator.getCollationKey(word).toByteArray());
+		lock.writeLock().lock();
+		try {
+			insert(entry);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Indexes many words at once, such as a whole vocabulary. Computing the collation keys takes most of the time, and
+	 * is done before the index is locked; the words are then inserted in collation order under a single lock.
+	 *
+	 * @param words The words; words that are already indexed are skipped.
+	 */
+	public void addAll(Collection<String> words) {
+		Entry[] added = new Entry[words.size()];
+		int count = 0;
+		for (String word : words) {
+			added[count++] = new Entry(word, key(word), collator.getCollationKey(word).toByteArray());
+		}
+		Arrays.sort(added, 0, count, COLLATION_ORDER);
+		lock.writeLock().lock();
+		try {
+			for (int i = 0; i < count; i++) {
+				insert(added[i]);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Removes a word from the index.
+	 *
+	 * @param word The word.
+	 */
+	public void remove(String word) {
+		String key = key(word);
+		lock.writeLock().lock();
+		try {
+			Entry[] same = byKey.get(key);
+			int index = indexOf(same, word);
+			if (index < 0) {
+				return;
+			}
+			Entry entry = same[index];
+			if (same.length == 1) {
+				byKey.remove(key);
+			} else {
+				Entry[] rest = new Entry[same.length - 1];
+				System.arraycopy(same, 0, rest, 0, index);
+				System.arraycopy(same, index + 1, rest, index, rest.length - index);
+				byKey.put(key, rest);
+			}
+			collated.remove(entry);
+			size--;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * @return The number of indexed words.
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Finds the indexed words that equal a word when both are normalized.
+	 *
+	 * @param word The word to look for, in any case.
+	 * @return The matching words in collation order.
+	 */
+	public List<String> find(String word) {
+		String key = key(word);
+		lock.readLock().lock();
+		try {
+			Entry[] same = byKey.getOrDefault(key, NONE);
+			List<String> words = new ArrayList<>(same.length);
+			for (Entry entry : same) {
+				words.add(entry.word);
+			}
+			return words;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Lists indexed words in collation order.
+	 *
+	 * @param from  The word to start from; the first word listed is the first one that does not collate before it.
+	 *              Null to start at the first word.
+	 * @param limit The maximum number of words to list, or 0 to list all of them.
+	 * @return The words in collation order.
+	 */
+	public List<String> list(String from, int limit) {
+		// The empty word sorts before every stored word with the same collation key
+		Entry start = from == null ? null : new Entry("", null, collator.getCollationKey(from).toByteArray());
+		lock.readLock().lock();
+		try {
+			NavigableSet<Entry> range = start == null ? collated : collated.tailSet(start, true);
+			List<String> words = new ArrayList<>(limit > 0 ? Math.min(limit, collated.size()) : collated.size());
+			for (Entry entry : range) {
+				if (words.size() == limit && limit > 0) {
+					break;
+				}
+				words.add(entry.word);
+			}
+			return words;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Normalizes a word to NFC, folds its case and strips its accents if enabled.
+	 *
+	 * @return The normalized key of the word.
+	 */
+	String key(String word) {
+		if (isAscii(word)) {
+			// Nothing to normalize or strip, and ASCII case folding is plain lower-casing
+			return word.toLowerCase(Locale.ROOT);
+		}
+		// Upper-casing first folds characters that lower-case differently, such as "ß" and "SS" or the forms of sigma
+		String folded = Normalizer.normalize(word, Normalizer.Form.NFC).toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+		if (stripAccents) {
+			folded = MARKS.matcher(Normalizer.normalize(folded, Normalizer.Form.NFD)).replaceAll("");
+		}
+		return Normalizer.normalize(folded, Normalizer.Form.NFC);
+	}
+	
+	/**
+	 * Adds an entry unless its word is indexed already. Must be called with the write lock held.
+	 */
+	private void insert(Entry entry) {
+		Entry[] same = byKey.get(entry.key);
+		if (indexOf(same, entry.word) >= 0) {
+			return;
+		}
+		if (same == null) {
+			byKey.put(entry.key, new Entry[]{entry});
+		} else {
+			Entry[] extended = Arrays.copyOf(same, same.length + 1);
+			extended[same.length] = entry;
+			Arrays.sort(extended, COLLATION_ORDER);
+			byKey.put(entry.key, extended);
+		}
+		collated.add(entry);
+		size++;
+	}
+	
+	private static int indexOf(Entry[] same, String word) {
+		if (same != null) {
+			for (int i = 0; i < same.length; i++) {
+				if (same[i].word.equals(word)) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+	
+	private static boolean isAscii(String word) {
+		for (int i = 0; i < word.length(); i++) {
+			if (word.charAt(i) >= 0x80) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
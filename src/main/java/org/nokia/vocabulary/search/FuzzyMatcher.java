@@ -0,0 +1,113 @@
+package org.nokia.vocabulary.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SortedMap;
+
+/**
+ * Finds the words within a bounded Levenshtein distance of a query in a sorted set of words.
+ * <p>
+ * The sorted words are walked as an implicit trie: all words sharing a prefix form one contiguous range, and the
+ * distinct next characters of a range are found by seeking to the first word of the range and then past the prefix it
+ * starts. Along the way the matcher keeps the Levenshtein row of the query against the current prefix, which is the
+ * state of a Levenshtein automaton, and skips a whole range as soon as no word in it can be within the distance. The
+ * cost therefore depends on the number of prefixes close to the query, not on the number of words, and no index has to
+ * be built or kept up to date.
+ */
+public final class FuzzyMatcher {
+	private static final Comparator<Match> ORDER = Comparator.comparingInt(Match::distance).thenComparing(Match::word);
+	
+	private final String query;
+	private final int maxDistance;
+	private final List<Match> matches = new ArrayList<>();
+	
+	private FuzzyMatcher(String query, int maxDistance) {
+		this.query = query;
+		this.maxDistance = maxDistance;
+	}
+	
+	/**
+	 * A word close to the query.
+	 *
+	 * @param word     The word.
+	 * @param distance Its edit distance from the query.
+	 * @param meaning  Its meaning in the words searched.
+	 */
+	public record Match(String word, int distance, String meaning) {
+	}
+	
+	/**
+	 * Finds the words closest to a query.
+	 *
+	 * @param words       The words to search, in natural order, with their meanings.
+	 * @param query       The word to match.
+	 * @param maxDistance The largest number of inserted, deleted or replaced characters a match may differ by.
+	 * @param limit       The maximum number of matches to return.
+	 * @return The matches, closest first and alphabetically among equally close words.
+	 */
+	public static List<Match> search(SortedMap<String, String> words, String query, int maxDistance, int limit) {
+		if (maxDistance < 0 || limit < 1) {
+			throw new IllegalArgumentException("maxDistance must not be negative and limit must be positive");
+		}
+		FuzzyMatcher matcher = new FuzzyMatcher(query, maxDistance);
+		int[] row = new int[query.length() + 1];
+		for (int i = 0; i < row.length; i++) {
+			row[i] = i;
+		}
+		matcher.visit(words, "", row);
+		List<Match> matches = matcher.matches;
+		matches.sort(ORDER);
+		return matches.size() > limit ? List.copyOf(matches.subList(0, limit)) : List.copyOf(matches);
+	}
+	
+	/**
+	 * Visits the words starting with a prefix.
+	 *
+	 * @param range  The words starting with the prefix.
+	 * @param prefix The prefix.
+	 * @param row    The edit distances between the prefix and every prefix of the query.
+	 */
+	private void visit(SortedMap<String, String> range, String prefix, int[] row) {
+		int depth = prefix.length();
+		SortedMap<String, String> remaining = range;
+		while (!remaining.isEmpty()) {
+			String word = remaining.firstKey();
+			if (word.length() == depth) {
+				// The prefix is a word itself; it sorts before all longer words of the range
+				if (row[query.length()] <= maxDistance) {
+					matches.add(new Match(word, row[query.length()], remaining.get(word)));
+				}
+				remaining = remaining.tailMap(word + Character.MIN_VALUE);
+				continue;
+			}
+			String child = word.substring(0, depth + 1);
+			String end = PrefixRange.end(child);
+			int[] next = step(row, child.charAt(depth));
+			if (next != null) {
+				visit(end == null ? remaining.tailMap(child) : remaining.subMap(child, end), child, next);
+			}
+			if (end == null) {
+				return;
+			}
+			remaining = remaining.tailMap(end);
+		}
+	}
+	
+	/**
+	 * Advances the automaton by one character.
+	 *
+	 * @return The row for the extended prefix, or null if no word starting with it can be within the distance.
+	 */
+	private int[] step(int[] row, char c) {
+		int[] next = new int[row.length];
+		next[0] = row[0] + 1;
+		int min = next[0];
+		for (int i = 1; i < row.length; i++) {
+			int replace = row[i - 1] + (query.charAt(i - 1) == c ? 0 : 1);
+			next[i] = Math.min(replace, Math.min(row[i], next[i - 1]) + 1);
+			min = Math.min(min, next[i]);
+		}
+		return min > maxDistance ? null : next;
+	}
+}
@@ -0,0 +1,293 @@
+package org.nokia.vocabulary.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index from the tokens of meanings to the words having them, ranked with BM25.
+ * <p>
+ * Every indexed word gets a small integer id; ids of removed words are reused. Each token maps to a posting list of
+ * ascending ids stored in a primitive int array, with the number of occurrences of the token in a parallel array.
+ * Changing one word therefore only touches the posting lists of the tokens in its old and new meaning. Queries with
+ * all terms required intersect the lists starting from the shortest one; queries with any term accumulate scores per id.
+ * <p>
+ * The index is safe for concurrent queries while it is being changed.
+ */
+public final class MeaningIndex {
+	private static final double K1 = 1.2;
+	private static final double B = 0.75;
+	private static final Comparator<Hit> ORDER = Comparator.comparingDouble(Hit::score).reversed().thenComparing(Hit::word);
+	
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<String, Postings> postings = new HashMap<>();
+	private final Map<String, Integer> ids = new HashMap<>();
+	private String[] words = new String[16];
+	// The indexed meaning of every id, shared with the store, so that hits carry the meaning they were ranked by
+	private String[] meanings = new String[16];
+	private int[] lengths = new int[16];
+	private int[] freeIds = new int[16];
+	private int freeCount;
+	private int nextId;
+	private long totalLength;
+	
+	/**
+	 * A word whose meaning matches a query.
+	 *
+	 * @param word    The word.
+	 * @param score   Its relevance; higher is better.
+	 * @param meaning The meaning that matched.
+	 */
+	public record Hit(String word, double score, String meaning) {
+	}
+	
+	/**
+	 * Indexes a new or changed meaning of a word.
+	 *
+	 * @param word     The word.
+	 * @param previous The meaning the word was indexed with, or null if it is not indexed.
+	 * @param meaning  The new meaning.
+	 */
+	public void put(String word, String previous, String meaning) {
+		lock.writeLock().lock();
+		try {
+			if (previous != null) {
+				unindex(word, previous);
+			}
+			index(word, meaning);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Removes a word from the index.
+	 *
+	 * @param word     The word.
+	 * @param previous The meaning the word was indexed with.
+	 */
+	public void remove(String word, String previous) {
+		lock.writeLock().lock();
+		try {
+			unindex(word, previous);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * @return The number of indexed words.
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return ids.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Finds the words whose meaning contains the terms of a query.
+	 *
+	 * @param query    The terms, separated by spaces or punctuation.
+	 * @param matchAll True to require every term, false to require at least one.
+	 * @param limit    The maximum number of hits.
+	 * @return The hits, most relevant first.
+	 */
+	public List<Hit> search(String query, boolean matchAll, int limit) {
+		List<String> terms = new ArrayList<>(tokenize(query).keySet());
+		if (terms.isEmpty() || limit < 1) {
+			return List.of();
+		}
+		lock.readLock().lock();
+		try {
+			List<Postings> lists = new ArrayList<>(terms.size());
+			for (String term : terms) {
+				Postings list = postings.get(term);
+				if (list != null) {
+					lists.add(list);
+				} else if (matchAll) {
+					return List.of();
+				}
+			}
+			PriorityQueue<Hit> top = new PriorityQueue<>(ORDER.reversed());
+			if (matchAll) {
+				intersect(lists, top, limit);
+			} else {
+				union(lists, top, limit);
+			}
+			List<Hit> hits = new ArrayList<>(top);
+			hits.sort(ORDER);
+			return hits;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Splits text into lower-case runs of letters and digits.
+	 *
+	 * @return The tokens with their number of occurrences, in order of first occurrence.
+	 */
+	static Map<String, Integer> tokenize(String text) {
+		Map<String, Integer> tokens = new LinkedHashMap<>();
+		int start = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			boolean inToken = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+			if (inToken && start < 0) {
+				start = i;
+			} else if (!inToken && start >= 0) {
+				tokens.merge(text.substring(start, i).toLowerCase(Locale.ROOT), 1, Integer::sum);
+				start = -1;
+			}
+		}
+		return tokens;
+	}
+	
+	private void intersect(List<Postings> lists, PriorityQueue<Hit> top, int limit) {
+		lists.sort(Comparator.comparingInt(list -> list.size));
+		Postings shortest = lists.get(0);
+		int[] positions = new int[lists.size()];
+		candidates:
+		for (int i = 0; i < shortest.size; i++) {
+			int id = shortest.ids[i];
+			double score = shortest.score(i, this);
+			for (int l = 1; l < lists.size(); l++) {
+				Postings list = lists.get(l);
+				int position = list.seek(id, positions[l]);
+				positions[l] = position;
+				if (position == list.size) {
+					break candidates;
+				}
+				if (list.ids[position] != id) {
+					continue candidates;
+				}
+				score += list.score(position, this);
+			}
+			offer(top, new Hit(words[id], score, meanings[id]), limit);
+		}
+	}
+	
+	private void union(List<Postings> lists, PriorityQueue<Hit> top, int limit) {
+		double[] scores = new double[nextId];
+		for (Postings list : lists) {
+			for (int i = 0; i < list.size; i++) {
+				scores[list.ids[i]] += list.score(i, this);
+			}
+		}
+		for (int id = 0; id < scores.length; id++) {
+			if (scores[id] > 0) {
+				offer(top, new Hit(words[id], scores[id], meanings[id]), limit);
+			}
+		}
+	}
+	
+	private static void offer(PriorityQueue<Hit> top, Hit hit, int limit) {
+		if (top.size() < limit) {
+			top.add(hit);
+		} else if (ORDER.compare(hit, top.peek()) < 0) {
+			top.poll();
+			top.add(hit);
+		}
+	}
+	
+	private void index(String word, String meaning) {
+		int id = freeCount > 0 ? freeIds[--freeCount] : nextId++;
+		if (id == words.length) {
+			words = Arrays.copyOf(words, id * 2);
+			meanings = Arrays.copyOf(meanings, id * 2);
+			lengths = Arrays.copyOf(lengths, id * 2);
+		}
+		Map<String, Integer> tokens = tokenize(meaning);
+		int length = 0;
+		for (Map.Entry<String, Integer> token : tokens.entrySet()) {
+			postings.computeIfAbsent(token.getKey(), key -> new Postings()).add(id, token.getValue());
+			length += token.getValue();
+		}
+		ids.put(word, id);
+		words[id] = word;
+		meanings[id] = meaning;
+		lengths[id] = length;
+		totalLength += length;
+	}
+	
+	private void unindex(String word, String meaning) {
+		Integer id = ids.remove(word);
+		if (id == null) {
+			return;
+		}
+		for (String token : tokenize(meaning).keySet()) {
+			Postings list = postings.get(token);
+			if (list != null && list.remove(id) && list.size == 0) {
+				postings.remove(token);
+			}
+		}
+		totalLength -= lengths[id];
+		words[id] = null;
+		meanings[id] = null;
+		lengths[id] = 0;
+		if (freeCount == freeIds.length) {
+			freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+		}
+		freeIds[freeCount++] = id;
+	}
+	
+	/**
+	 * Ascending ids of the words having one token, with the number of occurrences of the token in each meaning.
+	 */
+	private static final class Postings {
+		int[] ids = new int[4];
+		int[] frequencies = new int[4];
+		int size;
+		
+		void add(int id, int frequency) {
+			int position = seek(id, 0);
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+				frequencies = Arrays.copyOf(frequencies, size * 2);
+			}
+			System.arraycopy(ids, position, ids, position + 1, size - position);
+			System.arraycopy(frequencies, position, frequencies, position + 1, size - position);
+			ids[position] = id;
+			frequencies[position] = frequency;
+			size++;
+		}
+		
+		boolean remove(int id) {
+			int position = seek(id, 0);
+			if (position == size || ids[position] != id) {
+				return false;
+			}
+			System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+			System.arraycopy(frequencies, position + 1, frequencies, position, size - position - 1);
+			size--;
+			return true;
+		}
+		
+		/**
+		 * @return The position of the first id not less than the given one, searching from a position on.
+		 */
+		int seek(int id, int from) {
+			int index = Arrays.binarySearch(ids, from, size, id);
+			return index >= 0 ? index : -index - 1;
+		}
+		
+		double score(int position, MeaningIndex index) {
+			int documents = index.ids.size();
+			double idf = Math.log(1 + (documents - size + 0.5) / (size + 0.5));
+			double averageLength = (double) index.totalLength / documents;
+			double frequency = frequencies[position];
+			double norm = K1 * (1 - B + B * index.lengths[ids[position]] / averageLength);
+			return idf * frequency * (K1 + 1) / (frequency + norm);
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package org.nokia.vocabulary.search;
+
+import java.util.SortedMap;
+
+/**
+ * Helpers for treating all words that start with a prefix as one contiguous range of a sorted map.
+ */
+public final class PrefixRange {
+	
+	private PrefixRange() {
+	}
+	
+	/**
+	 * @param words  The sorted words.
+	 * @param prefix The prefix; an empty prefix selects every word.
+	 * @return A view of the words starting with the prefix.
+	 */
+	public static <V> SortedMap<String, V> of(SortedMap<String, V> words, String prefix) {
+		if (prefix.isEmpty()) {
+			return words;
+		}
+		String end = end(prefix);
+		return end == null ? words.tailMap(prefix) : words.subMap(prefix, end);
+	}
+	
+	/**
+	 * @return The smallest string greater than every string starting with the prefix, or null if there is none.
+	 */
+	public static String end(String prefix) {
+		for (int i = prefix.length() - 1; i >= 0; i--) {
+			char c = prefix.charAt(i);
+			if (c != Character.MAX_VALUE) {
+				return prefix.substring(0, i) + (char) (c + 1);
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,48 @@
+package org.nokia.vocabulary.server;
+
+import org.nokia.vocabulary.services.VocabularyService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+/**
+ * Serves the vocabulary over HTTP instead of running the interactive shell when {@code vocabulary.server.enabled} is
+ * true.
+ */
+@Configuration
+@ConditionalOnProperty(value = "vocabulary.server.enabled", havingValue = "true")
+public class ServerConfiguration {
+	private static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+	
+	/**
+	 * Enables TCP_NODELAY on the connections of the JDK's HTTP server, unless {@code sun.net.httpserver.nodelay} was
+	 * given as a JVM option. The server writes the headers and the body of a response separately; without it, the body
+	 * waits for the client to acknowledge the headers, which it delays by up to 40 ms.
+	 *
+	 * @return The server, bound but not started yet; it is stopped when the application shuts down.
+	 * @throws IOException If the address cannot be bound.
+	 */
+	@Bean(destroyMethod = "stop")
+	public VocabularyHttpServer vocabularyHttpServer(VocabularyService vocabularyService,
+													 @Value("${vocabulary.server.host:127.0.0.1}") String host,
+													 @Value("${vocabulary.server.port:8080}") int port,
+													 @Value("${vocabulary.server.backlog:1024}") int backlog,
+													 @Value("${vocabulary.server.threads:64}") int threads) throws IOException {
+		// Read once per JVM, when the first server is created
+		if (System.getProperty(NO_DELAY_PROPERTY) == null) {
+			System.setProperty(NO_DELAY_PROPERTY, "true");
+		}
+		return new VocabularyHttpServer(vocabularyService, host, port, backlog, threads);
+	}
+	
+	/**
+	 * @return The runner that keeps the application serving until it is shut down.
+	 */
+	@Bean
+	public ServerShellRunner serverShellRunner(VocabularyHttpServer vocabularyHttpServer) {
+		return new ServerShellRunner(vocabularyHttpServer);
+	}
+}
@@ -0,0 +1,37 @@
+package org.nokia.vocabulary.server;
+
+import org.springframework.core.Ordered;
+import org.springframework.shell.ShellRunner;
+import org.springframework.shell.jline.ScriptShellRunner;
+
+/**
+ * Runs the HTTP server instead of the interactive shell, until the application is shut down.
+ */
+public class ServerShellRunner implements ShellRunner, Ordered {
+	private final VocabularyHttpServer server;
+	
+	/**
+	 * @param server The server to run.
+	 */
+	public ServerShellRunner(VocabularyHttpServer server) {
+		this.server = server;
+	}
+	
+	/**
+	 * @return An order ahead of the script, non-interactive and interactive runners, but after a batch run.
+	 */
+	@Override
+	public int getOrder() {
+		return ScriptShellRunner.PRECEDENCE - 50;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean run(String[] args) throws Exception {
+		server.start();
+		server.awaitStop();
+		return true;
+	}
+}
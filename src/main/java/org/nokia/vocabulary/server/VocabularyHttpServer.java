@@ -0,0 +1,397 @@
+package org.nokia.vocabulary.server;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nokia.vocabulary.services.ConflictPolicy;
+import org.nokia.vocabulary.services.ImportResult;
+import org.nokia.vocabulary.services.VocabularyService;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves the vocabulary over HTTP with JSON bodies, on the JDK's built-in HTTP server:
+ * <ul>
+ *     <li>{@code GET /words/{word}}: the meaning of a word, or 404.</li>
+ *     <li>{@code PUT /words/{word}} with {@code {"meaning": "..."}}: adds or replaces a word; 201 if it was added.</li>
+ *     <li>{@code DELETE /words/{word}}: removes a word; 204, or 404 if it was not found.</li>
+ *     <li>{@code GET /words?prefix=...&limit=...}: the words starting with a prefix.</li>
+ *     <li>{@code POST /lookup} with {@code ["word", ...]}: the meanings of up to {@value #MAX_LOOKUP_WORDS} words at
+ *     once, null for the words not found.</li>
+ * </ul>
+ * Request bodies larger than {@value #MAX_BODY_BYTES} bytes are answered with 413 without being kept in memory, and so
+ * is a lookup of too many words as soon as one word too many has been read.
+ * Requests are handled on virtual threads when the JVM has them, and on a fixed pool of platform threads otherwise.
+ * Responses are only sent without waiting for delayed acknowledgements if the JVM runs with
+ * {@code sun.net.httpserver.nodelay=true}, which {@link ServerConfiguration} sets for the server it creates.
+ */
+public class VocabularyHttpServer {
+	private static final Logger logger = LogManager.getLogger(VocabularyHttpServer.class);
+	// Largest number of words in one lookup request
+	static final int MAX_LOOKUP_WORDS = 10_000;
+	// Largest request body; enough for a lookup of the most words at up to 100 bytes each
+	static final int MAX_BODY_BYTES = 1 << 20;
+	private static final String BODY_TOO_LARGE = "Request bodies can be at most " + MAX_BODY_BYTES + " bytes";
+	private static final int DEFAULT_PREFIX_LIMIT = 20;
+	private static final String WORDS_PATH = "/words";
+	private static final String LOOKUP_PATH = "/lookup";
+	private static final String JSON = "application/json; charset=utf-8";
+	private final VocabularyService vocabularyService;
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final CountDownLatch stopped = new CountDownLatch(1);
+	
+	/**
+	 * Binds the server without starting it yet.
+	 *
+	 * @param vocabularyService The service to serve.
+	 * @param host              The address to listen on.
+	 * @param port              The port to listen on, or 0 for any free port.
+	 * @param backlog           The number of connections to queue while all are busy.
+	 * @param threads           The number of platform threads to handle requests on if virtual threads are not
+	 *                          available.
+	 * @throws IOException If the address cannot be bound.
+	 */
+	public VocabularyHttpServer(VocabularyService vocabularyService, String host, int port, int backlog, int threads) throws IOException {
+		this.vocabularyService = vocabularyService;
+		this.server = HttpServer.create(new InetSocketAddress(host, port), backlog);
+		this.executor = newExecutor(threads);
+		server.setExecutor(executor);
+		server.createContext(WORDS_PATH, guarded(this::handleWords));
+		server.createContext(LOOKUP_PATH, guarded(this::handleLookup));
+	}
+	
+	/**
+	 * Starts accepting requests.
+	 */
+	public void start() {
+		server.start();
+		logger.info("Serving vocabulary on http://{}:{}{}", server.getAddress().getHostString(), port(), WORDS_PATH);
+	}
+	
+	/**
+	 * Stops accepting requests, lets the requests in progress finish, and releases {@link #awaitStop()}.
+	 */
+	public void stop() {
+		server.stop(1);
+		executor.shutdown();
+		stopped.countDown();
+	}
+	
+	/**
+	 * Waits until the server is stopped.
+	 *
+	 * @throws InterruptedException If interrupted while waiting.
+	 */
+	public void awaitStop() throws InterruptedException {
+		stopped.await();
+	}
+	
+	/**
+	 * @return The port the server listens on.
+	 */
+	public int port() {
+		return server.getAddress().getPort();
+	}
+	
+	private void handleWords(HttpExchange exchange) throws IOException {
+		String path = exchange.getRequestURI().getPath();
+		if (!path.startsWith(WORDS_PATH + "/") && !path.equals(WORDS_PATH)) {
+			// The context also matches other paths starting with its own
+			sendError(exchange, 404, "Not found: " + path);
+			return;
+		}
+		if (path.length() <= WORDS_PATH.length() + 1) {
+			if (!"GET".equals(exchange.getRequestMethod())) {
+				sendMethodNotAllowed(exchange, "GET");
+				return;
+			}
+			listByPrefix(exchange);
+			return;
+		}
+		String word = path.substring(WORDS_PATH.length() + 1);
+		switch (exchange.getRequestMethod()) {
+			case "GET" -> {
+				String meaning = vocabularyService.searchWord(word);
+				if (meaning == null) {
+					sendError(exchange, 404, "Word not found: " + word);
+				} else {
+					send(exchange, 200, new WordBody(word, meaning));
+				}
+			}
+			case "PUT" -> {
+				JsonNode meaning = readBody(exchange).path("meaning");
+				if (!meaning.isTextual() || meaning.asText().isEmpty()) {
+					sendError(exchange, 400, "Expected a body like {\"meaning\": \"...\"}");
+					return;
+				}
+				ImportResult result = vocabularyService.addOrUpdateWords(List.of(Map.entry(word, meaning.asText())), ConflictPolicy.OVERWRITE);
+				send(exchange, result.added() > 0 ? 201 : 200, new WordBody(word, meaning.asText()));
+			}
+			case "DELETE" -> {
+				if (vocabularyService.removeWord(word)) {
+					exchange.sendResponseHeaders(204, -1);
+				} else {
+					sendError(exchange, 404, "Word not found: " + word);
+				}
+			}
+			default -> sendMethodNotAllowed(exchange, "GET, PUT, DELETE");
+		}
+	}
+	
+	private void listByPrefix(HttpExchange exchange) throws IOException {
+		Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+		String prefix = query.getOrDefault("prefix", "");
+		int limit;
+		try {
+			limit = Integer.parseInt(query.getOrDefault("limit", String.valueOf(DEFAULT_PREFIX_LIMIT)));
+		} catch (NumberFormatException e) {
+			limit = 0;
+		}
+		if (limit < 1) {
+			sendError(exchange, 400, "Expected a positive limit");
+			return;
+		}
+		Map<String, String> words = new LinkedHashMap<>();
+		for (Map.Entry<String, String> entry : vocabularyService.findWordsByPrefix(prefix).entrySet()) {
+			if (words.size() == limit) {
+				break;
+			}
+			words.put(entry.getKey(), entry.getValue());
+		}
+		send(exchange, 200, words);
+	}
+	
+	private void handleLookup(HttpExchange exchange) throws IOException {
+		if (!"POST".equals(exchange.getRequestMethod())) {
+			sendMethodNotAllowed(exchange, "POST");
+			return;
+		}
+		List<String> lookup = new ArrayList<>();
+		// Read word by word, so that a request with too many words is rejected without reading them all
+		try (JsonParser words = objectMapper.getFactory().createParser(requestBody(exchange))) {
+			if (words.nextToken() != JsonToken.START_ARRAY) {
+				sendError(exchange, 400, "Expected a JSON array of words");
+				return;
+			}
+			for (JsonToken token = words.nextToken(); token != JsonToken.END_ARRAY; token = words.nextToken()) {
+				if (token != JsonToken.VALUE_STRING) {
+					sendError(exchange, 400, "Expected a JSON array of words");
+					return;
+				}
+				if (lookup.size() == MAX_LOOKUP_WORDS) {
+					throw new RequestTooLargeException("At most " + MAX_LOOKUP_WORDS + " words can be looked up at once");
+				}
+				lookup.add(words.getText());
+			}
+		}
+		send(exchange, 200, vocabularyService.searchWords(lookup));
+	}
+	
+	/**
+	 * Wraps a handler to answer invalid JSON with 400, bodies that are too large with 413, changes that could not be
+	 * saved with 503 and unexpected errors with 500, and to always close the exchange.
+	 */
+	private HttpHandler guarded(HttpHandler handler) {
+		return exchange -> {
+			try (exchange) {
+				try {
+					handler.handle(exchange);
+				} catch (JsonProcessingException e) {
+					sendError(exchange, 400, "Invalid JSON: " + e.getOriginalMessage());
+				} catch (RequestTooLargeException e) {
+					discardBody(exchange);
+					sendError(exchange, 413, e.getMessage());
+				} catch (UncheckedIOException e) {
+					// The change was not made, so the client may retry it
+					sendError(exchange, 503, e.getMessage());
+				} catch (RuntimeException e) {
+					logger.error("Error handling {} {}: {}", exchange.getRequestMethod(), exchange.getRequestURI(), e.getMessage());
+					sendError(exchange, 500, "Internal error");
+				}
+			}
+		};
+	}
+	
+	private JsonNode readBody(HttpExchange exchange) throws IOException {
+		try (InputStream body = requestBody(exchange)) {
+			return objectMapper.readTree(body);
+		}
+	}
+	
+	/**
+	 * Reads what is left of a request body that is too large, unless that is more than {@value #MAX_BODY_BYTES} bytes
+	 * too. Otherwise the connection is closed with the body unread, and the client may have it reset before reading
+	 * the response.
+	 */
+	private static void discardBody(HttpExchange exchange) throws IOException {
+		InputStream body = exchange.getRequestBody();
+		byte[] buffer = new byte[8192];
+		for (long discarded = 0; discarded <= MAX_BODY_BYTES; ) {
+			int read = body.read(buffer);
+			if (read < 0) {
+				break;
+			}
+			discarded += read;
+		}
+	}
+	
+	/**
+	 * @return The request body, which fails with {@link RequestTooLargeException} once more than {@value #MAX_BODY_BYTES}
+	 * bytes have been read from it.
+	 * @throws RequestTooLargeException If the request says that its body is larger than that.
+	 */
+	private static InputStream requestBody(HttpExchange exchange) throws IOException {
+		String length = exchange.getRequestHeaders().getFirst("Content-Length");
+		// The JDK server has already rejected requests with an invalid length
+		if (length != null && Long.parseLong(length) > MAX_BODY_BYTES) {
+			throw new RequestTooLargeException(BODY_TOO_LARGE);
+		}
+		return new BoundedInputStream(exchange.getRequestBody());
+	}
+	
+	private void send(HttpExchange exchange, int status, Object body) throws IOException {
+		byte[] bytes = objectMapper.writeValueAsBytes(body);
+		exchange.getResponseHeaders().set("Content-Type", JSON);
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+	
+	private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+		send(exchange, status, new ErrorBody(message));
+	}
+	
+	private void sendMethodNotAllowed(HttpExchange exchange, String allowed) throws IOException {
+		exchange.getResponseHeaders().set("Allow", allowed);
+		sendError(exchange, 405, "Method not allowed");
+	}
+	
+	private static Map<String, String> parseQuery(String query) {
+		Map<String, String> parameters = new LinkedHashMap<>();
+		if (query == null) {
+			return parameters;
+		}
+		for (String parameter : query.split("&")) {
+			int equals = parameter.indexOf('=');
+			if (equals > 0) {
+				parameters.put(URLDecoder.decode(parameter.substring(0, equals), StandardCharsets.UTF_8),
+						URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8));
+			}
+		}
+		return parameters;
+	}
+	
+	/**
+	 * Creates a virtual thread per task executor if the JVM has virtual threads. They need Java 21, while the
+	 * application is built for Java 17, so the executor is looked up at run time.
+	 */
+	private static ExecutorService newExecutor(int threads) {
+		try {
+			ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			logger.debug("Handling requests on virtual threads.");
+			return executor;
+		} catch (ReflectiveOperationException e) {
+			logger.info("Virtual threads not available, handling requests on {} threads.", threads);
+			AtomicInteger count = new AtomicInteger();
+			return Executors.newFixedThreadPool(threads, task -> {
+				Thread thread = new Thread(task, "vocabulary-http-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+	
+	/**
+	 * A request body that ends after {@value #MAX_BODY_BYTES} bytes, for when its length is not known in advance.
+	 */
+	private static final class BoundedInputStream extends FilterInputStream {
+		private long remaining = MAX_BODY_BYTES;
+		
+		BoundedInputStream(InputStream in) {
+			super(in);
+		}
+		
+		/** {@inheritDoc} */
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				consume(1);
+			}
+			return b;
+		}
+		
+		/** {@inheritDoc} */
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			// One byte more than allowed tells a body of exactly the allowed size from a larger one
+			int read = super.read(b, off, (int) Math.min(len, remaining + 1));
+			if (read > 0) {
+				consume(read);
+			}
+			return read;
+		}
+		
+		/**
+		 * Leaves the request body open, so that what is left of a body too large can still be discarded. It is closed
+		 * with the exchange.
+		 */
+		@Override
+		public void close() {
+		}
+		
+		private void consume(int bytes) throws RequestTooLargeException {
+			remaining -= bytes;
+			if (remaining < 0) {
+				throw new RequestTooLargeException(BODY_TOO_LARGE);
+			}
+		}
+	}
+	
+	/**
+	 * Thrown when a request body is larger than {@value #MAX_BODY_BYTES} bytes, or asks for more than the server does
+	 * at once.
+	 */
+	private static final class RequestTooLargeException extends IOException {
+		RequestTooLargeException(String message) {
+			super(message);
+		}
+	}
+	
+	/**
+	 * Body of a single word.
+	 */
+	private record WordBody(String word, String meaning) {
+	}
+	
+	/**
+	 * Body of an error response.
+	 */
+	private record ErrorBody(String error) {
+	}
+}
@@ -0,0 +1,19 @@
+package org.nokia.vocabulary.services;
+
+/**
+ * What to do when a word being added in bulk is already in the vocabulary.
+ */
+public enum ConflictPolicy {
+	/**
+	 * Replace the stored meaning.
+	 */
+	OVERWRITE,
+	/**
+	 * Keep the stored meaning and continue with the next word.
+	 */
+	SKIP,
+	/**
+	 * Keep the stored meaning and stop; the words added before it are kept.
+	 */
+	FAIL
+}
@@ -0,0 +1,123 @@
+package org.nokia.vocabulary.services;
+
+import java.nio.file.Path;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An export of a vocabulary snapshot to a file, running in the background.
+ */
+public final class ExportJob {
+	/**
+	 * The states an export goes through.
+	 */
+	public enum State {
+		QUEUED, RUNNING, DONE, FAILED, CANCELLED
+	}
+	
+	private final int id;
+	private final Path file;
+	private final long total;
+	private final AtomicLong written = new AtomicLong();
+	private volatile State state = State.QUEUED;
+	private volatile String error;
+	private volatile long startNanos;
+	private volatile long endNanos;
+	private volatile Future<?> future;
+	
+	ExportJob(int id, Path file, long total) {
+		this.id = id;
+		this.file = file;
+		this.total = total;
+	}
+	
+	/**
+	 * @return The number identifying the export within this session.
+	 */
+	public int id() {
+		return id;
+	}
+	
+	/**
+	 * @return The file being written.
+	 */
+	public Path file() {
+		return file;
+	}
+	
+	/**
+	 * @return The number of words in the exported snapshot.
+	 */
+	public long total() {
+		return total;
+	}
+	
+	/**
+	 * @return The number of words written so far.
+	 */
+	public long written() {
+		return written.get();
+	}
+	
+	/**
+	 * @return The current state.
+	 */
+	public State state() {
+		return state;
+	}
+	
+	/**
+	 * @return Why the export failed, or null if it did not.
+	 */
+	public String error() {
+		return error;
+	}
+	
+	/**
+	 * @return The time spent writing so far, or in total once finished, in seconds.
+	 */
+	public double elapsedSeconds() {
+		long start = startNanos;
+		if (start == 0) {
+			return 0;
+		}
+		long end = endNanos;
+		return ((end == 0 ? System.nanoTime() : end) - start) / 1e9;
+	}
+	
+	/**
+	 * Requests the export to stop. A cancelled export leaves no partial file behind.
+	 *
+	 * @return False if the export had already finished.
+	 */
+	public boolean cancel() {
+		Future<?> running = future;
+		if (running == null || !running.cancel(true)) {
+			return false;
+		}
+		if (state == State.QUEUED) {
+			// Never started, so it will not report its own cancellation
+			finished(State.CANCELLED, null);
+		}
+		return true;
+	}
+	
+	void setFuture(Future<?> future) {
+		this.future = future;
+	}
+	
+	void started() {
+		startNanos = System.nanoTime();
+		state = State.RUNNING;
+	}
+	
+	void progress(long count) {
+		written.set(count);
+	}
+	
+	void finished(State state, String error) {
+		endNanos = System.nanoTime();
+		this.error = error;
+		this.state = state;
+	}
+}
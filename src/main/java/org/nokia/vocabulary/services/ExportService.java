@@ -0,0 +1,31 @@
+package org.nokia.vocabulary.services;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Service interface for exporting the vocabulary to files in the background.
+ */
+public interface ExportService {
+	
+	/**
+	 * Starts exporting a snapshot of the vocabulary as it is now. Exports run one after another on a background thread,
+	 * so the call returns immediately.
+	 *
+	 * @param file The file to write; its extension selects the format.
+	 * @return The export, for following its progress or cancelling it.
+	 * @throws IllegalArgumentException If the file format is not supported.
+	 */
+	ExportJob startExport(Path file);
+	
+	/**
+	 * @return All exports started in this session, oldest first.
+	 */
+	List<ExportJob> getExports();
+	
+	/**
+	 * @param id The number of an export.
+	 * @return The export, or null if there is none with that number.
+	 */
+	ExportJob getExport(int id);
+}
@@ -0,0 +1,101 @@
+package org.nokia.vocabulary.services;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nokia.vocabulary.file.EntryFormat;
+import org.nokia.vocabulary.file.FileHandler;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Implementation of the ExportService interface.
+ * <p>
+ * Each export writes an immutable snapshot of the store, so it sees the vocabulary exactly as it was when the export
+ * was started, never blocks changes, and needs no memory beyond its write buffers however large the vocabulary is.
+ */
+@Service
+public class ExportServiceImpl implements ExportService {
+	private static final Logger logger = LogManager.getLogger(ExportServiceImpl.class);
+	private final VocabularyService vocabularyService;
+	private final FileHandler fileHandler;
+	private final List<ExportJob> exports = new CopyOnWriteArrayList<>();
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "vocabulary-export");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	/**
+	 * Constructs an ExportServiceImpl.
+	 *
+	 * @param vocabularyService The vocabulary to export.
+	 * @param fileHandler       Writes the export files.
+	 */
+	public ExportServiceImpl(VocabularyService vocabularyService, FileHandler fileHandler) {
+		this.vocabularyService = vocabularyService;
+		this.fileHandler = fileHandler;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized ExportJob startExport(Path file) {
+		EntryFormat.of(file);
+		Map<String, String> snapshot = vocabularyService.getAllWords();
+		ExportJob job = new ExportJob(exports.size() + 1, file, snapshot.size());
+		exports.add(job);
+		job.setFuture(executor.submit(() -> export(job, snapshot)));
+		logger.debug("Queued export {} of {} words to {}.", job.id(), job.total(), file);
+		return job;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<ExportJob> getExports() {
+		return List.copyOf(exports);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ExportJob getExport(int id) {
+		return id >= 1 && id <= exports.size() ? exports.get(id - 1) : null;
+	}
+	
+	/**
+	 * Cancels running exports when the application shuts down.
+	 */
+	@PreDestroy
+	public void close() {
+		executor.shutdownNow();
+	}
+	
+	private void export(ExportJob job, Map<String, String> snapshot) {
+		job.started();
+		try {
+			fileHandler.exportEntries(job.file(), snapshot, job::progress);
+			job.finished(ExportJob.State.DONE, null);
+			logger.debug("Export {} to {} finished.", job.id(), job.file());
+		} catch (InterruptedIOException | ClosedByInterruptException e) {
+			job.finished(ExportJob.State.CANCELLED, null);
+			logger.debug("Export {} to {} cancelled.", job.id(), job.file());
+		} catch (IOException e) {
+			job.finished(ExportJob.State.FAILED, e.getMessage());
+			logger.error("Error exporting to {}: {}", job.file(), e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package org.nokia.vocabulary.services;
+
+/**
+ * Outcome of adding words in bulk.
+ *
+ * @param added    The number of new words.
+ * @param updated  The number of existing words whose meaning was replaced.
+ * @param skipped  The number of existing words that were left unchanged.
+ * @param conflict The existing word that stopped a {@link ConflictPolicy#FAIL} import, or null if none did.
+ */
+public record ImportResult(long added, long updated, long skipped, String conflict) {
+	/**
+	 * The result of adding no words.
+	 */
+	public static final ImportResult EMPTY = new ImportResult(0, 0, 0, null);
+	
+	/**
+	 * @return The total number of words processed.
+	 */
+	public long total() {
+		return added + updated + skipped;
+	}
+	
+	/**
+	 * @return The combined result of this and a following bulk operation.
+	 */
+	public ImportResult plus(ImportResult next) {
+		return new ImportResult(added + next.added, updated + next.updated, skipped + next.skipped,
+				conflict != null ? conflict : next.conflict);
+	}
+}
@@ -0,0 +1,286 @@
+package org.nokia.vocabulary.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.nokia.vocabulary.metrics.VocabularyMetrics;
+import org.nokia.vocabulary.search.FuzzyMatcher;
+import org.nokia.vocabulary.search.MeaningIndex;
+import org.nokia.vocabulary.store.VersionHistory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vocabulary service that records the latency of every call to the service it wraps but adding a single word, and
+ * whether searched words were found. It is the service injected everywhere else, so every shell command is measured.
+ * <p>
+ * Methods returning views of a snapshot are timed up to the creation of the view; iterating it is not included.
+ * Searching for a word allocates nothing, so lookups stay garbage-free with metrics enabled.
+ */
+@Service
+@Primary
+public class MeteredVocabularyService implements VocabularyService {
+	private static final String METHOD = "method";
+	private final VocabularyService delegate;
+	private final Timer getAllWords;
+	private final Timer addOrUpdateWords;
+	private final Timer importWords;
+	private final Timer searchWord;
+	private final Timer searchWords;
+	private final Timer searchWordIgnoringCase;
+	private final Timer getWordsInCollationOrder;
+	private final Timer currentVersion;
+	private final Timer searchWordAsOf;
+	private final Timer getHistory;
+	private final Timer getWordsInRange;
+	private final Timer findWordsByPrefix;
+	private final Timer findSimilarWords;
+	private final Timer findWordsByMeaning;
+	private final Timer removeWord;
+	private final Timer removeWords;
+	private final Timer saveVocabularyToFile;
+	private final Timer saveSnapshotIfChanged;
+	private final Counter hits;
+	private final Counter misses;
+	
+	/**
+	 * Constructs a MeteredVocabularyService.
+	 *
+	 * @param delegate The service doing the work; in the application, the one routing to the current vocabulary.
+	 * @param registry The registry to record the metrics in.
+	 */
+	public MeteredVocabularyService(@Qualifier("namespacedVocabularyService") VocabularyService delegate, MeterRegistry registry) {
+		this.delegate = delegate;
+		this.getAllWords = timer(registry, "getAllWords");
+		this.addOrUpdateWords = timer(registry, "addOrUpdateWords");
+		this.importWords = timer(registry, "importWords");
+		this.searchWord = timer(registry, "searchWord");
+		this.searchWords = timer(registry, "searchWords");
+		this.searchWordIgnoringCase = timer(registry, "searchWordIgnoringCase");
+		this.getWordsInCollationOrder = timer(registry, "getWordsInCollationOrder");
+		this.currentVersion = timer(registry, "currentVersion");
+		this.searchWordAsOf = timer(registry, "searchWordAsOf");
+		this.getHistory = timer(registry, "getHistory");
+		this.getWordsInRange = timer(registry, "getWordsInRange");
+		this.findWordsByPrefix = timer(registry, "findWordsByPrefix");
+		this.findSimilarWords = timer(registry, "findSimilarWords");
+		this.findWordsByMeaning = timer(registry, "findWordsByMeaning");
+		this.removeWord = timer(registry, "removeWord");
+		this.removeWords = timer(registry, "removeWords");
+		this.saveVocabularyToFile = timer(registry, "saveVocabularyToFile");
+		this.saveSnapshotIfChanged = timer(registry, "saveSnapshotIfChanged");
+		this.hits = Counter.builder(VocabularyMetrics.LOOKUPS).tag("result", "hit").register(registry);
+		this.misses = Counter.builder(VocabularyMetrics.LOOKUPS).tag("result", "miss").register(registry);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<String, String> getAllWords() {
+		return getAllWords.record(delegate::getAllWords);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Not timed here: replacing a word waits for the user to confirm, so the vocabulary times only writing the word,
+	 * under the same name.
+	 */
+	@Override
+	public String addOrUpdateWord(String word, String meaning) {
+		return delegate.addOrUpdateWord(word, meaning);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ImportResult addOrUpdateWords(List<Map.Entry<String, String>> words, ConflictPolicy policy) {
+		return addOrUpdateWords.record(() -> delegate.addOrUpdateWords(words, policy));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ImportResult addOrUpdateWords(Map<String, String> words, ConflictPolicy policy) {
+		return addOrUpdateWords.record(() -> delegate.addOrUpdateWords(words, policy));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ImportResult importWords(Path file, ConflictPolicy policy) throws IOException {
+		Timer.Sample sample = Timer.start();
+		try {
+			return delegate.importWords(file, policy);
+		} finally {
+			sample.stop(importWords);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String searchWord(String word) {
+		// Timed by hand, as a lambda capturing the word would be allocated on every lookup
+		long start = System.nanoTime();
+		String meaning = delegate.searchWord(word);
+		searchWord.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		(meaning != null ? hits : misses).increment();
+		return meaning;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Every distinct word counts as one lookup.
+	 */
+	@Override
+	public Map<String, String> searchWords(Collection<String> words) {
+		Map<String, String> meanings = searchWords.record(() -> delegate.searchWords(words));
+		long found = meanings.values().stream().filter(Objects::nonNull).count();
+		hits.increment(found);
+		misses.increment(meanings.size() - found);
+		return meanings;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<String, String> searchWordIgnoringCase(String word) {
+		Map<String, String> meanings = searchWordIgnoringCase.record(() -> delegate.searchWordIgnoringCase(word));
+		(meanings.isEmpty() ? misses : hits).increment();
+		return meanings;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<String, String> getWordsInCollationOrder(String from, int limit) {
+		return getWordsInCollationOrder.record(() -> delegate.getWordsInCollationOrder(from, limit));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long currentVersion() {
+		return currentVersion.record(delegate::currentVersion);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String searchWordAsOf(String word, long version) {
+		return searchWordAsOf.record(() -> delegate.searchWordAsOf(word, version));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<VersionHistory.Version> getHistory(String word) {
+		return getHistory.record(() -> delegate.getHistory(word));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void addChangeListener(VocabularyChangeListener listener) {
+		delegate.addChangeListener(listener);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeChangeListener(VocabularyChangeListener listener) {
+		delegate.removeChangeListener(listener);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SortedMap<String, String> getWordsInRange(String from, String to) {
+		return getWordsInRange.record(() -> delegate.getWordsInRange(from, to));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SortedMap<String, String> findWordsByPrefix(String prefix) {
+		return findWordsByPrefix.record(() -> delegate.findWordsByPrefix(prefix));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<FuzzyMatcher.Match> findSimilarWords(String word, int maxDistance, int limit) {
+		return findSimilarWords.record(() -> delegate.findSimilarWords(word, maxDistance, limit));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<MeaningIndex.Hit> findWordsByMeaning(String query, boolean matchAll, int limit) {
+		return findWordsByMeaning.record(() -> delegate.findWordsByMeaning(query, matchAll, limit));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean removeWord(String word) {
+		return removeWord.record(() -> delegate.removeWord(word));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public RemovalResult removeWords(Collection<String> words) {
+		return removeWords.record(() -> delegate.removeWords(words));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void saveVocabularyToFile() {
+		saveVocabularyToFile.record(delegate::saveVocabularyToFile);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean saveSnapshotIfChanged() {
+		return saveSnapshotIfChanged.record(delegate::saveSnapshotIfChanged);
+	}
+	
+	private static Timer timer(MeterRegistry registry, String method) {
+		return VocabularyMetrics.timer(registry, VocabularyMetrics.SERVICE_CALLS, METHOD, method);
+	}
+}
@@ -0,0 +1,54 @@
+package org.nokia.vocabulary.services;
+
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logs words that were not found at most once per interval, together with the number of misses left out since the
+ * previous message. A workload of mostly misses thus costs a counter increment per lookup instead of a log event, and
+ * nothing is allocated unless a message is actually logged.
+ */
+final class MissLogger {
+	private final Logger logger;
+	private final long intervalNanos;
+	// The earliest System.nanoTime() at which the next miss is logged
+	private final AtomicLong nextLogTime;
+	private final LongAdder suppressed = new LongAdder();
+	
+	/**
+	 * @param logger   The logger to write the misses to, at WARN level.
+	 * @param interval The shortest time between two messages.
+	 * @param unit     The unit of the interval.
+	 */
+	MissLogger(Logger logger, long interval, TimeUnit unit) {
+		this.logger = logger;
+		this.intervalNanos = unit.toNanos(interval);
+		this.nextLogTime = new AtomicLong(System.nanoTime());
+	}
+	
+	/**
+	 * Records a miss, logging it if no miss was logged within the interval.
+	 *
+	 * @param word The word that was not found.
+	 */
+	void miss(String word) {
+		if (!logger.isWarnEnabled()) {
+			return;
+		}
+		long now = System.nanoTime();
+		long next = nextLogTime.get();
+		if (now - next < 0 || !nextLogTime.compareAndSet(next, now + intervalNanos)) {
+			suppressed.increment();
+			return;
+		}
+		long skipped = suppressed.sumThenReset();
+		if (skipped == 0) {
+			logger.warn("Word not found: {}", word);
+		} else {
+			logger.warn("Word not found: {} ({} more misses not logged)", word, skipped);
+		}
+	}
+}
@@ -0,0 +1,512 @@
+package org.nokia.vocabulary.services;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nokia.vocabulary.file.FileHandler;
+import org.nokia.vocabulary.file.WriteAheadLog;
+import org.nokia.vocabulary.metrics.VocabularyMetrics;
+import org.nokia.vocabulary.search.FuzzyMatcher;
+import org.nokia.vocabulary.search.MeaningIndex;
+import org.nokia.vocabulary.store.VersionHistory;
+import org.nokia.vocabulary.store.VocabularyStore;
+import org.nokia.vocabulary.store.VocabularyStoreFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Vocabulary service holding several named vocabularies, each a shard with its own store, JSON file, write-ahead log
+ * and write lock. Calls are routed to the current vocabulary, which the shell can switch between, so that every other
+ * component works on whichever vocabulary is selected without knowing about the others.
+ * <p>
+ * The default vocabulary is the one kept in {@code output.file.path}. Named vocabularies are kept in
+ * {@code vocabulary.namespaces.directory} as {@code <name>.json} with their logs next to them, and are found there and
+ * loaded in parallel at startup. Saving and snapshots cover every vocabulary, so no change is lost by switching.
+ */
+@Service
+public class NamespacedVocabularyService implements VocabularyService {
+	public static final String DEFAULT_NAME = "default";
+	private static final Logger logger = LogManager.getLogger(NamespacedVocabularyService.class);
+	// Names become file names, so they are kept to characters that are safe on every file system
+	private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+	private static final String JSON_SUFFIX = ".json";
+	private static final String LOG_SUFFIX = ".json.wal";
+	private static final String DICTIONARY_SUFFIX = ".dict";
+	private final VocabularyServiceImpl defaultVocabulary;
+	private final FileHandler fileHandler;
+	private final WriteAheadLog writeAheadLog;
+	private final VocabularyStoreFactory storeFactory;
+	private final MeterRegistry meterRegistry;
+	private final Path directory;
+	// Sorted by name, so that vocabularies are listed and searched in a stable order
+	private final Map<String, Shard> shards = new ConcurrentSkipListMap<>();
+	private final ExecutorService lookupPool;
+	private volatile Shard current;
+	// Registered with every vocabulary, including the ones created later
+	private final List<VocabularyChangeListener> listeners = new CopyOnWriteArrayList<>();
+	
+	/**
+	 * A named vocabulary with the files it is kept in and the meters of its store.
+	 */
+	private record Shard(String name, VocabularyServiceImpl service, WriteAheadLog writeAheadLog, List<Path> files,
+						 List<Meter> meters) {
+	}
+	
+	/**
+	 * One vocabulary as listed by {@link #listVocabularies()}.
+	 *
+	 * @param name    The name of the vocabulary.
+	 * @param words   The number of words stored so far.
+	 * @param loaded  False while the vocabulary is still being loaded.
+	 * @param current True for the vocabulary calls are routed to.
+	 */
+	public record VocabularyInfo(String name, int words, boolean loaded, boolean current) {
+	}
+	
+	/**
+	 * Constructs a NamespacedVocabularyService and starts loading the named vocabularies found in the directory.
+	 *
+	 * @param defaultVocabulary The default vocabulary.
+	 * @param fileHandler       The file handler of the default vocabulary, whose settings the others share.
+	 * @param writeAheadLog     The write-ahead log of the default vocabulary, whose settings the others share.
+	 * @param storeFactory      Creates the stores of the named vocabularies.
+	 * @param meterRegistry     The registry the stores of the named vocabularies are metered in, tagged with their names.
+	 * @param directory         The directory of the named vocabularies.
+	 * @param loadInBackground  Whether to return at once and load the named vocabularies on background threads.
+	 * @param lookupThreads     The threads searching all vocabularies at once; 0 for one per processor.
+	 * @throws IOException If the directory cannot be listed.
+	 */
+	public NamespacedVocabularyService(VocabularyServiceImpl defaultVocabulary, FileHandler fileHandler, WriteAheadLog writeAheadLog,
+									   VocabularyStoreFactory storeFactory, MeterRegistry meterRegistry,
+									   @Value("${vocabulary.namespaces.directory:vocabularies}") Path directory,
+									   @Value("${vocabulary.load.background:true}") boolean loadInBackground,
+									   @Value("${vocabulary.namespaces.lookup-threads:0}") int lookupThreads) throws IOException {
+		this.defaultVocabulary = defaultVocabulary;
+		this.fileHandler = fileHandler;
+		this.writeAheadLog = writeAheadLog;
+		this.storeFactory = storeFactory;
+		this.meterRegistry = meterRegistry;
+		this.directory = directory;
+		this.current = new Shard(DEFAULT_NAME, defaultVocabulary, writeAheadLog, List.of(), List.of());
+		shards.put(DEFAULT_NAME, current);
+		int processors = Runtime.getRuntime().availableProcessors();
+		this.lookupPool = Executors.newFixedThreadPool(lookupThreads > 0 ? lookupThreads : processors, daemonThreads("vocabulary-lookup"));
+		List<String> names = findVocabularies();
+		if (names.isEmpty()) {
+			return;
+		}
+		// Loading is bound by the processor, so more loaders than processors would only compete for them
+		ExecutorService loaders = Executors.newFixedThreadPool(Math.min(processors, names.size()), daemonThreads("vocabulary-loader"));
+		try {
+			for (String name : names) {
+				shards.put(name, open(name, loaders));
+			}
+		} finally {
+			// The loaders finish the queued loads, then exit
+			loaders.shutdown();
+		}
+		if (!loadInBackground) {
+			shards.values().forEach(shard -> shard.service().awaitLoaded());
+		}
+		logger.info("Loading {} named vocabularies from {}.", names.size(), directory);
+	}
+	
+	/**
+	 * @return The name of the vocabulary calls are routed to.
+	 */
+	public String currentVocabulary() {
+		return current.name();
+	}
+	
+	/**
+	 * Lists the vocabularies, without waiting for those still being loaded.
+	 *
+	 * @return The vocabularies sorted by name.
+	 */
+	public List<VocabularyInfo> listVocabularies() {
+		Shard selected = current;
+		List<VocabularyInfo> vocabularies = new ArrayList<>(shards.size());
+		for (Shard shard : shards.values()) {
+			vocabularies.add(new VocabularyInfo(shard.name(), shard.service().size(), shard.service().isLoaded(), shard == selected));
+		}
+		return vocabularies;
+	}
+	
+	/**
+	 * Creates an empty vocabulary. It is kept in its own files from the first change on.
+	 *
+	 * @param name The name of the vocabulary: letters, digits, '-' and '_'.
+	 * @return True if the vocabulary was created, false if one with that name exists.
+	 * @throws IOException              If the directory of the vocabularies cannot be created.
+	 * @throws IllegalArgumentException If the name is not valid.
+	 */
+	public synchronized boolean createVocabulary(String name) throws IOException {
+		checkName(name);
+		if (shards.containsKey(name)) {
+			return false;
+		}
+		Files.createDirectories(directory);
+		shards.put(name, open(name, null));
+		logger.info("Created vocabulary {}.", name);
+		return true;
+	}
+	
+	/**
+	 * Routes all further calls to another vocabulary.
+	 *
+	 * @param name The name of the vocabulary.
+	 * @return True if switched, false if there is no vocabulary with that name.
+	 */
+	public boolean useVocabulary(String name) {
+		Shard shard = shards.get(name);
+		if (shard == null) {
+			return false;
+		}
+		current = shard;
+		logger.debug("Switched to vocabulary {}.", name);
+		return true;
+	}
+	
+	/**
+	 * Drops a named vocabulary and deletes its files. If it is the current vocabulary, calls are routed to the default
+	 * vocabulary again. The files are only deleted once the vocabulary has been loaded and the changes under way have
+	 * been made; changes still routed to it after that are refused, so that its files are not created again.
+	 *
+	 * @param name The name of the vocabulary.
+	 * @return True if the vocabulary was dropped, false if there is no vocabulary with that name.
+	 * @throws IOException              If the files of the vocabulary cannot be deleted.
+	 * @throws IllegalArgumentException If asked to drop the default vocabulary.
+	 */
+	public synchronized boolean dropVocabulary(String name) throws IOException {
+		if (DEFAULT_NAME.equals(name)) {
+			throw new IllegalArgumentException("The default vocabulary cannot be dropped.");
+		}
+		Shard shard = shards.remove(name);
+		if (shard == null) {
+			return false;
+		}
+		if (current == shard) {
+			current = shards.get(DEFAULT_NAME);
+		}
+		// Waits for the loader and the changes under way, which may still write to the files
+		shard.service().close();
+		shard.writeAheadLog().close();
+		shard.meters().forEach(meterRegistry::remove);
+		for (Path file : shard.files()) {
+			Files.deleteIfExists(file);
+		}
+		logger.info("Dropped vocabulary {}.", name);
+		return true;
+	}
+	
+	/**
+	 * Searches for a word in every vocabulary at once. The lookups are spread over a pool of threads, with the calling
+	 * thread taking one of them.
+	 *
+	 * @param word The word to search for.
+	 * @return The names of the vocabularies having the word with its meaning there, sorted by name.
+	 */
+	public Map<String, String> searchAllVocabularies(String word) {
+		List<Shard> searched = List.copyOf(shards.values());
+		List<CompletableFuture<String>> lookups = new ArrayList<>(searched.size());
+		for (int i = 1; i < searched.size(); i++) {
+			VocabularyServiceImpl service = searched.get(i).service();
+			lookups.add(CompletableFuture.supplyAsync(() -> service.searchWord(word), lookupPool));
+		}
+		Map<String, String> meanings = new LinkedHashMap<>();
+		String meaning = searched.get(0).service().searchWord(word);
+		for (int i = 0; i < searched.size(); i++) {
+			if (i > 0) {
+				meaning = lookups.get(i - 1).join();
+			}
+			if (meaning != null) {
+				meanings.put(searched.get(i).name(), meaning);
+			}
+		}
+		return meanings;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<String, String> getAllWords() {
+		return current.service().getAllWords();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String addOrUpdateWord(String word, String meaning) {
+		return current.service().addOrUpdateWord(word, meaning);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ImportResult addOrUpdateWords(List<Map.Entry<String, String>> words, ConflictPolicy policy) {
+		return current.service().addOrUpdateWords(words, policy);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ImportResult addOrUpdateWords(Map<String, String> words, ConflictPolicy policy) {
+		return current.service().addOrUpdateWords(words, policy);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ImportResult importWords(Path file, ConflictPolicy policy) throws IOException {
+		return current.service().importWords(file, policy);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String searchWord(String word) {
+		return current.service().searchWord(word);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<String, String> searchWords(Collection<String> words) {
+		return current.service().searchWords(words);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<String, String> searchWordIgnoringCase(String word) {
+		return current.service().searchWordIgnoringCase(word);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long currentVersion() {
+		return current.service().currentVersion();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String searchWordAsOf(String word, long version) {
+		return current.service().searchWordAsOf(word, version);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<VersionHistory.Version> getHistory(String word) {
+		return current.service().getHistory(word);
+	}
+	
+	/**
+	 * Registers a listener with every vocabulary, not only the current one.
+	 */
+	@Override
+	public synchronized void addChangeListener(VocabularyChangeListener listener) {
+		listeners.add(listener);
+		shards.values().forEach(shard -> shard.service().addChangeListener(listener));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void removeChangeListener(VocabularyChangeListener listener) {
+		listeners.remove(listener);
+		shards.values().forEach(shard -> shard.service().removeChangeListener(listener));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<String, String> getWordsInCollationOrder(String from, int limit) {
+		return current.service().getWordsInCollationOrder(from, limit);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SortedMap<String, String> getWordsInRange(String from, String to) {
+		return current.service().getWordsInRange(from, to);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SortedMap<String, String> findWordsByPrefix(String prefix) {
+		return current.service().findWordsByPrefix(prefix);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<FuzzyMatcher.Match> findSimilarWords(String word, int maxDistance, int limit) {
+		return current.service().findSimilarWords(word, maxDistance, limit);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<MeaningIndex.Hit> findWordsByMeaning(String query, boolean matchAll, int limit) {
+		return current.service().findWordsByMeaning(query, matchAll, limit);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean removeWord(String word) {
+		return current.service().removeWord(word);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public RemovalResult removeWords(Collection<String> words) {
+		return current.service().removeWords(words);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Saves every vocabulary, not only the current one.
+	 */
+	@Override
+	public void saveVocabularyToFile() {
+		for (Shard shard : shards.values()) {
+			shard.service().saveVocabularyToFile();
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Snapshots every vocabulary that changed, not only the current one.
+	 */
+	@Override
+	public boolean saveSnapshotIfChanged() {
+		boolean saved = false;
+		for (Shard shard : shards.values()) {
+			saved |= shard.service().saveSnapshotIfChanged();
+		}
+		return saved;
+	}
+	
+	/**
+	 * Stops the lookup threads and closes the named vocabularies and their logs; the default vocabulary and its log are
+	 * closed with it.
+	 */
+	@PreDestroy
+	public void close() {
+		lookupPool.shutdownNow();
+		for (Shard shard : shards.values()) {
+			if (shard.service() != defaultVocabulary) {
+				shard.service().close();
+				shard.writeAheadLog().close();
+			}
+		}
+	}
+	
+	/**
+	 * Creates the shard of a named vocabulary, registers the meters of its store and loads whatever its files hold.
+	 *
+	 * @param loader The executor to load the vocabulary with, or null to load it before returning.
+	 */
+	private Shard open(String name, ExecutorService loader) throws IOException {
+		Path json = directory.resolve(name + JSON_SUFFIX);
+		Path log = directory.resolve(name + LOG_SUFFIX);
+		Path dictionary = directory.resolve(name + DICTIONARY_SUFFIX);
+		WriteAheadLog shardLog = writeAheadLog.forFile(log);
+		VocabularyStore store = storeFactory.create(json, dictionary);
+		VocabularyServiceImpl service = defaultVocabulary.forVocabulary(fileHandler.forFile(json), shardLog, store, loader);
+		listeners.forEach(service::addChangeListener);
+		List<Path> files = List.of(json, json.resolveSibling(json.getFileName() + FileHandler.VERSION_SUFFIX), log,
+				log.resolveSibling(log.getFileName() + ".old"), log.resolveSibling(log.getFileName() + ".lock"), dictionary);
+		return new Shard(name, service, shardLog, files, VocabularyMetrics.registerStore(meterRegistry, store, name));
+	}
+	
+	/**
+	 * @return The names of the vocabularies with a JSON file, a write-ahead log or a dictionary in the directory. A
+	 * vocabulary that was never snapshotted has only its log, and one kept in a mapped store may have no JSON file.
+	 */
+	private List<String> findVocabularies() throws IOException {
+		if (!Files.isDirectory(directory)) {
+			return List.of();
+		}
+		TreeSet<String> names = new TreeSet<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (Path file : files) {
+				String fileName = file.getFileName().toString();
+				for (String suffix : List.of(JSON_SUFFIX, LOG_SUFFIX, DICTIONARY_SUFFIX)) {
+					String name = fileName.substring(0, Math.max(0, fileName.length() - suffix.length()));
+					if (fileName.endsWith(suffix) && NAME.matcher(name).matches() && !DEFAULT_NAME.equals(name)) {
+						names.add(name);
+					}
+				}
+			}
+		}
+		return List.copyOf(names);
+	}
+	
+	private static void checkName(String name) {
+		if (name == null || !NAME.matcher(name).matches()) {
+			throw new IllegalArgumentException("Vocabulary names consist of 1 to 64 letters, digits, '-' and '_': " + name);
+		}
+		if (DEFAULT_NAME.equals(name)) {
+			throw new IllegalArgumentException("The default vocabulary always exists.");
+		}
+	}
+	
+	private static ThreadFactory daemonThreads(String name) {
+		AtomicInteger count = new AtomicInteger();
+		return task -> {
+			Thread thread = new Thread(task, name + "-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+}
@@ -0,0 +1,12 @@
+package org.nokia.vocabulary.services;
+
+import java.util.List;
+
+/**
+ * Outcome of removing words in bulk.
+ *
+ * @param removed  The number of words removed.
+ * @param notFound The words that were not stored, in the order they were given.
+ */
+public record RemovalResult(long removed, List<String> notFound) {
+}
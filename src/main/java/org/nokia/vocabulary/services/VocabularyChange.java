@@ -0,0 +1,22 @@
+package org.nokia.vocabulary.services;
+
+/**
+ * A change of one word, as passed to {@link VocabularyChangeListener}s.
+ *
+ * @param type     Whether the word was added, updated or removed.
+ * @param word     The changed word.
+ * @param previous The meaning the word had, or null if it was added.
+ * @param meaning  The meaning the word has now, or null if it was removed.
+ * @param version  The version of the vocabulary the change is part of.
+ * @param remote   True if another process made the change and it was read from the shared write-ahead log.
+ */
+public record VocabularyChange(Type type, String word, String previous, String meaning, long version, boolean remote) {
+	/**
+	 * The kinds of change.
+	 */
+	public enum Type {
+		ADDED,
+		UPDATED,
+		REMOVED
+	}
+}
@@ -0,0 +1,15 @@
+package org.nokia.vocabulary.services;
+
+/**
+ * Receives every change made to a vocabulary, see {@link VocabularyService#addChangeListener}.
+ */
+@FunctionalInterface
+public interface VocabularyChangeListener {
+	/**
+	 * Called after a word was changed, on the thread that changed it and while further changes wait, so it should
+	 * return quickly. Changes are reported in the order they were applied.
+	 *
+	 * @param change The change.
+	 */
+	void onChange(VocabularyChange change);
+}
@@ -1,6 +1,16 @@
 package org.nokia.vocabulary.services;
 
+import org.nokia.vocabulary.search.FuzzyMatcher;
+import org.nokia.vocabulary.search.MeaningIndex;
+import org.nokia.vocabulary.store.VersionHistory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
 
 /**
  * Service interface for managing vocabulary operations.
@@ -10,7 +20,7 @@ public interface VocabularyService {
 	/**
 	 * Retrieves all stored words and their meanings.
 	 *
-	 * @return A map of words and their meanings.
+	 * @return An immutable, consistent snapshot of the words and their meanings, sorted by word.
 	 */
 	Map<String, String> getAllWords();
 	
@@ -20,9 +30,51 @@ public interface VocabularyService {
 	 * @param word    The word to add or update.
 	 * @param meaning The meaning of the word.
 	 * @return A confirmation message indicating whether the word was added or updated.
+	 * @throws UncheckedIOException If the change cannot be written to the write-ahead log; the vocabulary is then left
+	 *                              unchanged.
+	 * @throws IllegalStateException If the vocabulary has been closed.
 	 */
 	String addOrUpdateWord(String word, String meaning);
 	
+	/**
+	 * Adds words in bulk without asking about existing words. All words of one call are applied under a single
+	 * acquisition of the write lock, in list order.
+	 *
+	 * @param words  The words and their meanings.
+	 * @param policy What to do with words that are already stored, including words repeated within the list.
+	 * @return How many words were added, updated and skipped.
+	 * @throws UncheckedIOException If the changes cannot be written to the write-ahead log; the vocabulary is then left
+	 *                              unchanged.
+	 * @throws IllegalStateException If the vocabulary has been closed.
+	 */
+	ImportResult addOrUpdateWords(List<Map.Entry<String, String>> words, ConflictPolicy policy);
+	
+	/**
+	 * Adds words in bulk without asking about existing words, like {@link #addOrUpdateWords(List, ConflictPolicy)}
+	 * with the entries of a map in its iteration order.
+	 *
+	 * @param words  The words and their meanings.
+	 * @param policy What to do with words that are already stored.
+	 * @return How many words were added, updated and skipped.
+	 * @throws UncheckedIOException If the changes cannot be written to the write-ahead log; the vocabulary is then left
+	 *                              unchanged.
+	 * @throws IllegalStateException If the vocabulary has been closed.
+	 */
+	ImportResult addOrUpdateWords(Map<String, String> words, ConflictPolicy policy);
+	
+	/**
+	 * Imports the words of a file in one of the {@link org.nokia.vocabulary.file.EntryFormat}s. The file is streamed and applied in batches, so it may be larger
+	 * than the available memory.
+	 *
+	 * @param file   The file to import; its extension selects the format.
+	 * @param policy What to do with words that are already stored.
+	 * @return How many words were added, updated and skipped.
+	 * @throws IOException              If the file cannot be read or is not valid in its format, or a batch cannot be
+	 *                                  written to the write-ahead log; the batches applied before are kept.
+	 * @throws IllegalArgumentException If the file format is not supported.
+	 */
+	ImportResult importWords(Path file, ConflictPolicy policy) throws IOException;
+	
 	/**
 	 * Searches for a word in the vocabulary.
 	 *
@@ -31,16 +83,153 @@ public interface VocabularyService {
 	 */
 	String searchWord(String word);
 	
+	/**
+	 * Searches for many words at once. All words are looked up in the same snapshot, so the result is consistent even
+	 * while the vocabulary is being changed.
+	 *
+	 * @param words The words to search for.
+	 * @return The meaning of each distinct word, or null for words that are not found, in the order they were given.
+	 */
+	Map<String, String> searchWords(Collection<String> words);
+	
+	/**
+	 * Searches for a word ignoring case. Words are compared in Unicode NFC after case folding, so "STRASSE" finds
+	 * "Straße", and also without accents if {@code vocabulary.collation.strip-accents} is set. Like an exact search,
+	 * this does not scan the vocabulary.
+	 *
+	 * @param word The word to search for, in any case.
+	 * @return The stored words matching it with their meanings, in collation order; empty if none match.
+	 */
+	Map<String, String> searchWordIgnoringCase(String word);
+	
+	/**
+	 * Lists words in the collation order of {@code vocabulary.collation.locale} rather than by code point, so that,
+	 * for example, "apple", "Banana" and "été" sort as in a dictionary.
+	 *
+	 * @param from  The word to start from; the first word listed is the first one that does not collate before it.
+	 *              Null to start at the first word.
+	 * @param limit The maximum number of words to list, or 0 to list all of them.
+	 * @return The words and their meanings, in collation order.
+	 */
+	Map<String, String> getWordsInCollationOrder(String from, int limit);
+	
+	/**
+	 * Returns the current version of the vocabulary. Every change of a word increases the version by one; words changed
+	 * together in one call share the version the call ends at. Versions continue across restarts from the one the last
+	 * snapshot was taken at, so a version is never reused for another state of the vocabulary, though after a crash
+	 * some may be skipped.
+	 *
+	 * @return The current version.
+	 */
+	long currentVersion();
+	
+	/**
+	 * Searches for a word as it was at an earlier version of the vocabulary. Only the most recent
+	 * {@code vocabulary.history.retention} versions are kept.
+	 *
+	 * @param word    The word to search for.
+	 * @param version The version to search at.
+	 * @return The meaning the word had at that version, or null if it was not stored then.
+	 * @throws IllegalArgumentException If the version is no longer kept or does not exist yet.
+	 */
+	String searchWordAsOf(String word, long version);
+	
+	/**
+	 * Lists the changes of a word within the kept versions.
+	 *
+	 * @param word The word to list the changes of.
+	 * @return The changes, newest first, with a null meaning where the word was removed. If the word was stored at the
+	 * oldest kept version, the last entry is its meaning then, with that version.
+	 */
+	List<VersionHistory.Version> getHistory(String word);
+	
+	/**
+	 * Registers a listener to be told about every change made to the vocabulary from now on, including changes other
+	 * processes made to a shared write-ahead log.
+	 *
+	 * @param listener The listener.
+	 */
+	void addChangeListener(VocabularyChangeListener listener);
+	
+	/**
+	 * Stops telling a listener about changes.
+	 *
+	 * @param listener The listener registered with {@link #addChangeListener}.
+	 */
+	void removeChangeListener(VocabularyChangeListener listener);
+	
+	/**
+	 * Returns the words in a range. Like {@link #findWordsByPrefix}, the result is a lazily evaluated view of a
+	 * snapshot, so it can be used to page through a vocabulary of any size.
+	 *
+	 * @param from The lowest word to include, or null to start at the first word.
+	 * @param to   The word to stop before, or null to continue to the last word.
+	 * @return An immutable view of the words in the range and their meanings, sorted by word.
+	 */
+	SortedMap<String, String> getWordsInRange(String from, String to);
+	
+	/**
+	 * Finds all words starting with the given prefix. The result is a lazily evaluated range of a snapshot, so creating
+	 * it costs O(log n) and iterating the first k words costs O(k) regardless of how many words match.
+	 *
+	 * @param prefix The prefix to look for; an empty prefix matches every word.
+	 * @return An immutable view of the matching words and their meanings, sorted by word.
+	 */
+	SortedMap<String, String> findWordsByPrefix(String prefix);
+	
+	/**
+	 * Finds the words that differ from the given word by at most a number of inserted, deleted or replaced characters.
+	 *
+	 * @param word        The possibly misspelled word.
+	 * @param maxDistance The largest edit distance of a match.
+	 * @param limit       The maximum number of matches to return.
+	 * @return The matches with their meanings, read from the same snapshot as the search, closest first.
+	 */
+	List<FuzzyMatcher.Match> findSimilarWords(String word, int maxDistance, int limit);
+	
+	/**
+	 * Finds words by the terms their meaning contains.
+	 *
+	 * @param query    The terms to look for, separated by spaces.
+	 * @param matchAll True to find only words whose meaning contains every term, false for any term.
+	 * @param limit    The maximum number of words to return.
+	 * @return The matching words with the meanings they matched by, most relevant first.
+	 */
+	List<MeaningIndex.Hit> findWordsByMeaning(String query, boolean matchAll, int limit);
+	
 	/**
 	 * Removes a word from the vocabulary.
 	 *
 	 * @param word The word to remove.
 	 * @return True if the word was removed, false if the word was not found.
+	 * @throws UncheckedIOException If the change cannot be written to the write-ahead log; the vocabulary is then left
+	 *                              unchanged.
+	 * @throws IllegalStateException If the vocabulary has been closed.
 	 */
 	boolean removeWord(String word);
 	
 	/**
-	 * Saves the vocabulary to a JSON file.
+	 * Removes many words at once. All removals are applied under a single acquisition of the write lock, become
+	 * visible to readers together, and are recorded with a single write to the write-ahead log.
+	 *
+	 * @param words The words to remove.
+	 * @return How many words were removed and which were not found.
+	 * @throws UncheckedIOException If the removals cannot be written to the write-ahead log; the vocabulary is then left
+	 *                              unchanged.
+	 * @throws IllegalStateException If the vocabulary has been closed.
+	 */
+	RemovalResult removeWords(Collection<String> words);
+	
+	/**
+	 * Makes all changes to the vocabulary durable. Depending on the configuration this either syncs the write-ahead
+	 * log or writes a full JSON snapshot of the vocabulary.
 	 */
 	void saveVocabularyToFile();
+	
+	/**
+	 * Writes a JSON snapshot of the vocabulary if it changed since the last snapshot.
+	 *
+	 * @return True if a snapshot was written.
+	 */
+	boolean saveSnapshotIfChanged();
 }
@@ -1,49 +1,198 @@
 package org.nokia.vocabulary.services;
 
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.nokia.vocabulary.file.FileHandler;
+import org.nokia.vocabulary.file.LogFollower;
+import org.nokia.vocabulary.file.WriteAheadLog;
+import org.nokia.vocabulary.metrics.VocabularyMetrics;
+import org.nokia.vocabulary.search.CollationIndex;
+import org.nokia.vocabulary.search.FuzzyMatcher;
+import org.nokia.vocabulary.search.MeaningIndex;
+import org.nokia.vocabulary.search.PrefixRange;
+import org.nokia.vocabulary.store.VersionHistory;
+import org.nokia.vocabulary.store.VocabularyStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
 
 /**
  * Implementation of the VocabularyService interface for managing vocabulary.
  * Supports adding, updating, searching, removing words, and saving the vocabulary to a JSON file.
+ * Every change is also appended to a write-ahead log, so edits survive a crash between saves.
+ * <p>
+ * The vocabulary can be loaded on a background thread, so that the application starts without waiting for a large
+ * file; every method waits for loading to finish before touching the vocabulary.
+ * <p>
+ * Reads go straight to the lock-free {@link VocabularyStore} and may come from any thread. Changes are serialized by a
+ * single lock so that the order of the write-ahead log matches the order in which they were applied.
+ * <p>
+ * Every change gets a version number. A {@link VersionHistory} keeps the meanings words had at the most recent
+ * versions, so that they can be looked up as of an earlier version, also without a lock.
+ * <p>
+ * Changes are reported to {@link VocabularyChangeListener}s. If the write-ahead log is shared with other processes,
+ * their changes are read from it as they are appended and applied like local ones, so that all processes converge on
+ * the same vocabulary without reloading it.
  */
 @Service
 public class VocabularyServiceImpl implements VocabularyService {
 	private static final Logger logger = LogManager.getLogger(VocabularyServiceImpl.class);
-	private final Map<String, String> vocabularyMap = new TreeMap<>();
+	// Number of imported words applied per acquisition of the write lock
+	private static final int IMPORT_BATCH_SIZE = 10_000;
+	// Number of loaded words merged into the store at once
+	private static final int LOAD_BATCH_SIZE = 1 << 16;
+	// Searches for missing words are logged at most once per second
+	private static final long MISS_LOG_INTERVAL_SECONDS = 1;
+	// Number of versions kept in the history unless configured otherwise
+	private static final int DEFAULT_HISTORY_RETENTION = 1000;
+	// Times writing a word added from the shell, without the wait for the user to confirm replacing it
+	private static final Timer ADD_TIMER = VocabularyMetrics.timer(Metrics.globalRegistry, VocabularyMetrics.SERVICE_CALLS,
+			"method", "addOrUpdateWord");
+	private final VocabularyStore vocabularyStore;
 	private final FileHandler fileHandler;
+	private final WriteAheadLog writeAheadLog;
+	// Serializes changes, the generation counter and write-ahead log appends
+	private final Lock writeLock = new ReentrantLock();
+	private final Lock snapshotLock = new ReentrantLock();
+	private long generation;
+	private volatile long savedGeneration;
+	// Built on the first search by meaning, then kept up to date under the write lock
+	private volatile MeaningIndex meaningIndex;
+	// Built on the first search ignoring case or listing in collation order, then kept up to date under the write lock
+	private volatile CollationIndex collationIndex;
+	private final Locale collationLocale;
+	private final boolean stripAccents;
+	// The version of the vocabulary is the generation; changes are recorded before they are applied to the store
+	private final VersionHistory history;
+	private final MissLogger missLogger = new MissLogger(logger, MISS_LOG_INTERVAL_SECONDS, TimeUnit.SECONDS);
+	// Released once the vocabulary has been loaded; ready is the cheap check before waiting on it
+	private final CountDownLatch loaded = new CountDownLatch(1);
+	private volatile boolean ready;
+	// Why the vocabulary could not be loaded completely; while set, nothing that would replace the files is written
+	private volatile String loadFailure;
+	private final List<VocabularyChangeListener> listeners = new CopyOnWriteArrayList<>();
+	// Started once loaded if the write-ahead log is shared
+	private volatile LogFollower logFollower;
+	// Set by close; changes and snapshots are refused from then on, so that the files can be deleted
+	private volatile boolean closed;
+	
+	/**
+	 * Constructs a VocabularyServiceImpl and loads the vocabulary before returning.
+	 *
+	 * @param fileHandler     The file handler used for loading and saving vocabulary data.
+	 * @param writeAheadLog   The log that records every change made since the last saved snapshot.
+	 * @param vocabularyStore The store holding the vocabulary in memory.
+	 */
+	public VocabularyServiceImpl(FileHandler fileHandler, WriteAheadLog writeAheadLog, VocabularyStore vocabularyStore) {
+		this(fileHandler, writeAheadLog, vocabularyStore, false, "", false, DEFAULT_HISTORY_RETENTION);
+	}
 	
 	/**
 	 * Constructs a VocabularyServiceImpl with a FileHandler for loading and saving vocabulary.
 	 *
-	 * @param fileHandler The file handler used for loading and saving vocabulary data.
+	 * @param fileHandler     The file handler used for loading and saving vocabulary data.
+	 * @param writeAheadLog   The log that records every change made since the last saved snapshot.
+	 * @param vocabularyStore The store holding the vocabulary in memory.
+	 * @param loadInBackground Whether to return at once and load the vocabulary on a background thread. Every method
+	 *                         then waits until loading has finished, so callers never see a partial vocabulary.
+	 * @param collationLocale  The language tag of the locale whose collation orders words listed in collation order,
+	 *                         or an empty string for the root locale.
+	 * @param stripAccents     Whether searches ignoring case also ignore accents.
+	 * @param historyRetention The number of versions whose meanings are kept for lookups as of an earlier version.
 	 */
-	public VocabularyServiceImpl(FileHandler fileHandler) {
+	@Autowired
+	public VocabularyServiceImpl(FileHandler fileHandler, WriteAheadLog writeAheadLog, VocabularyStore vocabularyStore,
+								 @Value("${vocabulary.load.background:true}") boolean loadInBackground,
+								 @Value("${vocabulary.collation.locale:}") String collationLocale,
+								 @Value("${vocabulary.collation.strip-accents:false}") boolean stripAccents,
+								 @Value("${vocabulary.history.retention:1000}") int historyRetention) {
+		this(fileHandler, writeAheadLog, vocabularyStore, loadInBackground ? VocabularyServiceImpl::startLoader : null,
+				collationLocale.isEmpty() ? Locale.ROOT : Locale.forLanguageTag(collationLocale), stripAccents, historyRetention);
+	}
+	
+	/**
+	 * Constructs a VocabularyServiceImpl that loads the vocabulary with the given executor, or before returning if it
+	 * is null.
+	 */
+	private VocabularyServiceImpl(FileHandler fileHandler, WriteAheadLog writeAheadLog, VocabularyStore vocabularyStore,
+								  Executor loader, Locale collationLocale, boolean stripAccents, int historyRetention) {
+		this.vocabularyStore = vocabularyStore;
 		this.fileHandler = fileHandler;
-		try {
-			// Load initial data from JSON file
-			Map<String, String> initialData = fileHandler.loadVocabulary();
-			vocabularyMap.putAll(initialData);
-			logger.debug("Loaded vocabulary with {} entries.", vocabularyMap.size());
-		} catch (IOException e) {
-			logger.error("Error loading vocabulary: {}", e.getMessage());
+		this.writeAheadLog = writeAheadLog;
+		this.collationLocale = collationLocale;
+		this.stripAccents = stripAccents;
+		this.history = new VersionHistory(historyRetention);
+		if (loader != null) {
+			loader.execute(this::load);
+		} else {
+			load();
 		}
 	}
 	
+	/**
+	 * Creates the service of another vocabulary, with the same settings as this one.
+	 *
+	 * @param fileHandler     The file handler of the other vocabulary's JSON file.
+	 * @param writeAheadLog   The other vocabulary's write-ahead log.
+	 * @param vocabularyStore The store to hold the other vocabulary.
+	 * @param loader          The executor to load the other vocabulary with, or null to load it before returning.
+	 * @return The new service.
+	 */
+	VocabularyServiceImpl forVocabulary(FileHandler fileHandler, WriteAheadLog writeAheadLog, VocabularyStore vocabularyStore,
+										Executor loader) {
+		return new VocabularyServiceImpl(fileHandler, writeAheadLog, vocabularyStore, loader, collationLocale, stripAccents,
+				history.retention());
+	}
+	
+	/**
+	 * @return The number of stored words, without waiting for loading to finish.
+	 */
+	int size() {
+		return vocabularyStore.size();
+	}
+	
+	/**
+	 * @return True once the vocabulary has been loaded.
+	 */
+	boolean isLoaded() {
+		return ready;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public Map<String, String> getAllWords() {
+		awaitLoaded();
 		logger.debug("Listing all words.");
-		return vocabularyMap;
+		return vocabularyStore.snapshot();
 	}
 	
 	/**
@@ -51,9 +200,11 @@ public class VocabularyServiceImpl implements VocabularyService {
 	 */
 	@Override
 	public String addOrUpdateWord(String word, String meaning) {
-		if (vocabularyMap.containsKey(word)) {
+		awaitLoaded();
+		String existing = vocabularyStore.get(word);
+		if (existing != null) {
 			// Word already exists, ask user if they want to replace it
-			System.out.println("The word - " + word + " - already exists with the meaning: " + vocabularyMap.get(word));
+			System.out.println("The word - " + word + " - already exists with the meaning: " + existing);
 			System.out.println("Do you want to replace it? (Y)es/(N)o");
 			
 			Scanner scanner = new Scanner(System.in);
@@ -61,7 +212,7 @@ public class VocabularyServiceImpl implements VocabularyService {
 			
 			// Allow both "yes", "y", "no", "n" (case-insensitive)
 			if (response.equalsIgnoreCase("yes") || response.equalsIgnoreCase("y")) {
-				vocabularyMap.put(word, meaning);
+				ADD_TIMER.record(() -> put(word, meaning));
 				logger.debug("Replaced word: {}", word);
 				return "Word '" + word + "' has been updated.";
 			} else if (response.equalsIgnoreCase("no") || response.equalsIgnoreCase("n")) {
@@ -73,32 +224,268 @@ public class VocabularyServiceImpl implements VocabularyService {
 			}
 		} else {
 			// Word does not exist, add it
-			vocabularyMap.put(word, meaning);
+			ADD_TIMER.record(() -> put(word, meaning));
 			logger.debug("Added new word: {}", word);
 			return "Word added: " + word;
 		}
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ImportResult addOrUpdateWords(List<Map.Entry<String, String>> words, ConflictPolicy policy) {
+		awaitLoaded();
+		long added = 0;
+		long updated = 0;
+		long skipped = 0;
+		String conflict = null;
+		// The words to apply, sorted so that the store can merge them in at once
+		SortedMap<String, String> pending = new TreeMap<>();
+		writeLock.lock();
+		try {
+			for (Map.Entry<String, String> entry : words) {
+				String word = entry.getKey();
+				if (!pending.containsKey(word) && vocabularyStore.get(word) == null) {
+					added++;
+				} else if (policy == ConflictPolicy.OVERWRITE) {
+					updated++;
+				} else if (policy == ConflictPolicy.SKIP) {
+					skipped++;
+					continue;
+				} else {
+					logger.warn("Stopped adding words at existing word: {}", word);
+					conflict = word;
+					break;
+				}
+				pending.put(word, entry.getValue());
+			}
+			applyPuts(pending);
+		} finally {
+			writeLock.unlock();
+		}
+		return new ImportResult(added, updated, skipped, conflict);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ImportResult addOrUpdateWords(Map<String, String> words, ConflictPolicy policy) {
+		return addOrUpdateWords(new ArrayList<>(words.entrySet()), policy);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ImportResult importWords(Path file, ConflictPolicy policy) throws IOException {
+		awaitLoaded();
+		List<Map.Entry<String, String>> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+		ImportResult[] result = {ImportResult.EMPTY};
+		try {
+			fileHandler.readEntries(file, (word, meaning) -> {
+				batch.add(Map.entry(word, meaning));
+				if (batch.size() == IMPORT_BATCH_SIZE) {
+					result[0] = result[0].plus(addOrUpdateWords(batch, policy));
+					batch.clear();
+					if (result[0].conflict() != null) {
+						throw new ImportStoppedException();
+					}
+				}
+			});
+			result[0] = result[0].plus(addOrUpdateWords(batch, policy));
+		} catch (ImportStoppedException e) {
+			// The conflicting word is recorded in the result; the rest of the file is not read
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Imported {} words from {}.", result[0].total(), file);
+		}
+		if (writeAheadLog.isEnabled() && writeAheadLog.needsCompaction()) {
+			// A large import would otherwise leave a log that takes as long to replay as the import took
+			saveSnapshot(true);
+		}
+		return result[0];
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public String searchWord(String word) {
-		String meaning = vocabularyMap.get(word);
+		if (!ready) {
+			awaitLoaded();
+		}
+		String meaning = vocabularyStore.get(word);
 		if (meaning != null) {
 			logger.debug("Found word: {}", word);
 		} else {
-			logger.warn("Word not found: {}", word);
+			missLogger.miss(word);
 		}
 		return meaning;
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<String, String> searchWords(Collection<String> words) {
+		awaitLoaded();
+		SortedMap<String, String> snapshot = vocabularyStore.snapshot();
+		Map<String, String> meanings = new LinkedHashMap<>();
+		int found = 0;
+		for (String word : words) {
+			String meaning = snapshot.get(word);
+			if (meanings.put(word, meaning) == null && meaning != null) {
+				found++;
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Found {} of {} words.", found, meanings.size());
+		}
+		return meanings;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<String, String> searchWordIgnoringCase(String word) {
+		awaitLoaded();
+		Map<String, String> meanings = meanings(collationIndex().find(word));
+		if (meanings.isEmpty()) {
+			missLogger.miss(word);
+		} else if (logger.isDebugEnabled()) {
+			logger.debug("Found {} words matching: {}", meanings.size(), word);
+		}
+		return meanings;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<String, String> getWordsInCollationOrder(String from, int limit) {
+		awaitLoaded();
+		return meanings(collationIndex().list(from, limit));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long currentVersion() {
+		awaitLoaded();
+		return history.latest();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String searchWordAsOf(String word, long version) {
+		awaitLoaded();
+		return history.get(vocabularyStore, word, version);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<VersionHistory.Version> getHistory(String word) {
+		awaitLoaded();
+		return history.history(vocabularyStore, word);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void addChangeListener(VocabularyChangeListener listener) {
+		listeners.add(listener);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeChangeListener(VocabularyChangeListener listener) {
+		listeners.remove(listener);
+	}
+	
+	/**
+	 * Stops following a shared write-ahead log and refuses any further change or snapshot. Returns once loading and
+	 * the changes and snapshot under way have finished, so that nothing writes to the files of the vocabulary anymore.
+	 */
+	@PreDestroy
+	public void close() {
+		closed = true;
+		LogFollower follower = logFollower;
+		if (follower != null) {
+			follower.close();
+			logFollower = null;
+		}
+		awaitLoaded();
+		// Taken like a snapshot does, so that neither a snapshot nor a change can still be under way
+		snapshotLock.lock();
+		writeLock.lock();
+		writeLock.unlock();
+		snapshotLock.unlock();
+		logger.debug("Vocabulary closed.");
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SortedMap<String, String> getWordsInRange(String from, String to) {
+		awaitLoaded();
+		SortedMap<String, String> snapshot = vocabularyStore.snapshot();
+		if (from != null && to != null) {
+			return snapshot.subMap(from, to);
+		}
+		if (from != null) {
+			return snapshot.tailMap(from);
+		}
+		return to != null ? snapshot.headMap(to) : snapshot;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SortedMap<String, String> findWordsByPrefix(String prefix) {
+		awaitLoaded();
+		return PrefixRange.of(vocabularyStore.snapshot(), prefix);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<FuzzyMatcher.Match> findSimilarWords(String word, int maxDistance, int limit) {
+		awaitLoaded();
+		return FuzzyMatcher.search(vocabularyStore.snapshot(), word, maxDistance, limit);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<MeaningIndex.Hit> findWordsByMeaning(String query, boolean matchAll, int limit) {
+		awaitLoaded();
+		return meaningIndex().search(query, matchAll, limit);
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public boolean removeWord(String word) {
-		if (vocabularyMap.remove(word) != null) {
+		awaitLoaded();
+		if (remove(word)) {
 			logger.debug("Removed word: {}", word);
 			return true;
 		} else {
@@ -111,12 +498,530 @@ public class VocabularyServiceImpl implements VocabularyService {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void saveVocabularyToFile() {
+	public RemovalResult removeWords(Collection<String> words) {
+		awaitLoaded();
+		// The removed words and their meanings, sorted like the records of a batch of puts
+		SortedMap<String, String> removed = new TreeMap<>();
+		List<String> notFound = new ArrayList<>();
+		writeLock.lock();
 		try {
-			fileHandler.saveVocabulary(vocabularyMap);
+			for (String word : words) {
+				String meaning = vocabularyStore.get(word);
+				if (meaning != null) {
+					removed.put(word, meaning);
+				} else if (!removed.containsKey(word)) {
+					notFound.add(word);
+				}
+			}
+			applyRemoves(removed);
+		} finally {
+			writeLock.unlock();
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Removed {} words, {} not found.", removed.size(), notFound.size());
+		}
+		return new RemovalResult(removed.size(), notFound);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void saveVocabularyToFile() {
+		awaitLoaded();
+		if (writeAheadLog.isEnabled()) {
+			try {
+				if (!writeAheadLog.needsCompaction()) {
+					// The log already holds every change; making it durable is enough
+					writeAheadLog.sync();
+					logger.debug("Vocabulary changes synced to write-ahead log.");
+					return;
+				}
+			} catch (IOException e) {
+				logger.error("Error syncing write-ahead log: {}", e.getMessage());
+			}
+		}
+		if (saveSnapshot(true)) {
 			logger.debug("Vocabulary saved to file.");
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean saveSnapshotIfChanged() {
+		awaitLoaded();
+		return saveSnapshot(false);
+	}
+	
+	/**
+	 * Writes the vocabulary to the JSON file, or checkpoints it if the store keeps its own file. Only taking the
+	 * store's snapshot and rotating the write-ahead log happen under the lock; the file itself is written from the
+	 * immutable snapshot while the vocabulary is changed again.
+	 *
+	 * @param force Whether to write the file even if nothing changed since the last snapshot.
+	 * @return True if the snapshot was written.
+	 */
+	private boolean saveSnapshot(boolean force) {
+		if (closed) {
+			return false;
+		}
+		snapshotLock.lock();
+		try (Closeable sharedLock = writeAheadLog.lockSnapshots()) {
+			SortedMap<String, String> snapshot;
+			long snapshotGeneration;
+			writeLock.lock();
+			try {
+				if (closed || !force && generation == savedGeneration) {
+					return false;
+				}
+				if (loadFailure != null) {
+					// The store holds only part of the files, so writing it would lose the rest, as would rotating the log
+					logger.error("Not saving vocabulary, as it failed to load: {}. Changes are kept in the write-ahead log.", loadFailure);
+					return false;
+				}
+				// Changes other processes made to a shared log are applied first, so the snapshot covers the whole segment
+				writeAheadLog.rotate(this::applyFollowedPut, this::applyFollowedRemove);
+				snapshotGeneration = generation;
+				snapshot = vocabularyStore.snapshot();
+			} finally {
+				writeLock.unlock();
+			}
+			if (vocabularyStore.isFileBacked()) {
+				vocabularyStore.checkpoint(snapshot);
+			} else {
+				fileHandler.saveVocabulary(snapshot);
+			}
+			// Recorded before the segment set aside is deleted: if that is replayed again, versions skip ahead but are
+			// never reused
+			fileHandler.saveVersion(snapshotGeneration);
+			writeAheadLog.discardRotated();
+			savedGeneration = snapshotGeneration;
+			if (logger.isDebugEnabled()) {
+				logger.debug("Saved snapshot of generation {} with {} entries.", snapshotGeneration, snapshot.size());
+			}
+			return true;
 		} catch (IOException e) {
 			logger.error("Error saving vocabulary: {}", e.getMessage());
+			return false;
+		} finally {
+			snapshotLock.unlock();
+		}
+	}
+	
+	/**
+	 * Loads the JSON file into the store, unless the store keeps its own file, and replays the write-ahead log on top
+	 * of it. Entries are collected into sorted batches that the store merges in at once; where there is more than one
+	 * processor, each batch is merged in while the next one is being parsed.
+	 * <p>
+	 * If loading fails, the vocabulary is still usable with what was loaded, but no snapshot is written until it is
+	 * loaded again after the files were repaired. Changes made meanwhile are appended to the write-ahead log after the
+	 * records not replayed, which it keeps.
+	 */
+	private void load() {
+		long start = System.nanoTime();
+		// Another process sharing the log must not replace the snapshot between it being read and the log replayed
+		try (Closeable sharedLock = writeAheadLog.lockSnapshots()) {
+			// Versions continue from the one the snapshot was taken at, so that a version means the same across restarts
+			long snapshotGeneration = fileHandler.loadVersion();
+			if (!vocabularyStore.isFileBacked()) {
+				BatchLoader batches = new BatchLoader();
+				try {
+					fileHandler.loadVocabulary(batches);
+				} finally {
+					// Like entries read before a parse error, the partial batch is kept
+					batches.finish();
+				}
+			}
+			// Re-apply the changes made after that snapshot was written
+			long replayed = writeAheadLog.replay(vocabularyStore::put, vocabularyStore::remove);
+			// Replayed changes are not in the JSON file yet, so the next snapshot must include them
+			savedGeneration = snapshotGeneration;
+			generation = snapshotGeneration + replayed;
+			if (writeAheadLog.isShared()) {
+				logFollower = writeAheadLog.follower(this::followLog);
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Loaded vocabulary with {} entries ({} replayed changes) in {} ms.", vocabularyStore.size(), replayed,
+						TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+			}
+		} catch (IOException e) {
+			loadFailure = String.valueOf(e.getMessage());
+			logger.error("Error loading vocabulary: {}", e.getMessage());
+		} catch (RuntimeException e) {
+			loadFailure = e.toString();
+			logger.error("Error loading vocabulary: {}", e.toString());
+		} finally {
+			// History starts at the loaded vocabulary
+			history.reset(generation);
+			history.publish(generation);
+			loaded.countDown();
+			ready = true;
+		}
+	}
+	
+	private static void startLoader(Runnable load) {
+		Thread loader = new Thread(load, "vocabulary-loader");
+		loader.setDaemon(true);
+		loader.start();
+	}
+	
+	/**
+	 * Collects loaded entries into sorted batches and merges them into the store. With more than one processor, a batch
+	 * is merged on another thread while the next one is being parsed.
+	 */
+	private final class BatchLoader implements BiConsumer<String, String> {
+		private final Executor merger = Runtime.getRuntime().availableProcessors() > 1 ? ForkJoinPool.commonPool() : Runnable::run;
+		private SortedMap<String, String> batch = new TreeMap<>();
+		private CompletableFuture<Void> merged = CompletableFuture.completedFuture(null);
+		
+		@Override
+		public void accept(String word, String meaning) {
+			batch.put(word, meaning);
+			if (batch.size() == LOAD_BATCH_SIZE) {
+				SortedMap<String, String> words = batch;
+				// At most one batch is merged while the next one is parsed
+				merged.join();
+				merged = CompletableFuture.runAsync(() -> vocabularyStore.putAll(words), merger);
+				batch = new TreeMap<>();
+			}
+		}
+		
+		/**
+		 * Merges the last batch and waits until all batches are in the store.
+		 */
+		void finish() {
+			merged.join();
+			vocabularyStore.putAll(batch);
+		}
+	}
+	
+	/**
+	 * Waits until the vocabulary has been loaded. Once it has, this costs a single volatile read.
+	 */
+	void awaitLoaded() {
+		if (ready) {
+			return;
+		}
+		logger.debug("Waiting for the vocabulary to be loaded.");
+		boolean interrupted = false;
+		while (true) {
+			try {
+				loaded.await();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Returns the meaning index, building it from the whole vocabulary on first use. Holding the write lock while
+	 * building guarantees that no change is missed between the snapshot and the index becoming visible to writers.
+	 */
+	private MeaningIndex meaningIndex() {
+		MeaningIndex index = meaningIndex;
+		if (index != null) {
+			return index;
+		}
+		writeLock.lock();
+		try {
+			if (meaningIndex == null) {
+				index = new MeaningIndex();
+				for (Map.Entry<String, String> entry : vocabularyStore.snapshot().entrySet()) {
+					index.put(entry.getKey(), null, entry.getValue());
+				}
+				meaningIndex = index;
+				logger.debug("Indexed meanings of {} words.", index.size());
+			}
+			return meaningIndex;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	/**
+	 * Returns the collation index, building it from the whole vocabulary on first use like {@link #meaningIndex()}.
+	 */
+	private CollationIndex collationIndex() {
+		CollationIndex index = collationIndex;
+		if (index != null) {
+			return index;
+		}
+		writeLock.lock();
+		try {
+			if (collationIndex == null) {
+				index = new CollationIndex(collationLocale, stripAccents);
+				index.addAll(vocabularyStore.snapshot().keySet());
+				collationIndex = index;
+				logger.debug("Indexed {} words for collation.", index.size());
+			}
+			return collationIndex;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	/**
+	 * Looks up the meanings of words found in an index. A word removed since the index was queried is left out.
+	 *
+	 * @return The words and their meanings, in the order given.
+	 */
+	private Map<String, String> meanings(List<String> words) {
+		SortedMap<String, String> snapshot = vocabularyStore.snapshot();
+		Map<String, String> meanings = new LinkedHashMap<>();
+		for (String word : words) {
+			String meaning = snapshot.get(word);
+			if (meaning != null) {
+				meanings.put(word, meaning);
+			}
+		}
+		return meanings;
+	}
+	
+	private void put(String word, String meaning) {
+		writeLock.lock();
+		try {
+			applyPut(word, meaning);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	/**
+	 * Records the changes with a single log write, then stores the words at once. Must be called with the write lock
+	 * held.
+	 *
+	 * @throws UncheckedIOException If the changes cannot be logged; nothing is stored then.
+	 */
+	private void applyPuts(SortedMap<String, String> words) {
+		if (words.isEmpty()) {
+			return;
+		}
+		checkOpen();
+		try {
+			writeAheadLog.logPuts(words.entrySet());
+		} catch (IOException e) {
+			throw logFailed("changes of " + words.size() + " words", e);
+		}
+		// The meanings being replaced, for the meaning index and the listeners
+		Map<String, String> previous = new HashMap<>();
+		if (meaningIndex != null || !listeners.isEmpty()) {
+			for (String word : words.keySet()) {
+				previous.put(word, vocabularyStore.get(word));
+			}
+		}
+		if (meaningIndex != null) {
+			words.forEach((word, meaning) -> meaningIndex.put(word, previous.get(word), meaning));
+		}
+		if (collationIndex != null) {
+			collationIndex.addAll(words.keySet());
+		}
+		history.recordPuts(words, vocabularyStore::get, generation + words.size());
+		vocabularyStore.putAll(words);
+		generation += words.size();
+		history.publish(generation);
+		if (!listeners.isEmpty()) {
+			words.forEach((word, meaning) -> notifyListeners(word, previous.get(word), meaning, false));
+		}
+	}
+	
+	/**
+	 * Records the change, then stores the word. Must be called with the write lock held.
+	 *
+	 * @throws UncheckedIOException If the change cannot be logged; nothing is stored then.
+	 */
+	private void applyPut(String word, String meaning) {
+		checkOpen();
+		try {
+			writeAheadLog.logPut(word, meaning);
+		} catch (IOException e) {
+			throw logFailed("change of " + word, e);
+		}
+		storeWord(word, vocabularyStore.get(word), meaning, false);
+	}
+	
+	/**
+	 * Records the removals with a single log write, then removes the words at once. Must be called with the write lock
+	 * held.
+	 *
+	 * @param words The words to remove, all of them stored, with their current meanings.
+	 * @throws UncheckedIOException If the removals cannot be logged; nothing is removed then.
+	 */
+	private void applyRemoves(SortedMap<String, String> words) {
+		if (words.isEmpty()) {
+			return;
+		}
+		checkOpen();
+		try {
+			writeAheadLog.logRemoves(words.keySet());
+		} catch (IOException e) {
+			throw logFailed("removal of " + words.size() + " words", e);
+		}
+		if (meaningIndex != null) {
+			words.forEach(meaningIndex::remove);
+		}
+		if (collationIndex != null) {
+			words.keySet().forEach(collationIndex::remove);
+		}
+		history.recordRemoves(words, generation + words.size());
+		vocabularyStore.removeAll(words.keySet());
+		generation += words.size();
+		history.publish(generation);
+		if (!listeners.isEmpty()) {
+			words.forEach((word, meaning) -> notifyListeners(word, meaning, null, false));
+		}
+	}
+	
+	private boolean remove(String word) {
+		writeLock.lock();
+		try {
+			String previous = vocabularyStore.get(word);
+			if (previous == null) {
+				return false;
+			}
+			checkOpen();
+			writeAheadLog.logRemove(word);
+			removeStoredWord(word, previous, false);
+		} catch (IOException e) {
+			throw logFailed("removal of " + word, e);
+		} finally {
+			writeLock.unlock();
+		}
+		return true;
+	}
+	
+	/**
+	 * Refuses a change once the vocabulary has been closed. Must be called with the write lock held, which close waits
+	 * for, so that no change is made after close has returned.
+	 *
+	 * @throws IllegalStateException If the vocabulary has been closed.
+	 */
+	private void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("The vocabulary has been closed.");
+		}
+	}
+	
+	/**
+	 * Reports a change that could not be logged, and so was not made.
+	 *
+	 * @param change What was to be changed, for the messages.
+	 * @return The exception to throw to the caller.
+	 */
+	private static UncheckedIOException logFailed(String change, IOException e) {
+		logger.error("Error logging {}: {}", change, e.getMessage());
+		return new UncheckedIOException("The " + change + " could not be saved: " + e.getMessage(), e);
+	}
+	
+	/**
+	 * Stores a word in the store and the indexes and reports the change, without logging it. Must be called with the
+	 * write lock held.
+	 *
+	 * @param previous The meaning the word has in the store, or null if it is not stored.
+	 */
+	private void storeWord(String word, String previous, String meaning, boolean remote) {
+		history.record(word, previous, meaning, generation + 1);
+		vocabularyStore.put(word, meaning);
+		if (meaningIndex != null) {
+			meaningIndex.put(word, previous, meaning);
+		}
+		if (collationIndex != null && previous == null) {
+			collationIndex.add(word);
+		}
+		generation++;
+		history.publish(generation);
+		if (!listeners.isEmpty()) {
+			notifyListeners(word, previous, meaning, remote);
+		}
+	}
+	
+	/**
+	 * Removes a stored word from the store and the indexes and reports the change, without logging it. Must be called
+	 * with the write lock held.
+	 *
+	 * @param previous The meaning the word has in the store.
+	 */
+	private void removeStoredWord(String word, String previous, boolean remote) {
+		history.record(word, previous, null, generation + 1);
+		vocabularyStore.remove(word);
+		if (meaningIndex != null) {
+			meaningIndex.remove(word, previous);
+		}
+		if (collationIndex != null) {
+			collationIndex.remove(word);
+		}
+		generation++;
+		history.publish(generation);
+		if (!listeners.isEmpty()) {
+			notifyListeners(word, previous, null, remote);
+		}
+	}
+	
+	/**
+	 * Applies the changes other processes appended to the shared write-ahead log since it was last followed.
+	 */
+	private void followLog() {
+		if (!ready) {
+			return;
+		}
+		writeLock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+			writeAheadLog.follow(this::applyFollowedPut, this::applyFollowedRemove);
+		} catch (IOException e) {
+			logger.error("Error following write-ahead log: {}", e.getMessage());
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	/**
+	 * Applies an addition or update read from the shared write-ahead log. It is already logged, so it is not logged
+	 * again, and a meaning the word already has is not reported as a change.
+	 */
+	private void applyFollowedPut(String word, String meaning) {
+		String previous = vocabularyStore.get(word);
+		if (!meaning.equals(previous)) {
+			storeWord(word, previous, meaning, true);
+		}
+	}
+	
+	/**
+	 * Applies a removal read from the shared write-ahead log, like {@link #applyFollowedPut}.
+	 */
+	private void applyFollowedRemove(String word) {
+		String previous = vocabularyStore.get(word);
+		if (previous != null) {
+			removeStoredWord(word, previous, true);
+		}
+	}
+	
+	private void notifyListeners(String word, String previous, String meaning, boolean remote) {
+		VocabularyChange.Type type = meaning == null ? VocabularyChange.Type.REMOVED
+				: previous == null ? VocabularyChange.Type.ADDED : VocabularyChange.Type.UPDATED;
+		VocabularyChange change = new VocabularyChange(type, word, previous, meaning, generation, remote);
+		for (VocabularyChangeListener listener : listeners) {
+			try {
+				listener.onChange(change);
+			} catch (RuntimeException e) {
+				logger.error("Error in vocabulary change listener: {}", e.toString());
+			}
+		}
+	}
+	
+	/**
+	 * Unwinds the file reader once an import has hit a conflict with {@link ConflictPolicy#FAIL}.
+	 */
+	private static final class ImportStoppedException extends RuntimeException {
+		ImportStoppedException() {
+			super(null, null, false, false);
 		}
 	}
 }
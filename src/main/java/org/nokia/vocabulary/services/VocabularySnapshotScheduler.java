@@ -0,0 +1,37 @@
+package org.nokia.vocabulary.services;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically writes a snapshot of the vocabulary on Spring's scheduler thread, so the shell never waits for the
+ * JSON file to be written. Nothing is written while the vocabulary is unchanged.
+ */
+@Component
+@ConditionalOnProperty(name = "vocabulary.snapshot.enabled", havingValue = "true", matchIfMissing = true)
+public class VocabularySnapshotScheduler {
+	private static final Logger logger = LogManager.getLogger(VocabularySnapshotScheduler.class);
+	private final VocabularyService vocabularyService;
+	
+	/**
+	 * Constructs a VocabularySnapshotScheduler for the given vocabulary.
+	 *
+	 * @param vocabularyService The vocabulary to snapshot.
+	 */
+	public VocabularySnapshotScheduler(VocabularyService vocabularyService) {
+		this.vocabularyService = vocabularyService;
+	}
+	
+	/**
+	 * Writes a snapshot if the vocabulary changed since the previous one.
+	 */
+	@Scheduled(initialDelayString = "${vocabulary.snapshot.interval-ms:30000}", fixedDelayString = "${vocabulary.snapshot.interval-ms:30000}")
+	public void snapshot() {
+		if (vocabularyService.saveSnapshotIfChanged()) {
+			logger.debug("Background snapshot written.");
+		}
+	}
+}
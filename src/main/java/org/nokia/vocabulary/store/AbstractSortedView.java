@@ -0,0 +1,155 @@
+package org.nokia.vocabulary.store;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * Skeleton of an immutable, string-keyed {@link SortedMap} view restricted to the keys in {@code [from, to)}.
+ * <p>
+ * Subclasses only provide bounded iteration, point lookup, counting and a way to create the same view with other
+ * bounds; sub map views, {@code firstKey} and {@code lastKey} are derived from those. All mutators throw
+ * {@link UnsupportedOperationException}.
+ */
+public abstract class AbstractSortedView extends AbstractMap<String, String> implements SortedMap<String, String> {
+	// Inclusive lower and exclusive upper bound of the view; null means unbounded
+	protected final String from;
+	protected final String to;
+	private Set<Map.Entry<String, String>> entrySet;
+	
+	protected AbstractSortedView(String from, String to) {
+		this.from = from;
+		this.to = to;
+	}
+	
+	/**
+	 * @return An iterator over the entries with keys in {@code [from, to)} in key order.
+	 */
+	protected abstract Iterator<Map.Entry<String, String>> iterator(String from, String to);
+	
+	/**
+	 * @return The value stored under the key, ignoring the bounds of the view, or null if there is none.
+	 */
+	protected abstract String lookup(String key);
+	
+	/**
+	 * @return The number of entries with keys in {@code [from, to)}.
+	 */
+	protected abstract int count(String from, String to);
+	
+	/**
+	 * @return The same underlying data restricted to {@code [from, to)}.
+	 */
+	protected abstract AbstractSortedView withBounds(String from, String to);
+	
+	@Override
+	public String get(Object key) {
+		return key instanceof String word && inRange(word) ? lookup(word) : null;
+	}
+	
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+	
+	@Override
+	public int size() {
+		return count(from, to);
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return !iterator(from, to).hasNext();
+	}
+	
+	@Override
+	public Comparator<? super String> comparator() {
+		return null;
+	}
+	
+	@Override
+	public SortedMap<String, String> subMap(String fromKey, String toKey) {
+		if (fromKey.compareTo(toKey) > 0) {
+			throw new IllegalArgumentException("fromKey > toKey");
+		}
+		return withBounds(clampFrom(fromKey), clampTo(toKey));
+	}
+	
+	@Override
+	public SortedMap<String, String> headMap(String toKey) {
+		return withBounds(from, clampTo(toKey));
+	}
+	
+	@Override
+	public SortedMap<String, String> tailMap(String fromKey) {
+		return withBounds(clampFrom(fromKey), to);
+	}
+	
+	@Override
+	public String firstKey() {
+		Iterator<Map.Entry<String, String>> iterator = iterator(from, to);
+		if (!iterator.hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return iterator.next().getKey();
+	}
+	
+	/**
+	 * Walks the whole view; subclasses that can seek to the end should override it.
+	 */
+	@Override
+	public String lastKey() {
+		Iterator<Map.Entry<String, String>> iterator = iterator(from, to);
+		if (!iterator.hasNext()) {
+			throw new NoSuchElementException();
+		}
+		String last = null;
+		while (iterator.hasNext()) {
+			last = iterator.next().getKey();
+		}
+		return last;
+	}
+	
+	@Override
+	public Set<Map.Entry<String, String>> entrySet() {
+		if (entrySet == null) {
+			entrySet = new AbstractSet<>() {
+				@Override
+				public Iterator<Map.Entry<String, String>> iterator() {
+					return AbstractSortedView.this.iterator(from, to);
+				}
+				
+				@Override
+				public int size() {
+					return AbstractSortedView.this.size();
+				}
+			};
+		}
+		return entrySet;
+	}
+	
+	protected boolean inRange(String key) {
+		return (from == null || key.compareTo(from) >= 0) && (to == null || key.compareTo(to) < 0);
+	}
+	
+	private String clampFrom(String key) {
+		checkWithinBounds(key);
+		return from != null && from.compareTo(key) > 0 ? from : key;
+	}
+	
+	private String clampTo(String key) {
+		checkWithinBounds(key);
+		return to != null && to.compareTo(key) < 0 ? to : key;
+	}
+	
+	private void checkWithinBounds(String key) {
+		if ((from != null && key.compareTo(from) < 0) || (to != null && key.compareTo(to) > 0)) {
+			throw new IllegalArgumentException("key out of range");
+		}
+	}
+}
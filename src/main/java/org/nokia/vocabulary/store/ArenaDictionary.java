@@ -0,0 +1,266 @@
+package org.nokia.vocabulary.store;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only vocabulary packed as UTF-8 into a few large byte slabs, either on the heap or off it.
+ * <p>
+ * Each entry is one record of a varint word length, the word, a varint meaning length and the meaning, starting at a
+ * multiple of four bytes. Records are referenced by int offsets in units of four bytes, which address up to 8 GiB:
+ * an array of them in word order serves ranges and iteration, and an open-addressing hash table of them, kept at most
+ * half full, serves lookups with a single probe on average. Apart from the slabs, an entry thus costs about 12 bytes
+ * instead of the two strings and tree node of an in-memory map. Lookups compare the searched word against the UTF-8
+ * bytes directly and only decode the meaning of a hit.
+ */
+public final class ArenaDictionary extends SortedDictionary {
+	private static final int SLAB_SHIFT = 26;
+	private static final int SLAB_SIZE = 1 << SLAB_SHIFT;
+	private static final int ALIGNMENT_SHIFT = 2;
+	private static final int UNIT_SHIFT = SLAB_SHIFT - ALIGNMENT_SHIFT;
+	// Keeps the largest offset + 1 stored in the hash table a positive int
+	private static final int MAX_SLABS = (1 << (31 - UNIT_SHIFT)) - 1;
+	private static final int INITIAL_SLAB_SIZE = 1 << 12;
+	
+	private final ByteBuffer[] slabs;
+	// Offsets of the records in word order
+	private final int[] offsets;
+	// Offset + 1 of the records by hash of their word; 0 marks an empty slot
+	private final int[] table;
+	private final boolean offHeap;
+	
+	private ArenaDictionary(ByteBuffer[] slabs, int[] offsets, int[] table, boolean offHeap) {
+		this.slabs = slabs;
+		this.offsets = offsets;
+		this.table = table;
+		this.offHeap = offHeap;
+	}
+	
+	/**
+	 * @return A dictionary without entries.
+	 */
+	public static ArenaDictionary empty() {
+		return new ArenaDictionary(new ByteBuffer[0], new int[0], new int[1], false);
+	}
+	
+	/**
+	 * Packs entries into a new dictionary.
+	 *
+	 * @param entries The entries, strictly ascending by word.
+	 * @param offHeap True to allocate the slabs as direct buffers outside of the heap.
+	 * @return The dictionary.
+	 * @throws IllegalArgumentException If the entries are not strictly ascending, or do not fit.
+	 */
+	public static ArenaDictionary build(Iterator<? extends Map.Entry<String, String>> entries, boolean offHeap) {
+		List<ByteBuffer> slabs = new ArrayList<>();
+		byte[] slab = new byte[INITIAL_SLAB_SIZE];
+		int position = 0;
+		int[] offsets = new int[1024];
+		int[] hashes = new int[1024];
+		int count = 0;
+		String previous = null;
+		while (entries.hasNext()) {
+			Map.Entry<String, String> entry = entries.next();
+			if (previous != null && previous.compareTo(entry.getKey()) >= 0) {
+				throw new IllegalArgumentException("Entries not in ascending order at: " + entry.getKey());
+			}
+			previous = entry.getKey();
+			byte[] word = entry.getKey().getBytes(StandardCharsets.UTF_8);
+			byte[] meaning = entry.getValue().getBytes(StandardCharsets.UTF_8);
+			long length = varintSize(word.length) + word.length + varintSize(meaning.length) + (long) meaning.length;
+			if (length > SLAB_SIZE) {
+				throw new IllegalArgumentException("Entry too large for arena: " + entry.getKey());
+			}
+			if (position + length > slab.length) {
+				if (position + length <= SLAB_SIZE) {
+					slab = Arrays.copyOf(slab, (int) Math.min(SLAB_SIZE, Math.max(slab.length * 2L, position + length)));
+				} else {
+					// Records never straddle two slabs
+					slabs.add(seal(slab, position, offHeap));
+					if (slabs.size() == MAX_SLABS) {
+						throw new IllegalArgumentException("Vocabulary too large for arena");
+					}
+					slab = new byte[(int) Math.max(INITIAL_SLAB_SIZE, length)];
+					position = 0;
+				}
+			}
+			if (count == offsets.length) {
+				offsets = Arrays.copyOf(offsets, count * 2);
+				hashes = Arrays.copyOf(hashes, count * 2);
+			}
+			offsets[count] = (slabs.size() << UNIT_SHIFT) | (position >> ALIGNMENT_SHIFT);
+			hashes[count++] = entry.getKey().hashCode();
+			position = writeVarint(slab, position, word.length);
+			System.arraycopy(word, 0, slab, position, word.length);
+			position = writeVarint(slab, position + word.length, meaning.length);
+			System.arraycopy(meaning, 0, slab, position, meaning.length);
+			position += meaning.length;
+			position = Math.min(SLAB_SIZE, (position + (1 << ALIGNMENT_SHIFT) - 1) & -(1 << ALIGNMENT_SHIFT));
+		}
+		if (position > 0) {
+			slabs.add(seal(slab, position, offHeap));
+		}
+		int[] table = new int[Math.max(2, Integer.highestOneBit(Math.max(1, count) * 2 - 1) * 2)];
+		int mask = table.length - 1;
+		for (int i = 0; i < count; i++) {
+			int slot = mix(hashes[i]) & mask;
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = offsets[i] + 1;
+		}
+		return new ArenaDictionary(slabs.toArray(new ByteBuffer[0]), Arrays.copyOf(offsets, count), table, offHeap);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return offsets.length;
+	}
+	
+	/**
+	 * Looks up a word through the hash table.
+	 *
+	 * @param word The word to look up.
+	 * @return The meaning of the word, or null if the word is not in the dictionary.
+	 */
+	@Override
+	public String get(String word) {
+		int mask = table.length - 1;
+		for (int slot = mix(word.hashCode()) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+			int offset = table[slot] - 1;
+			ByteBuffer slab = slab(offset);
+			int position = position(offset);
+			int length = readVarint(slab, position);
+			position += varintSize(length);
+			if (compare(word, slab, position, length) == 0) {
+				return readString(slab, position + length);
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Off-heap slabs are not included; see {@link #offHeapBytes()}.
+	 */
+	@Override
+	public long estimatedMemoryUsage() {
+		long arrays = 16L + 4L * offsets.length + 16L + 4L * table.length;
+		return arrays + (offHeap ? 0 : slabBytes());
+	}
+	
+	/**
+	 * @return The bytes taken by the slabs outside of the heap, or 0 if the slabs are on the heap.
+	 */
+	public long offHeapBytes() {
+		return offHeap ? slabBytes() : 0;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected int compareWord(String word, int index) {
+		int offset = offsets[index];
+		ByteBuffer slab = slab(offset);
+		int position = position(offset);
+		int length = readVarint(slab, position);
+		return compare(word, slab, position + varintSize(length), length);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected String word(int index) {
+		int offset = offsets[index];
+		return readString(slab(offset), position(offset));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected String meaning(int index) {
+		int offset = offsets[index];
+		ByteBuffer slab = slab(offset);
+		int position = position(offset);
+		int length = readVarint(slab, position);
+		return readString(slab, position + varintSize(length) + length);
+	}
+	
+	private long slabBytes() {
+		long bytes = 0;
+		for (ByteBuffer slab : slabs) {
+			bytes += 16 + slab.capacity();
+		}
+		return bytes;
+	}
+	
+	private ByteBuffer slab(int offset) {
+		return slabs[offset >>> UNIT_SHIFT];
+	}
+	
+	private static int position(int offset) {
+		return (offset & ((1 << UNIT_SHIFT) - 1)) << ALIGNMENT_SHIFT;
+	}
+	
+	private static ByteBuffer seal(byte[] slab, int length, boolean offHeap) {
+		if (!offHeap) {
+			return ByteBuffer.wrap(Arrays.copyOf(slab, length));
+		}
+		return ByteBuffer.allocateDirect(length).put(0, slab, 0, length);
+	}
+	
+	/**
+	 * Spreads the bits of a String hash code, whose low bits alone cluster for similar words.
+	 */
+	private static int mix(int hash) {
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+	
+	private static String readString(ByteBuffer slab, int position) {
+		int length = readVarint(slab, position);
+		position += varintSize(length);
+		if (slab.hasArray()) {
+			return new String(slab.array(), slab.arrayOffset() + position, length, StandardCharsets.UTF_8);
+		}
+		byte[] bytes = new byte[length];
+		slab.get(position, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	private static int writeVarint(byte[] slab, int position, int value) {
+		while ((value & ~0x7F) != 0) {
+			slab[position++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		slab[position++] = (byte) value;
+		return position;
+	}
+	
+	private static int readVarint(ByteBuffer slab, int position) {
+		int value = 0;
+		for (int shift = 0; ; shift += 7) {
+			byte b = slab.get(position++);
+			value |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+	}
+	
+	private static int varintSize(int value) {
+		return (38 - Integer.numberOfLeadingZeros(value | 1)) / 7;
+	}
+}
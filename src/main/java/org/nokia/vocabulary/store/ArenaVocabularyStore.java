@@ -0,0 +1,110 @@
+package org.nokia.vocabulary.store;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Collection;
+import java.util.SortedMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Vocabulary store that keeps the vocabulary packed in an {@link ArenaDictionary}, on or off the heap.
+ * <p>
+ * Changes go to the in-memory overlays of an {@link OverlayVocabularyStore}. Once these hold a quarter as many words
+ * as the arena, and at least {@value #MIN_COMPACTION_SIZE}, the writer that crossed the threshold packs the merged
+ * view into a new arena. Other writers carry on meanwhile.
+ */
+public class ArenaVocabularyStore extends OverlayVocabularyStore {
+	private static final Logger logger = LogManager.getLogger(ArenaVocabularyStore.class);
+	static final int MIN_COMPACTION_SIZE = 1 << 16;
+	
+	private final boolean offHeap;
+	private final ReentrantLock compaction = new ReentrantLock();
+	
+	/**
+	 * @param offHeap True to keep the packed words in direct buffers outside of the heap.
+	 */
+	public ArenaVocabularyStore(boolean offHeap) {
+		super(ArenaDictionary.empty());
+		this.offHeap = offHeap;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String put(String word, String meaning) {
+		String previous = super.put(word, meaning);
+		compactIfNeeded();
+		return previous;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void putAll(SortedMap<String, String> words) {
+		super.putAll(words);
+		compactIfNeeded();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String remove(String word) {
+		String previous = super.remove(word);
+		compactIfNeeded();
+		return previous;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeAll(Collection<String> words) {
+		super.removeAll(words);
+		compactIfNeeded();
+	}
+	
+	/**
+	 * Packs all words, including those in the overlays, into a new arena.
+	 */
+	public void compact() {
+		compaction.lock();
+		try {
+			SortedMap<String, String> snapshot = snapshot();
+			replaceBase(snapshot, ArenaDictionary.build(snapshot.entrySet().iterator(), offHeap));
+			if (logger.isDebugEnabled()) {
+				logger.debug("Compacted {} words into arena.", snapshot.size());
+			}
+		} finally {
+			compaction.unlock();
+		}
+	}
+	
+	/**
+	 * @return The bytes taken by the packed words outside of the heap.
+	 */
+	public long offHeapBytes() {
+		return ((ArenaDictionary) base()).offHeapBytes();
+	}
+	
+	private void compactIfNeeded() {
+		if (!compactionNeeded() || !compaction.tryLock()) {
+			return;
+		}
+		try {
+			// Another writer may have compacted in between
+			if (compactionNeeded()) {
+				compact();
+			}
+		} finally {
+			compaction.unlock();
+		}
+	}
+	
+	private boolean compactionNeeded() {
+		return overlaySize() >= Math.max(MIN_COMPACTION_SIZE, base().size() / 4);
+	}
+}
@@ -0,0 +1,281 @@
+package org.nokia.vocabulary.store;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Vocabulary store that keeps the recently looked up words of another store in a bounded cache, so that the hot words
+ * of a store serving lookups from disk are not read and decoded again on every lookup. Words that are not stored are
+ * cached too, so repeated searches for a missing word do not reach the other store either.
+ * <p>
+ * The cache is a segmented LRU: a word enters a probationary segment when it is first looked up and is promoted to a
+ * protected segment when it is looked up again. A scan over many words that are looked up once therefore only evicts
+ * other words looked up once. The cache is split into shards with a lock each, so that lookups of different words
+ * rarely wait for each other.
+ * <p>
+ * Changes are applied to the other store first and then invalidate the changed words. Snapshots come straight from the
+ * other store and do not go through the cache.
+ */
+public class CachingVocabularyStore implements VocabularyStore {
+	// Share of each shard reserved for words looked up more than once
+	private static final double PROTECTED_RATIO = 0.8;
+	private static final int MAX_SHARDS = 16;
+	// Cached in place of the meaning of a word that is not stored; compared by identity
+	private static final String ABSENT = new String();
+	private final VocabularyStore delegate;
+	private final Shard[] shards;
+	private final int maximumSize;
+	// Incremented by every change, so that a lookup racing with a change does not keep what it read in the cache
+	private final AtomicLong changes = new AtomicLong();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	
+	/**
+	 * @param delegate    The store to cache the words of.
+	 * @param maximumSize The largest number of words, including missing words, to keep in the cache.
+	 */
+	public CachingVocabularyStore(VocabularyStore delegate, int maximumSize) {
+		if (maximumSize < 1) {
+			throw new IllegalArgumentException("Cache size must be positive: " + maximumSize);
+		}
+		this.delegate = delegate;
+		this.maximumSize = maximumSize;
+		// A power of two, so that a shard is selected by masking the hash
+		this.shards = new Shard[Integer.highestOneBit(Math.min(MAX_SHARDS, maximumSize))];
+		for (int i = 0; i < shards.length; i++) {
+			// The first shards take the remainder, so that the capacities add up to the maximum size
+			shards[i] = new Shard(maximumSize / shards.length + (i < maximumSize % shards.length ? 1 : 0));
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String get(String word) {
+		Shard shard = shard(word);
+		String meaning = shard.get(word);
+		if (meaning != null) {
+			hits.increment();
+			return meaning == ABSENT ? null : meaning;
+		}
+		misses.increment();
+		long version = changes.get();
+		meaning = delegate.get(word);
+		shard.put(word, meaning == null ? ABSENT : meaning);
+		if (changes.get() != version) {
+			// A change may have invalidated the word before what was read from the store was cached
+			shard.invalidate(word);
+		}
+		return meaning;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String put(String word, String meaning) {
+		String previous = delegate.put(word, meaning);
+		changes.incrementAndGet();
+		shard(word).invalidate(word);
+		return previous;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void putAll(SortedMap<String, String> words) {
+		delegate.putAll(words);
+		changes.incrementAndGet();
+		for (String word : words.keySet()) {
+			shard(word).invalidate(word);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String remove(String word) {
+		String previous = delegate.remove(word);
+		changes.incrementAndGet();
+		shard(word).invalidate(word);
+		return previous;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeAll(Collection<String> words) {
+		delegate.removeAll(words);
+		changes.incrementAndGet();
+		for (String word : words) {
+			shard(word).invalidate(word);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return delegate.size();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long estimatedMemoryUsage() {
+		return delegate.estimatedMemoryUsage();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SortedMap<String, String> snapshot() {
+		return delegate.snapshot();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isFileBacked() {
+		return delegate.isFileBacked();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void checkpoint(SortedMap<String, String> snapshot) throws IOException {
+		delegate.checkpoint(snapshot);
+	}
+	
+	/**
+	 * @return The largest number of words kept in the cache.
+	 */
+	public int maximumSize() {
+		return maximumSize;
+	}
+	
+	/**
+	 * @return The number of words, including missing words, currently in the cache.
+	 */
+	public int cachedWords() {
+		int cached = 0;
+		for (Shard shard : shards) {
+			cached += shard.size();
+		}
+		return cached;
+	}
+	
+	/**
+	 * @return The number of lookups answered from the cache, including those of missing words.
+	 */
+	public long hitCount() {
+		return hits.sum();
+	}
+	
+	/**
+	 * @return The number of lookups that read the underlying store.
+	 */
+	public long missCount() {
+		return misses.sum();
+	}
+	
+	/**
+	 * @return The number of words dropped from the cache to make room for others.
+	 */
+	public long evictionCount() {
+		return evictions.sum();
+	}
+	
+	/**
+	 * @return The percentage of lookups answered from the cache, or 0 if there were none yet.
+	 */
+	public double hitRatio() {
+		long hitCount = hits.sum();
+		long total = hitCount + misses.sum();
+		return total == 0 ? 0 : 100.0 * hitCount / total;
+	}
+	
+	private Shard shard(String word) {
+		int hash = word.hashCode();
+		return shards[(hash ^ (hash >>> 16)) & (shards.length - 1)];
+	}
+	
+	/**
+	 * One shard of the segmented LRU cache. Both segments are kept in least recently used order.
+	 */
+	private final class Shard {
+		private final int capacity;
+		private final int protectedCapacity;
+		private final LinkedHashMap<String, String> probation = new LinkedHashMap<>();
+		private final LinkedHashMap<String, String> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+		
+		Shard(int capacity) {
+			this.capacity = capacity;
+			this.protectedCapacity = (int) (capacity * PROTECTED_RATIO);
+		}
+		
+		/**
+		 * Looks up a word and marks it as used. A hit in the protected segment allocates nothing.
+		 */
+		synchronized String get(String word) {
+			String meaning = protectedSegment.get(word);
+			if (meaning == null) {
+				meaning = probation.remove(word);
+				if (meaning != null) {
+					protectedSegment.put(word, meaning);
+					if (protectedSegment.size() > protectedCapacity) {
+						// The least recently used protected word gets another chance in the probationary segment
+						Map.Entry<String, String> demoted = removeEldest(protectedSegment);
+						probation.put(demoted.getKey(), demoted.getValue());
+					}
+				}
+			}
+			return meaning;
+		}
+		
+		synchronized void put(String word, String meaning) {
+			if (protectedSegment.containsKey(word)) {
+				protectedSegment.put(word, meaning);
+				return;
+			}
+			probation.put(word, meaning);
+			if (probation.size() + protectedSegment.size() > capacity) {
+				removeEldest(probation.isEmpty() ? protectedSegment : probation);
+				evictions.increment();
+			}
+		}
+		
+		synchronized void invalidate(String word) {
+			if (protectedSegment.remove(word) == null) {
+				probation.remove(word);
+			}
+		}
+		
+		synchronized int size() {
+			return probation.size() + protectedSegment.size();
+		}
+		
+		private static Map.Entry<String, String> removeEldest(LinkedHashMap<String, String> segment) {
+			Iterator<Map.Entry<String, String>> iterator = segment.entrySet().iterator();
+			Map.Entry<String, String> eldest = iterator.next();
+			iterator.remove();
+			return eldest;
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package org.nokia.vocabulary.store;
+
+import java.util.Collection;
+import java.util.SortedMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free vocabulary store holding the current version of a {@link PersistentSortedMap}.
+ * <p>
+ * Readers only dereference the current version, so lookups and iteration never wait for writers and scale with the
+ * number of reading threads. Writers build the next version off to the side and publish it with a compare-and-set,
+ * retrying if another writer got there first. A snapshot is simply the version current at the time of the call.
+ */
+public class ConcurrentVocabularyStore implements VocabularyStore {
+	private final AtomicReference<PersistentSortedMap> current = new AtomicReference<>(PersistentSortedMap.empty());
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String get(String word) {
+		return current.get().get(word);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String put(String word, String meaning) {
+		while (true) {
+			PersistentSortedMap map = current.get();
+			String previous = map.get(word);
+			PersistentSortedMap updated = map.plus(word, meaning);
+			if (updated == map || current.compareAndSet(map, updated)) {
+				return previous;
+			}
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * All words become visible to readers at once.
+	 */
+	@Override
+	public void putAll(SortedMap<String, String> words) {
+		while (true) {
+			PersistentSortedMap map = current.get();
+			PersistentSortedMap updated = map.plusAll(words);
+			if (updated == map || current.compareAndSet(map, updated)) {
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String remove(String word) {
+		while (true) {
+			PersistentSortedMap map = current.get();
+			String previous = map.get(word);
+			if (previous == null) {
+				return null;
+			}
+			if (current.compareAndSet(map, map.minus(word))) {
+				return previous;
+			}
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeAll(Collection<String> words) {
+		while (true) {
+			PersistentSortedMap map = current.get();
+			PersistentSortedMap updated = map;
+			for (String word : words) {
+				updated = updated.minus(word);
+			}
+			if (updated == map || current.compareAndSet(map, updated)) {
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return current.get().size();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long estimatedMemoryUsage() {
+		return current.get().estimatedMemoryUsage();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SortedMap<String, String> snapshot() {
+		return current.get();
+	}
+}
@@ -0,0 +1,52 @@
+package org.nokia.vocabulary.store;
+
+import org.nokia.vocabulary.file.DictionaryConverter;
+import org.nokia.vocabulary.file.MappedDictionary;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SortedMap;
+
+/**
+ * Vocabulary store that serves lookups from a memory-mapped {@link MappedDictionary} file.
+ * <p>
+ * The dictionary itself is read-only. Words added, updated or removed since it was written are kept in the in-memory
+ * overlays of an {@link OverlayVocabularyStore}. A {@link #checkpoint} writes the merged view as a new dictionary
+ * file, maps it, and drops the overlay entries it now covers.
+ */
+public class MappedVocabularyStore extends OverlayVocabularyStore {
+	private final Path path;
+	private final DictionaryConverter converter;
+	
+	/**
+	 * Opens the store over the given dictionary file, which does not have to exist yet.
+	 *
+	 * @param path      The dictionary file.
+	 * @param converter Writes checkpoints to the dictionary file.
+	 * @throws IOException If the dictionary exists but cannot be mapped.
+	 */
+	public MappedVocabularyStore(Path path, DictionaryConverter converter) throws IOException {
+		super(Files.exists(path) ? MappedDictionary.open(path) : MappedDictionary.empty());
+		this.path = path;
+		this.converter = converter;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isFileBacked() {
+		return true;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void checkpoint(SortedMap<String, String> snapshot) throws IOException {
+		checkSnapshot(snapshot);
+		converter.writeDictionary(path, snapshot);
+		replaceBase(snapshot, MappedDictionary.open(path));
+	}
+}
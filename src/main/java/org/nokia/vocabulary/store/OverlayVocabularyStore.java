@@ -0,0 +1,313 @@
+package org.nokia.vocabulary.store;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SortedMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Vocabulary store that serves a read-only {@link SortedDictionary} and keeps the changes made since it was built in
+ * two small in-memory overlays, which are consulted first.
+ * <p>
+ * Subclasses decide when to fold the overlays into a new dictionary and call {@link #replaceBase} with it. Like
+ * {@link ConcurrentVocabularyStore}, the whole state is published through a single reference, so reads are lock-free
+ * and snapshots are free.
+ */
+public abstract class OverlayVocabularyStore implements VocabularyStore {
+	private final AtomicReference<State> current;
+	
+	/**
+	 * @param base The dictionary to start from.
+	 */
+	protected OverlayVocabularyStore(SortedDictionary base) {
+		this.current = new AtomicReference<>(new State(base, PersistentSortedMap.empty(), PersistentSortedMap.empty(), base.size()));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String get(String word) {
+		return current.get().lookup(word);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String put(String word, String meaning) {
+		while (true) {
+			State state = current.get();
+			String previous = state.lookup(word);
+			State updated = new State(state.base, state.overlay.plus(word, meaning), state.removed.minus(word),
+					previous == null ? state.size + 1 : state.size);
+			if (current.compareAndSet(state, updated)) {
+				return previous;
+			}
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void putAll(SortedMap<String, String> words) {
+		while (true) {
+			State state = current.get();
+			PersistentSortedMap removed = state.removed;
+			int added = 0;
+			for (String word : words.keySet()) {
+				if (state.lookup(word) == null) {
+					added++;
+				}
+				removed = removed.minus(word);
+			}
+			State updated = new State(state.base, state.overlay.plusAll(words), removed, state.size + added);
+			if (current.compareAndSet(state, updated)) {
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String remove(String word) {
+		while (true) {
+			State state = current.get();
+			String previous = state.lookup(word);
+			if (previous == null) {
+				return null;
+			}
+			// Always recorded, since a new base being built from an earlier snapshot may still contain the word
+			State updated = new State(state.base, state.overlay.minus(word), state.removed.plus(word, ""), state.size - 1);
+			if (current.compareAndSet(state, updated)) {
+				return previous;
+			}
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeAll(Collection<String> words) {
+		while (true) {
+			State state = current.get();
+			PersistentSortedMap overlay = state.overlay;
+			PersistentSortedMap removed = state.removed;
+			int size = state.size;
+			for (String word : words) {
+				if (overlay.get(word) != null || !removed.containsKey(word) && state.base.get(word) != null) {
+					overlay = overlay.minus(word);
+					removed = removed.plus(word, "");
+					size--;
+				}
+			}
+			if (size == state.size || current.compareAndSet(state, new State(state.base, overlay, removed, size))) {
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return current.get().size;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long estimatedMemoryUsage() {
+		State state = current.get();
+		return state.base.estimatedMemoryUsage() + state.overlay.estimatedMemoryUsage() + state.removed.estimatedMemoryUsage();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SortedMap<String, String> snapshot() {
+		return new MergedView(current.get(), null, null);
+	}
+	
+	/**
+	 * @return The number of words held in the in-memory overlays rather than the dictionary.
+	 */
+	public int overlaySize() {
+		State state = current.get();
+		return state.overlay.size() + state.removed.size();
+	}
+	
+	/**
+	 * @return The dictionary currently served.
+	 */
+	protected SortedDictionary base() {
+		return current.get().base;
+	}
+	
+	/**
+	 * Checks that a map is a whole snapshot previously returned by {@link #snapshot()}.
+	 *
+	 * @throws IllegalArgumentException If it is not.
+	 */
+	protected static void checkSnapshot(SortedMap<String, String> snapshot) {
+		if (!(snapshot instanceof MergedView view) || view.from != null || view.to != null) {
+			throw new IllegalArgumentException("Not a snapshot of this store");
+		}
+	}
+	
+	/**
+	 * Starts serving a dictionary holding the entries of a snapshot. Overlay entries covered by the new dictionary are
+	 * dropped; changes made after the snapshot was taken are kept.
+	 *
+	 * @param snapshot A whole snapshot previously returned by {@link #snapshot()}.
+	 * @param base     The dictionary with exactly the entries of the snapshot.
+	 */
+	protected void replaceBase(SortedMap<String, String> snapshot, SortedDictionary base) {
+		checkSnapshot(snapshot);
+		State covered = ((MergedView) snapshot).state;
+		while (true) {
+			State state = current.get();
+			// Overlay entries still holding the value that went into the new base are now covered by it
+			PersistentSortedMap overlay = state.overlay;
+			for (Map.Entry<String, String> entry : covered.overlay.entrySet()) {
+				if (overlay.get(entry.getKey()) == entry.getValue()) {
+					overlay = overlay.minus(entry.getKey());
+				}
+			}
+			// Words removed before the snapshot are absent from the new base
+			PersistentSortedMap removed = state.removed;
+			for (String word : covered.removed.keySet()) {
+				removed = removed.minus(word);
+			}
+			if (current.compareAndSet(state, new State(base, overlay, removed, state.size))) {
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * One immutable version of the store: the base, the words put since, and the words removed since.
+	 */
+	private record State(SortedDictionary base, PersistentSortedMap overlay, PersistentSortedMap removed, int size) {
+		
+		String lookup(String word) {
+			String meaning = overlay.get(word);
+			if (meaning != null) {
+				return meaning;
+			}
+			return removed.containsKey(word) ? null : base.get(word);
+		}
+	}
+	
+	/**
+	 * Sorted view merging the base dictionary with the overlays of one state.
+	 */
+	private static final class MergedView extends AbstractSortedView {
+		private final State state;
+		
+		MergedView(State state, String from, String to) {
+			super(from, to);
+			this.state = state;
+		}
+		
+		@Override
+		protected Iterator<Map.Entry<String, String>> iterator(String from, String to) {
+			Iterator<Map.Entry<String, String>> base = range(state.base.view(), from, to).entrySet().iterator();
+			Iterator<Map.Entry<String, String>> overlay = range(state.overlay, from, to).entrySet().iterator();
+			return new Iterator<>() {
+				private Map.Entry<String, String> nextBase = advance(base);
+				private Map.Entry<String, String> nextOverlay = overlay.hasNext() ? overlay.next() : null;
+				
+				@Override
+				public boolean hasNext() {
+					return nextBase != null || nextOverlay != null;
+				}
+				
+				@Override
+				public Map.Entry<String, String> next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					int cmp = nextBase == null ? 1 : nextOverlay == null ? -1 : nextBase.getKey().compareTo(nextOverlay.getKey());
+					Map.Entry<String, String> next;
+					if (cmp < 0) {
+						next = nextBase;
+						nextBase = advance(base);
+					} else {
+						next = nextOverlay;
+						nextOverlay = overlay.hasNext() ? overlay.next() : null;
+						if (cmp == 0) {
+							nextBase = advance(base);
+						}
+					}
+					return next;
+				}
+			};
+		}
+		
+		@Override
+		protected String lookup(String key) {
+			return state.lookup(key);
+		}
+		
+		/**
+		 * Counts the words in a range in O(log n + k log n), where k is the number of words in the range changed since
+		 * the dictionary was built: the dictionary counts its words by binary search, and only the changed words are
+		 * looked up in it.
+		 */
+		@Override
+		protected int count(String from, String to) {
+			if (from == null && to == null) {
+				return state.size;
+			}
+			int count = range(state.base.view(), from, to).size();
+			// A word is either put or removed since, never both
+			for (String word : range(state.overlay, from, to).keySet()) {
+				if (state.base.get(word) == null) {
+					count++;
+				}
+			}
+			for (String word : range(state.removed, from, to).keySet()) {
+				if (state.base.get(word) != null) {
+					count--;
+				}
+			}
+			return count;
+		}
+		
+		@Override
+		protected AbstractSortedView withBounds(String from, String to) {
+			return new MergedView(state, from, to);
+		}
+		
+		private Map.Entry<String, String> advance(Iterator<Map.Entry<String, String>> base) {
+			while (base.hasNext()) {
+				Map.Entry<String, String> entry = base.next();
+				if (!state.removed.containsKey(entry.getKey())) {
+					return entry;
+				}
+			}
+			return null;
+		}
+		
+		private static SortedMap<String, String> range(SortedMap<String, String> map, String from, String to) {
+			if (from != null && to != null) {
+				return from.compareTo(to) < 0 ? map.subMap(from, to) : Collections.emptySortedMap();
+			}
+			if (from != null) {
+				return map.tailMap(from);
+			}
+			return to != null ? map.headMap(to) : map;
+		}
+	}
+}
@@ -0,0 +1,407 @@
+package org.nokia.vocabulary.store;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.SortedMap;
+
+/**
+ * Immutable sorted map of strings backed by a persistent AVL tree.
+ * <p>
+ * Updates never modify an existing node: {@link #plus} and {@link #minus} copy the O(log n) nodes on the path to the
+ * changed key and share everything else with the previous version. Any number of versions can therefore be held at
+ * once, and handing one out as a snapshot costs nothing. Every node also counts the nodes below it, which keeps
+ * {@link #size()} of bounded views at O(log n), and the characters of their keys and values, which keeps
+ * {@link #estimatedMemoryUsage()} at O(1).
+ */
+public final class PersistentSortedMap extends AbstractSortedView {
+	private static final PersistentSortedMap EMPTY = new PersistentSortedMap(null, null, null);
+	// Bytes of a node, and of a string without its characters: object header and fields, plus the header of its byte
+	// array, assuming compressed class pointers and references
+	private static final int NODE_BYTES = 40;
+	private static final int STRING_BYTES = 24 + 16;
+	
+	private final Node root;
+	
+	private PersistentSortedMap(Node root, String from, String to) {
+		super(from, to);
+		this.root = root;
+	}
+	
+	/**
+	 * @return The empty map.
+	 */
+	public static PersistentSortedMap empty() {
+		return EMPTY;
+	}
+	
+	/**
+	 * Returns a map with the given word mapped to the given meaning. Only valid on unbounded maps.
+	 *
+	 * @param word    The word.
+	 * @param meaning The meaning.
+	 * @return The new version of the map, or this map if the word already had exactly that meaning.
+	 */
+	public PersistentSortedMap plus(String word, String meaning) {
+		Objects.requireNonNull(word);
+		Objects.requireNonNull(meaning);
+		checkUnbounded();
+		Node updated = insert(root, word, meaning);
+		return updated == root ? this : new PersistentSortedMap(updated, null, null);
+	}
+	
+	/**
+	 * Returns a map with all the given words added or updated. Only valid on unbounded maps.
+	 * <p>
+	 * Instead of one path copy per word, the words are merged in with a join-based union: the tree is split around the
+	 * words recursively and the parts are joined again. This costs O(m log(n / m + 1)) for m words merged into n, and
+	 * subtrees without any of the words are shared unchanged.
+	 *
+	 * @param words The words and their meanings.
+	 * @return The new version of the map.
+	 */
+	public PersistentSortedMap plusAll(SortedMap<String, String> words) {
+		checkUnbounded();
+		if (words.isEmpty()) {
+			return this;
+		}
+		String[] keys = new String[words.size()];
+		String[] values = new String[keys.length];
+		int i = 0;
+		for (Map.Entry<String, String> entry : words.entrySet()) {
+			keys[i] = Objects.requireNonNull(entry.getKey());
+			values[i++] = Objects.requireNonNull(entry.getValue());
+		}
+		Node updated = union(root, keys, values, 0, keys.length);
+		return updated == root ? this : new PersistentSortedMap(updated, null, null);
+	}
+	
+	/**
+	 * Returns a map without the given word. Only valid on unbounded maps.
+	 *
+	 * @param word The word.
+	 * @return The new version of the map, or this map if the word was not present.
+	 */
+	public PersistentSortedMap minus(String word) {
+		checkUnbounded();
+		Node updated = delete(root, word);
+		return updated == root ? this : new PersistentSortedMap(updated, null, null);
+	}
+	
+	@Override
+	protected Iterator<Map.Entry<String, String>> iterator(String from, String to) {
+		return new EntryIterator(root, from, to);
+	}
+	
+	@Override
+	protected String lookup(String key) {
+		Node node = find(root, key);
+		return node == null ? null : node.value;
+	}
+	
+	@Override
+	protected int count(String from, String to) {
+		return rank(to) - (from == null ? 0 : rank(from));
+	}
+	
+	@Override
+	protected AbstractSortedView withBounds(String from, String to) {
+		return new PersistentSortedMap(root, from, to);
+	}
+	
+	@Override
+	public String lastKey() {
+		Node last = null;
+		Node node = root;
+		while (node != null) {
+			if (to != null && node.key.compareTo(to) >= 0) {
+				node = node.left;
+			} else {
+				last = node;
+				node = node.right;
+			}
+		}
+		if (last == null || (from != null && last.key.compareTo(from) < 0)) {
+			throw new NoSuchElementException();
+		}
+		return last.key;
+	}
+	
+	/**
+	 * Estimates the heap taken by the whole tree, including the words and meanings, from the number of nodes and
+	 * characters. Strings are assumed to store one byte per character, as they do for Latin-1 text. Nodes and strings
+	 * shared with other versions are counted in full.
+	 *
+	 * @return The estimated number of bytes.
+	 */
+	public long estimatedMemoryUsage() {
+		return size(root) * (NODE_BYTES + 2L * STRING_BYTES) + characters(root);
+	}
+	
+	/**
+	 * @return The height of the tree, for checking its balance.
+	 */
+	int height() {
+		return height(root);
+	}
+	
+	private void checkUnbounded() {
+		if (from != null || to != null) {
+			throw new UnsupportedOperationException("Cannot update a sub map view");
+		}
+	}
+	
+	/**
+	 * @return The number of keys strictly less than the given key, or the size of the tree if the key is null.
+	 */
+	private int rank(String key) {
+		if (key == null) {
+			return size(root);
+		}
+		int rank = 0;
+		Node node = root;
+		while (node != null) {
+			if (key.compareTo(node.key) <= 0) {
+				node = node.left;
+			} else {
+				rank += size(node.left) + 1;
+				node = node.right;
+			}
+		}
+		return rank;
+	}
+	
+	private static Node find(Node node, String key) {
+		while (node != null) {
+			int cmp = key.compareTo(node.key);
+			if (cmp == 0) {
+				return node;
+			}
+			node = cmp < 0 ? node.left : node.right;
+		}
+		return null;
+	}
+	
+	private static Node insert(Node node, String key, String value) {
+		if (node == null) {
+			return new Node(key, value, null, null);
+		}
+		int cmp = key.compareTo(node.key);
+		if (cmp == 0) {
+			return value.equals(node.value) ? node : new Node(node.key, value, node.left, node.right);
+		}
+		if (cmp < 0) {
+			Node left = insert(node.left, key, value);
+			return left == node.left ? node : balance(node.key, node.value, left, node.right);
+		}
+		Node right = insert(node.right, key, value);
+		return right == node.right ? node : balance(node.key, node.value, node.left, right);
+	}
+	
+	private static Node delete(Node node, String key) {
+		if (node == null) {
+			return null;
+		}
+		int cmp = key.compareTo(node.key);
+		if (cmp < 0) {
+			Node left = delete(node.left, key);
+			return left == node.left ? node : balance(node.key, node.value, left, node.right);
+		}
+		if (cmp > 0) {
+			Node right = delete(node.right, key);
+			return right == node.right ? node : balance(node.key, node.value, node.left, right);
+		}
+		if (node.left == null) {
+			return node.right;
+		}
+		if (node.right == null) {
+			return node.left;
+		}
+		Node successor = node.right;
+		while (successor.left != null) {
+			successor = successor.left;
+		}
+		return balance(successor.key, successor.value, node.left, delete(node.right, successor.key));
+	}
+	
+	/**
+	 * Merges the sorted keys in {@code [from, to)} into a tree, their values replacing existing ones.
+	 */
+	private static Node union(Node node, String[] keys, String[] values, int from, int to) {
+		if (from == to) {
+			return node;
+		}
+		if (node == null) {
+			return build(keys, values, from, to);
+		}
+		int split = Arrays.binarySearch(keys, from, to, node.key);
+		boolean found = split >= 0;
+		if (!found) {
+			split = -split - 1;
+		}
+		Node left = union(node.left, keys, values, from, split);
+		Node right = union(node.right, keys, values, found ? split + 1 : split, to);
+		String value = found ? values[split] : node.value;
+		if (left == node.left && right == node.right && value.equals(node.value)) {
+			return node;
+		}
+		return join(left, node.key, value, right);
+	}
+	
+	/**
+	 * @return A perfectly balanced tree of the sorted keys in {@code [from, to)}.
+	 */
+	private static Node build(String[] keys, String[] values, int from, int to) {
+		if (from == to) {
+			return null;
+		}
+		int mid = (from + to) >>> 1;
+		return new Node(keys[mid], values[mid], build(keys, values, from, mid), build(keys, values, mid + 1, to));
+	}
+	
+	/**
+	 * Joins two trees of any height and a key between them into one balanced tree, descending along the spine of the
+	 * taller tree until the heights match.
+	 */
+	private static Node join(Node left, String key, String value, Node right) {
+		if (height(left) > height(right) + 1) {
+			return balance(left.key, left.value, left.left, join(left.right, key, value, right));
+		}
+		if (height(right) > height(left) + 1) {
+			return balance(right.key, right.value, join(left, key, value, right.left), right.right);
+		}
+		return new Node(key, value, left, right);
+	}
+	
+	private static Node balance(String key, String value, Node left, Node right) {
+		int diff = height(left) - height(right);
+		if (diff > 1) {
+			if (height(left.left) < height(left.right)) {
+				left = rotateLeft(left.left, left.right, left.key, left.value);
+			}
+			return new Node(left.key, left.value, left.left, new Node(key, value, left.right, right));
+		}
+		if (diff < -1) {
+			if (height(right.right) < height(right.left)) {
+				right = rotateRight(right.left, right.right, right.key, right.value);
+			}
+			return new Node(right.key, right.value, new Node(key, value, left, right.left), right.right);
+		}
+		return new Node(key, value, left, right);
+	}
+	
+	private static Node rotateLeft(Node left, Node right, String key, String value) {
+		return new Node(right.key, right.value, new Node(key, value, left, right.left), right.right);
+	}
+	
+	private static Node rotateRight(Node left, Node right, String key, String value) {
+		return new Node(left.key, left.value, left.left, new Node(key, value, left.right, right));
+	}
+	
+	private static int height(Node node) {
+		return node == null ? 0 : node.height;
+	}
+	
+	private static int size(Node node) {
+		return node == null ? 0 : node.size;
+	}
+	
+	private static long characters(Node node) {
+		return node == null ? 0 : Integer.toUnsignedLong(node.characters);
+	}
+	
+	/**
+	 * Tree node, also handed out directly as the map entry so that iteration does not allocate per entry. The character
+	 * count is an unsigned int, which fits in the padding of the object instead of growing it.
+	 */
+	private static final class Node implements Map.Entry<String, String> {
+		final String key;
+		final String value;
+		final Node left;
+		final Node right;
+		final int height;
+		final int size;
+		final int characters;
+		
+		Node(String key, String value, Node left, Node right) {
+			this.key = key;
+			this.value = value;
+			this.left = left;
+			this.right = right;
+			this.height = Math.max(height(left), height(right)) + 1;
+			this.size = size(left) + size(right) + 1;
+			this.characters = (int) (characters(left) + characters(right) + key.length() + value.length());
+		}
+		
+		@Override
+		public String getKey() {
+			return key;
+		}
+		
+		@Override
+		public String getValue() {
+			return value;
+		}
+		
+		@Override
+		public String setValue(String value) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Map.Entry<?, ?> entry && key.equals(entry.getKey()) && value.equals(entry.getValue());
+		}
+		
+		@Override
+		public int hashCode() {
+			return key.hashCode() ^ value.hashCode();
+		}
+		
+		@Override
+		public String toString() {
+			return key + "=" + value;
+		}
+	}
+	
+	/**
+	 * In-order iterator over the nodes in [from, to), seeded by descending from the root towards the lower bound.
+	 */
+	private static final class EntryIterator implements Iterator<Map.Entry<String, String>> {
+		private final ArrayDeque<Node> stack = new ArrayDeque<>();
+		private final String to;
+		
+		EntryIterator(Node root, String from, String to) {
+			this.to = to;
+			Node node = root;
+			while (node != null) {
+				if (from != null && node.key.compareTo(from) < 0) {
+					node = node.right;
+				} else {
+					stack.push(node);
+					node = node.left;
+				}
+			}
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return !stack.isEmpty() && (to == null || stack.peek().key.compareTo(to) < 0);
+		}
+		
+		@Override
+		public Map.Entry<String, String> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Node node = stack.pop();
+			for (Node child = node.right; child != null; child = child.left) {
+				stack.push(child);
+			}
+			return node;
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package org.nokia.vocabulary.store;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SortedMap;
+
+/**
+ * Immutable vocabulary whose entries are stored in word order and addressed by their index in that order, such as a
+ * memory-mapped dictionary file or a packed in-memory arena.
+ * <p>
+ * Subclasses only provide access to the entry at an index; lookups by binary search and sorted map views are derived
+ * from that. Words are kept as UTF-8 bytes, so comparing them against a searched word goes through {@link #compare}
+ * without decoding.
+ */
+public abstract class SortedDictionary {
+	
+	/**
+	 * @return The number of entries.
+	 */
+	public abstract int size();
+	
+	/**
+	 * @return An estimate of the heap, in bytes, taken by the dictionary.
+	 */
+	public abstract long estimatedMemoryUsage();
+	
+	/**
+	 * Compares a word with the word of the entry at an index.
+	 *
+	 * @return A negative number, zero or a positive number as the word is less than, equal to or greater than it.
+	 */
+	protected abstract int compareWord(String word, int index);
+	
+	/**
+	 * @return The word of the entry at an index.
+	 */
+	protected abstract String word(int index);
+	
+	/**
+	 * @return The meaning of the entry at an index.
+	 */
+	protected abstract String meaning(int index);
+	
+	/**
+	 * Binary-searches the dictionary for a word.
+	 *
+	 * @param word The word to look up.
+	 * @return The meaning of the word, or null if the word is not in the dictionary.
+	 */
+	public String get(String word) {
+		int index = lowerBound(word);
+		return index < size() && compareWord(word, index) == 0 ? meaning(index) : null;
+	}
+	
+	/**
+	 * @return An immutable sorted map view of the dictionary that decodes entries on demand.
+	 */
+	public SortedMap<String, String> view() {
+		return new View(null, null);
+	}
+	
+	/**
+	 * @return The index of the first entry whose word is not less than the given word, or the size if there is none.
+	 */
+	protected int lowerBound(String word) {
+		int low = 0;
+		int high = size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (compareWord(word, mid) > 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+	
+	/**
+	 * Compares a word with UTF-8 encoded bytes in String (UTF-16 code unit) order, decoding on the fly.
+	 *
+	 * @return A negative number, zero or a positive number as the word is less than, equal to or greater than the key.
+	 */
+	public static int compare(String word, ByteBuffer buffer, int position, int length) {
+		int end = position + length;
+		int i = 0;
+		int wordLength = word.length();
+		while (position < end) {
+			int b = buffer.get(position) & 0xFF;
+			int codePoint;
+			if (b < 0x80) {
+				codePoint = b;
+				position += 1;
+			} else if (b < 0xE0) {
+				codePoint = ((b & 0x1F) << 6) | (buffer.get(position + 1) & 0x3F);
+				position += 2;
+			} else if (b < 0xF0) {
+				codePoint = ((b & 0x0F) << 12) | ((buffer.get(position + 1) & 0x3F) << 6) | (buffer.get(position + 2) & 0x3F);
+				position += 3;
+			} else {
+				codePoint = ((b & 0x07) << 18) | ((buffer.get(position + 1) & 0x3F) << 12)
+						| ((buffer.get(position + 2) & 0x3F) << 6) | (buffer.get(position + 3) & 0x3F);
+				position += 4;
+			}
+			if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+				if (i == wordLength) {
+					return -1;
+				}
+				int diff = word.charAt(i++) - codePoint;
+				if (diff != 0) {
+					return diff;
+				}
+			} else {
+				if (i == wordLength) {
+					return -1;
+				}
+				int diff = word.charAt(i++) - Character.highSurrogate(codePoint);
+				if (diff != 0) {
+					return diff;
+				}
+				if (i == wordLength) {
+					return -1;
+				}
+				diff = word.charAt(i++) - Character.lowSurrogate(codePoint);
+				if (diff != 0) {
+					return diff;
+				}
+			}
+		}
+		return i < wordLength ? 1 : 0;
+	}
+	
+	/**
+	 * Sorted map view over a range of the dictionary.
+	 */
+	private final class View extends AbstractSortedView {
+		
+		View(String from, String to) {
+			super(from, to);
+		}
+		
+		@Override
+		protected Iterator<Map.Entry<String, String>> iterator(String from, String to) {
+			int start = from == null ? 0 : lowerBound(from);
+			int end = to == null ? SortedDictionary.this.size() : lowerBound(to);
+			return new Iterator<>() {
+				private int next = start;
+				
+				@Override
+				public boolean hasNext() {
+					return next < end;
+				}
+				
+				@Override
+				public Map.Entry<String, String> next() {
+					if (next >= end) {
+						throw new NoSuchElementException();
+					}
+					int index = next++;
+					return new AbstractMap.SimpleImmutableEntry<>(word(index), meaning(index));
+				}
+			};
+		}
+		
+		@Override
+		protected String lookup(String key) {
+			return SortedDictionary.this.get(key);
+		}
+		
+		@Override
+		protected int count(String from, String to) {
+			return (to == null ? SortedDictionary.this.size() : lowerBound(to)) - (from == null ? 0 : lowerBound(from));
+		}
+		
+		@Override
+		protected AbstractSortedView withBounds(String from, String to) {
+			return new View(from, to);
+		}
+		
+		@Override
+		public String lastKey() {
+			int end = to == null ? SortedDictionary.this.size() : lowerBound(to);
+			if (end == 0 || end <= (from == null ? 0 : lowerBound(from))) {
+				throw new NoSuchElementException();
+			}
+			return word(end - 1);
+		}
+	}
+}
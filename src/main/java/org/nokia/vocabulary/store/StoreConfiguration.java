@@ -0,0 +1,78 @@
+package org.nokia.vocabulary.store;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nokia.vocabulary.file.DictionaryConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Provides the store that holds the vocabulary, selected by {@code vocabulary.store.type}:
+ * <ul>
+ *     <li>{@code memory} (default): the lock-free, sorted in-memory store, filled from the JSON file.</li>
+ *     <li>{@code mapped}: a memory-mapped binary dictionary at {@code vocabulary.dictionary.path}. If the dictionary
+ *     does not exist yet, it is created from the JSON file on first start.</li>
+ *     <li>{@code arena}: the words packed as UTF-8 into large byte slabs, filled from the JSON file. With
+ *     {@code vocabulary.arena.off-heap} the slabs are allocated outside of the heap.</li>
+ * </ul>
+ * If {@code vocabulary.cache.size} is positive, the store is wrapped in a {@link CachingVocabularyStore} keeping up to
+ * that many recently looked up words. Named vocabularies get stores of the same kind from the
+ * {@link VocabularyStoreFactory}.
+ */
+@Configuration
+public class StoreConfiguration {
+	private static final Logger logger = LogManager.getLogger(StoreConfiguration.class);
+	
+	/**
+	 * @return The factory of the stores of all vocabularies, configured by {@code vocabulary.store.type},
+	 * {@code vocabulary.arena.off-heap} and {@code vocabulary.cache.size}.
+	 */
+	@Bean
+	public VocabularyStoreFactory vocabularyStoreFactory(@Value("${vocabulary.store.type:memory}") String type,
+														 @Value("${vocabulary.arena.off-heap:false}") boolean offHeap,
+														 @Value("${vocabulary.cache.size:0}") int cacheSize,
+														 DictionaryConverter converter) {
+		return (jsonPath, dictionaryPath) -> {
+			VocabularyStore store = createStore(type, dictionaryPath, jsonPath, offHeap, converter);
+			if (cacheSize > 0) {
+				logger.info("Caching up to {} words of the {} store.", cacheSize, type);
+				return new CachingVocabularyStore(store, cacheSize);
+			}
+			return store;
+		};
+	}
+	
+	/**
+	 * @return The store used by the default vocabulary.
+	 * @throws IOException If the mapped dictionary cannot be created or opened.
+	 */
+	@Bean
+	public VocabularyStore vocabularyStore(VocabularyStoreFactory factory,
+										   @Value("${vocabulary.dictionary.path:vocabulary.dict}") Path dictionaryPath,
+										   @Value("${output.file.path}") Path jsonPath) throws IOException {
+		return factory.create(jsonPath, dictionaryPath);
+	}
+	
+	private static VocabularyStore createStore(String type, Path dictionaryPath, Path jsonPath, boolean offHeap,
+											   DictionaryConverter converter) throws IOException {
+		switch (type) {
+			case "memory":
+				return new ConcurrentVocabularyStore();
+			case "mapped":
+				if (!Files.exists(dictionaryPath) && Files.exists(jsonPath)) {
+					long converted = converter.jsonToDictionary(jsonPath, dictionaryPath);
+					logger.info("Converted {} entries from {} to dictionary {}.", converted, jsonPath, dictionaryPath);
+				}
+				return new MappedVocabularyStore(dictionaryPath, converter);
+			case "arena":
+				return new ArenaVocabularyStore(offHeap);
+			default:
+				throw new IllegalArgumentException("Unknown vocabulary.store.type: " + type);
+		}
+	}
+}
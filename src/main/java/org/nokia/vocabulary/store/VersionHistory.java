@@ -0,0 +1,297 @@
+package org.nokia.vocabulary.store;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * The recent versions of the words of a {@link VocabularyStore}, so that the meaning a word had at an earlier version
+ * of the vocabulary can be looked up. Every change gets the next version number; a batch of changes shares the
+ * version it ends at.
+ * <p>
+ * Each changed word has a chain of immutable nodes, newest first, ending in the meaning the word had before its first
+ * retained change. Words without a chain have not changed within the retained versions, so the store holds their
+ * meaning at every one of them. Readers need no lock: a change is recorded here before it is applied to the store,
+ * and its version is published after, so a reader that reads the store and then the chain never misses a change.
+ * <p>
+ * Only the last {@code retention} versions are kept. Once that many versions were added since the last collection,
+ * older nodes are dropped on a background thread.
+ */
+public final class VersionHistory {
+	private static final Logger logger = LogManager.getLogger(VersionHistory.class);
+	// Shared by every history; a collection is short and at most one per history runs at a time
+	private static final ExecutorService COLLECTOR = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "vocabulary-history-collector");
+		thread.setDaemon(true);
+		return thread;
+	});
+	// Version of the node ending a chain, holding the meaning from before the retained versions
+	private static final long ORIGIN = 0;
+	private final int retention;
+	private final Executor collector;
+	private final Map<String, Node> chains = new ConcurrentHashMap<>();
+	private final AtomicBoolean collecting = new AtomicBoolean();
+	// The latest version applied to the store, and the first version recorded since loading or since a reset
+	private volatile long latest;
+	private volatile long start;
+	// Only used by writers, which are serialized by the caller
+	private long collectedAt;
+	
+	/**
+	 * A change of a word, as listed by {@link #history}.
+	 *
+	 * @param version The version of the change.
+	 * @param meaning The meaning the word got, or null if it was removed.
+	 */
+	public record Version(long version, String meaning) {
+	}
+	
+	private record Node(long version, String meaning, Node older) {
+	}
+	
+	/**
+	 * Constructs a VersionHistory that collects old versions on a shared background thread.
+	 *
+	 * @param retention The number of versions to keep, or 0 to keep only the latest.
+	 */
+	public VersionHistory(int retention) {
+		this(retention, COLLECTOR);
+	}
+	
+	/**
+	 * Constructs a VersionHistory.
+	 *
+	 * @param retention The number of versions to keep, or 0 to keep only the latest.
+	 * @param collector The executor to drop old versions with.
+	 */
+	public VersionHistory(int retention, Executor collector) {
+		if (retention < 0) {
+			throw new IllegalArgumentException("Retention must not be negative: " + retention);
+		}
+		this.retention = retention;
+		this.collector = collector;
+	}
+	
+	/**
+	 * @return The number of versions kept.
+	 */
+	public int retention() {
+		return retention;
+	}
+	
+	/**
+	 * @return True if earlier versions are kept at all.
+	 */
+	public boolean isEnabled() {
+		return retention > 0;
+	}
+	
+	/**
+	 * @return The latest version applied to the store.
+	 */
+	public long latest() {
+		return latest;
+	}
+	
+	/**
+	 * @return The oldest version whose meanings can still be looked up.
+	 */
+	public long oldest() {
+		return Math.max(start, latest - retention);
+	}
+	
+	/**
+	 * Starts recording at the given version, forgetting every earlier one. Must be called by the writer before it
+	 * applies changes that are not recorded, such as loading the store.
+	 *
+	 * @param version The version the store is at once the unrecorded changes are applied.
+	 */
+	public void reset(long version) {
+		start = version;
+		chains.clear();
+		collectedAt = version;
+	}
+	
+	/**
+	 * Records a change of one word. Must be called by the writer before the change is applied to the store.
+	 *
+	 * @param word     The changed word.
+	 * @param previous The meaning the word has in the store, or null if it is not stored.
+	 * @param meaning  The new meaning, or null if the word is removed.
+	 * @param version  The version of the change.
+	 */
+	public void record(String word, String previous, String meaning, long version) {
+		if (retention > 0) {
+			chains.compute(word, (key, head) -> new Node(version, meaning, head != null ? head : new Node(ORIGIN, previous, null)));
+		}
+	}
+	
+	/**
+	 * Records a batch of words being stored. A batch larger than the retention leaves no earlier version retained, so
+	 * it is not recorded word by word; the history is reset instead.
+	 *
+	 * @param words    The words and their new meanings.
+	 * @param previous Looks up the meaning a word has in the store.
+	 * @param version  The version the batch ends at.
+	 */
+	public void recordPuts(SortedMap<String, String> words, Function<String, String> previous, long version) {
+		if (words.size() > retention) {
+			reset(version);
+			return;
+		}
+		words.forEach((word, meaning) -> record(word, previous.apply(word), meaning, version));
+	}
+	
+	/**
+	 * Records a batch of words being removed, like {@link #recordPuts}.
+	 *
+	 * @param words   The removed words and the meanings they have in the store.
+	 * @param version The version the batch ends at.
+	 */
+	public void recordRemoves(SortedMap<String, String> words, long version) {
+		if (words.size() > retention) {
+			reset(version);
+			return;
+		}
+		words.forEach((word, meaning) -> record(word, meaning, null, version));
+	}
+	
+	/**
+	 * Makes a version visible to readers. Must be called by the writer after the changes up to it are applied to the
+	 * store. Starts collecting old versions once {@code retention} versions were added since the last collection.
+	 *
+	 * @param version The version the store is at.
+	 */
+	public void publish(long version) {
+		latest = version;
+		if (retention > 0 && version - collectedAt >= retention && collecting.compareAndSet(false, true)) {
+			collectedAt = version;
+			collector.execute(this::collect);
+		}
+	}
+	
+	/**
+	 * Looks up the meaning a word had at a version.
+	 *
+	 * @param store   The store the history belongs to.
+	 * @param word    The word to look up.
+	 * @param version The version to look it up at.
+	 * @return The meaning, or null if the word was not stored at that version.
+	 * @throws IllegalArgumentException If the version is not retained or does not exist yet.
+	 */
+	public String get(VocabularyStore store, String word, long version) {
+		checkRetained(version);
+		// The store first: any change applied to it since is then found in the chain
+		String meaning = store.get(word);
+		for (Node node = chains.get(word); node != null; node = node.older()) {
+			if (node.version() <= version) {
+				meaning = node.meaning();
+				break;
+			}
+		}
+		// A collection may have dropped the versions the lookup relied on while it ran
+		checkRetained(version);
+		return meaning;
+	}
+	
+	/**
+	 * Lists the retained changes of a word.
+	 *
+	 * @param store The store the history belongs to.
+	 * @param word  The word to list the changes of.
+	 * @return The changes, newest first. If the word was stored at the oldest retained version, the last entry is its
+	 * meaning then, with that version. Empty if the word was neither stored nor changed within the retained versions.
+	 */
+	public List<Version> history(VocabularyStore store, String word) {
+		long newest = latest;
+		long oldest = oldest();
+		String meaning = store.get(word);
+		List<Version> versions = new ArrayList<>();
+		for (Node node = chains.get(word); node != null; node = node.older()) {
+			if (node.version() > newest) {
+				// Recorded but not applied yet
+				continue;
+			}
+			if (node.version() <= oldest) {
+				meaning = node.meaning();
+				break;
+			}
+			versions.add(new Version(node.version(), node.meaning()));
+			meaning = null;
+		}
+		if (meaning != null) {
+			versions.add(new Version(oldest, meaning));
+		}
+		return versions;
+	}
+	
+	/**
+	 * @return The number of words with retained changes.
+	 */
+	public int size() {
+		return chains.size();
+	}
+	
+	/**
+	 * Drops the versions older than the oldest retained one. A chain whose newest change is that old is dropped
+	 * entirely, since the store then holds the word's meaning at every retained version.
+	 */
+	void collect() {
+		try {
+			long oldest = oldest();
+			int before = chains.size();
+			for (String word : chains.keySet()) {
+				chains.computeIfPresent(word, (key, head) -> trim(head, oldest));
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Collected versions before {}: {} of {} words keep changes.", oldest, chains.size(), before);
+			}
+		} finally {
+			collecting.set(false);
+		}
+	}
+	
+	/**
+	 * @return The chain without the nodes older than the one in effect at the given version, or null if that is the
+	 * newest node.
+	 */
+	private static Node trim(Node head, long oldest) {
+		if (head.version() <= oldest) {
+			return null;
+		}
+		List<Node> retained = new ArrayList<>();
+		Node node = head;
+		for (; node.version() > oldest; node = node.older()) {
+			retained.add(node);
+		}
+		if (node.older() == null) {
+			// Already ends at the meaning in effect at the oldest version
+			return head;
+		}
+		Node trimmed = new Node(ORIGIN, node.meaning(), null);
+		for (int i = retained.size() - 1; i >= 0; i--) {
+			trimmed = new Node(retained.get(i).version(), retained.get(i).meaning(), trimmed);
+		}
+		return trimmed;
+	}
+	
+	private void checkRetained(long version) {
+		if (version > latest) {
+			throw new IllegalArgumentException("Version " + version + " does not exist yet; the latest version is " + latest);
+		}
+		long oldest = oldest();
+		if (version < oldest) {
+			throw new IllegalArgumentException("Version " + version + " is no longer retained; the oldest version is " + oldest);
+		}
+	}
+}
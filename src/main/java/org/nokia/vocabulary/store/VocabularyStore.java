@@ -0,0 +1,93 @@
+package org.nokia.vocabulary.store;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.SortedMap;
+
+/**
+ * Storage for words and their meanings, kept in word order.
+ * Implementations must be safe to read from any number of threads while another thread is writing.
+ */
+public interface VocabularyStore {
+	/**
+	 * Looks up the meaning of a word.
+	 *
+	 * @param word The word to look up.
+	 * @return The meaning of the word, or null if the word is not stored.
+	 */
+	String get(String word);
+	
+	/**
+	 * Stores a word with its meaning, replacing any previous meaning.
+	 *
+	 * @param word    The word to store.
+	 * @param meaning The meaning of the word.
+	 * @return The previous meaning, or null if the word was not stored before.
+	 */
+	String put(String word, String meaning);
+	
+	/**
+	 * Stores many words with their meanings, replacing any previous meanings. Implementations may merge the words in
+	 * more cheaply than storing them one by one.
+	 *
+	 * @param words The words and their meanings.
+	 */
+	default void putAll(SortedMap<String, String> words) {
+		words.forEach(this::put);
+	}
+	
+	/**
+	 * Removes a word.
+	 *
+	 * @param word The word to remove.
+	 * @return The meaning the word had, or null if the word was not stored.
+	 */
+	String remove(String word);
+	
+	/**
+	 * Removes many words. Implementations may publish the removal as a single change, so that readers see either all
+	 * or none of the words removed.
+	 *
+	 * @param words The words to remove; words that are not stored are ignored.
+	 */
+	default void removeAll(Collection<String> words) {
+		words.forEach(this::remove);
+	}
+	
+	/**
+	 * @return The number of stored words.
+	 */
+	int size();
+	
+	/**
+	 * @return An estimate of the heap, in bytes, taken by the words and meanings the store holds in memory.
+	 */
+	long estimatedMemoryUsage();
+	
+	/**
+	 * Returns an immutable view of the store as it is at the time of the call. Later changes to the store are not
+	 * visible through the view.
+	 *
+	 * @return The words and their meanings, sorted by word.
+	 */
+	SortedMap<String, String> snapshot();
+	
+	/**
+	 * @return True if the store persists its data in a file of its own. The vocabulary service then neither loads the
+	 * JSON file into the store nor writes JSON snapshots of it, and calls {@link #checkpoint} instead.
+	 */
+	default boolean isFileBacked() {
+		return false;
+	}
+	
+	/**
+	 * Persists a snapshot previously returned by {@link #snapshot()} to the store's own file. Changes made after the
+	 * snapshot was taken are kept.
+	 *
+	 * @param snapshot The snapshot to persist.
+	 * @throws IOException If the snapshot cannot be written.
+	 */
+	default void checkpoint(SortedMap<String, String> snapshot) throws IOException {
+		throw new UnsupportedOperationException("Store is not file backed");
+	}
+}
@@ -0,0 +1,20 @@
+package org.nokia.vocabulary.store;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Creates stores configured like the store of the default vocabulary, for vocabularies kept in other files.
+ */
+@FunctionalInterface
+public interface VocabularyStoreFactory {
+	/**
+	 * Creates an empty store, or for the {@code mapped} store type one serving the given dictionary.
+	 *
+	 * @param jsonPath       The JSON file of the vocabulary, converted to the dictionary if that does not exist yet.
+	 * @param dictionaryPath The binary dictionary file used by the {@code mapped} store.
+	 * @return The store.
+	 * @throws IOException If the mapped dictionary cannot be created or opened.
+	 */
+	VocabularyStore create(Path jsonPath, Path dictionaryPath) throws IOException;
+}
@@ -0,0 +1,156 @@
+package org.nokia.vocabulary.cli;
+
+import org.jline.terminal.Terminal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.nokia.vocabulary.services.ConflictPolicy;
+import org.nokia.vocabulary.services.ImportResult;
+import org.nokia.vocabulary.services.VocabularyService;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.shell.Input;
+import org.springframework.shell.InputProvider;
+import org.springframework.shell.Shell;
+import org.springframework.shell.command.CommandCatalog;
+import org.springframework.shell.command.CommandRegistration;
+import org.springframework.shell.context.InteractionMode;
+import org.springframework.shell.context.ShellContext;
+import org.springframework.shell.jline.ExtendedDefaultParser;
+import org.springframework.shell.standard.StandardMethodTargetRegistrar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BatchShellRunnerTest {
+	
+	@TempDir
+	Path tempDir;
+	
+	@Mock
+	private Shell shell;
+	
+	@Mock
+	private ShellContext shellContext;
+	
+	@Mock
+	private Terminal terminal;
+	
+	@Mock
+	private VocabularyService vocabularyService;
+	
+	private final ByteArrayOutputStream console = new ByteArrayOutputStream();
+	private BatchOutput output;
+	
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.openMocks(this);
+		output = new BatchOutput(console);
+		when(terminal.writer()).thenReturn(new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)));
+		when(shellContext.getInteractionMode()).thenReturn(InteractionMode.NONINTERACTIVE);
+	}
+	
+	@Test
+	void testRunsCommandsInOrderAndLeavesOthersToShell() throws Exception {
+		when(vocabularyService.addOrUpdateWords(List.of(Map.entry("apple", "A fruit")), ConflictPolicy.OVERWRITE))
+				.thenReturn(new ImportResult(1, 0, 0, null));
+		when(vocabularyService.addOrUpdateWords(List.of(Map.entry("apple", "A red fruit")), ConflictPolicy.SKIP))
+				.thenReturn(new ImportResult(0, 0, 1, null));
+		when(vocabularyService.searchWord("apple")).thenReturn("A fruit");
+		when(vocabularyService.removeWord("pear")).thenReturn(false);
+		doAnswer(invocation -> {
+			Input input = ((InputProvider) invocation.getArgument(0)).readInput();
+			terminal.writer().println("shell ran: " + input.rawText());
+			terminal.writer().flush();
+			return null;
+		}).when(shell).run(any());
+		
+		String result = run("# a comment",
+				"a apple 'A fruit'",
+				"",
+				"a apple --meaning 'A red fruit' --on-conflict skip",
+				"s --word apple",
+				"p ap --limit 5",
+				"r pear");
+		
+		assertEquals(String.join(System.lineSeparator(),
+				"Word added: apple",
+				"Word 'apple' was not updated.",
+				"apple: A fruit",
+				"shell ran: p ap --limit 5",
+				"Word not found.",
+				""), result);
+		verify(shellContext).setInteractionMode(InteractionMode.NONINTERACTIVE);
+		verify(shell, times(1)).run(any());
+		verify(vocabularyService).saveVocabularyToFile();
+	}
+	
+	@Test
+	void testLeavesIncompleteCommandsToShell() throws Exception {
+		run("a apple", "s --limit 5 apple", "a apple 'A fruit' skip extra", "a --meaning 'A fruit' apple");
+		
+		verify(shell, times(4)).run(any());
+	}
+	
+	@Test
+	void testOutputIsWrittenPerBatch() throws IOException {
+		output.write("line".getBytes(StandardCharsets.UTF_8));
+		output.flush();
+		assertEquals(0, console.size());
+		output.flushBatch();
+		assertEquals("line", console.toString(StandardCharsets.UTF_8));
+	}
+	
+	@Test
+	void testStopsAtFirstRejectedCommand() throws Exception {
+		doThrow(new IllegalArgumentException("Unknown command")).when(shell).run(any());
+		
+		assertThrows(IllegalArgumentException.class, () -> run("r pear", "unknown", "r plum"));
+		
+		verify(vocabularyService).removeWord("pear");
+		verify(vocabularyService, never()).removeWord("plum");
+		verify(vocabularyService, never()).saveVocabularyToFile();
+	}
+	
+	private String run(String... lines) throws Exception {
+		Path file = tempDir.resolve("commands.txt");
+		Files.write(file, List.of(lines));
+		VocabularyCommands commands = new VocabularyCommands(vocabularyService, terminal, shellContext);
+		BatchShellRunner runner = new BatchShellRunner(shell, shellContext, new ExtendedDefaultParser(),
+				commandCatalog(commands), terminal, output, commands, vocabularyService, file.toString());
+		assertTrue(runner.run(new String[0]));
+		return console.toString(StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * @return A catalog with the commands registered the way the shell registers them.
+	 */
+	private CommandCatalog commandCatalog(VocabularyCommands commands) {
+		GenericApplicationContext context = new GenericApplicationContext();
+		context.registerBean(VocabularyCommands.class, () -> commands);
+		context.registerBean(WordValueProvider.class, () -> new WordValueProvider(vocabularyService, 50));
+		context.refresh();
+		CommandCatalog catalog = CommandCatalog.of();
+		new StandardMethodTargetRegistrar(context, CommandRegistration::builder).register(catalog);
+		return catalog;
+	}
+}
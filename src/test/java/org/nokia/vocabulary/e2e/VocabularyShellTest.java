@@ -13,7 +13,7 @@ import java.util.concurrent.TimeUnit;
 
 import static org.awaitility.Awaitility.await;
 
-@ShellTest
+@ShellTest(terminalHeight = 100)
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
 @ComponentScan(basePackages = "org.nokia.vocabulary")
 public class VocabularyShellTest {
@@ -47,6 +47,12 @@ public class VocabularyShellTest {
 			ShellAssertions.assertThat(session.screen()).containsText("meaning of a word");
 		});
 		
+		// Lists the words starting with "ap" using the 'p' command.
+		session.write(session.writeSequence().text("p ap --limit 5").carriageReturn().build());
+		await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> {
+			ShellAssertions.assertThat(session.screen()).containsText("apple: its a nice fruit");
+		});
+		
 		// Lists all stored words with the 'l' command.
 		session.write(session.writeSequence().text("l").carriageReturn().build());
 		await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> {
@@ -54,12 +60,28 @@ public class VocabularyShellTest {
 			ShellAssertions.assertThat(session.screen()).containsText("word: meaning of a word");
 		});
 		
+		// Pages through the words one at a time, following the cursor printed after each page.
+		session.write(session.writeSequence().text("l --limit 1").carriageReturn().build());
+		await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> {
+			ShellAssertions.assertThat(session.screen()).containsText("Next page: l --from 'search' --limit 1");
+		});
+		session.write(session.writeSequence().text("l --from 'search' --limit 1").carriageReturn().build());
+		await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> {
+			ShellAssertions.assertThat(session.screen()).containsText("Next page: l --from 'word' --limit 1");
+		});
+		
 		// Searches for a word that doesn't exist, "notfound".
 		session.write(session.writeSequence().text("s 'notfound'").carriageReturn().build());
 		await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> {
 			ShellAssertions.assertThat(session.screen()).containsText("Word not found.");
 		});
 		
+		// Shows the metrics, which have counted the word that was not found.
+		session.write(session.writeSequence().text("stats").carriageReturn().build());
+		await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> {
+			ShellAssertions.assertThat(session.screen()).containsText("vocabulary.lookups{result=miss}");
+		});
+		
 		// Removes the word "search" from the vocabulary using the 'r' command.
 		session.write(session.writeSequence().text("r 'search'").carriageReturn().build());
 		
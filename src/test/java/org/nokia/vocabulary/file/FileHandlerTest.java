@@ -0,0 +1,169 @@
+package org.nokia.vocabulary.file;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileHandlerTest {
+	
+	@TempDir
+	Path tempDir;
+	
+	private FileHandler fileHandler;
+	
+	private Path file;
+	
+	@BeforeEach
+	void setUp() {
+		file = tempDir.resolve("vocabulary.json");
+		fileHandler = new FileHandler();
+		ReflectionTestUtils.setField(fileHandler, "FILE_PATH", file.toString());
+	}
+	
+	@Test
+	void testStreamingRoundTrip() throws IOException {
+		Map<String, String> vocabulary = new TreeMap<>();
+		vocabulary.put("apple", "A fruit");
+		vocabulary.put("quote", "He said \"hi\"");
+		vocabulary.put("café", "A coffee house");
+		fileHandler.saveVocabulary(vocabulary);
+		
+		Map<String, String> loaded = new LinkedHashMap<>();
+		long count = fileHandler.loadVocabulary(loaded::put);
+		assertEquals(3, count);
+		assertEquals(vocabulary, loaded);
+	}
+	
+	@Test
+	void testStreamingLoadMatchesCompatibilityMode() throws IOException {
+		Files.writeString(file, "{\n  \"apple\" : \"A fruit\",\n  \"banana\" : \"A yellow fruit\"\n}");
+		Map<String, String> streamed = new LinkedHashMap<>();
+		fileHandler.loadVocabulary(streamed::put);
+		
+		ReflectionTestUtils.setField(fileHandler, "streaming", false);
+		Map<String, String> bound = new LinkedHashMap<>();
+		fileHandler.loadVocabulary(bound::put);
+		
+		assertEquals(bound, streamed);
+		assertEquals(fileHandler.loadVocabulary(), streamed);
+	}
+	
+	@Test
+	void testStreamingSaveIsPrettyPrinted() throws IOException {
+		fileHandler.saveVocabulary(Map.of("apple", "A fruit"));
+		assertEquals("{\n  \"apple\" : \"A fruit\"\n}", Files.readString(file).replace(System.lineSeparator(), "\n"));
+	}
+	
+	@Test
+	void testSaveReplacesFileWithoutLeavingTempFile() throws IOException {
+		Files.writeString(file, "{\"old\": \"entry\"}");
+		fileHandler.saveVocabulary(Map.of("apple", "A fruit"));
+		assertEquals(Map.of("apple", "A fruit"), fileHandler.loadVocabulary());
+		assertFalse(Files.exists(tempDir.resolve("vocabulary.json.tmp")));
+	}
+	
+	@Test
+	void testLoadMissingFile() throws IOException {
+		Map<String, String> loaded = new LinkedHashMap<>();
+		assertEquals(0, fileHandler.loadVocabulary(loaded::put));
+		assertTrue(loaded.isEmpty());
+	}
+	
+	@Test
+	void testLoadRejectsNonStringMeaning() throws IOException {
+		Files.writeString(file, "{\"apple\": 1}");
+		assertThrows(IOException.class, () -> fileHandler.loadVocabulary((word, meaning) -> {
+		}));
+	}
+	
+	@Test
+	void testReadCsvEntries() throws IOException {
+		Path csv = tempDir.resolve("words.csv");
+		Files.writeString(csv, "\uFEFFapple,A fruit\r\n\r\n\"hello, world\",\"A \"\"first\"\" program,\nover two lines\"\nempty,\n");
+		Map<String, String> read = new LinkedHashMap<>();
+		assertEquals(3, fileHandler.readEntries(csv, read::put));
+		assertEquals(Map.of("apple", "A fruit", "hello, world", "A \"first\" program,\nover two lines", "empty", ""), read);
+	}
+	
+	@Test
+	void testReadTsvEntries() throws IOException {
+		Path tsv = tempDir.resolve("words.tsv");
+		Files.writeString(tsv, "apple\tA \"red\" fruit, sweet\nbanana\tA yellow fruit");
+		Map<String, String> read = new LinkedHashMap<>();
+		assertEquals(2, fileHandler.readEntries(tsv, read::put));
+		assertEquals(Map.of("apple", "A \"red\" fruit, sweet", "banana", "A yellow fruit"), read);
+	}
+	
+	@Test
+	void testReadInvalidEntries() throws IOException {
+		Path csv = tempDir.resolve("words.csv");
+		Files.writeString(csv, "apple,A fruit\nbanana\n");
+		IOException e = assertThrows(IOException.class, () -> fileHandler.readEntries(csv, (word, meaning) -> {
+		}));
+		assertTrue(e.getMessage().contains("line 2"));
+		Files.writeString(csv, "apple,A fruit,extra\n");
+		assertThrows(IOException.class, () -> fileHandler.readEntries(csv, (word, meaning) -> {
+		}));
+		assertThrows(IllegalArgumentException.class, () -> fileHandler.readEntries(tempDir.resolve("words.xml"), (word, meaning) -> {
+		}));
+	}
+	
+	@Test
+	void testExportRoundTripsInEveryFormat() throws IOException {
+		Map<String, String> vocabulary = new TreeMap<>();
+		vocabulary.put("apple", "A fruit");
+		vocabulary.put("hello, world", "A \"first\" program,\nover two lines");
+		vocabulary.put("café", "A coffee house");
+		for (String name : new String[]{"words.json", "words.ndjson", "words.csv", "words.json.gz", "words.ndjson.gz", "words.csv.gz"}) {
+			Path export = tempDir.resolve(name);
+			long[] progress = {-1};
+			assertEquals(3, fileHandler.exportEntries(export, vocabulary, count -> progress[0] = count));
+			assertEquals(3, progress[0]);
+			Map<String, String> read = new LinkedHashMap<>();
+			assertEquals(3, fileHandler.readEntries(export, read::put));
+			assertEquals(vocabulary, read, name);
+		}
+		assertEquals("{\"word\":\"apple\",\"meaning\":\"A fruit\"}", Files.readAllLines(tempDir.resolve("words.ndjson")).get(0));
+	}
+	
+	@Test
+	void testFailedExportLeavesExistingFile() throws IOException {
+		Path export = tempDir.resolve("words.tsv");
+		Files.writeString(export, "apple\tA fruit\n");
+		assertThrows(IOException.class, () -> fileHandler.exportEntries(export, Map.of("tab", "A\tB"), count -> {
+		}));
+		assertEquals("apple\tA fruit\n", Files.readString(export));
+		assertFalse(Files.exists(tempDir.resolve("words.tsv.tmp")));
+	}
+	
+	@Test
+	void testInterruptedExportIsAbandoned() {
+		Map<String, String> vocabulary = new TreeMap<>();
+		for (int i = 0; i < 10_000; i++) {
+			vocabulary.put("word" + i, "meaning" + i);
+		}
+		Path export = tempDir.resolve("words.csv");
+		Thread.currentThread().interrupt();
+		try {
+			assertThrows(IOException.class, () -> fileHandler.exportEntries(export, vocabulary, count -> {
+			}));
+		} finally {
+			Thread.interrupted();
+		}
+		assertFalse(Files.exists(export));
+		assertFalse(Files.exists(tempDir.resolve("words.csv.tmp")));
+	}
+}
@@ -0,0 +1,92 @@
+package org.nokia.vocabulary.file;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MappedDictionaryTest {
+	
+	@TempDir
+	Path tempDir;
+	
+	@Test
+	void testLookupAndIterationMatchSource() throws IOException {
+		TreeMap<String, String> source = new TreeMap<>();
+		source.put("apple", "A fruit");
+		source.put("Apple", "A company");
+		source.put("café", "A coffee house");
+		source.put("naïve", "Innocent");
+		source.put("🍎", "Red apple emoji");
+		source.put("ﬁ", "Latin small ligature fi");
+		source.put("app", "Short for application");
+		for (int i = 0; i < 1000; i++) {
+			source.put("word" + i, "meaning " + i);
+		}
+		Path path = tempDir.resolve("vocabulary.dict");
+		assertEquals(source.size(), MappedDictionary.write(path, source.entrySet().iterator()));
+		
+		MappedDictionary dictionary = MappedDictionary.open(path);
+		assertEquals(source.size(), dictionary.size());
+		source.forEach((word, meaning) -> assertEquals(meaning, dictionary.get(word)));
+		assertNull(dictionary.get("ap"));
+		assertNull(dictionary.get("apples"));
+		assertNull(dictionary.get("zzz"));
+		assertNull(dictionary.get(""));
+		
+		SortedMap<String, String> view = dictionary.view();
+		assertEquals(new ArrayList<>(source.entrySet()), new ArrayList<>(view.entrySet()));
+		assertEquals(source.subMap("app", "word5"), view.subMap("app", "word5"));
+		assertEquals(source.subMap("app", "word5").size(), view.subMap("app", "word5").size());
+		assertEquals(source.lastKey(), view.lastKey());
+		assertEquals(source.headMap("word").lastKey(), view.headMap("word").lastKey());
+	}
+	
+	@Test
+	void testEmptyDictionary() throws IOException {
+		Path path = tempDir.resolve("empty.dict");
+		MappedDictionary.write(path, List.<Map.Entry<String, String>>of().iterator());
+		MappedDictionary dictionary = MappedDictionary.open(path);
+		assertEquals(0, dictionary.size());
+		assertNull(dictionary.get("apple"));
+		assertEquals(Map.of(), dictionary.view());
+	}
+	
+	@Test
+	void testRejectsUnsortedEntriesAndForeignFiles() throws IOException {
+		Path path = tempDir.resolve("vocabulary.dict");
+		List<Map.Entry<String, String>> unsorted = List.of(Map.entry("b", "2"), Map.entry("a", "1"));
+		assertThrows(IllegalArgumentException.class, () -> MappedDictionary.write(path, unsorted.iterator()));
+		Files.writeString(path, "{\"apple\": \"A fruit\"}");
+		assertThrows(IOException.class, () -> MappedDictionary.open(path));
+	}
+	
+	@Test
+	void testConvertJsonToDictionaryAndBack() throws IOException {
+		FileHandler fileHandler = new FileHandler();
+		ReflectionTestUtils.setField(fileHandler, "FILE_PATH", tempDir.resolve("vocabulary.json").toString());
+		fileHandler.saveVocabulary(Map.of("banana", "A yellow fruit", "apple", "A fruit"));
+		DictionaryConverter converter = new DictionaryConverter(fileHandler);
+		
+		Path dictionary = tempDir.resolve("vocabulary.dict");
+		assertEquals(2, converter.jsonToDictionary(tempDir.resolve("vocabulary.json"), dictionary));
+		assertEquals("A yellow fruit", MappedDictionary.open(dictionary).get("banana"));
+		
+		Path json = tempDir.resolve("roundtrip.json");
+		assertEquals(2, converter.dictionaryToJson(dictionary, json));
+		ReflectionTestUtils.setField(fileHandler, "FILE_PATH", json.toString());
+		assertEquals(Map.of("banana", "A yellow fruit", "apple", "A fruit"), fileHandler.loadVocabulary());
+	}
+}
@@ -0,0 +1,283 @@
+package org.nokia.vocabulary.file;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteAheadLogTest {
+	
+	@TempDir
+	Path tempDir;
+	
+	private WriteAheadLog writeAheadLog;
+	
+	@AfterEach
+	void tearDown() {
+		if (writeAheadLog != null) {
+			writeAheadLog.close();
+		}
+	}
+	
+	@Test
+	void testReplayRestoresLoggedChanges() throws IOException {
+		Path log = tempDir.resolve("vocabulary.json.wal");
+		writeAheadLog = open(log, 64);
+		writeAheadLog.replay((word, meaning) -> {
+		}, word -> {
+		});
+		writeAheadLog.logPut("apple", "A fruit");
+		writeAheadLog.logPut("banana", "A yellow fruit");
+		writeAheadLog.logPut("apple", "A sweet red fruit");
+		writeAheadLog.logRemove("banana");
+		writeAheadLog.logPut("café", "Un endroit où l'on boit du café");
+		writeAheadLog.close();
+		
+		assertEquals(Map.of("apple", "A sweet red fruit", "café", "Un endroit où l'on boit du café"), replay(log));
+	}
+	
+	@Test
+	void testBatchIsReplayedInOrder() throws IOException {
+		Path log = tempDir.resolve("vocabulary.json.wal");
+		writeAheadLog = open(log, 64);
+		writeAheadLog.replay((word, meaning) -> {
+		}, word -> {
+		});
+		writeAheadLog.logPut("apple", "A fruit");
+		List<Map.Entry<String, String>> batch = new ArrayList<>();
+		for (int i = 0; i < 1_000; i++) {
+			batch.add(Map.entry("word" + i, "x".repeat(i)));
+		}
+		batch.add(Map.entry("apple", "A sweet red fruit"));
+		writeAheadLog.logPuts(batch);
+		writeAheadLog.logRemove("word0");
+		writeAheadLog.close();
+		
+		Map<String, String> expected = new HashMap<>();
+		batch.forEach(entry -> expected.put(entry.getKey(), entry.getValue()));
+		expected.remove("word0");
+		assertEquals(expected, replay(log));
+	}
+	
+	@Test
+	void testTornTailIsDiscarded() throws IOException {
+		Path log = tempDir.resolve("vocabulary.json.wal");
+		writeAheadLog = open(log, 1);
+		writeAheadLog.replay((word, meaning) -> {
+		}, word -> {
+		});
+		writeAheadLog.logPut("apple", "A fruit");
+		writeAheadLog.logPut("banana", "A yellow fruit");
+		writeAheadLog.close();
+		long intactSize = Files.size(log);
+		try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+			channel.truncate(intactSize - 3);
+		}
+		
+		assertEquals(Map.of("apple", "A fruit"), replay(log));
+		assertTrue(Files.size(log) < intactSize - 3);
+	}
+	
+	@Test
+	void testDiscardedSegmentIsNotReplayed() throws IOException {
+		Path log = tempDir.resolve("vocabulary.json.wal");
+		writeAheadLog = open(log, 64);
+		writeAheadLog.replay((word, meaning) -> {
+		}, word -> {
+		});
+		writeAheadLog.logPut("apple", "A fruit");
+		writeAheadLog.rotate();
+		writeAheadLog.logPut("banana", "A yellow fruit");
+		writeAheadLog.discardRotated();
+		writeAheadLog.close();
+		
+		assertEquals(Map.of("banana", "A yellow fruit"), replay(log));
+	}
+	
+	@Test
+	void testRotatedSegmentsReplayedInOrder() throws IOException {
+		Path log = tempDir.resolve("vocabulary.json.wal");
+		writeAheadLog = open(log, 64);
+		writeAheadLog.replay((word, meaning) -> {
+		}, word -> {
+		});
+		writeAheadLog.logPut("apple", "A fruit");
+		writeAheadLog.rotate();
+		writeAheadLog.logPut("apple", "A sweet red fruit");
+		writeAheadLog.logPut("banana", "A yellow fruit");
+		writeAheadLog.rotate();
+		writeAheadLog.logRemove("banana");
+		writeAheadLog.close();
+		
+		assertEquals(Map.of("apple", "A sweet red fruit"), replay(log));
+	}
+	
+	@Test
+	void testSharedLogFollowsOtherWriters() throws IOException {
+		Path log = tempDir.resolve("vocabulary.json.wal");
+		writeAheadLog = new WriteAheadLog(true, log, 64, 100, 1024, true, 0);
+		WriteAheadLog other = new WriteAheadLog(true, log, 64, 100, 1024, true, 0);
+		try {
+			Map<String, String> vocabulary = new TreeMap<>();
+			Map<String, String> otherVocabulary = new TreeMap<>();
+			writeAheadLog.replay(vocabulary::put, vocabulary::remove);
+			other.replay(otherVocabulary::put, otherVocabulary::remove);
+			writeAheadLog.logPut("apple", "A fruit");
+			vocabulary.put("apple", "A fruit");
+			other.logPut("banana", "A yellow fruit");
+			otherVocabulary.put("banana", "A yellow fruit");
+			writeAheadLog.logPut("cherry", "A small fruit");
+			vocabulary.put("cherry", "A small fruit");
+			
+			assertEquals(1, writeAheadLog.follow(vocabulary::put, vocabulary::remove));
+			assertEquals(0, writeAheadLog.follow(vocabulary::put, vocabulary::remove));
+			assertEquals(2, other.follow(otherVocabulary::put, otherVocabulary::remove));
+			assertEquals(vocabulary, otherVocabulary);
+			
+			// Rotating catches up first; the other log then reads the rest of the old segment and goes on with the new one
+			writeAheadLog.logRemove("apple");
+			vocabulary.remove("apple");
+			other.logPut("date", "A sweet fruit");
+			otherVocabulary.put("date", "A sweet fruit");
+			writeAheadLog.rotate(vocabulary::put, vocabulary::remove);
+			writeAheadLog.logPut("apple", "A red fruit");
+			vocabulary.put("apple", "A red fruit");
+			writeAheadLog.discardRotated();
+			other.logRemove("banana");
+			otherVocabulary.remove("banana");
+			
+			assertEquals(2, other.follow(otherVocabulary::put, otherVocabulary::remove));
+			assertEquals(1, writeAheadLog.follow(vocabulary::put, vocabulary::remove));
+			assertEquals(vocabulary, otherVocabulary);
+		} finally {
+			other.close();
+		}
+		// The segment set aside was covered by a snapshot, so only the new one is replayed
+		assertEquals(Map.of("apple", "A red fruit"), replay(log));
+	}
+	
+	@Test
+	void testSharedLogIsNotRotatedPastAProcessBehind() throws IOException {
+		Path log = tempDir.resolve("vocabulary.json.wal");
+		writeAheadLog = new WriteAheadLog(true, log, 64, 100, 1024, true, 0);
+		WriteAheadLog other = new WriteAheadLog(true, log, 64, 100, 1024, true, 0);
+		try {
+			Map<String, String> vocabulary = new TreeMap<>();
+			Map<String, String> otherVocabulary = new TreeMap<>();
+			writeAheadLog.replay(vocabulary::put, vocabulary::remove);
+			other.replay(otherVocabulary::put, otherVocabulary::remove);
+			writeAheadLog.logPut("apple", "A fruit");
+			assertTrue(writeAheadLog.rotate(vocabulary::put, vocabulary::remove));
+			writeAheadLog.discardRotated();
+			writeAheadLog.logPut("banana", "A yellow fruit");
+			// The other log still reads the segment set aside, so the one it has not opened yet must stay
+			assertFalse(writeAheadLog.rotate(vocabulary::put, vocabulary::remove));
+			writeAheadLog.discardRotated();
+			writeAheadLog.logPut("cherry", "A small fruit");
+			
+			assertEquals(3, other.follow(otherVocabulary::put, otherVocabulary::remove));
+			assertEquals(Map.of("apple", "A fruit", "banana", "A yellow fruit", "cherry", "A small fruit"), otherVocabulary);
+			assertTrue(writeAheadLog.rotate(vocabulary::put, vocabulary::remove));
+		} finally {
+			other.close();
+		}
+	}
+	
+	@Test
+	void testSharedLogIsFollowedAcrossRotationsOfAnotherProcess() throws Exception {
+		Path log = tempDir.resolve("vocabulary.json.wal");
+		writeAheadLog = new WriteAheadLog(true, log, 64, 100, 1024, true, 0);
+		Map<String, String> vocabulary = new HashMap<>();
+		writeAheadLog.replay(vocabulary::put, vocabulary::remove);
+		
+		Process writer = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+				"-cp", System.getProperty("java.class.path"), RotatingWriter.class.getName(), log.toString(),
+				String.valueOf(RotatingWriter.WORDS))
+				.redirectErrorStream(true)
+				.redirectOutput(ProcessBuilder.Redirect.DISCARD)
+				.start();
+		// Followed while the other process rotates, then once more after it is done
+		while (writer.isAlive()) {
+			writeAheadLog.follow(vocabulary::put, vocabulary::remove);
+		}
+		writeAheadLog.follow(vocabulary::put, vocabulary::remove);
+		
+		assertEquals(0, writer.exitValue());
+		assertEquals(RotatingWriter.WORDS, vocabulary.size());
+		for (int i = 0; i < RotatingWriter.WORDS; i++) {
+			assertEquals("Meaning " + i, vocabulary.get("word" + i));
+		}
+	}
+	
+	/**
+	 * Appends words to a shared log in another process, rotating and discarding it like a snapshot every few words.
+	 */
+	static class RotatingWriter {
+		static final int WORDS = 2000;
+		
+		public static void main(String[] args) throws IOException {
+			WriteAheadLog writeAheadLog = new WriteAheadLog(true, Path.of(args[0]), 1, 100, 1024, true, 0);
+			Map<String, String> vocabulary = new HashMap<>();
+			writeAheadLog.replay(vocabulary::put, vocabulary::remove);
+			for (int i = 0; i < Integer.parseInt(args[1]); i++) {
+				writeAheadLog.logPut("word" + i, "Meaning " + i);
+				if (i % 10 == 9) {
+					writeAheadLog.rotate(vocabulary::put, vocabulary::remove);
+					writeAheadLog.discardRotated();
+				}
+			}
+			writeAheadLog.close();
+		}
+	}
+	
+	@Test
+	void testClosedLogIsNotCreatedAgain() throws IOException {
+		Path log = tempDir.resolve("vocabulary.json.wal");
+		writeAheadLog = open(log, 1);
+		writeAheadLog.logPut("apple", "A fruit");
+		writeAheadLog.close();
+		Files.delete(log);
+		
+		assertThrows(IOException.class, () -> writeAheadLog.logPut("banana", "A yellow fruit"));
+		assertThrows(IOException.class, () -> writeAheadLog.replay((word, meaning) -> {
+		}, word -> {
+		}));
+		assertFalse(Files.exists(log));
+	}
+	
+	@Test
+	void testDisabledLogWritesNothing() throws IOException {
+		Path log = tempDir.resolve("vocabulary.json.wal");
+		writeAheadLog = new WriteAheadLog(false, log, 64, 100, 1024);
+		writeAheadLog.logPut("apple", "A fruit");
+		writeAheadLog.sync();
+		assertFalse(Files.exists(log));
+	}
+	
+	private WriteAheadLog open(Path log, int syncBatchSize) {
+		return new WriteAheadLog(true, log, syncBatchSize, 100, 1024);
+	}
+	
+	private Map<String, String> replay(Path log) throws IOException {
+		Map<String, String> vocabulary = new TreeMap<>();
+		writeAheadLog = open(log, 64);
+		writeAheadLog.replay(vocabulary::put, vocabulary::remove);
+		writeAheadLog.close();
+		return vocabulary;
+	}
+}
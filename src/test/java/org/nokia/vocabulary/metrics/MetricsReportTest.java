@@ -0,0 +1,114 @@
+package org.nokia.vocabulary.metrics;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.nokia.vocabulary.file.FileHandler;
+import org.nokia.vocabulary.file.WriteAheadLog;
+import org.nokia.vocabulary.services.MeteredVocabularyService;
+import org.nokia.vocabulary.services.VocabularyServiceImpl;
+import org.nokia.vocabulary.store.ConcurrentVocabularyStore;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MetricsReportTest {
+	
+	@TempDir
+	Path tempDir;
+	
+	@Mock
+	private VocabularyServiceImpl delegate;
+	
+	private PrometheusMeterRegistry registry;
+	private MeteredVocabularyService vocabularyService;
+	private MetricsReport metricsReport;
+	
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.openMocks(this);
+		registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+		vocabularyService = new MeteredVocabularyService(delegate, registry);
+		metricsReport = new MetricsReport(registry, new FileHandler());
+	}
+	
+	@Test
+	void testSearchesAreTimedAndCounted() {
+		when(delegate.searchWord("apple")).thenReturn("A fruit");
+		
+		assertEquals("A fruit", vocabularyService.searchWord("apple"));
+		vocabularyService.searchWord("apple");
+		vocabularyService.searchWord("pear");
+		
+		assertEquals(3, registry.get(VocabularyMetrics.SERVICE_CALLS).tag("method", "searchWord").timer().count());
+		assertEquals(2, registry.get(VocabularyMetrics.LOOKUPS).tag("result", "hit").counter().count());
+		assertEquals(1, registry.get(VocabularyMetrics.LOOKUPS).tag("result", "miss").counter().count());
+		assertEquals(0, registry.get(VocabularyMetrics.SERVICE_CALLS).tag("method", "removeWord").timer().count());
+	}
+	
+	@Test
+	void testAddingWordsTimesOnlyTheWrite() {
+		VocabularyServiceImpl service = new VocabularyServiceImpl(mock(FileHandler.class), mock(WriteAheadLog.class),
+				new ConcurrentVocabularyStore());
+		MeteredVocabularyService metered = new MeteredVocabularyService(service, registry);
+		InputStream in = System.in;
+		Metrics.addRegistry(registry);
+		try {
+			metered.addOrUpdateWord("pear", "A fruit");
+			// Replacing asks the user, whose answer is not part of the latency
+			System.setIn(new ByteArrayInputStream("n\n".getBytes(StandardCharsets.UTF_8)));
+			metered.addOrUpdateWord("pear", "A green fruit");
+			System.setIn(new ByteArrayInputStream("y\n".getBytes(StandardCharsets.UTF_8)));
+			metered.addOrUpdateWord("pear", "A green fruit");
+		} finally {
+			System.setIn(in);
+			Metrics.removeRegistry(registry);
+		}
+		
+		assertEquals("A green fruit", service.searchWord("pear"));
+		assertEquals(2, registry.get(VocabularyMetrics.SERVICE_CALLS).tag("method", "addOrUpdateWord").timer().count());
+		assertEquals(0, registry.get(VocabularyMetrics.LOOKUPS).tag("result", "miss").counter().count());
+	}
+	
+	@Test
+	void testFormatShowsUsedTimersCountersAndGauges() {
+		registry.gauge(VocabularyMetrics.WORDS, 42);
+		vocabularyService.removeWord("apple");
+		
+		String report = metricsReport.format();
+		
+		assertTrue(report.contains("vocabulary.service.calls{method=removeWord}"));
+		assertFalse(report.contains("method=searchWord"));
+		assertTrue(report.contains("vocabulary.lookups{result=miss}"));
+		assertTrue(report.contains("vocabulary.words"));
+		assertTrue(report.contains("42"));
+	}
+	
+	@Test
+	void testWritePrometheusFile() throws IOException {
+		vocabularyService.searchWord("apple");
+		Path file = tempDir.resolve("vocabulary.prom");
+		
+		metricsReport.writePrometheus(file);
+		
+		String text = Files.readString(file);
+		assertTrue(text.contains("vocabulary_lookups_total{result=\"miss\"} 1"));
+		assertTrue(text.contains("vocabulary_service_calls_seconds{method=\"searchWord\",quantile=\"0.99\"}"));
+		assertFalse(Files.exists(tempDir.resolve("vocabulary.prom.tmp")));
+	}
+}
@@ -0,0 +1,56 @@
+package org.nokia.vocabulary.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CollationIndexTest {
+	
+	@Test
+	void testFindIgnoresCaseAndNormalization() {
+		CollationIndex index = new CollationIndex(Locale.ROOT, false);
+		index.add("Apple");
+		index.add("apple");
+		index.add("Straße");
+		index.add("café");
+		
+		assertEquals(List.of("apple", "Apple"), index.find("APPLE"));
+		assertEquals(List.of("Straße"), index.find("STRASSE"));
+		// Typed with a combining accent instead of the precomposed character
+		assertEquals(List.of("café"), index.find(Normalizer.normalize("CAFÉ", Normalizer.Form.NFD)));
+		assertTrue(index.find("cafe").isEmpty());
+		
+		index.remove("apple");
+		assertEquals(List.of("Apple"), index.find("apple"));
+		assertEquals(3, index.size());
+	}
+	
+	@Test
+	void testStripsAccentsWhenEnabled() {
+		CollationIndex index = new CollationIndex(Locale.ROOT, true);
+		index.add("Café");
+		index.add("naïve");
+		
+		assertEquals(List.of("Café"), index.find("cafe"));
+		assertEquals(List.of("naïve"), index.find("NAIVE"));
+	}
+	
+	@Test
+	void testListsInCollationOrder() {
+		CollationIndex index = new CollationIndex(Locale.ENGLISH, false);
+		for (String word : List.of("zebra", "Banana", "été", "apple", "Zebra", "eta", "banana")) {
+			index.add(word);
+		}
+		index.add("apple");
+		
+		assertEquals(List.of("apple", "banana", "Banana", "eta", "été", "zebra", "Zebra"), index.list(null, 0));
+		assertEquals(List.of("banana", "Banana", "eta"), index.list("B", 3));
+		assertEquals(List.of("été", "zebra"), index.list("ete", 2));
+		assertTrue(index.list("zz", 10).isEmpty());
+	}
+}
@@ -0,0 +1,81 @@
+package org.nokia.vocabulary.search;
+
+import org.junit.jupiter.api.Test;
+import org.nokia.vocabulary.store.ConcurrentVocabularyStore;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FuzzyMatcherTest {
+	
+	@Test
+	void testFindsClosestWordsFirst() {
+		SortedMap<String, String> words = new TreeMap<>();
+		for (String word : List.of("apple", "apply", "ample", "maple", "banana", "app", "applesauce")) {
+			words.put(word, word.toUpperCase());
+		}
+		assertEquals(List.of(new FuzzyMatcher.Match("app", 2, "APP"), new FuzzyMatcher.Match("apple", 2, "APPLE"),
+				new FuzzyMatcher.Match("apply", 2, "APPLY")),
+				FuzzyMatcher.search(words, "appel", 2, 10));
+		assertEquals(List.of(new FuzzyMatcher.Match("apple", 0, "APPLE"), new FuzzyMatcher.Match("ample", 1, "AMPLE")),
+				FuzzyMatcher.search(words, "apple", 1, 2));
+		assertTrue(FuzzyMatcher.search(words, "cherry", 2, 10).isEmpty());
+	}
+	
+	@Test
+	void testMatchesBruteForce() {
+		ConcurrentVocabularyStore store = new ConcurrentVocabularyStore();
+		Random random = new Random(7);
+		for (int i = 0; i < 5_000; i++) {
+			String word = randomWord(random);
+			store.put(word, word.toUpperCase());
+		}
+		SortedMap<String, String> words = store.snapshot();
+		for (int i = 0; i < 50; i++) {
+			String query = randomWord(random);
+			List<FuzzyMatcher.Match> expected = new ArrayList<>();
+			for (String word : words.keySet()) {
+				int distance = levenshtein(query, word);
+				if (distance <= 2) {
+					expected.add(new FuzzyMatcher.Match(word, distance, words.get(word)));
+				}
+			}
+			expected.sort(Comparator.comparingInt(FuzzyMatcher.Match::distance).thenComparing(FuzzyMatcher.Match::word));
+			assertEquals(expected, FuzzyMatcher.search(words, query, 2, Integer.MAX_VALUE));
+		}
+	}
+	
+	@Test
+	void testPrefixRange() {
+		assertEquals("apq", PrefixRange.end("app"));
+		assertEquals("b", PrefixRange.end("a￿"));
+		assertNull(PrefixRange.end("￿￿"));
+	}
+	
+	private static String randomWord(Random random) {
+		char[] chars = new char[2 + random.nextInt(5)];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = (char) ('a' + random.nextInt(5));
+		}
+		return new String(chars);
+	}
+	
+	private static int levenshtein(String a, String b) {
+		int[][] d = new int[a.length() + 1][b.length() + 1];
+		for (int i = 0; i <= a.length(); i++) {
+			for (int j = 0; j <= b.length(); j++) {
+				d[i][j] = i == 0 ? j : j == 0 ? i
+						: Math.min(d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1), Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+			}
+		}
+		return d[a.length()][b.length()];
+	}
+}
@@ -0,0 +1,93 @@
+package org.nokia.vocabulary.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MeaningIndexTest {
+	
+	@Test
+	void testTokenize() {
+		assertEquals(List.of("a", "red", "fruit", "tree"), List.copyOf(MeaningIndex.tokenize("A red FRUIT, a tree!").keySet()));
+		assertEquals(2, MeaningIndex.tokenize("A red fruit, a tree").get("a"));
+	}
+	
+	@Test
+	void testAllAndAnyTerms() {
+		MeaningIndex index = new MeaningIndex();
+		index.put("apple", null, "A red fruit");
+		index.put("banana", null, "A long yellow fruit");
+		index.put("cherry", null, "A small red fruit");
+		index.put("fire truck", null, "A red vehicle");
+		
+		assertEquals(Set.of("apple", "cherry"), words(index.search("red fruit", true, 10)));
+		assertEquals(Set.of("apple", "banana", "cherry", "fire truck"), words(index.search("red fruit", false, 10)));
+		assertTrue(index.search("red plum", true, 10).isEmpty());
+		assertEquals(List.of("fire truck"), index.search("vehicle", true, 10).stream().map(MeaningIndex.Hit::word).toList());
+		// The shorter of two meanings containing the same terms ranks first
+		assertEquals("apple", index.search("red fruit", true, 1).get(0).word());
+	}
+	
+	@Test
+	void testUpdatesAreIncremental() {
+		MeaningIndex index = new MeaningIndex();
+		index.put("apple", null, "A red fruit");
+		index.put("banana", null, "A yellow fruit");
+		index.put("apple", "A red fruit", "A green fruit");
+		index.remove("banana", "A yellow fruit");
+		index.put("cherry", null, "A red berry");
+		
+		assertEquals(2, index.size());
+		assertEquals(Set.of("apple"), words(index.search("fruit", true, 10)));
+		assertEquals(Set.of("cherry"), words(index.search("red", true, 10)));
+		assertEquals("A green fruit", index.search("fruit", true, 10).get(0).meaning());
+		assertTrue(index.search("yellow", false, 10).isEmpty());
+	}
+	
+	@Test
+	void testMatchesBruteForce() {
+		MeaningIndex index = new MeaningIndex();
+		Map<String, String> meanings = new HashMap<>();
+		Random random = new Random(3);
+		for (int i = 0; i < 20_000; i++) {
+			String word = "w" + random.nextInt(1_000);
+			String previous = meanings.get(word);
+			if (previous != null && random.nextInt(4) == 0) {
+				index.remove(word, previous);
+				meanings.remove(word);
+			} else {
+				String meaning = "t" + random.nextInt(20) + " t" + random.nextInt(20) + " t" + random.nextInt(20);
+				index.put(word, previous, meaning);
+				meanings.put(word, meaning);
+			}
+		}
+		assertEquals(meanings.size(), index.size());
+		Set<String> all = new HashSet<>();
+		Set<String> any = new HashSet<>();
+		meanings.forEach((word, meaning) -> {
+			Set<String> tokens = MeaningIndex.tokenize(meaning).keySet();
+			if (tokens.contains("t1") && tokens.contains("t2")) {
+				all.add(word);
+			}
+			if (tokens.contains("t1") || tokens.contains("t2")) {
+				any.add(word);
+			}
+		});
+		assertEquals(all, words(index.search("t1 t2", true, Integer.MAX_VALUE)));
+		assertEquals(any, words(index.search("t1 t2", false, Integer.MAX_VALUE)));
+	}
+	
+	private static Set<String> words(List<MeaningIndex.Hit> hits) {
+		Set<String> words = new HashSet<>();
+		hits.forEach(hit -> words.add(hit.word()));
+		return words;
+	}
+}
@@ -0,0 +1,128 @@
+package org.nokia.vocabulary.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.nokia.vocabulary.services.ConflictPolicy;
+import org.nokia.vocabulary.services.ImportResult;
+import org.nokia.vocabulary.services.VocabularyService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class VocabularyHttpServerTest {
+	
+	@Mock
+	private VocabularyService vocabularyService;
+	
+	private VocabularyHttpServer server;
+	private final HttpClient client = HttpClient.newHttpClient();
+	
+	@BeforeEach
+	void setUp() throws IOException {
+		MockitoAnnotations.openMocks(this);
+		when(vocabularyService.searchWord("apple")).thenReturn("A fruit");
+		when(vocabularyService.searchWord("crème brûlée")).thenReturn("A dessert");
+		server = new VocabularyHttpServer(vocabularyService, "127.0.0.1", 0, 16, 4);
+		server.start();
+	}
+	
+	@AfterEach
+	void tearDown() {
+		server.stop();
+	}
+	
+	@Test
+	void testLooksUpWords() throws Exception {
+		Map<String, String> meanings = new LinkedHashMap<>();
+		meanings.put("pear", null);
+		meanings.put("apple", "A fruit");
+		when(vocabularyService.searchWords(List.of("pear", "apple"))).thenReturn(meanings);
+		
+		assertResponse(200, "{\"word\":\"apple\",\"meaning\":\"A fruit\"}", "GET", "/words/apple", null);
+		assertResponse(200, "{\"word\":\"crème brûlée\",\"meaning\":\"A dessert\"}", "GET", "/words/cr%C3%A8me%20br%C3%BBl%C3%A9e", null);
+		assertResponse(404, "{\"error\":\"Word not found: pear\"}", "GET", "/words/pear", null);
+		assertResponse(200, "{\"pear\":null,\"apple\":\"A fruit\"}", "POST", "/lookup", "[\"pear\", \"apple\"]");
+		assertResponse(404, "{\"error\":\"Not found: /wordsmith\"}", "GET", "/wordsmith", null);
+	}
+	
+	@Test
+	void testListsWordsByPrefix() throws Exception {
+		when(vocabularyService.findWordsByPrefix("ap")).thenReturn(new TreeMap<>(Map.of("apple", "A fruit", "apricot", "A fruit too", "ape", "An animal")));
+		
+		assertResponse(200, "{\"ape\":\"An animal\",\"apple\":\"A fruit\"}", "GET", "/words?prefix=ap&limit=2", null);
+		assertResponse(400, "{\"error\":\"Expected a positive limit\"}", "GET", "/words?prefix=ap&limit=x", null);
+	}
+	
+	@Test
+	void testChangesWords() throws Exception {
+		when(vocabularyService.addOrUpdateWords(List.of(Map.entry("pear", "A fruit")), ConflictPolicy.OVERWRITE))
+				.thenReturn(new ImportResult(1, 0, 0, null));
+		when(vocabularyService.addOrUpdateWords(List.of(Map.entry("apple", "A red fruit")), ConflictPolicy.OVERWRITE))
+				.thenReturn(new ImportResult(0, 1, 0, null));
+		when(vocabularyService.removeWord("apple")).thenReturn(true);
+		
+		assertResponse(201, "{\"word\":\"pear\",\"meaning\":\"A fruit\"}", "PUT", "/words/pear", "{\"meaning\": \"A fruit\"}");
+		assertResponse(200, "{\"word\":\"apple\",\"meaning\":\"A red fruit\"}", "PUT", "/words/apple", "{\"meaning\": \"A red fruit\"}");
+		assertResponse(204, "", "DELETE", "/words/apple", null);
+		assertResponse(404, "{\"error\":\"Word not found: plum\"}", "DELETE", "/words/plum", null);
+		verify(vocabularyService).removeWord("apple");
+	}
+	
+	@Test
+	void testRejectsInvalidRequests() throws Exception {
+		assertResponse(400, "{\"error\":\"Expected a body like {\\\"meaning\\\": \\\"...\\\"}\"}", "PUT", "/words/pear", "{}");
+		assertResponse(400, "{\"error\":\"Expected a JSON array of words\"}", "POST", "/lookup", "{\"word\": \"apple\"}");
+		assertResponse(405, "{\"error\":\"Method not allowed\"}", "GET", "/lookup", null);
+		String tooMany = "[" + String.join(",", Collections.nCopies(VocabularyHttpServer.MAX_LOOKUP_WORDS + 1, "\"apple\"")) + "]";
+		assertResponse(413, "{\"error\":\"At most 10000 words can be looked up at once\"}", "POST", "/lookup", tooMany);
+		HttpResponse<String> response = send("POST", "/lookup", "[\"apple\"");
+		assertEquals(400, response.statusCode());
+	}
+	
+	@Test
+	void testRejectsLargeBodiesBeforeReadingThem() throws Exception {
+		String large = "[\"" + "a".repeat(VocabularyHttpServer.MAX_BODY_BYTES) + "\"]";
+		String error = "{\"error\":\"Request bodies can be at most 1048576 bytes\"}";
+		assertResponse(413, error, "PUT", "/words/pear", large);
+		// Without a length, the body is only read up to the limit
+		byte[] bytes = large.getBytes(StandardCharsets.UTF_8);
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + "/lookup"))
+				.POST(HttpRequest.BodyPublishers.ofInputStream(() -> new ByteArrayInputStream(bytes)))
+				.build();
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		assertEquals(413, response.statusCode());
+		assertEquals(error, response.body());
+		verifyNoInteractions(vocabularyService);
+	}
+	
+	private void assertResponse(int status, String body, String method, String path, String requestBody) throws Exception {
+		HttpResponse<String> response = send(method, path, requestBody);
+		assertEquals(status, response.statusCode());
+		assertEquals(body, response.body());
+	}
+	
+	private HttpResponse<String> send(String method, String path, String body) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + path))
+				.method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+				.build();
+		return client.send(request, HttpResponse.BodyHandlers.ofString());
+	}
+}
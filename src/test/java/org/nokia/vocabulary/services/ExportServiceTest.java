@@ -0,0 +1,84 @@
+package org.nokia.vocabulary.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.nokia.vocabulary.file.FileHandler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+class ExportServiceTest {
+	
+	@TempDir
+	Path tempDir;
+	
+	@Mock
+	private VocabularyService vocabularyService;
+	
+	private ExportServiceImpl exportService;
+	
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.openMocks(this);
+		Map<String, String> words = new TreeMap<>();
+		for (int i = 0; i < 50_000; i++) {
+			words.put("word" + i, "meaning" + i);
+		}
+		when(vocabularyService.getAllWords()).thenReturn(words);
+		exportService = new ExportServiceImpl(vocabularyService, new FileHandler());
+	}
+	
+	@AfterEach
+	void tearDown() {
+		exportService.close();
+	}
+	
+	@Test
+	void testExportRunsInBackground() throws IOException {
+		Path file = tempDir.resolve("words.ndjson.gz");
+		ExportJob job = exportService.startExport(file);
+		assertEquals(1, job.id());
+		assertEquals(50_000, job.total());
+		await().atMost(10, TimeUnit.SECONDS).until(() -> job.state() == ExportJob.State.DONE);
+		assertEquals(50_000, job.written());
+		assertNull(job.error());
+		assertTrue(Files.size(file) > 0);
+		assertEquals(List.of(job), exportService.getExports());
+		assertEquals(job, exportService.getExport(1));
+		assertFalse(job.cancel());
+	}
+	
+	@Test
+	void testQueuedExportCanBeCancelled() {
+		ExportJob first = exportService.startExport(tempDir.resolve("first.csv"));
+		ExportJob second = exportService.startExport(tempDir.resolve("second.csv"));
+		if (second.cancel()) {
+			assertEquals(ExportJob.State.CANCELLED, second.state());
+		}
+		await().atMost(10, TimeUnit.SECONDS).until(() -> first.state() == ExportJob.State.DONE && second.state() != ExportJob.State.RUNNING);
+		assertFalse(Files.exists(tempDir.resolve("second.csv.tmp")));
+	}
+	
+	@Test
+	void testUnsupportedFormatIsRejected() {
+		assertThrows(IllegalArgumentException.class, () -> exportService.startExport(tempDir.resolve("words.xml")));
+		assertTrue(exportService.getExports().isEmpty());
+	}
+}
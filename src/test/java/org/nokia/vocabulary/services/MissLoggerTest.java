@@ -0,0 +1,59 @@
+package org.nokia.vocabulary.services;
+
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class MissLoggerTest {
+	
+	@Mock
+	private Logger logger;
+	
+	@BeforeEach
+	void setUp() {
+		MockitoAnnotations.openMocks(this);
+		when(logger.isWarnEnabled()).thenReturn(true);
+	}
+	
+	@Test
+	void testLogsOncePerInterval() {
+		MissLogger missLogger = new MissLogger(logger, 1, TimeUnit.HOURS);
+		for (int i = 0; i < 1_000; i++) {
+			missLogger.miss("word" + i);
+		}
+		verify(logger).warn("Word not found: {}", "word0");
+		verify(logger, never()).warn(anyString(), (Object) anyString(), (Object) anyLong());
+	}
+	
+	@Test
+	void testReportsSuppressedMisses() throws InterruptedException {
+		MissLogger missLogger = new MissLogger(logger, 50, TimeUnit.MILLISECONDS);
+		for (int i = 0; i < 10; i++) {
+			missLogger.miss("a");
+		}
+		Thread.sleep(60);
+		missLogger.miss("b");
+		verify(logger).warn("Word not found: {}", "a");
+		verify(logger).warn("Word not found: {} ({} more misses not logged)", "b", 9L);
+	}
+	
+	@Test
+	void testNothingLoggedWhenWarnDisabled() {
+		when(logger.isWarnEnabled()).thenReturn(false);
+		MissLogger missLogger = new MissLogger(logger, 0, TimeUnit.SECONDS);
+		missLogger.miss("a");
+		verify(logger).isWarnEnabled();
+		verifyNoMoreInteractions(logger);
+	}
+}
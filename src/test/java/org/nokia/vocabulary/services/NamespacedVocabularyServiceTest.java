@@ -0,0 +1,109 @@
+package org.nokia.vocabulary.services;
+
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nokia.vocabulary.file.FileHandler;
+import org.nokia.vocabulary.file.WriteAheadLog;
+import org.nokia.vocabulary.metrics.VocabularyMetrics;
+import org.nokia.vocabulary.store.ConcurrentVocabularyStore;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NamespacedVocabularyServiceTest {
+	@TempDir
+	Path tempDir;
+	private final PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+	private NamespacedVocabularyService vocabularies;
+	
+	@BeforeEach
+	void setUp() throws IOException {
+		vocabularies = open();
+		vocabularies.addOrUpdateWords(Map.of("apple", "A fruit"), ConflictPolicy.OVERWRITE);
+	}
+	
+	@AfterEach
+	void tearDown() {
+		vocabularies.close();
+	}
+	
+	@Test
+	void testCallsGoToCurrentVocabulary() throws IOException {
+		assertTrue(vocabularies.createVocabulary("fr"));
+		assertFalse(vocabularies.createVocabulary("fr"));
+		assertTrue(vocabularies.useVocabulary("fr"));
+		assertNull(vocabularies.searchWord("apple"));
+		vocabularies.addOrUpdateWords(Map.of("pomme", "Un fruit", "apple", "Pomme, en anglais"), ConflictPolicy.OVERWRITE);
+		
+		assertTrue(vocabularies.useVocabulary(NamespacedVocabularyService.DEFAULT_NAME));
+		assertNull(vocabularies.searchWord("pomme"));
+		assertEquals(Map.of("default", "A fruit", "fr", "Pomme, en anglais"), vocabularies.searchAllVocabularies("apple"));
+		assertEquals(Map.of("fr", "Un fruit"), vocabularies.searchAllVocabularies("pomme"));
+		assertTrue(vocabularies.searchAllVocabularies("pear").isEmpty());
+		assertFalse(vocabularies.useVocabulary("de"));
+		
+		List<NamespacedVocabularyService.VocabularyInfo> listed = vocabularies.listVocabularies();
+		assertEquals(List.of(new NamespacedVocabularyService.VocabularyInfo("default", 1, true, true),
+				new NamespacedVocabularyService.VocabularyInfo("fr", 2, true, false)), listed);
+	}
+	
+	@Test
+	void testVocabulariesAreReloadedFromTheirOwnFiles() throws IOException {
+		vocabularies.createVocabulary("medical");
+		vocabularies.createVocabulary("legal");
+		vocabularies.useVocabulary("medical");
+		vocabularies.addOrUpdateWords(Map.of("cardiac", "Of the heart"), ConflictPolicy.OVERWRITE);
+		vocabularies.useVocabulary("legal");
+		vocabularies.addOrUpdateWords(Map.of("tort", "A civil wrong"), ConflictPolicy.OVERWRITE);
+		vocabularies.saveVocabularyToFile();
+		vocabularies.close();
+		
+		vocabularies = open();
+		assertEquals(List.of("default", "legal", "medical"), vocabularies.listVocabularies().stream().map(NamespacedVocabularyService.VocabularyInfo::name).toList());
+		assertEquals(NamespacedVocabularyService.DEFAULT_NAME, vocabularies.currentVocabulary());
+		assertEquals(Map.of("medical", "Of the heart"), vocabularies.searchAllVocabularies("cardiac"));
+		assertEquals(Map.of("legal", "A civil wrong"), vocabularies.searchAllVocabularies("tort"));
+	}
+	
+	@Test
+	void testDropDeletesFilesAndSwitchesBack() throws IOException {
+		vocabularies.createVocabulary("fr");
+		vocabularies.useVocabulary("fr");
+		vocabularies.addOrUpdateWords(Map.of("pomme", "Un fruit"), ConflictPolicy.OVERWRITE);
+		Path log = tempDir.resolve("vocabularies").resolve("fr.json.wal");
+		assertTrue(Files.exists(log));
+		assertEquals(1, registry.get(VocabularyMetrics.WORDS).tag(VocabularyMetrics.VOCABULARY_TAG, "fr").gauge().value());
+		
+		assertTrue(vocabularies.dropVocabulary("fr"));
+		assertFalse(vocabularies.dropVocabulary("fr"));
+		assertFalse(Files.exists(log));
+		assertNull(registry.find(VocabularyMetrics.WORDS).tag(VocabularyMetrics.VOCABULARY_TAG, "fr").gauge());
+		assertEquals(NamespacedVocabularyService.DEFAULT_NAME, vocabularies.currentVocabulary());
+		assertEquals("A fruit", vocabularies.searchWord("apple"));
+		assertThrows(IllegalArgumentException.class, () -> vocabularies.dropVocabulary(NamespacedVocabularyService.DEFAULT_NAME));
+		assertThrows(IllegalArgumentException.class, () -> vocabularies.createVocabulary("../fr"));
+	}
+	
+	private NamespacedVocabularyService open() throws IOException {
+		FileHandler fileHandler = new FileHandler();
+		ReflectionTestUtils.setField(fileHandler, "FILE_PATH", tempDir.resolve("vocabulary.json").toString());
+		WriteAheadLog writeAheadLog = new WriteAheadLog(true, tempDir.resolve("vocabulary.json.wal"), 1, 100, Long.MAX_VALUE);
+		VocabularyServiceImpl defaultVocabulary = new VocabularyServiceImpl(fileHandler, writeAheadLog, new ConcurrentVocabularyStore());
+		return new NamespacedVocabularyService(defaultVocabulary, fileHandler, writeAheadLog,
+				(json, dictionary) -> new ConcurrentVocabularyStore(), registry, tempDir.resolve("vocabularies"), false, 2);
+	}
+}
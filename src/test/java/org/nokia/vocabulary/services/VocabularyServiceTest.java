@@ -1,29 +1,57 @@
 package org.nokia.vocabulary.services;
 
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.nokia.vocabulary.file.FileHandler;
+import org.nokia.vocabulary.file.WriteAheadLog;
+import org.nokia.vocabulary.search.FuzzyMatcher;
+import org.nokia.vocabulary.search.MeaningIndex;
+import org.nokia.vocabulary.store.ConcurrentVocabularyStore;
+import org.nokia.vocabulary.store.VersionHistory;
+import org.nokia.vocabulary.store.VocabularyStore;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 class VocabularyServiceTest {
 	
+	@TempDir
+	Path tempDir;
+	
 	@Mock
 	private FileHandler fileHandler;
 	
-	@InjectMocks
+	@Mock
+	private WriteAheadLog writeAheadLog;
+	
 	private VocabularyServiceImpl vocabularyService;
 	
 	private Map<String, String> vocabularyMap;
@@ -33,8 +61,12 @@ class VocabularyServiceTest {
 		MockitoAnnotations.openMocks(this);
 		vocabularyMap = new TreeMap<>();
 		vocabularyMap.put("apple", "A fruit");
-		when(fileHandler.loadVocabulary()).thenReturn(vocabularyMap);
-		vocabularyService = new VocabularyServiceImpl(fileHandler);
+		doAnswer(invocation -> {
+			BiConsumer<String, String> consumer = invocation.getArgument(0);
+			vocabularyMap.forEach(consumer);
+			return (long) vocabularyMap.size();
+		}).when(fileHandler).loadVocabulary(any());
+		vocabularyService = new VocabularyServiceImpl(fileHandler, writeAheadLog, new ConcurrentVocabularyStore());
 	}
 	
 	@Test
@@ -45,6 +77,36 @@ class VocabularyServiceTest {
 		assertEquals("A fruit", words.get("apple"));
 	}
 	
+	@Test
+	void testGetAllWordsIsStableSnapshot() {
+		Map<String, String> before = vocabularyService.getAllWords();
+		vocabularyService.addOrUpdateWord("banana", "A yellow fruit");
+		assertEquals(1, before.size());
+		assertFalse(before.containsKey("banana"));
+		assertThrows(UnsupportedOperationException.class, () -> before.put("cherry", "A small fruit"));
+	}
+	
+	@Test
+	void testSearchesDoNotAllocate() {
+		MeteredVocabularyService metered = new MeteredVocabularyService(vocabularyService, new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+		String[] words = {"apple", "pear", "banana", "cherry"};
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		for (int i = 0; i < 200_000; i++) {
+			metered.searchWord(words[i & 3]);
+		}
+		// Lookups only stop allocating once compiled, which may still be under way in the first rounds
+		long allocated = Long.MAX_VALUE;
+		for (int round = 0; round < 5 && allocated >= 10_000; round++) {
+			long before = threads.getCurrentThreadAllocatedBytes();
+			for (int i = 0; i < 100_000; i++) {
+				metered.searchWord(words[i & 3]);
+			}
+			allocated = threads.getCurrentThreadAllocatedBytes() - before;
+		}
+		// Allows for a rate limited miss message being logged while measuring
+		assertTrue(allocated < 10_000, allocated + " bytes allocated by 100000 lookups");
+	}
+	
 	@Test
 	void testAddWord() {
 		String result = vocabularyService.addOrUpdateWord("banana", "A yellow fruit");
@@ -77,6 +139,192 @@ class VocabularyServiceTest {
 		assertEquals("A fruit", vocabularyService.getAllWords().get("apple"));
 	}
 	
+	@Test
+	void testAddOrUpdateWordsWithConflictPolicy() {
+		List<Map.Entry<String, String>> words = List.of(Map.entry("banana", "A yellow fruit"), Map.entry("apple", "A red fruit"),
+				Map.entry("cherry", "A small fruit"));
+		assertEquals(new ImportResult(2, 0, 1, null), vocabularyService.addOrUpdateWords(words, ConflictPolicy.SKIP));
+		assertEquals("A fruit", vocabularyService.searchWord("apple"));
+		
+		assertEquals(new ImportResult(0, 3, 0, null), vocabularyService.addOrUpdateWords(words, ConflictPolicy.OVERWRITE));
+		assertEquals("A red fruit", vocabularyService.searchWord("apple"));
+		
+		List<Map.Entry<String, String>> more = List.of(Map.entry("date", "A sweet fruit"), Map.entry("apple", "A green fruit"),
+				Map.entry("elderberry", "A dark berry"));
+		assertEquals(new ImportResult(1, 0, 0, "apple"), vocabularyService.addOrUpdateWords(more, ConflictPolicy.FAIL));
+		assertEquals("A red fruit", vocabularyService.searchWord("apple"));
+		assertNull(vocabularyService.searchWord("elderberry"));
+	}
+	
+	@Test
+	void testImportWordsInBatches() throws IOException {
+		doAnswer(invocation -> {
+			BiConsumer<String, String> consumer = invocation.getArgument(1);
+			for (int i = 0; i < 25_000; i++) {
+				consumer.accept("word" + i, "meaning" + i);
+			}
+			consumer.accept("apple", "A red fruit");
+			return 25_001L;
+		}).when(fileHandler).readEntries(any(Path.class), any());
+		
+		ImportResult result = vocabularyService.importWords(Path.of("words.csv"), ConflictPolicy.SKIP);
+		assertEquals(new ImportResult(25_000, 0, 1, null), result);
+		assertEquals(25_001, vocabularyService.getAllWords().size());
+		assertEquals("A fruit", vocabularyService.searchWord("apple"));
+		
+		result = vocabularyService.importWords(Path.of("words.csv"), ConflictPolicy.FAIL);
+		assertEquals(new ImportResult(0, 0, 0, "word0"), result);
+	}
+	
+	@Test
+	void testLoadsInBatchesWithLaterEntriesWinning() throws IOException {
+		doAnswer(invocation -> {
+			BiConsumer<String, String> consumer = invocation.getArgument(0);
+			for (int i = 0; i < 150_000; i++) {
+				consumer.accept("word" + i, "meaning" + i);
+			}
+			consumer.accept("word7", "last meaning");
+			return 150_001L;
+		}).when(fileHandler).loadVocabulary(any());
+		VocabularyServiceImpl loaded = new VocabularyServiceImpl(fileHandler, writeAheadLog, new ConcurrentVocabularyStore());
+		assertEquals(150_000, loaded.getAllWords().size());
+		assertEquals("last meaning", loaded.searchWord("word7"));
+		assertEquals("meaning149999", loaded.searchWord("word149999"));
+	}
+	
+	@Test
+	void testCallsWaitForBackgroundLoading() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			release.await();
+			BiConsumer<String, String> consumer = invocation.getArgument(0);
+			consumer.accept("apple", "A fruit");
+			return 1L;
+		}).when(fileHandler).loadVocabulary(any());
+		VocabularyServiceImpl loading = new VocabularyServiceImpl(fileHandler, writeAheadLog, new ConcurrentVocabularyStore(), true, "", false, 1000);
+		CompletableFuture<String> search = CompletableFuture.supplyAsync(() -> loading.searchWord("apple"));
+		Thread.sleep(100);
+		assertFalse(search.isDone());
+		release.countDown();
+		assertEquals("A fruit", search.get(5, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	void testCaseInsensitiveSearchFollowsChanges() {
+		vocabularyService.addOrUpdateWord("Apple", "A company");
+		assertEquals(Map.of("apple", "A fruit", "Apple", "A company"), vocabularyService.searchWordIgnoringCase("APPLE"));
+		
+		// The index built by the first search is kept up to date by every kind of change
+		vocabularyService.removeWord("Apple");
+		vocabularyService.addOrUpdateWords(Map.of("Banana", "A yellow fruit", "cherry", "A red fruit"), ConflictPolicy.OVERWRITE);
+		vocabularyService.removeWords(List.of("cherry"));
+		assertEquals(List.of("apple"), List.copyOf(vocabularyService.searchWordIgnoringCase("Apple").keySet()));
+		assertEquals("A yellow fruit", vocabularyService.searchWordIgnoringCase("banana").get("Banana"));
+		assertTrue(vocabularyService.searchWordIgnoringCase("CHERRY").isEmpty());
+		assertEquals(List.of("apple", "Banana"), List.copyOf(vocabularyService.getWordsInCollationOrder(null, 0).keySet()));
+	}
+	
+	@Test
+	void testSearchAsOfEarlierVersions() {
+		long loaded = vocabularyService.currentVersion();
+		vocabularyService.addOrUpdateWord("banana", "A yellow fruit");
+		vocabularyService.addOrUpdateWords(Map.of("apple", "A red fruit", "cherry", "A small fruit"), ConflictPolicy.OVERWRITE);
+		vocabularyService.removeWord("banana");
+		assertEquals(loaded + 4, vocabularyService.currentVersion());
+		
+		assertEquals("A fruit", vocabularyService.searchWordAsOf("apple", loaded + 1));
+		assertEquals("A red fruit", vocabularyService.searchWordAsOf("apple", loaded + 3));
+		assertNull(vocabularyService.searchWordAsOf("banana", loaded));
+		assertEquals("A yellow fruit", vocabularyService.searchWordAsOf("banana", loaded + 3));
+		assertNull(vocabularyService.searchWordAsOf("banana", loaded + 4));
+		assertThrows(IllegalArgumentException.class, () -> vocabularyService.searchWordAsOf("apple", loaded + 5));
+		assertEquals(List.of(new VersionHistory.Version(loaded + 4, null), new VersionHistory.Version(loaded + 1, "A yellow fruit")),
+				vocabularyService.getHistory("banana"));
+		assertEquals(List.of(new VersionHistory.Version(loaded + 3, "A red fruit"), new VersionHistory.Version(loaded, "A fruit")),
+				vocabularyService.getHistory("apple"));
+	}
+	
+	@Test
+	void testListenersAreToldAboutChanges() {
+		List<VocabularyChange> changes = new ArrayList<>();
+		VocabularyChangeListener listener = changes::add;
+		vocabularyService.addChangeListener(listener);
+		long loaded = vocabularyService.currentVersion();
+		vocabularyService.addOrUpdateWord("banana", "A yellow fruit");
+		vocabularyService.addOrUpdateWords(Map.of("banana", "A long yellow fruit"), ConflictPolicy.OVERWRITE);
+		vocabularyService.addOrUpdateWords(Map.of("apple", "A red fruit", "cherry", "A small fruit"), ConflictPolicy.OVERWRITE);
+		vocabularyService.removeWords(List.of("cherry", "pear"));
+		vocabularyService.removeWord("banana");
+		vocabularyService.removeChangeListener(listener);
+		vocabularyService.addOrUpdateWord("pear", "A fruit");
+		
+		assertEquals(List.of(
+				new VocabularyChange(VocabularyChange.Type.ADDED, "banana", null, "A yellow fruit", loaded + 1, false),
+				new VocabularyChange(VocabularyChange.Type.UPDATED, "banana", "A yellow fruit", "A long yellow fruit", loaded + 2, false),
+				new VocabularyChange(VocabularyChange.Type.UPDATED, "apple", "A fruit", "A red fruit", loaded + 4, false),
+				new VocabularyChange(VocabularyChange.Type.ADDED, "cherry", null, "A small fruit", loaded + 4, false),
+				new VocabularyChange(VocabularyChange.Type.REMOVED, "cherry", "A small fruit", null, loaded + 5, false),
+				new VocabularyChange(VocabularyChange.Type.REMOVED, "banana", "A long yellow fruit", null, loaded + 6, false)), changes);
+	}
+	
+	@Test
+	void testChangeIsOnlyMadeOnceLogged() throws IOException {
+		doThrow(new IOException("Disk full")).when(writeAheadLog).logPut(anyString(), anyString());
+		doThrow(new IOException("Disk full")).when(writeAheadLog).logPuts(any());
+		doThrow(new IOException("Disk full")).when(writeAheadLog).logRemove(anyString());
+		List<VocabularyChange> changes = new ArrayList<>();
+		vocabularyService.addChangeListener(changes::add);
+		long version = vocabularyService.currentVersion();
+		
+		assertThrows(UncheckedIOException.class, () -> vocabularyService.addOrUpdateWord("banana", "A yellow fruit"));
+		assertThrows(UncheckedIOException.class, () -> vocabularyService.addOrUpdateWords(Map.of("apple", "A red fruit"), ConflictPolicy.OVERWRITE));
+		assertThrows(UncheckedIOException.class, () -> vocabularyService.removeWord("apple"));
+		
+		assertEquals(Map.of("apple", "A fruit"), vocabularyService.getAllWords());
+		assertEquals(version, vocabularyService.currentVersion());
+		assertTrue(changes.isEmpty());
+	}
+	
+	@Test
+	void testChangesOfAnotherProcessAreFollowed() throws Exception {
+		FileHandler files = new FileHandler();
+		ReflectionTestUtils.setField(files, "FILE_PATH", tempDir.resolve("vocabulary.json").toString());
+		Path log = tempDir.resolve("vocabulary.json.wal");
+		// The first one compacts on every save, so that the second one has to follow it into a new segment
+		WriteAheadLog firstLog = new WriteAheadLog(true, log, 1, 100, 1, true, 50);
+		WriteAheadLog secondLog = new WriteAheadLog(true, log, 1, 100, Long.MAX_VALUE, true, 50);
+		VocabularyServiceImpl first = new VocabularyServiceImpl(files, firstLog, new ConcurrentVocabularyStore());
+		VocabularyServiceImpl second = new VocabularyServiceImpl(files, secondLog, new ConcurrentVocabularyStore());
+		BlockingQueue<VocabularyChange> followed = new LinkedBlockingQueue<>();
+		second.addChangeListener(followed::add);
+		try {
+			first.addOrUpdateWord("apple", "A fruit");
+			assertEquals(new VocabularyChange(VocabularyChange.Type.ADDED, "apple", null, "A fruit", 1, true), followed.poll(10, TimeUnit.SECONDS));
+			first.saveVocabularyToFile();
+			first.removeWord("apple");
+			assertEquals(new VocabularyChange(VocabularyChange.Type.REMOVED, "apple", "A fruit", null, 2, true), followed.poll(10, TimeUnit.SECONDS));
+			second.addOrUpdateWord("banana", "A yellow fruit");
+			assertFalse(followed.take().remote());
+			for (long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10); first.searchWord("banana") == null && System.nanoTime() < deadline; ) {
+				Thread.sleep(10);
+			}
+			assertEquals("A yellow fruit", first.searchWord("banana"));
+			assertNull(second.searchWord("apple"));
+		} finally {
+			first.close();
+			second.close();
+			firstLog.close();
+			secondLog.close();
+		}
+		
+		WriteAheadLog reopenedLog = new WriteAheadLog(true, log, 1, 100, Long.MAX_VALUE);
+		try {
+			assertEquals(Map.of("banana", "A yellow fruit"), new VocabularyServiceImpl(files, reopenedLog, new ConcurrentVocabularyStore()).getAllWords());
+		} finally {
+			reopenedLog.close();
+		}
+	}
+	
 	@Test
 	void testSearchWordFound() {
 		String result = vocabularyService.searchWord("apple");
@@ -89,6 +337,48 @@ class VocabularyServiceTest {
 		assertNull(result);
 	}
 	
+	@Test
+	void testGetWordsInRange() {
+		vocabularyService.addOrUpdateWord("banana", "A yellow fruit");
+		vocabularyService.addOrUpdateWord("cherry", "A small red fruit");
+		assertEquals(List.of("banana", "cherry"), new ArrayList<>(vocabularyService.getWordsInRange("b", null).keySet()));
+		assertEquals(List.of("apple", "banana"), new ArrayList<>(vocabularyService.getWordsInRange(null, "cherry").keySet()));
+		assertEquals(List.of("banana"), new ArrayList<>(vocabularyService.getWordsInRange("banana", "c").keySet()));
+		assertEquals(3, vocabularyService.getWordsInRange(null, null).size());
+	}
+	
+	@Test
+	void testFindWordsByPrefix() {
+		vocabularyService.addOrUpdateWord("apply", "To put to use");
+		vocabularyService.addOrUpdateWord("apricot", "An orange fruit");
+		vocabularyService.addOrUpdateWord("banana", "A yellow fruit");
+		assertEquals(List.of("apple", "apply"), new ArrayList<>(vocabularyService.findWordsByPrefix("appl").keySet()));
+		assertEquals(List.of("apple", "apply", "apricot"), new ArrayList<>(vocabularyService.findWordsByPrefix("ap").keySet()));
+		assertEquals(4, vocabularyService.findWordsByPrefix("").size());
+		assertTrue(vocabularyService.findWordsByPrefix("cherry").isEmpty());
+	}
+	
+	@Test
+	void testFindSimilarWords() {
+		vocabularyService.addOrUpdateWord("apply", "To put to use");
+		vocabularyService.addOrUpdateWord("banana", "A yellow fruit");
+		assertEquals(List.of(new FuzzyMatcher.Match("apple", 2, "A fruit"), new FuzzyMatcher.Match("apply", 2, "To put to use")),
+				vocabularyService.findSimilarWords("appel", 2, 10));
+		assertTrue(vocabularyService.findSimilarWords("appel", 1, 10).isEmpty());
+	}
+	
+	@Test
+	void testFindWordsByMeaning() {
+		vocabularyService.addOrUpdateWord("banana", "A yellow fruit");
+		assertEquals(List.of("apple", "banana"), vocabularyService.findWordsByMeaning("fruit", true, 10).stream().map(MeaningIndex.Hit::word).sorted().toList());
+		// Changes made after the index was built are reflected
+		vocabularyService.addOrUpdateWord("cherry", "A small red fruit");
+		vocabularyService.removeWord("banana");
+		assertEquals(List.of("cherry"), vocabularyService.findWordsByMeaning("red fruit", true, 10).stream().map(MeaningIndex.Hit::word).toList());
+		assertEquals("A small red fruit", vocabularyService.findWordsByMeaning("red fruit", true, 10).get(0).meaning());
+		assertEquals(List.of("apple", "cherry"), vocabularyService.findWordsByMeaning("yellow fruit", false, 10).stream().map(MeaningIndex.Hit::word).sorted().toList());
+	}
+	
 	@Test
 	void testRemoveWordSuccess() {
 		boolean result = vocabularyService.removeWord("apple");
@@ -103,12 +393,187 @@ class VocabularyServiceTest {
 		assertEquals(1, vocabularyService.getAllWords().size());
 	}
 	
+	@Test
+	void testBatchOperations() throws IOException {
+		Map<String, String> words = new TreeMap<>(Map.of("banana", "A yellow fruit", "apple", "A red fruit", "cherry", "A small fruit"));
+		assertEquals(new ImportResult(2, 1, 0, null), vocabularyService.addOrUpdateWords(words, ConflictPolicy.OVERWRITE));
+		
+		Map<String, String> found = vocabularyService.searchWords(List.of("cherry", "pear", "apple", "cherry"));
+		assertEquals(List.of("cherry", "pear", "apple"), new ArrayList<>(found.keySet()));
+		assertEquals("A small fruit", found.get("cherry"));
+		assertNull(found.get("pear"));
+		
+		RemovalResult result = vocabularyService.removeWords(List.of("apple", "pear", "cherry", "apple"));
+		assertEquals(new RemovalResult(2, List.of("pear")), result);
+		assertEquals(Map.of("banana", "A yellow fruit"), vocabularyService.getAllWords());
+		// Each batch is a single write to the log
+		verify(writeAheadLog).logPuts(any());
+		verify(writeAheadLog).logRemoves(argThat(removed -> List.copyOf(removed).equals(List.of("apple", "cherry"))));
+		verify(writeAheadLog, never()).logRemove(any());
+	}
+	
 	@Test
 	void testSaveVocabularyToFile() throws IOException {
 		vocabularyService.saveVocabularyToFile();
 		verify(fileHandler, times(1)).saveVocabulary(anyMap());
 	}
 	
+	@Test
+	void testMutationsAreLogged() throws IOException {
+		vocabularyService.addOrUpdateWord("banana", "A yellow fruit");
+		vocabularyService.removeWord("apple");
+		verify(writeAheadLog).logPut("banana", "A yellow fruit");
+		verify(writeAheadLog).logRemove("apple");
+	}
+	
+	@Test
+	void testReplayAppliedOnTopOfSnapshot() throws IOException {
+		doAnswer(invocation -> {
+			BiConsumer<String, String> put = invocation.getArgument(0);
+			Consumer<String> remove = invocation.getArgument(1);
+			put.accept("banana", "A yellow fruit");
+			remove.accept("apple");
+			return 2L;
+		}).when(writeAheadLog).replay(any(), any());
+		VocabularyServiceImpl replayed = new VocabularyServiceImpl(fileHandler, writeAheadLog, new ConcurrentVocabularyStore());
+		assertEquals(Map.of("banana", "A yellow fruit"), replayed.getAllWords());
+	}
+	
+	@Test
+	void testVersionsContinueAcrossRestarts() throws IOException {
+		FileHandler files = new FileHandler();
+		ReflectionTestUtils.setField(files, "FILE_PATH", tempDir.resolve("vocabulary.json").toString());
+		Path log = tempDir.resolve("vocabulary.json.wal");
+		// Compacts on every save, so that the snapshot records the version and the log starts over
+		WriteAheadLog firstLog = new WriteAheadLog(true, log, 1, 100, 1);
+		try {
+			VocabularyServiceImpl first = new VocabularyServiceImpl(files, firstLog, new ConcurrentVocabularyStore());
+			first.addOrUpdateWords(Map.of("apple", "A fruit", "banana", "A yellow fruit"), ConflictPolicy.OVERWRITE);
+			first.saveVocabularyToFile();
+			first.addOrUpdateWord("cherry", "A small fruit");
+			assertEquals(3, first.currentVersion());
+			first.close();
+		} finally {
+			firstLog.close();
+		}
+		
+		WriteAheadLog secondLog = new WriteAheadLog(true, log, 1, 100, Long.MAX_VALUE);
+		try {
+			VocabularyServiceImpl second = new VocabularyServiceImpl(files, secondLog, new ConcurrentVocabularyStore());
+			assertEquals(3, second.currentVersion());
+			// Versions of the previous run are no longer kept, rather than reused for other states
+			assertThrows(IllegalArgumentException.class, () -> second.searchWordAsOf("cherry", 2));
+			second.removeWord("apple");
+			assertEquals(4, second.currentVersion());
+			assertNull(second.searchWordAsOf("apple", 4));
+			second.close();
+		} finally {
+			secondLog.close();
+		}
+	}
+	
+	@Test
+	void testSaveSyncsLogInsteadOfRewritingFile() throws IOException {
+		when(writeAheadLog.isEnabled()).thenReturn(true);
+		vocabularyService.saveVocabularyToFile();
+		verify(writeAheadLog).sync();
+		verify(fileHandler, never()).saveVocabulary(anyMap());
+	}
+	
+	@Test
+	void testSaveCompactsLargeLog() throws IOException {
+		when(writeAheadLog.isEnabled()).thenReturn(true);
+		when(writeAheadLog.needsCompaction()).thenReturn(true);
+		vocabularyService.saveVocabularyToFile();
+		verify(fileHandler).saveVocabulary(anyMap());
+		verify(writeAheadLog).rotate(any(), any());
+		verify(writeAheadLog).discardRotated();
+	}
+	
+	@Test
+	void testSnapshotOnlyWrittenWhenChanged() throws IOException {
+		assertFalse(vocabularyService.saveSnapshotIfChanged());
+		vocabularyService.addOrUpdateWord("banana", "A yellow fruit");
+		assertTrue(vocabularyService.saveSnapshotIfChanged());
+		assertFalse(vocabularyService.saveSnapshotIfChanged());
+		verify(fileHandler, times(1)).saveVocabulary(Map.of("apple", "A fruit", "banana", "A yellow fruit"));
+	}
+	
+	@Test
+	void testFailedSnapshotIsRetried() throws IOException {
+		vocabularyService.removeWord("apple");
+		doThrow(new IOException("Disk full")).doNothing().when(fileHandler).saveVocabulary(anyMap());
+		assertFalse(vocabularyService.saveSnapshotIfChanged());
+		verify(writeAheadLog, never()).discardRotated();
+		assertTrue(vocabularyService.saveSnapshotIfChanged());
+		verify(writeAheadLog).discardRotated();
+	}
+	
+	@Test
+	void testFileBackedStoreIsCheckpointedInsteadOfJson() throws IOException {
+		VocabularyStore store = mock(VocabularyStore.class);
+		when(store.isFileBacked()).thenReturn(true);
+		clearInvocations(fileHandler);
+		VocabularyServiceImpl mapped = new VocabularyServiceImpl(fileHandler, writeAheadLog, store);
+		verify(fileHandler, never()).loadVocabulary(any());
+		mapped.saveVocabularyToFile();
+		verify(store).checkpoint(any());
+		verify(fileHandler, never()).saveVocabulary(anyMap());
+	}
+	
+	@Test
+	void testFailedLoadNeverOverwritesFiles() throws IOException {
+		FileHandler files = new FileHandler();
+		Path json = tempDir.resolve("vocabulary.json");
+		ReflectionTestUtils.setField(files, "FILE_PATH", json.toString());
+		String corrupt = "{\"apple\": \"A fruit\", \"banana\": ";
+		Files.writeString(json, corrupt);
+		Path log = tempDir.resolve("vocabulary.json.wal");
+		WriteAheadLog previousLog = new WriteAheadLog(true, log, 1, 100, 1);
+		previousLog.replay((word, meaning) -> {
+		}, word -> {
+		});
+		previousLog.logPut("cherry", "A small fruit");
+		previousLog.close();
+		
+		// Compacts on every save, so that saving would rewrite the JSON file and empty the log
+		WriteAheadLog failedLog = new WriteAheadLog(true, log, 1, 100, 1);
+		try {
+			VocabularyServiceImpl failed = new VocabularyServiceImpl(files, failedLog, new ConcurrentVocabularyStore());
+			failed.addOrUpdateWords(Map.of("date", "A sweet fruit"), ConflictPolicy.OVERWRITE);
+			failed.saveVocabularyToFile();
+			assertFalse(failed.saveSnapshotIfChanged());
+		} finally {
+			failedLog.close();
+		}
+		
+		assertEquals(corrupt, Files.readString(json));
+		Map<String, String> logged = new TreeMap<>();
+		WriteAheadLog reopenedLog = new WriteAheadLog(true, log, 1, 100, Long.MAX_VALUE);
+		try {
+			reopenedLog.replay(logged::put, logged::remove);
+		} finally {
+			reopenedLog.close();
+		}
+		assertEquals(Map.of("cherry", "A small fruit", "date", "A sweet fruit"), logged);
+	}
+	
+	@Test
+	void testClosedVocabularyRefusesChangesAndSnapshots() throws IOException {
+		vocabularyService.addOrUpdateWord("banana", "A yellow fruit");
+		vocabularyService.close();
+		
+		assertThrows(IllegalStateException.class, () -> vocabularyService.addOrUpdateWord("cherry", "A small fruit"));
+		assertThrows(IllegalStateException.class, () -> vocabularyService.addOrUpdateWords(Map.of("cherry", "A small fruit"), ConflictPolicy.OVERWRITE));
+		assertThrows(IllegalStateException.class, () -> vocabularyService.removeWord("apple"));
+		assertFalse(vocabularyService.saveSnapshotIfChanged());
+		vocabularyService.saveVocabularyToFile();
+		verify(writeAheadLog, never()).logPut("cherry", "A small fruit");
+		verify(writeAheadLog, never()).logRemove(any());
+		verify(fileHandler, never()).saveVocabulary(any());
+		assertEquals("A fruit", vocabularyService.searchWord("apple"));
+	}
+	
 	@Test
 	void testSaveVocabularyToFileException() throws IOException {
 		doThrow(new IOException("File save error")).when(fileHandler).saveVocabulary(anyMap());
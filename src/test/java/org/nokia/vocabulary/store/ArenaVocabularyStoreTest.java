@@ -0,0 +1,102 @@
+package org.nokia.vocabulary.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArenaVocabularyStoreTest {
+	
+	@Test
+	void testChangesAndCompactionMatchTreeMap() {
+		testMatchesTreeMap(new ArenaVocabularyStore(false));
+	}
+	
+	@Test
+	void testOffHeapChangesAndCompactionMatchTreeMap() {
+		ArenaVocabularyStore store = new ArenaVocabularyStore(true);
+		testMatchesTreeMap(store);
+		assertTrue(store.offHeapBytes() > 0);
+	}
+	
+	@Test
+	void testCompactsOnceOverlaysGrow() {
+		ArenaVocabularyStore store = new ArenaVocabularyStore(false);
+		for (int i = 0; i < ArenaVocabularyStore.MIN_COMPACTION_SIZE; i++) {
+			store.put("word" + i, "meaning" + i);
+		}
+		assertEquals(0, store.overlaySize());
+		assertEquals(ArenaVocabularyStore.MIN_COMPACTION_SIZE, store.size());
+		assertEquals("meaning42", store.get("word42"));
+	}
+	
+	@Test
+	void testDictionaryKeepsNonAsciiWordsInStringOrder() {
+		TreeMap<String, String> words = new TreeMap<>();
+		words.put("zebra", "An animal");
+		words.put("éclair", "A pastry");
+		words.put("🍎", "An apple emoji");
+		words.put("ﬁn", "A ligature");
+		words.put("a".repeat(300), "m".repeat(100_000));
+		ArenaDictionary dictionary = ArenaDictionary.build(words.entrySet().iterator(), false);
+		
+		assertEquals(words, dictionary.view());
+		words.forEach((word, meaning) -> assertEquals(meaning, dictionary.get(word)));
+		assertNull(dictionary.get("é"));
+		assertEquals(words.tailMap("zebra"), dictionary.view().tailMap("zebra"));
+	}
+	
+	@Test
+	void testRejectsUnsortedEntries() {
+		TreeMap<String, String> words = new TreeMap<>(Map.of("a", "1", "b", "2"));
+		assertThrows(IllegalArgumentException.class,
+				() -> ArenaDictionary.build(words.descendingMap().entrySet().iterator(), false));
+	}
+	
+	private static void testMatchesTreeMap(ArenaVocabularyStore store) {
+		TreeMap<String, String> expected = new TreeMap<>();
+		Random random = new Random(11);
+		for (int round = 0; round < 5; round++) {
+			for (int i = 0; i < 2_000; i++) {
+				String word = "w" + random.nextInt(500);
+				if (random.nextInt(3) == 0) {
+					assertEquals(expected.remove(word), store.remove(word));
+				} else {
+					String meaning = "m" + random.nextInt(10);
+					assertEquals(expected.put(word, meaning), store.put(word, meaning));
+				}
+			}
+			TreeMap<String, String> batch = new TreeMap<>();
+			for (int i = 0; i < 100; i++) {
+				batch.put("w" + random.nextInt(600), "b" + random.nextInt(10));
+			}
+			store.putAll(batch);
+			expected.putAll(batch);
+			// Includes a repeated word, which must only be counted once
+			List<String> removed = List.of("w" + random.nextInt(600), "w" + random.nextInt(600), "w7", "w7");
+			store.removeAll(removed);
+			expected.keySet().removeAll(removed);
+			assertEquals(expected.size(), store.size());
+			assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(store.snapshot().entrySet()));
+			// Ranges are counted from the dictionary and the overlays, not by iterating
+			assertEquals(expected.subMap("w1", "w3").size(), store.snapshot().subMap("w1", "w3").size());
+			assertEquals(expected.headMap("w2").size(), store.snapshot().headMap("w2").size());
+			assertEquals(expected.tailMap("w4").size(), store.snapshot().tailMap("w4").size());
+			store.compact();
+			assertEquals(0, store.overlaySize());
+			assertEquals(expected, store.snapshot());
+			assertEquals(expected.subMap("w1", "w3"), store.snapshot().subMap("w1", "w3"));
+			for (int i = 0; i < 600; i++) {
+				assertEquals(expected.get("w" + i), store.get("w" + i));
+			}
+		}
+	}
+}
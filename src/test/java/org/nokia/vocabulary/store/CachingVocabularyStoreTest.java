@@ -0,0 +1,99 @@
+package org.nokia.vocabulary.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CachingVocabularyStoreTest {
+	
+	@Test
+	void testChangesMatchTreeMap() {
+		CachingVocabularyStore store = new CachingVocabularyStore(new ConcurrentVocabularyStore(), 64);
+		TreeMap<String, String> expected = new TreeMap<>();
+		Random random = new Random(11);
+		for (int i = 0; i < 20_000; i++) {
+			String word = "w" + random.nextInt(200);
+			switch (random.nextInt(6)) {
+				case 0 -> assertEquals(expected.remove(word), store.remove(word));
+				case 1 -> assertEquals(expected.put(word, "m" + i), store.put(word, "m" + i));
+				case 2 -> {
+					TreeMap<String, String> batch = new TreeMap<>();
+					batch.put(word, "b" + i);
+					batch.put("w" + random.nextInt(200), "b" + i);
+					store.putAll(batch);
+					expected.putAll(batch);
+				}
+				case 3 -> {
+					List<String> removed = List.of(word, "w" + random.nextInt(200));
+					store.removeAll(removed);
+					expected.keySet().removeAll(removed);
+				}
+				default -> assertEquals(expected.get(word), store.get(word));
+			}
+		}
+		assertEquals(expected, store.snapshot());
+		assertEquals(expected.size(), store.size());
+		assertTrue(store.cachedWords() <= 64);
+		assertTrue(store.evictionCount() > 0);
+	}
+	
+	@Test
+	void testCachesHitsAndMisses() {
+		ConcurrentVocabularyStore delegate = new ConcurrentVocabularyStore();
+		delegate.put("apple", "A fruit");
+		CachingVocabularyStore store = new CachingVocabularyStore(delegate, 16);
+		assertEquals("A fruit", store.get("apple"));
+		assertNull(store.get("pear"));
+		assertEquals(2, store.missCount());
+		
+		// Changes made behind the cache's back stay invisible until the words are invalidated
+		delegate.put("pear", "Another fruit");
+		delegate.put("apple", "A red fruit");
+		assertEquals("A fruit", store.get("apple"));
+		assertNull(store.get("pear"));
+		assertEquals(2, store.hitCount());
+		assertEquals(50.0, store.hitRatio());
+		
+		store.put("pear", "A green fruit");
+		store.remove("apple");
+		assertEquals("A green fruit", store.get("pear"));
+		assertNull(store.get("apple"));
+		assertEquals(4, store.missCount());
+	}
+	
+	@Test
+	void testWordsLookedUpAgainSurviveScan() {
+		ConcurrentVocabularyStore delegate = new ConcurrentVocabularyStore();
+		for (int i = 0; i < 1_000; i++) {
+			delegate.put("w" + i, "m" + i);
+		}
+		CachingVocabularyStore store = new CachingVocabularyStore(delegate, 100);
+		for (int round = 0; round < 2; round++) {
+			for (int i = 0; i < 50; i++) {
+				store.get("w" + i);
+			}
+		}
+		// Words looked up only once replace each other in the probationary segment
+		for (int i = 100; i < 1_000; i++) {
+			store.get("w" + i);
+		}
+		long misses = store.missCount();
+		for (int i = 0; i < 50; i++) {
+			assertEquals("m" + i, store.get("w" + i));
+		}
+		assertTrue(store.missCount() - misses < 10, store.missCount() - misses + " hot words were evicted");
+		assertEquals(100, store.cachedWords());
+	}
+	
+	@Test
+	void testRejectsEmptyCache() {
+		assertThrows(IllegalArgumentException.class, () -> new CachingVocabularyStore(new ConcurrentVocabularyStore(), 0));
+	}
+}
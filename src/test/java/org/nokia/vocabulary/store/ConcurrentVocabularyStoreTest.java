@@ -0,0 +1,207 @@
+package org.nokia.vocabulary.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentVocabularyStoreTest {
+	
+	@Test
+	void testMatchesTreeMap() {
+		ConcurrentVocabularyStore store = new ConcurrentVocabularyStore();
+		TreeMap<String, String> expected = new TreeMap<>();
+		Random random = new Random(42);
+		for (int i = 0; i < 20_000; i++) {
+			String word = "w" + random.nextInt(2_000);
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(word), store.remove(word));
+			} else {
+				String meaning = "m" + random.nextInt(10);
+				assertEquals(expected.put(word, meaning), store.put(word, meaning));
+			}
+		}
+		SortedMap<String, String> snapshot = store.snapshot();
+		assertEquals(expected, snapshot);
+		assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(snapshot.entrySet()));
+		assertEquals(expected.firstKey(), snapshot.firstKey());
+		assertEquals(expected.lastKey(), snapshot.lastKey());
+		assertEquals(expected.subMap("w1", "w5"), snapshot.subMap("w1", "w5"));
+		assertEquals(expected.subMap("w1", "w5").size(), snapshot.subMap("w1", "w5").size());
+		assertEquals(expected.headMap("w3").lastKey(), snapshot.headMap("w3").lastKey());
+		assertEquals(expected.tailMap("w7").firstKey(), snapshot.tailMap("w7").firstKey());
+		assertEquals(expected.tailMap("w3").headMap("w4"), snapshot.tailMap("w3").headMap("w4"));
+	}
+	
+	@Test
+	void testPutAllMatchesTreeMapAndStaysBalanced() {
+		ConcurrentVocabularyStore store = new ConcurrentVocabularyStore();
+		TreeMap<String, String> expected = new TreeMap<>();
+		Random random = new Random(11);
+		for (int round = 0; round < 200; round++) {
+			TreeMap<String, String> batch = new TreeMap<>();
+			int size = random.nextInt(round < 100 ? 50 : 5_000);
+			for (int i = 0; i < size; i++) {
+				batch.put("w" + random.nextInt(50_000), "m" + random.nextInt(10));
+			}
+			store.putAll(batch);
+			expected.putAll(batch);
+			for (int i = 0; i < 100; i++) {
+				String word = "w" + random.nextInt(50_000);
+				assertEquals(expected.remove(word), store.remove(word));
+			}
+			List<String> removed = new ArrayList<>();
+			for (int i = 0; i < 100; i++) {
+				removed.add("w" + random.nextInt(50_000));
+			}
+			store.removeAll(removed);
+			expected.keySet().removeAll(removed);
+		}
+		PersistentSortedMap snapshot = (PersistentSortedMap) store.snapshot();
+		assertEquals(expected, snapshot);
+		assertEquals(expected.size(), snapshot.size());
+		assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(snapshot.entrySet()));
+		// An AVL tree is at most about 1.44 times as high as a perfectly balanced one
+		assertTrue(snapshot.height() <= 1.45 * (Math.log(expected.size() + 2) / Math.log(2)));
+		assertSame(snapshot, snapshot.plusAll(new TreeMap<>(expected.headMap("w2"))));
+	}
+	
+	@Test
+	void testSnapshotIsIsolatedAndImmutable() {
+		ConcurrentVocabularyStore store = new ConcurrentVocabularyStore();
+		store.put("apple", "A fruit");
+		SortedMap<String, String> snapshot = store.snapshot();
+		store.put("apple", "A sweet red fruit");
+		store.put("banana", "A yellow fruit");
+		store.remove("apple");
+		
+		assertEquals(Map.of("apple", "A fruit"), snapshot);
+		assertEquals(Map.of("banana", "A yellow fruit"), store.snapshot());
+		assertNull(store.get("apple"));
+		assertThrows(UnsupportedOperationException.class, () -> snapshot.put("cherry", "A small fruit"));
+		assertThrows(UnsupportedOperationException.class, () -> snapshot.entrySet().iterator().next().setValue("x"));
+	}
+	
+	@Test
+	void testEstimatedMemoryUsageFollowsContent() {
+		ConcurrentVocabularyStore store = new ConcurrentVocabularyStore();
+		assertEquals(0, store.estimatedMemoryUsage());
+		store.put("apple", "A fruit");
+		long one = store.estimatedMemoryUsage();
+		assertTrue(one > "apple".length() + "A fruit".length());
+		store.putAll(new TreeMap<>(Map.of("banana", "A yellow fruit", "cherry", "A small fruit")));
+		store.put("apple", "A sweet red fruit");
+		long three = store.estimatedMemoryUsage();
+		// Every entry costs the same fixed overhead plus one byte per character of its word and meaning
+		long overhead = one - characters("apple", "A fruit");
+		assertEquals(3 * overhead + characters("apple", "A sweet red fruit") + characters("banana", "A yellow fruit")
+				+ characters("cherry", "A small fruit"), three);
+		store.remove("banana");
+		store.remove("cherry");
+		store.remove("apple");
+		assertEquals(0, store.estimatedMemoryUsage());
+	}
+	
+	/**
+	 * Readers hammer the store while a writer keeps rewriting it. Every snapshot a reader takes must be internally
+	 * consistent, whatever the number of reader threads. How read throughput scales with the number of readers is
+	 * measured by {@code ConcurrentReadBenchmark}.
+	 */
+	@Test
+	void testConcurrentReadsSeeConsistentSnapshots() throws Exception {
+		ConcurrentVocabularyStore store = new ConcurrentVocabularyStore();
+		int words = 100_000;
+		for (int i = 0; i < words; i++) {
+			store.put(word(i), "0");
+		}
+		int cores = Runtime.getRuntime().availableProcessors();
+		List<Integer> threadCounts = new ArrayList<>(List.of(1));
+		for (int threads = 2; threads <= cores; threads *= 2) {
+			threadCounts.add(threads);
+		}
+		for (int threads : threadCounts) {
+			assertTrue(readConcurrently(store, words, threads) > 0);
+		}
+	}
+	
+	/**
+	 * @return The number of lookups the readers made.
+	 */
+	private long readConcurrently(ConcurrentVocabularyStore store, int words, int threads) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+		AtomicBoolean running = new AtomicBoolean(true);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			// The writer bumps every meaning of a whole pass to the same generation, one word at a time
+			Future<?> writer = executor.submit(() -> {
+				start.await();
+				for (int generation = 1; running.get(); generation++) {
+					for (int i = 0; i < words && running.get(); i++) {
+						store.put(word(i), Integer.toString(generation));
+					}
+				}
+				return null;
+			});
+			List<Future<Long>> readers = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				int seed = t;
+				readers.add(executor.submit(() -> {
+					Random random = new Random(seed);
+					start.await();
+					long lookups = 0;
+					while (running.get()) {
+						for (int i = 0; i < 1_000; i++) {
+							assertTrue(store.get(word(random.nextInt(words))) != null);
+						}
+						lookups += 1_000;
+						// The writer bumps words in order, so within a snapshot meanings never increase along word order
+						SortedMap<String, String> snapshot = store.snapshot();
+						int previous = Integer.MAX_VALUE;
+						for (String meaning : snapshot.subMap(word(0), word(100)).values()) {
+							int generation = Integer.parseInt(meaning);
+							assertTrue(generation <= previous);
+							previous = generation;
+						}
+					}
+					return lookups;
+				}));
+			}
+			start.countDown();
+			Thread.sleep(500);
+			running.set(false);
+			long total = 0;
+			for (Future<Long> reader : readers) {
+				total += reader.get();
+			}
+			writer.get();
+			return total;
+		} finally {
+			executor.shutdownNow();
+			executor.awaitTermination(5, TimeUnit.SECONDS);
+		}
+	}
+	
+	private static int characters(String word, String meaning) {
+		return word.length() + meaning.length();
+	}
+	
+	private static String word(int i) {
+		return String.format("word%06d", i);
+	}
+}
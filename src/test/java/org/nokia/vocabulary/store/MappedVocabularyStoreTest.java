@@ -0,0 +1,76 @@
+package org.nokia.vocabulary.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nokia.vocabulary.file.DictionaryConverter;
+import org.nokia.vocabulary.file.FileHandler;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MappedVocabularyStoreTest {
+	
+	@TempDir
+	Path tempDir;
+	
+	@Test
+	void testOverlayAndCheckpointMatchTreeMap() throws IOException {
+		Path path = tempDir.resolve("vocabulary.dict");
+		MappedVocabularyStore store = new MappedVocabularyStore(path, new DictionaryConverter(new FileHandler()));
+		TreeMap<String, String> expected = new TreeMap<>();
+		Random random = new Random(7);
+		for (int round = 0; round < 5; round++) {
+			for (int i = 0; i < 2_000; i++) {
+				String word = "w" + random.nextInt(500);
+				if (random.nextInt(3) == 0) {
+					assertEquals(expected.remove(word), store.remove(word));
+				} else {
+					String meaning = "m" + random.nextInt(10);
+					assertEquals(expected.put(word, meaning), store.put(word, meaning));
+				}
+			}
+			TreeMap<String, String> batch = new TreeMap<>();
+			for (int i = 0; i < 100; i++) {
+				batch.put("w" + random.nextInt(600), "b" + random.nextInt(10));
+			}
+			store.putAll(batch);
+			expected.putAll(batch);
+			assertEquals(expected.size(), store.size());
+			assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(store.snapshot().entrySet()));
+			assertEquals(expected.subMap("w1", "w3"), store.snapshot().subMap("w1", "w3"));
+			store.checkpoint(store.snapshot());
+			assertEquals(0, store.overlaySize());
+			assertEquals(expected, store.snapshot());
+		}
+		
+		MappedVocabularyStore reopened = new MappedVocabularyStore(path, new DictionaryConverter(new FileHandler()));
+		assertEquals(expected, reopened.snapshot());
+	}
+	
+	@Test
+	void testChangesAfterSnapshotSurviveCheckpoint() throws IOException {
+		Path path = tempDir.resolve("vocabulary.dict");
+		MappedVocabularyStore store = new MappedVocabularyStore(path, new DictionaryConverter(new FileHandler()));
+		store.put("apple", "A fruit");
+		store.put("banana", "A yellow fruit");
+		store.put("cherry", "A small fruit");
+		SortedMap<String, String> snapshot = store.snapshot();
+		store.put("apple", "A sweet red fruit");
+		store.remove("banana");
+		store.put("date", "A sweet fruit");
+		store.checkpoint(snapshot);
+		
+		assertEquals(Map.of("apple", "A sweet red fruit", "cherry", "A small fruit", "date", "A sweet fruit"), store.snapshot());
+		assertNull(store.get("banana"));
+		assertEquals(3, store.size());
+		assertEquals(Map.of("apple", "A fruit", "banana", "A yellow fruit", "cherry", "A small fruit"), snapshot);
+	}
+}
@@ -0,0 +1,98 @@
+package org.nokia.vocabulary.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VersionHistoryTest {
+	
+	@Test
+	void testLookupsMatchEveryRetainedVersion() {
+		int retention = 50;
+		ConcurrentVocabularyStore store = new ConcurrentVocabularyStore();
+		// Collections run at once, so that every lookup below is made after the ones due so far
+		VersionHistory history = new VersionHistory(retention, Runnable::run);
+		history.reset(0);
+		history.publish(0);
+		List<TreeMap<String, String>> versions = new ArrayList<>();
+		versions.add(new TreeMap<>());
+		Random random = new Random(5);
+		for (int i = 1; i <= 2_000; i++) {
+			String word = "w" + random.nextInt(40);
+			TreeMap<String, String> expected = new TreeMap<>(versions.get(i - 1));
+			if (random.nextInt(4) == 0) {
+				history.record(word, store.get(word), null, i);
+				store.remove(word);
+				expected.remove(word);
+			} else {
+				history.record(word, store.get(word), "m" + i, i);
+				store.put(word, "m" + i);
+				expected.put(word, "m" + i);
+			}
+			history.publish(i);
+			versions.add(expected);
+			
+			long version = Math.max(0, i - random.nextInt(retention + 1));
+			String probe = "w" + random.nextInt(40);
+			assertEquals(versions.get((int) version).get(probe), history.get(store, probe, version), probe + " at " + version);
+		}
+		assertTrue(history.size() <= 40);
+		assertEquals(1_950, history.oldest());
+		assertThrows(IllegalArgumentException.class, () -> history.get(store, "w1", 1_949));
+		assertThrows(IllegalArgumentException.class, () -> history.get(store, "w1", 2_001));
+	}
+	
+	@Test
+	void testHistoryListsChangesNewestFirst() {
+		ConcurrentVocabularyStore store = new ConcurrentVocabularyStore();
+		store.put("apple", "A fruit");
+		VersionHistory history = new VersionHistory(10, Runnable::run);
+		history.reset(3);
+		history.publish(3);
+		history.record("apple", store.get("apple"), "A red fruit", 4);
+		store.put("apple", "A red fruit");
+		history.publish(4);
+		history.record("apple", store.get("apple"), null, 5);
+		store.remove("apple");
+		history.publish(5);
+		// Recorded but not applied yet
+		history.record("apple", null, "A company", 6);
+		
+		assertEquals(List.of(new VersionHistory.Version(5, null), new VersionHistory.Version(4, "A red fruit"),
+				new VersionHistory.Version(3, "A fruit")), history.history(store, "apple"));
+		assertTrue(history.history(store, "pear").isEmpty());
+		assertEquals("A fruit", history.get(store, "apple", 3));
+		assertThrows(IllegalArgumentException.class, () -> history.get(store, "apple", 2));
+	}
+	
+	@Test
+	void testLargeBatchResetsHistory() {
+		ConcurrentVocabularyStore store = new ConcurrentVocabularyStore();
+		VersionHistory history = new VersionHistory(2, Runnable::run);
+		history.reset(0);
+		history.publish(0);
+		history.record("apple", null, "A fruit", 1);
+		store.put("apple", "A fruit");
+		history.publish(1);
+		
+		TreeMap<String, String> batch = new TreeMap<>();
+		batch.put("apple", "A red fruit");
+		batch.put("banana", "A yellow fruit");
+		batch.put("cherry", "A small fruit");
+		history.recordPuts(batch, store::get, 4);
+		store.putAll(batch);
+		history.publish(4);
+		
+		assertEquals(4, history.oldest());
+		assertEquals(0, history.size());
+		assertEquals("A red fruit", history.get(store, "apple", 4));
+		assertThrows(IllegalArgumentException.class, () -> history.get(store, "apple", 1));
+	}
+}